@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that audit events are encoded into; reused across events to avoid allocating a buffer, or an
+ * intermediate string, per event. Not thread-safe: get() returns an instance owned by the calling thread.
+ */
+public class AuditEncodeBuffer {
+	private static final int INITIAL_CAPACITY = 4 * 1024;
+	private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+	private static final ThreadLocal<AuditEncodeBuffer> THREAD_BUFFER = ThreadLocal.withInitial(AuditEncodeBuffer::new);
+
+	byte[] buf;
+	int    count;
+
+	public AuditEncodeBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public AuditEncodeBuffer(int capacity) {
+		buf = new byte[capacity];
+	}
+
+	/**
+	 * @return the buffer of the calling thread, after reset()
+	 */
+	public static AuditEncodeBuffer get() {
+		AuditEncodeBuffer ret = THREAD_BUFFER.get();
+
+		ret.reset();
+
+		return ret;
+	}
+
+	/**
+	 * Discards the contents; a buffer that grew beyond 1MB is released.
+	 */
+	public void reset() {
+		count = 0;
+
+		if (buf.length > MAX_RETAINED_CAPACITY) {
+			buf = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the backing array; valid data is in [0, size())
+	 */
+	public byte[] array() {
+		return buf;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, count);
+	}
+
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(buf, 0, count);
+	}
+
+	@Override
+	public String toString() {
+		return new String(buf, 0, count, StandardCharsets.UTF_8);
+	}
+
+	public void write(int b) {
+		ensureCapacity(1);
+
+		buf[count++] = (byte) b;
+	}
+
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	public void write(byte[] b, int off, int len) {
+		ensureCapacity(len);
+
+		System.arraycopy(b, off, buf, count, len);
+
+		count += len;
+	}
+
+	/**
+	 * Writes the string in UTF-8; unpaired surrogates are written as '?', like String.getBytes() does.
+	 */
+	public void writeUtf8(String s) {
+		int len = s.length();
+
+		ensureCapacity(len);
+
+		int i = 0;
+
+		// ASCII fast path
+		for (; i < len; i++) {
+			char c = s.charAt(i);
+
+			if (c >= 0x80) {
+				break;
+			}
+
+			buf[count++] = (byte) c;
+		}
+
+		for (; i < len; i++) {
+			i = writeUtf8Char(s, i);
+		}
+	}
+
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+
+		while ((value & ~0x7FL) != 0) {
+			buf[count++] = (byte) ((value & 0x7F) | 0x80);
+
+			value >>>= 7;
+		}
+
+		buf[count++] = (byte) value;
+	}
+
+	public void ensureCapacity(int len) {
+		int required = count + len;
+
+		if (required > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(required, buf.length * 2));
+		}
+	}
+
+	/**
+	 * Writes the character at index i, which can be the first of a surrogate pair.
+	 *
+	 * @return index of the last character written
+	 */
+	int writeUtf8Char(String s, int i) {
+		char c = s.charAt(i);
+
+		ensureCapacity(4);
+
+		if (c < 0x80) {
+			buf[count++] = (byte) c;
+		} else if (c < 0x800) {
+			buf[count++] = (byte) (0xC0 | (c >> 6));
+			buf[count++] = (byte) (0x80 | (c & 0x3F));
+		} else if (Character.isSurrogate(c)) {
+			if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+
+				buf[count++] = (byte) (0xF0 | (cp >> 18));
+				buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				buf[count++] = (byte) (0x80 | (cp & 0x3F));
+			} else {
+				buf[count++] = '?';
+			}
+		} else {
+			buf[count++] = (byte) (0xE0 | (c >> 12));
+			buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buf[count++] = (byte) (0x80 | (c & 0x3F));
+		}
+
+		return i;
+	}
+
+	static int utf8Length(String s) {
+		int len = s.length();
+		int ret = len;
+
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					ret += 1;
+				} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+					ret += 2; // 4 bytes for 2 chars
+					i++;
+				} else if (!Character.isSurrogate(c)) {
+					ret += 2;
+				}
+			}
+		}
+
+		return ret;
+	}
+}
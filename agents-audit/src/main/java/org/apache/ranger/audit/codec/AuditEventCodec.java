@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+
+/**
+ * Serializes audit events for destinations and spool files. Implementations must be thread-safe; the codec to use is
+ * selected by audit configuration - see AuditEventCodecFactory.
+ */
+public interface AuditEventCodec {
+	String getName();
+
+	/**
+	 * @return true if events are encoded as JSON text, in UTF-8
+	 */
+	boolean isText();
+
+	/**
+	 * Appends the encoded event to the buffer.
+	 */
+	void encode(AuditEventBase event, AuditEncodeBuffer out);
+
+	/**
+	 * Decodes an event from the remaining bytes of the given buffer.
+	 */
+	AuditEventBase decode(ByteBuffer data);
+
+	/**
+	 * @return the encoded event as a string; supported only by text codecs
+	 */
+	default String encodeToString(AuditEventBase event) {
+		if (!isText()) {
+			throw new UnsupportedOperationException(getName() + ": not a text codec");
+		}
+
+		AuditEncodeBuffer buffer = AuditEncodeBuffer.get();
+
+		encode(event, buffer);
+
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Returns the audit event codec for a configuration property. The property value can be the name of a built-in codec -
+ * gson, json (default) or binary - or the name of a class implementing AuditEventCodec. When the property is not set,
+ * xasecure.audit.codec is used.
+ */
+public class AuditEventCodecFactory {
+	private static final Logger LOG = LoggerFactory.getLogger(AuditEventCodecFactory.class);
+
+	public static final String PROP_CODEC            = "codec";
+	public static final String PROP_FILE_SPOOL_CODEC = "filespool.codec";
+	public static final String PROP_DEFAULT_CODEC    = "xasecure.audit.codec";
+
+	private static final AuditEventCodec DEFAULT_CODEC = new JsonAuditEventCodec();
+	private static final AuditEventCodec BINARY_CODEC  = new BinaryAuditEventCodec();
+
+	private static final Map<String, AuditEventCodec> CODECS = new ConcurrentHashMap<>();
+
+	static {
+		register(new GsonAuditEventCodec());
+		register(DEFAULT_CODEC);
+		register(BINARY_CODEC);
+	}
+
+	private AuditEventCodecFactory() {
+	}
+
+	public static AuditEventCodec getDefaultCodec() {
+		return DEFAULT_CODEC;
+	}
+
+	public static AuditEventCodec getCodec(Properties props, String propName) {
+		String name = MiscUtil.getStringProperty(props, propName, null);
+
+		if (StringUtils.isBlank(name)) {
+			name = MiscUtil.getStringProperty(props, PROP_DEFAULT_CODEC, null);
+		}
+
+		return StringUtils.isBlank(name) ? DEFAULT_CODEC : getCodec(name.trim());
+	}
+
+	/**
+	 * @return the configured codec, if it is a text codec; otherwise the default codec
+	 */
+	public static AuditEventCodec getTextCodec(Properties props, String propName) {
+		AuditEventCodec ret = getCodec(props, propName);
+
+		if (!ret.isText()) {
+			LOG.warn(propName + ": codec " + ret.getName() + " doesn't produce text. Using " + DEFAULT_CODEC.getName());
+
+			ret = DEFAULT_CODEC;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Decodes an event encoded by a JSON codec or by the binary codec - as in spool files, which can have both.
+	 */
+	public static AuditEventBase decode(ByteBuffer data) {
+		return BinaryAuditEventCodec.isEncoded(data) ? BINARY_CODEC.decode(data) : DEFAULT_CODEC.decode(data);
+	}
+
+	public static AuditEventCodec getCodec(String nameOrClassName) {
+		AuditEventCodec ret = CODECS.get(nameOrClassName);
+
+		if (ret == null) {
+			try {
+				ret = Class.forName(nameOrClassName).asSubclass(AuditEventCodec.class).newInstance();
+
+				CODECS.putIfAbsent(nameOrClassName, ret);
+			} catch (Exception excp) {
+				LOG.error("Failed to create audit event codec " + nameOrClassName + ". Using " + DEFAULT_CODEC.getName(), excp);
+
+				ret = DEFAULT_CODEC;
+			}
+		}
+
+		return ret;
+	}
+
+	private static void register(AuditEventCodec codec) {
+		CODECS.put(codec.getName(), codec);
+	}
+}
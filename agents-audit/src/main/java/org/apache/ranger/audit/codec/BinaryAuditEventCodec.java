@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Compact binary encoding of AuthzAuditEvent, for spool files written and read by audit queues - not for destinations
+ * read by other applications. An encoded event starts with the MAGIC byte - which can't start JSON text, so binary and
+ * JSON records can be told apart - and the encoding: ENCODING_FIELDS is followed by the fields of the event in their
+ * declaration order: numbers as zig-zag varints, strings as varint of the UTF-8 length + 1 (0 for null) followed by
+ * the bytes. Events of other types are written as ENCODING_JSON followed by the JSON from Gson.
+ */
+public class BinaryAuditEventCodec implements AuditEventCodec {
+	public static final String NAME = "binary";
+
+	public static final byte MAGIC           = (byte) 0xA7;
+	public static final byte ENCODING_FIELDS = 1;
+	public static final byte ENCODING_JSON   = 2;
+
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[4096]);
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isText() {
+		return false;
+	}
+
+	/**
+	 * @return true if the data, at its current position, is an event encoded by this codec
+	 */
+	public static boolean isEncoded(ByteBuffer data) {
+		return data.remaining() > 1 && data.get(data.position()) == MAGIC;
+	}
+
+	@Override
+	public void encode(AuditEventBase event, AuditEncodeBuffer out) {
+		out.write(MAGIC);
+
+		if (event == null || event.getClass() != AuthzAuditEvent.class) {
+			out.write(ENCODING_JSON);
+			out.writeUtf8(MiscUtil.stringify(event));
+
+			return;
+		}
+
+		AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+		out.write(ENCODING_FIELDS);
+		writeLong(out, authzEvent.getRepositoryType());
+		writeString(out, authzEvent.getRepositoryName());
+		writeString(out, authzEvent.getUser());
+		writeNullableLong(out, authzEvent.getEventTime() != null ? authzEvent.getEventTime().getTime() : null);
+		writeString(out, authzEvent.getAccessType());
+		writeString(out, authzEvent.getResourcePath());
+		writeString(out, authzEvent.getResourceType());
+		writeString(out, authzEvent.getAction());
+		writeLong(out, authzEvent.getAccessResult());
+		writeString(out, authzEvent.getAgentId());
+		writeLong(out, authzEvent.getPolicyId());
+		writeString(out, authzEvent.getResultReason());
+		writeString(out, authzEvent.getAclEnforcer());
+		writeString(out, authzEvent.getSessionId());
+		writeString(out, authzEvent.getClientType());
+		writeString(out, authzEvent.getClientIP());
+		writeString(out, authzEvent.getRequestData());
+		writeString(out, authzEvent.getAgentHostname());
+		writeString(out, authzEvent.getLogType());
+		writeString(out, authzEvent.getEventId());
+		writeLong(out, authzEvent.getSeqNum());
+		writeLong(out, authzEvent.getEventCount());
+		writeLong(out, authzEvent.getEventDurationMS());
+
+		Set<String> tags = authzEvent.getTags();
+
+		if (tags == null) {
+			out.writeVarLong(0);
+		} else {
+			out.writeVarLong(tags.size() + 1);
+
+			for (String tag : tags) {
+				writeString(out, tag);
+			}
+		}
+
+		writeString(out, authzEvent.getAdditionalInfo());
+		writeString(out, authzEvent.getClusterName());
+		writeString(out, authzEvent.getZoneName());
+		writeNullableLong(out, authzEvent.getPolicyVersion());
+	}
+
+	@Override
+	public AuditEventBase decode(ByteBuffer data) {
+		if (!isEncoded(data)) {
+			throw new IllegalArgumentException("not an event encoded by " + NAME + " codec");
+		}
+
+		data.get(); // MAGIC
+
+		byte encoding = data.get();
+
+		if (encoding == ENCODING_JSON) {
+			return MiscUtil.fromJson(readUtf8(data, data.remaining()), AuthzAuditEvent.class);
+		} else if (encoding != ENCODING_FIELDS) {
+			throw new IllegalArgumentException("unsupported encoding " + encoding);
+		}
+
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setRepositoryType((int) readLong(data));
+		ret.setRepositoryName(readString(data));
+		ret.setUser(readString(data));
+
+		Long eventTime = readNullableLong(data);
+
+		ret.setEventTime(eventTime != null ? new Date(eventTime) : null);
+		ret.setAccessType(readString(data));
+		ret.setResourcePath(readString(data));
+		ret.setResourceType(readString(data));
+		ret.setAction(readString(data));
+		ret.setAccessResult((short) readLong(data));
+		ret.setAgentId(readString(data));
+		ret.setPolicyId(readLong(data));
+		ret.setResultReason(readString(data));
+		ret.setAclEnforcer(readString(data));
+		ret.setSessionId(readString(data));
+		ret.setClientType(readString(data));
+		ret.setClientIP(readString(data));
+		ret.setRequestData(readString(data));
+		ret.setAgentHostname(readString(data));
+		ret.setLogType(readString(data));
+		ret.setEventId(readString(data));
+		ret.setSeqNum(readLong(data));
+		ret.setEventCount(readLong(data));
+		ret.setEventDurationMS(readLong(data));
+
+		long tagCount = readVarLong(data);
+
+		if (tagCount == 0) {
+			ret.setTags(null);
+		} else {
+			Set<String> tags = new LinkedHashSet<>();
+
+			for (long i = 1; i < tagCount; i++) {
+				tags.add(readString(data));
+			}
+
+			ret.setTags(tags);
+		}
+
+		ret.setAdditionalInfo(readString(data));
+		ret.setClusterName(readString(data));
+		ret.setZoneName(readString(data));
+		ret.setPolicyVersion(readNullableLong(data));
+
+		return ret;
+	}
+
+	static String readUtf8(ByteBuffer data, int length) {
+		final String ret;
+
+		if (data.hasArray()) {
+			ret = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+
+			data.position(data.position() + length);
+		} else {
+			byte[] scratch = SCRATCH.get();
+
+			if (scratch.length < length) {
+				scratch = new byte[length];
+
+				SCRATCH.set(scratch);
+			}
+
+			data.get(scratch, 0, length);
+
+			ret = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		return ret;
+	}
+
+	private static void writeString(AuditEncodeBuffer out, String value) {
+		if (value == null) {
+			out.writeVarLong(0);
+		} else {
+			out.writeVarLong(AuditEncodeBuffer.utf8Length(value) + 1L);
+			out.writeUtf8(value);
+		}
+	}
+
+	private static void writeLong(AuditEncodeBuffer out, long value) {
+		out.writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	private static void writeNullableLong(AuditEncodeBuffer out, Long value) {
+		if (value == null) {
+			out.writeVarLong(0);
+		} else {
+			out.writeVarLong(((value << 1) ^ (value >> 63)) + 1);
+		}
+	}
+
+	private static String readString(ByteBuffer data) {
+		long length = readVarLong(data);
+
+		return length == 0 ? null : readUtf8(data, (int) (length - 1));
+	}
+
+	private static long readLong(ByteBuffer data) {
+		long value = readVarLong(data);
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static Long readNullableLong(ByteBuffer data) {
+		long value = readVarLong(data);
+
+		if (value == 0) {
+			return null;
+		}
+
+		value--;
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarLong(ByteBuffer data) {
+		long ret   = 0;
+		int  shift = 0;
+
+		while (true) {
+			byte b = data.get();
+
+			ret |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return ret;
+			}
+
+			shift += 7;
+
+			if (shift > 63) {
+				throw new IllegalArgumentException("malformed varint");
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Encodes events to JSON using Gson, via MiscUtil.stringify().
+ */
+public class GsonAuditEventCodec implements AuditEventCodec {
+	public static final String NAME = "gson";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isText() {
+		return true;
+	}
+
+	@Override
+	public void encode(AuditEventBase event, AuditEncodeBuffer out) {
+		out.writeUtf8(MiscUtil.stringify(event));
+	}
+
+	@Override
+	public AuditEventBase decode(ByteBuffer data) {
+		return MiscUtil.fromJson(BinaryAuditEventCodec.readUtf8(data, data.remaining()), AuthzAuditEvent.class);
+	}
+
+	@Override
+	public String encodeToString(AuditEventBase event) {
+		return MiscUtil.stringify(event);
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Encodes AuthzAuditEvent to JSON by writing its fields directly into the buffer - without reflection or intermediate
+ * strings. The output is identical to that of MiscUtil.stringify(): same field names and order, null fields omitted,
+ * same date format and same escaping of strings. Events of other types are encoded using Gson.
+ */
+public class JsonAuditEventCodec implements AuditEventCodec {
+	public static final String NAME = "json";
+
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS"; // as in MiscUtil
+
+	private static final byte[] FIELD_REPO_TYPE       = ascii("{\"repoType\":");
+	private static final byte[] FIELD_REPO            = ascii(",\"repo\":");
+	private static final byte[] FIELD_REQ_USER        = ascii(",\"reqUser\":");
+	private static final byte[] FIELD_EVT_TIME        = ascii(",\"evtTime\":");
+	private static final byte[] FIELD_ACCESS          = ascii(",\"access\":");
+	private static final byte[] FIELD_RESOURCE        = ascii(",\"resource\":");
+	private static final byte[] FIELD_RES_TYPE        = ascii(",\"resType\":");
+	private static final byte[] FIELD_ACTION          = ascii(",\"action\":");
+	private static final byte[] FIELD_RESULT          = ascii(",\"result\":");
+	private static final byte[] FIELD_AGENT           = ascii(",\"agent\":");
+	private static final byte[] FIELD_POLICY          = ascii(",\"policy\":");
+	private static final byte[] FIELD_REASON          = ascii(",\"reason\":");
+	private static final byte[] FIELD_ENFORCER        = ascii(",\"enforcer\":");
+	private static final byte[] FIELD_SESS            = ascii(",\"sess\":");
+	private static final byte[] FIELD_CLI_TYPE        = ascii(",\"cliType\":");
+	private static final byte[] FIELD_CLI_IP          = ascii(",\"cliIP\":");
+	private static final byte[] FIELD_REQ_DATA        = ascii(",\"reqData\":");
+	private static final byte[] FIELD_AGENT_HOST      = ascii(",\"agentHost\":");
+	private static final byte[] FIELD_LOG_TYPE        = ascii(",\"logType\":");
+	private static final byte[] FIELD_ID              = ascii(",\"id\":");
+	private static final byte[] FIELD_SEQ_NUM         = ascii(",\"seq_num\":");
+	private static final byte[] FIELD_EVENT_COUNT     = ascii(",\"event_count\":");
+	private static final byte[] FIELD_EVENT_DUR_MS    = ascii(",\"event_dur_ms\":");
+	private static final byte[] FIELD_TAGS            = ascii(",\"tags\":");
+	private static final byte[] FIELD_ADDITIONAL_INFO = ascii(",\"additional_info\":");
+	private static final byte[] FIELD_CLUSTER_NAME    = ascii(",\"cluster_name\":");
+	private static final byte[] FIELD_ZONE_NAME       = ascii(",\"zone_name\":");
+	private static final byte[] FIELD_POLICY_VERSION  = ascii(",\"policy_version\":");
+	private static final byte[] NULL                  = ascii("null");
+
+	// escapes used by Gson, with HTML-safe escaping enabled by default
+	private static final byte[][] ESCAPES = new byte[128][];
+	private static final byte[]   HEX     = ascii("0123456789abcdef");
+
+	private static final ThreadLocal<DateFormatter> DATE_FORMATTER = ThreadLocal.withInitial(DateFormatter::new);
+
+	static {
+		for (int c = 0; c < 0x20; c++) {
+			ESCAPES[c] = unicodeEscape(c);
+		}
+
+		ESCAPES['"']  = ascii("\\\"");
+		ESCAPES['\\'] = ascii("\\\\");
+		ESCAPES['\t'] = ascii("\\t");
+		ESCAPES['\b'] = ascii("\\b");
+		ESCAPES['\n'] = ascii("\\n");
+		ESCAPES['\r'] = ascii("\\r");
+		ESCAPES['\f'] = ascii("\\f");
+		ESCAPES['<']  = unicodeEscape('<');
+		ESCAPES['>']  = unicodeEscape('>');
+		ESCAPES['&']  = unicodeEscape('&');
+		ESCAPES['=']  = unicodeEscape('=');
+		ESCAPES['\''] = unicodeEscape('\'');
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isText() {
+		return true;
+	}
+
+	@Override
+	public void encode(AuditEventBase event, AuditEncodeBuffer out) {
+		if (event == null || event.getClass() != AuthzAuditEvent.class) {
+			// subclasses might have additional fields
+			String json = MiscUtil.stringify(event);
+
+			if (json != null) {
+				out.writeUtf8(json);
+			}
+
+			return;
+		}
+
+		AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+		out.write(FIELD_REPO_TYPE);
+		writeLong(out, authzEvent.getRepositoryType());
+		writeField(out, FIELD_REPO, authzEvent.getRepositoryName());
+		writeField(out, FIELD_REQ_USER, authzEvent.getUser());
+		writeField(out, FIELD_EVT_TIME, authzEvent.getEventTime());
+		writeField(out, FIELD_ACCESS, authzEvent.getAccessType());
+		writeField(out, FIELD_RESOURCE, authzEvent.getResourcePath());
+		writeField(out, FIELD_RES_TYPE, authzEvent.getResourceType());
+		writeField(out, FIELD_ACTION, authzEvent.getAction());
+		writeField(out, FIELD_RESULT, authzEvent.getAccessResult());
+		writeField(out, FIELD_AGENT, authzEvent.getAgentId());
+		writeField(out, FIELD_POLICY, authzEvent.getPolicyId());
+		writeField(out, FIELD_REASON, authzEvent.getResultReason());
+		writeField(out, FIELD_ENFORCER, authzEvent.getAclEnforcer());
+		writeField(out, FIELD_SESS, authzEvent.getSessionId());
+		writeField(out, FIELD_CLI_TYPE, authzEvent.getClientType());
+		writeField(out, FIELD_CLI_IP, authzEvent.getClientIP());
+		writeField(out, FIELD_REQ_DATA, authzEvent.getRequestData());
+		writeField(out, FIELD_AGENT_HOST, authzEvent.getAgentHostname());
+		writeField(out, FIELD_LOG_TYPE, authzEvent.getLogType());
+		writeField(out, FIELD_ID, authzEvent.getEventId());
+		writeField(out, FIELD_SEQ_NUM, authzEvent.getSeqNum());
+		writeField(out, FIELD_EVENT_COUNT, authzEvent.getEventCount());
+		writeField(out, FIELD_EVENT_DUR_MS, authzEvent.getEventDurationMS());
+		writeField(out, FIELD_TAGS, authzEvent.getTags());
+		writeField(out, FIELD_ADDITIONAL_INFO, authzEvent.getAdditionalInfo());
+		writeField(out, FIELD_CLUSTER_NAME, authzEvent.getClusterName());
+		writeField(out, FIELD_ZONE_NAME, authzEvent.getZoneName());
+
+		if (authzEvent.getPolicyVersion() != null) {
+			writeField(out, FIELD_POLICY_VERSION, authzEvent.getPolicyVersion().longValue());
+		}
+
+		out.write('}');
+	}
+
+	@Override
+	public AuditEventBase decode(ByteBuffer data) {
+		return MiscUtil.fromJson(BinaryAuditEventCodec.readUtf8(data, data.remaining()), AuthzAuditEvent.class);
+	}
+
+	private static void writeField(AuditEncodeBuffer out, byte[] name, String value) {
+		if (value != null) {
+			out.write(name);
+			writeString(out, value);
+		}
+	}
+
+	private static void writeField(AuditEncodeBuffer out, byte[] name, long value) {
+		out.write(name);
+		writeLong(out, value);
+	}
+
+	private static void writeField(AuditEncodeBuffer out, byte[] name, Date value) {
+		if (value != null) {
+			out.write(name);
+			out.write('"');
+			DATE_FORMATTER.get().format(value.getTime(), out);
+			out.write('"');
+		}
+	}
+
+	private static void writeField(AuditEncodeBuffer out, byte[] name, Set<String> values) {
+		if (values != null) {
+			boolean isFirst = true;
+
+			out.write(name);
+			out.write('[');
+
+			for (String value : values) {
+				if (!isFirst) {
+					out.write(',');
+				}
+
+				if (value != null) {
+					writeString(out, value);
+				} else {
+					out.write(NULL);
+				}
+
+				isFirst = false;
+			}
+
+			out.write(']');
+		}
+	}
+
+	private static void writeString(AuditEncodeBuffer out, String value) {
+		int len = value.length();
+
+		out.ensureCapacity(len + 2);
+		out.buf[out.count++] = '"';
+
+		for (int i = 0; i < len; i++) {
+			char c = value.charAt(i);
+
+			if (c < 0x80) {
+				byte[] escape = ESCAPES[c];
+
+				if (escape == null) {
+					out.ensureCapacity(1);
+					out.buf[out.count++] = (byte) c;
+				} else {
+					out.write(escape);
+				}
+			} else if (c == 0x2028 || c == 0x2029) {
+				out.write(unicodeEscape(c));
+			} else {
+				i = out.writeUtf8Char(value, i);
+			}
+		}
+
+		out.write('"');
+	}
+
+	private static void writeLong(AuditEncodeBuffer out, long value) {
+		if (value >= 0 && value < 10) {
+			out.write('0' + (int) value);
+		} else {
+			String str = Long.toString(value);
+
+			out.ensureCapacity(str.length());
+
+			for (int i = 0; i < str.length(); i++) {
+				out.buf[out.count++] = (byte) str.charAt(i);
+			}
+		}
+	}
+
+	private static byte[] unicodeEscape(int c) {
+		return new byte[] { '\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF] };
+	}
+
+	private static byte[] ascii(String str) {
+		return str.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Formats dates as Gson does with MiscUtil's date format; the formatted date-time is reused for times in the same
+	 * second, which is common for events in a batch.
+	 */
+	private static class DateFormatter {
+		private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+		private long                   second     = Long.MIN_VALUE;
+		private byte[]                 prefix;     // "yyyy-MM-dd HH:mm:ss."
+
+		void format(long time, AuditEncodeBuffer out) {
+			long sec    = Math.floorDiv(time, 1000);
+			int  millis = (int) Math.floorMod(time, 1000);
+
+			if (sec != second) {
+				String formatted = dateFormat.format(new Date(time));
+
+				prefix = formatted.substring(0, formatted.length() - 3).getBytes(StandardCharsets.UTF_8);
+				second = sec;
+			}
+
+			out.write(prefix);
+			out.write('0' + millis / 100);
+			out.write('0' + (millis / 10) % 10);
+			out.write('0' + millis % 10);
+		}
+	}
+}
@@ -34,6 +34,7 @@
 import com.amazonaws.services.logs.model.ResourceNotFoundException;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.codec.AuditEventCodec;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.slf4j.Logger;
@@ -97,7 +98,7 @@ synchronized public boolean log(Collection<AuditEventBase> collection) {
         AWSLogs client = getClient();
 
         PutLogEventsRequest req = new PutLogEventsRequest()
-                .withLogEvents(toInputLogEvent(collection))
+                .withLogEvents(toInputLogEvent(collection, eventCodec))
                 .withLogGroupName(logGroupName)
                 .withLogStreamName(logStreamName);
 
@@ -158,10 +159,10 @@ public void flush() {
 
     }
 
-    static Collection<InputLogEvent> toInputLogEvent(Collection<AuditEventBase> collection) {
+    static Collection<InputLogEvent> toInputLogEvent(Collection<AuditEventBase> collection, AuditEventCodec eventCodec) {
         return collection.stream()
                 .map(e -> new InputLogEvent()
-                        .withMessage(MiscUtil.stringify(e))
+                        .withMessage(eventCodec.encodeToString(e))
                         .withTimestamp(e.getEventTime().getTime()))
                 .sorted(Comparator.comparingLong(InputLogEvent::getTimestamp))
                 .collect(Collectors.toList());
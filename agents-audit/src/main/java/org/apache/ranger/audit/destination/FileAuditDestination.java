@@ -147,7 +147,7 @@ public boolean log(Collection<AuditEventBase> events) {
 		List<String> jsonList = new ArrayList<String>();
 		for (AuditEventBase event : events) {
 			try {
-				jsonList.add(MiscUtil.stringify(event));
+				jsonList.add(toJson(event));
 			} catch (Throwable t) {
 				addTotalCount(1);
 				addFailedCount(1);
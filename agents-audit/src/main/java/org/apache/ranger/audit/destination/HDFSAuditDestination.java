@@ -28,9 +28,11 @@
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditWriterFactory;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.audit.utils.RangerAuditWriter;
+import org.apache.ranger.audit.utils.RangerORCAuditWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +48,9 @@ public class HDFSAuditDestination extends AuditDestination {
 	private RangerAuditWriter   auditWriter             = null;
 	private boolean             initDone                = false;
 	private boolean             isStopped               = false;
+	private long                lastWrittenEventCount   = 0;
+	private long                lastWrittenRawBytes     = 0;
+	private long                lastWriteTimeMs         = 0;
 
 	@Override
 	public void init(Properties prop, String propPrefix) {
@@ -157,10 +162,14 @@ public boolean log(Collection<AuditEventBase> events) {
 			logError("log() called after stop was requested. name=" + getName());
 			return false;
 		}
+		if (auditWriter instanceof RangerORCAuditWriter) {
+			// ORC writer takes the events as they are - no need to convert to JSON and back
+			return logEvents(events);
+		}
 		List<String> jsonList = new ArrayList<String>();
 		for (AuditEventBase event : events) {
 			try {
-				jsonList.add(MiscUtil.stringify(event));
+				jsonList.add(toJson(event));
 			} catch (Throwable t) {
 				logger.error("Error converting to JSON. event=" + event);
 				addTotalCount(1);
@@ -172,6 +181,72 @@ public boolean log(Collection<AuditEventBase> events) {
 
 	}
 
+	synchronized private boolean logEvents(Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+		addTotalCount(events.size());
+
+		if (!initDone) {
+			addDeferredCount(events.size());
+			return false;
+		}
+		List<AuthzAuditEvent> authzEvents = new ArrayList<AuthzAuditEvent>(events.size());
+		for (AuditEventBase event : events) {
+			if (event instanceof AuthzAuditEvent) {
+				authzEvents.add((AuthzAuditEvent) event);
+			} else {
+				try {
+					authzEvents.add(MiscUtil.fromJson(MiscUtil.stringify(event), AuthzAuditEvent.class));
+				} catch (Throwable t) {
+					logger.error("Error converting to AuthzAuditEvent. event=" + event);
+					addFailedCount(1);
+					logFailedEvent(event);
+				}
+			}
+		}
+		try {
+			boolean ret = ((RangerORCAuditWriter) auditWriter).logAuditAsORC(authzEvents);
+			if (!ret) {
+				addDeferredCount(authzEvents.size());
+				return false;
+			}
+		} catch (Throwable t) {
+			addDeferredCount(authzEvents.size());
+			logError("Error writing to log file.", t);
+			return false;
+		} finally {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Flushing HDFS audit. Event Size:" + authzEvents.size());
+			}
+			flush();
+		}
+		addSuccessCount(authzEvents.size());
+		return true;
+	}
+
+	@Override
+	protected String getStatusLogDetails(long intervalMS) {
+		String ret = "";
+
+		if (auditWriter instanceof RangerORCAuditWriter) {
+			Map<String, Long> stats      = ((RangerORCAuditWriter) auditWriter).getWriteStats();
+			long              eventCount = stats.get("eventCount") - lastWrittenEventCount;
+			long              rawBytes   = stats.get("rawDataBytes") - lastWrittenRawBytes;
+			long              timeMs     = stats.get("timeMs") - lastWriteTimeMs;
+
+			if (eventCount > 0) {
+				ret = ", writtenEvents=" + eventCount
+						+ ", writeEventsPerSec=" + (eventCount * 1000 / Math.max(1, timeMs))
+						+ ", rawBytesPerEvent=" + (rawBytes / eventCount);
+			}
+
+			lastWrittenEventCount = stats.get("eventCount");
+			lastWrittenRawBytes   = stats.get("rawDataBytes");
+			lastWriteTimeMs       = stats.get("timeMs");
+		}
+
+		return ret;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -75,7 +75,7 @@ public boolean log(AuditEventBase event) {
 		}
 
 		if (event != null) {
-			String eventStr = MiscUtil.stringify(event);
+			String eventStr = toJson(event);
 			logJSON(eventStr);
 		}
 		return true;
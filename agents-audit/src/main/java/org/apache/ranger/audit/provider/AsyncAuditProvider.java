@@ -26,6 +26,7 @@
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.queue.AuditRingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,7 @@ public class AsyncAuditProvider extends MultiDestAuditProvider implements
 	private static int sThreadCount = 0;
 
 	private BlockingQueue<AuditEventBase> mQueue = null;
+	private AuditRingBuffer<AuditEventBase> mRingBuffer = null;
 	private Thread  mThread           = null;
 	private String  mName             = null;
 	private int     mMaxQueueSize     = 10 * 1024;
@@ -79,10 +81,18 @@ public AsyncAuditProvider(String name, int maxQueueSize, int maxFlushInterval, A
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void init(Properties props) {
 		LOG.info("AsyncAuditProvider(" + mName + ").init()");
 
 		super.init(props);
+
+		BlockingQueue<AuditEventBase> queue = AuditRingBuffer.createQueue(props, propPrefix + ".async", mName, mMaxQueueSize);
+
+		if (queue instanceof AuditRingBuffer) {
+			mQueue      = queue;
+			mRingBuffer = (AuditRingBuffer<AuditEventBase>) queue;
+		}
 	}
 
 	public int getIntervalLogDurationMS() {
@@ -128,6 +138,10 @@ public void stop() {
 			}
 
 			super.stop();
+
+			if (mRingBuffer != null) {
+				mRingBuffer.close();
+			}
 		} finally {
 			LOG.info("<== AsyncAuditProvider.stop()");
 		}
@@ -178,7 +192,9 @@ private void queueEvent(AuditEventBase event) {
 		lifeTimeInLogCount.incrementAndGet();
 		intervalInLogCount.incrementAndGet();
 
-		if(! mQueue.offer(event)) {
+		boolean isQueued = mRingBuffer != null ? mRingBuffer.enqueue(event) : mQueue.offer(event);
+
+		if(! isQueued) {
 			lifeTimeDropCount.incrementAndGet();
 			intervalDropCount.incrementAndGet();
 		}
@@ -234,6 +250,10 @@ private void logSummaryIfRequired() {
 						+ ": inLogs=" + lifeTimeInLogCount.get()
 						+ ", outLogs=" + lifeTimeOutLogCount.get()
 						+ ", dropped=" + lifeTimeDropCount.get());
+
+				if (mRingBuffer != null) {
+					LOG.info("AsyncAuditProvider-stats:" + mName + ": ringBuffer=" + mRingBuffer.getMetrics());
+				}
 			}
 
 			lastIntervalLogTime = System.currentTimeMillis();
@@ -18,6 +18,8 @@
  */
 package org.apache.ranger.audit.provider;
 
+import org.apache.ranger.audit.codec.AuditEventCodec;
+import org.apache.ranger.audit.codec.AuditEventCodecFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.slf4j.Logger;
@@ -96,6 +98,8 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	protected Properties props = null;
 	protected Map<String, String> configProps = new HashMap<String, String>();
 
+	protected AuditEventCodec eventCodec = AuditEventCodecFactory.getDefaultCodec();
+
 	@Override
 	public void init(Properties props) {
 		init(props, null);
@@ -138,6 +142,10 @@ public void init(Properties props, String basePropertyName) {
 		mLogFailureReportMinIntervalInMs = MiscUtil.getIntProperty(props,
 				AUDIT_LOG_FAILURE_REPORT_MIN_INTERVAL_PROP, 60 * 1000);
 
+		eventCodec = AuditEventCodecFactory.getTextCodec(props, propPrefix + "."
+				+ AuditEventCodecFactory.PROP_CODEC);
+		LOG.info("eventCodec=" + eventCodec.getName());
+
 		String configPropsNamePrefix = propPrefix + "." + PROP_CONFIG + ".";
 		for (Object propNameObj : props.keySet()) {
 			String propName = propNameObj.toString();
@@ -282,6 +290,15 @@ public void logStatusIfRequired() {
 		}
 	}
 
+	/**
+	 * Details to add to the status log, like write throughput of a destination
+	 *
+	 * @param intervalMS time since the last status log
+	 */
+	protected String getStatusLogDetails(long intervalMS) {
+		return "";
+	}
+
 	public void logStatus() {
 		try {
 			long currTime = System.currentTimeMillis();
@@ -335,7 +352,8 @@ public void logStatus() {
 						+ (totalStashedCount > 0 ? (", totalStashedCount=" + totalStashedCount)
 						: "")
 						+ (totalDeferredCount > 0 ? (", totalDeferredCount=" + totalDeferredCount)
-						: "");
+						: "")
+						+ getStatusLogDetails(diffTime);
 				LOG.debug(msg);
 			}
 		} catch (Throwable t) {
@@ -382,6 +400,13 @@ else if (seconds > 0)
 			return String.format("%03d milli-seconds", mSeconds);
 	}
 
+	/**
+	 * @return JSON of the event, encoded by the codec configured with <propPrefix>.codec
+	 */
+	public String toJson(AuditEventBase event) {
+		return eventCodec.encodeToString(event);
+	}
+
 	public void logFailedEvent(AuditEventBase event) {
 		logFailedEvent(event, "");
 	}
@@ -55,7 +55,7 @@ public boolean log(AuditEventBase event) {
 			return true;
 		
 		if(event != null) {
-			String eventStr = MiscUtil.stringify(event);
+			String eventStr = toJson(event);
 			AUDITLOG.info(eventStr);
 		}
 		return true;
@@ -107,7 +107,7 @@ public boolean log(AuditEventBase event) {
 			}
 		}
 
-		String message = MiscUtil.stringify(event);
+		String message = toJson(event);
 		try {
 
 			if (producer != null) {
@@ -22,7 +22,6 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Properties;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -36,6 +35,8 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory.getLogger(AuditBatchQueue.class);
 
 	private BlockingQueue<AuditEventBase> queue = null;
+	private AuditRingBuffer<AuditEventBase> ringBuffer = null;
+	private Properties queueProps = null;
 	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
 
 	Thread consumerThread = null;
@@ -56,6 +57,11 @@ public AuditBatchQueue(AuditHandler consumer) {
 	 */
 	@Override
 	public boolean log(AuditEventBase event) {
+		if (ringBuffer != null) {
+			// Drop or wait as per the configured full-policy
+			return ringBuffer.enqueue(event);
+		}
+
 		// Add to batchQueue. Block if full
 		queue.add(event);
 		return true;
@@ -63,6 +69,10 @@ public boolean log(AuditEventBase event) {
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
+		if (ringBuffer != null) {
+			return ringBuffer.enqueueAll(events) == events.size();
+		}
+
 		boolean ret = true;
 		for (AuditEventBase event : events) {
 			ret = log(event);
@@ -82,6 +92,7 @@ public void init(Properties prop, String basePropertyName) {
 
 		super.init(prop, propPrefix);
 
+		queueProps = prop;
 	}
 
 	/*
@@ -90,14 +101,17 @@ public void init(Properties prop, String basePropertyName) {
 	 * @see org.apache.ranger.audit.provider.AuditProvider#start()
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	synchronized public void start() {
 		if (consumerThread != null) {
 			logger.error("Provider is already started. name=" + getName());
 			return;
 		}
-		logger.info("Creating ArrayBlockingQueue with maxSize="
-				+ getMaxQueueSize());
-		queue = new ArrayBlockingQueue<AuditEventBase>(getMaxQueueSize());
+		queue = AuditRingBuffer.createQueue(queueProps, propPrefix, getName(), getMaxQueueSize());
+
+		if (queue instanceof AuditRingBuffer) {
+			ringBuffer = (AuditRingBuffer<AuditEventBase>) queue;
+		}
 
 		// Start the consumer first
 		consumer.start();
@@ -137,6 +151,10 @@ public void stop() {
 			// ignore any exception
 		}
 		consumerThread = null;
+
+		if (ringBuffer != null) {
+			ringBuffer.close();
+		}
 	}
 
 	/*
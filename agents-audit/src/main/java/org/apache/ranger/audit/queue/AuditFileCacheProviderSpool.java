@@ -21,6 +21,8 @@
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.ranger.audit.codec.AuditEventCodec;
+import org.apache.ranger.audit.codec.AuditEventCodecFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
@@ -86,6 +88,7 @@ public enum SPOOL_FILE_STATUS {
     boolean isPending 			= false;
     long	lastAttemptTime 	= 0;
     boolean initDone 			= false;
+    AuditEventCodec eventCodec  = AuditEventCodecFactory.getDefaultCodec();
 
     PrintWriter		 logWriter = null;
     AuditIndexRecord currentWriterIndexRecord	= null;
@@ -144,6 +147,8 @@ public boolean init(Properties props, String basePropertyName) {
             maxArchiveFiles = MiscUtil.getIntProperty(props, propPrefix + "."
                     + PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
             isAuditFileCacheProviderEnabled = MiscUtil.getBooleanProperty(props, AUDIT_IS_FILE_CACHE_PROVIDER_ENABLE_PROP, false);
+            eventCodec = AuditEventCodecFactory.getTextCodec(props, propPrefix + "."
+                    + AuditEventCodecFactory.PROP_FILE_SPOOL_CODEC);
             logger.info("retryDestinationMS=" + retryDestinationMS
                     + ", queueName=" + FILE_CACHE_PROVIDER_NAME);
             logger.info("fileRolloverSec=" + fileRolloverSec + ", queueName="
@@ -407,7 +412,7 @@ synchronized public void stashLogs(AuditEventBase event) {
             isWriting = true;
             PrintWriter logOut = getLogFileStream();
             // Convert event to json
-            String jsonStr = MiscUtil.stringify(event);
+            String jsonStr = eventCodec.encodeToString(event);
             logOut.println(jsonStr);
             logOut.flush();
             isPending = true;
@@ -21,6 +21,9 @@
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.ranger.audit.codec.AuditEncodeBuffer;
+import org.apache.ranger.audit.codec.AuditEventCodec;
+import org.apache.ranger.audit.codec.AuditEventCodecFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditHandler;
@@ -41,6 +44,8 @@
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -93,6 +98,11 @@ public enum SPOOL_FILE_STATUS {
     int 	retryDestinationMS 	= 30 * 1000; // Default 30 seconds
     int 	fileRolloverSec 	= 24 * 60 * 60; // In seconds
     int 	maxArchiveFiles 	= 100;
+    String  spoolFormat         = AuditSpoolSegment.FORMAT_JSON;
+    long    segmentSize         = AuditSpoolSegment.DEFAULT_SEGMENT_SIZE;
+    long    syncIntervalMS      = AuditSpoolSegment.DEFAULT_SYNC_INTERVAL_MS;
+    AuditEventCodec   eventCodec   = AuditEventCodecFactory.getDefaultCodec();
+    AuditEncodeBuffer encodeBuffer = new AuditEncodeBuffer();
     int 	errorLogIntervalMS 	= 30 * 1000; // Every 30 seconds
     long 	lastErrorLogMS 		= 0;
     boolean isAuditFileCacheProviderEnabled = false;
@@ -103,6 +113,7 @@ public enum SPOOL_FILE_STATUS {
     boolean initDone 			= false;
 
     PrintWriter		 logWriter = null;
+    AuditSpoolSegment.Writer segmentWriter = null;
     AuditIndexRecord currentWriterIndexRecord	= null;
     AuditIndexRecord currentConsumerIndexRecord = null;
 
@@ -158,12 +169,39 @@ public boolean init(Properties props, String basePropertyName) {
                     + PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
             maxArchiveFiles = MiscUtil.getIntProperty(props, propPrefix + "."
                     + PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
+            auditFileType = MiscUtil.getStringProperty(props, propPrefix + ".filetype", DEFAULT_AUDIT_FILE_TYPE);
+            if (auditFileType == null) {
+                auditFileType = DEFAULT_AUDIT_FILE_TYPE;
+            }
+            spoolFormat = MiscUtil.getStringProperty(props, propPrefix + "."
+                    + AuditSpoolSegment.PROP_FILE_SPOOL_FORMAT, spoolFormat);
+            segmentSize = MiscUtil.getLongProperty(props, propPrefix + "."
+                    + AuditSpoolSegment.PROP_FILE_SPOOL_SEGMENT_SIZE, segmentSize);
+            syncIntervalMS = MiscUtil.getLongProperty(props, propPrefix + "."
+                    + AuditSpoolSegment.PROP_FILE_SPOOL_SYNC_INTERVAL_MS, syncIntervalMS);
+            if (isBinaryFormat() && auditFileType.equalsIgnoreCase(DEFAULT_AUDIT_FILE_TYPE)) {
+                // JSON spool files are sent to the destination as they are
+                logger.warn("Spool format " + AuditSpoolSegment.FORMAT_BINARY + " is not supported with filetype="
+                        + auditFileType + ". Using " + AuditSpoolSegment.FORMAT_JSON);
+                spoolFormat = AuditSpoolSegment.FORMAT_JSON;
+            }
+            eventCodec = AuditEventCodecFactory.getCodec(props, propPrefix + "."
+                    + AuditEventCodecFactory.PROP_FILE_SPOOL_CODEC);
+            if (!isBinaryFormat() && !eventCodec.isText()) {
+                // JSON spool files have one event per line
+                eventCodec = AuditEventCodecFactory.getTextCodec(props, propPrefix + "."
+                        + AuditEventCodecFactory.PROP_FILE_SPOOL_CODEC);
+            }
             logger.info("retryDestinationMS=" + retryDestinationMS
                     + ", queueName=" + FILE_QUEUE_PROVIDER_NAME);
             logger.info("fileRolloverSec=" + fileRolloverSec + ", queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
             logger.info("maxArchiveFiles=" + maxArchiveFiles + ", queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
+            logger.info("spoolFormat=" + spoolFormat + ", segmentSize="
+                    + segmentSize + ", syncIntervalMS=" + syncIntervalMS
+                    + ", codec=" + eventCodec.getName()
+                    + ", queueName=" + FILE_QUEUE_PROVIDER_NAME);
 
             if (logFolderProp == null || logFolderProp.isEmpty()) {
                 logger.error("Audit spool folder is not configured. Please set "
@@ -188,8 +226,12 @@ public boolean init(Properties props, String basePropertyName) {
                     + FILE_QUEUE_PROVIDER_NAME);
 
             if (logFileNameFormat == null || logFileNameFormat.isEmpty()) {
-                logFileNameFormat = "spool_" + "%app-type%" + "_"
-                        + "%time:yyyyMMdd-HHmm.ss%.log";
+                if (isBinaryFormat()) {
+                    logFileNameFormat = AuditSpoolSegment.DEFAULT_FILE_NAME_FORMAT;
+                } else {
+                    logFileNameFormat = "spool_" + "%app-type%" + "_"
+                            + "%time:yyyyMMdd-HHmm.ss%.log";
+                }
             }
             logger.info("logFileNameFormat=" + logFileNameFormat
                     + ", queueName=" + FILE_QUEUE_PROVIDER_NAME);
@@ -285,11 +327,6 @@ public boolean init(Properties props, String basePropertyName) {
                 }
             }
 
-            auditFileType = MiscUtil.getStringProperty(props, propPrefix + ".filetype", DEFAULT_AUDIT_FILE_TYPE);
-            if (auditFileType == null) {
-                auditFileType = DEFAULT_AUDIT_FILE_TYPE;
-            }
-
         } catch (Throwable t) {
             logger.error("Error initializing File Spooler. queue="
                     + FILE_QUEUE_PROVIDER_NAME, t);
@@ -364,6 +401,7 @@ public void stop() {
                 }
             }
         }
+        closeSegmentWriter();
         try {
             if (destinationThread != null) {
                 destinationThread.interrupt();
@@ -384,6 +422,7 @@ public void flush() {
         if (out != null) {
             out.flush();
         }
+        commitSegmentWriter();
     }
 
     /**
@@ -424,11 +463,18 @@ synchronized public void stashLogs(AuditEventBase event) {
         }
         try {
             isWriting = true;
-            PrintWriter logOut = getLogFileStream();
-            // Convert event to json
-            String jsonStr = MiscUtil.stringify(event);
-            logOut.println(jsonStr);
-            logOut.flush();
+            if (isBinaryFormat()) {
+                encodeBuffer.reset();
+                eventCodec.encode(event, encodeBuffer);
+                appendToSegment(encodeBuffer.array(), encodeBuffer.size());
+                segmentWriter.commit();
+            } else {
+                // Convert event to json
+                String jsonStr = eventCodec.encodeToString(event);
+                PrintWriter logOut = getLogFileStream();
+                logOut.println(jsonStr);
+                logOut.flush();
+            }
             isPending = true;
             isSpoolingSuccessful = true;
         } catch (Throwable  t) {
@@ -456,8 +502,12 @@ synchronized public void stashLogsString(String event) {
         }
         try {
             isWriting = true;
-            PrintWriter logOut = getLogFileStream();
-            logOut.println(event);
+            if (isBinaryFormat()) {
+                appendToSegment(event);
+            } else {
+                PrintWriter logOut = getLogFileStream();
+                logOut.println(event);
+            }
         } catch (Exception ex) {
             logger.error("Error writing to file. event=" + event, ex);
         } finally {
@@ -497,43 +547,10 @@ synchronized private PrintWriter getLogFileStream() throws Exception {
         // Either there are no open log file or the previous one has been rolled
         // over
         if (currentWriterIndexRecord == null) {
-            Date currentTime = new Date();
-            // Create a new file
-            String fileName = MiscUtil.replaceTokens(logFileNameFormat,
-                    currentTime.getTime());
-            String newFileName = fileName;
-            File outLogFile = null;
-            int i = 0;
-            while (true) {
-                outLogFile = new File(logFolder, newFileName);
-                File archiveLogFile = new File(archiveFolder, newFileName);
-                if (!outLogFile.exists() && !archiveLogFile.exists()) {
-                    break;
-                }
-                i++;
-                int lastDot = fileName.lastIndexOf('.');
-                String baseName = fileName.substring(0, lastDot);
-                String extension = fileName.substring(lastDot);
-                newFileName = baseName + "." + i + extension;
-            }
-            fileName = newFileName;
-            logger.info("Creating new file. queueName="
-                    + FILE_QUEUE_PROVIDER_NAME + ", fileName=" + fileName);
+            File outLogFile = createWriterIndexRecord();
             // Open the file
             logWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
                     outLogFile),"UTF-8")));
-
-            AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
-
-            tmpIndexRecord.id = MiscUtil.generateUniqueId();
-            tmpIndexRecord.filePath = outLogFile.getPath();
-            tmpIndexRecord.status = SPOOL_FILE_STATUS.write_inprogress;
-            tmpIndexRecord.fileCreateTime = currentTime;
-            tmpIndexRecord.lastAttempt = true;
-            currentWriterIndexRecord = tmpIndexRecord;
-            indexRecords.add(currentWriterIndexRecord);
-            saveIndexFile();
-
         } else {
             if (logWriter == null) {
                 // This means the process just started. We need to open the file
@@ -548,6 +565,127 @@ synchronized private PrintWriter getLogFileStream() throws Exception {
         return logWriter;
     }
 
+    /**
+     * Returns the segment to write records to, creating a new one if there is
+     * no open segment or the previous one has been rolled over
+     *
+     * @return
+     * @throws Exception
+     */
+    synchronized private AuditSpoolSegment.Writer getSegmentWriter() throws Exception {
+        closeFileIfNeeded();
+
+        if (currentWriterIndexRecord == null) {
+            File outLogFile = createWriterIndexRecord();
+            segmentWriter = AuditSpoolSegment.Writer.open(outLogFile,
+                    segmentSize, syncIntervalMS);
+        } else if (segmentWriter == null) {
+            // This means the process just started. Records are appended after
+            // the records already in the segment
+            logger.info("Opening existing segment for append. queueName="
+                    + FILE_QUEUE_PROVIDER_NAME + ", fileName="
+                    + currentWriterIndexRecord.filePath);
+            segmentWriter = AuditSpoolSegment.Writer.open(new File(
+                    currentWriterIndexRecord.filePath), segmentSize,
+                    syncIntervalMS);
+        }
+        return segmentWriter;
+    }
+
+    synchronized private void appendToSegment(String event) throws Exception {
+        byte[] record = event.getBytes(StandardCharsets.UTF_8);
+        appendToSegment(record, record.length);
+    }
+
+    synchronized private void appendToSegment(byte[] record, int length) throws Exception {
+        AuditSpoolSegment.Writer writer = getSegmentWriter();
+        if (!writer.append(record, 0, length)) {
+            // The segment is full. It will be rolled over, and the record
+            // written to a new segment
+            writer = getSegmentWriter();
+            writer.append(record, 0, length);
+        }
+    }
+
+    synchronized private void commitSegmentWriter() {
+        if (segmentWriter != null) {
+            try {
+                segmentWriter.commit();
+            } catch (IOException ex) {
+                logger.error("Error writing to spool segment. file="
+                        + segmentWriter.getFile(), ex);
+            }
+        }
+    }
+
+    synchronized private void closeSegmentWriter() {
+        if (segmentWriter != null) {
+            try {
+                logger.info("Closing open segment, queueName="
+                        + FILE_QUEUE_PROVIDER_NAME + ", consumer="
+                        + consumerProvider.getName());
+                segmentWriter.close();
+            } catch (Throwable t) {
+                logger.error("Error closing spool segment. file="
+                        + segmentWriter.getFile(), t);
+            }
+            segmentWriter = null;
+        }
+    }
+
+    /**
+     * Creates the index record for a new file to spool logs to
+     *
+     * @return the new file
+     * @throws IOException
+     */
+    synchronized private File createWriterIndexRecord() throws IOException {
+        Date currentTime = new Date();
+        // Create a new file
+        String fileName = MiscUtil.replaceTokens(logFileNameFormat,
+                currentTime.getTime());
+        String newFileName = fileName;
+        File outLogFile = null;
+        int i = 0;
+        while (true) {
+            outLogFile = new File(logFolder, newFileName);
+            File archiveLogFile = new File(archiveFolder, newFileName);
+            if (!outLogFile.exists() && !archiveLogFile.exists()) {
+                break;
+            }
+            i++;
+            int lastDot = fileName.lastIndexOf('.');
+            String baseName = fileName.substring(0, lastDot);
+            String extension = fileName.substring(lastDot);
+            newFileName = baseName + "." + i + extension;
+        }
+        fileName = newFileName;
+        logger.info("Creating new file. queueName="
+                + FILE_QUEUE_PROVIDER_NAME + ", fileName=" + fileName);
+
+        AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
+
+        tmpIndexRecord.id = MiscUtil.generateUniqueId();
+        tmpIndexRecord.filePath = outLogFile.getPath();
+        tmpIndexRecord.format = spoolFormat;
+        tmpIndexRecord.status = SPOOL_FILE_STATUS.write_inprogress;
+        tmpIndexRecord.fileCreateTime = currentTime;
+        tmpIndexRecord.lastAttempt = true;
+        currentWriterIndexRecord = tmpIndexRecord;
+        indexRecords.add(currentWriterIndexRecord);
+        saveIndexFile();
+
+        return outLogFile;
+    }
+
+    boolean isBinaryFormat() {
+        return AuditSpoolSegment.FORMAT_BINARY.equalsIgnoreCase(spoolFormat);
+    }
+
+    boolean isBinaryFormat(AuditIndexRecord indexRecord) {
+        return AuditSpoolSegment.FORMAT_BINARY.equalsIgnoreCase(indexRecord.format);
+    }
+
     synchronized private void closeFileIfNeeded() throws FileNotFoundException,
             IOException {
         // Is there file open to write or there are no pending file, then close
@@ -556,14 +694,30 @@ synchronized private void closeFileIfNeeded() throws FileNotFoundException,
             // Check whether the file needs to rolled
             rollOverSpoolFileByTime();
 
+            if (segmentWriter != null && segmentWriter.isFull()) {
+                closeFile = true;
+                logger.info("Closing file. Segment is full. queueName="
+                        + FILE_QUEUE_PROVIDER_NAME + ", fileName="
+                        + currentWriterIndexRecord.filePath);
+            } else if (isBinaryFormat() != isBinaryFormat(currentWriterIndexRecord)) {
+                closeFile = true;
+                logger.info("Closing file. Spool format changed. queueName="
+                        + FILE_QUEUE_PROVIDER_NAME + ", fileName="
+                        + currentWriterIndexRecord.filePath);
+            }
+
             if (closeFile) {
                 // Roll the file
                 if (logWriter != null) {
                     logWriter.flush();
                     logWriter.close();
                     logWriter = null;
-                    closeFile = false;
                 }
+                if (segmentWriter != null) {
+                    segmentWriter.close();
+                    segmentWriter = null;
+                }
+                closeFile = false;
                 currentWriterIndexRecord.status = SPOOL_FILE_STATUS.pending;
                 currentWriterIndexRecord.writeCompleteTime = new Date();
                 saveIndexFile();
@@ -696,7 +850,8 @@ void appendToDoneFile(AuditIndexRecord indexRecord)
             // Remove old files
             File[] logFiles = archiveFolder.listFiles(new FileFilter() {
                 public boolean accept(File pathname) {
-                    return pathname.getName().toLowerCase().endsWith(".log");
+                    String fileName = pathname.getName().toLowerCase();
+                    return fileName.endsWith(".log") || fileName.endsWith(".seg");
                 }
             });
 
@@ -752,7 +907,9 @@ void logError(String msg) {
     class AuditIndexRecord {
         String id;
         String filePath;
+        String format;
         int linePosition = 0;
+        long bytePosition = 0;
         SPOOL_FILE_STATUS status = SPOOL_FILE_STATUS.write_inprogress;
         Date fileCreateTime;
         Date writeCompleteTime;
@@ -765,7 +922,8 @@ class AuditIndexRecord {
         @Override
         public String toString() {
             return "AuditIndexRecord [id=" + id + ", filePath=" + filePath
-                    + ", linePosition=" + linePosition + ", status=" + status
+                    + ", format=" + format + ", linePosition=" + linePosition
+                    + ", bytePosition=" + bytePosition + ", status=" + status
                     + ", fileCreateTime=" + fileCreateTime
                     + ", writeCompleteTime=" + writeCompleteTime
                     + ", doneCompleteTime=" + doneCompleteTime
@@ -836,7 +994,10 @@ public void runLogAudit() {
                     BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(
                             currentConsumerIndexRecord.filePath),"UTF-8"));
                     try {
-                        if (auditFileType.equalsIgnoreCase(DEFAULT_AUDIT_FILE_TYPE)) {
+                        if (isBinaryFormat(currentConsumerIndexRecord)) {
+                            // Records in binary spool segments are converted into ORC format as well
+                            logSegmentEvents(new File(currentConsumerIndexRecord.filePath));
+                        } else if (auditFileType.equalsIgnoreCase(DEFAULT_AUDIT_FILE_TYPE)) {
                             // if Audit File format is JSON each audit file in the Local Spool Location will be copied
                             // to HDFS location as JSON
                             File srcFile = new File(currentConsumerIndexRecord.filePath);
@@ -902,7 +1063,7 @@ private void logEvent(BufferedReader br) throws Exception {
 
             if (events.size() == bufferSize) {
                 boolean ret = sendEvent(events,
-                        currentConsumerIndexRecord, currLine);
+                        currentConsumerIndexRecord, currLine, 0);
                 if (!ret) {
                     throw new Exception("Destination down");
                 }
@@ -911,7 +1072,7 @@ private void logEvent(BufferedReader br) throws Exception {
         }
         if (events.size() > 0) {
             boolean ret = sendEvent(events,
-                    currentConsumerIndexRecord, currLine);
+                    currentConsumerIndexRecord, currLine, 0);
             if (!ret) {
                 throw new Exception("Destination down");
             }
@@ -919,8 +1080,45 @@ private void logEvent(BufferedReader br) throws Exception {
         }
     }
 
+    /**
+     * Sends records of the segment, starting after the last record sent earlier
+     *
+     * @param file
+     * @throws Exception
+     */
+    private void logSegmentEvents(File file) throws Exception {
+        try (AuditSpoolSegment.Reader reader = new AuditSpoolSegment.Reader(
+                file, currentConsumerIndexRecord.bytePosition)) {
+            int        currLine = currentConsumerIndexRecord.linePosition;
+            ByteBuffer record;
+            List<AuditEventBase> events = new ArrayList<>();
+            while ((record = reader.nextRecord()) != null) {
+                currLine++;
+                // records can be JSON or binary, depending on the codec used when written
+                events.add(AuditEventCodecFactory.decode(record));
+
+                if (events.size() == bufferSize) {
+                    boolean ret = sendEvent(events,
+                            currentConsumerIndexRecord, currLine, reader.getPosition());
+                    if (!ret) {
+                        throw new Exception("Destination down");
+                    }
+                    events.clear();
+                }
+            }
+            if (events.size() > 0) {
+                boolean ret = sendEvent(events,
+                        currentConsumerIndexRecord, currLine, reader.getPosition());
+                if (!ret) {
+                    throw new Exception("Destination down");
+                }
+                events.clear();
+            }
+        }
+    }
+
     private boolean sendEvent(List<AuditEventBase> events, AuditIndexRecord indexRecord,
-                              int currLine) {
+                              int currLine, long bytePosition) {
         boolean ret = true;
         try {
             ret = consumerProvider.log(events);
@@ -932,6 +1130,7 @@ private boolean sendEvent(List<AuditEventBase> events, AuditIndexRecord indexRec
             } else {
                 // Update index and save
                 indexRecord.linePosition = currLine;
+                indexRecord.bytePosition = bytePosition;
                 indexRecord.status = SPOOL_FILE_STATUS.read_inprogress;
                 indexRecord.lastSuccessTime = new Date();
                 indexRecord.lastAttempt = true;
@@ -28,6 +28,7 @@
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -38,6 +39,8 @@
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.ranger.audit.codec.AuditEventCodec;
+import org.apache.ranger.audit.codec.AuditEventCodecFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
@@ -87,6 +90,10 @@ public enum SPOOL_FILE_STATUS {
 	int retryDestinationMS = 30 * 1000; // Default 30 seconds
 	int fileRolloverSec = 24 * 60 * 60; // In seconds
 	int maxArchiveFiles = 100;
+	String spoolFormat = AuditSpoolSegment.FORMAT_JSON;
+	long segmentSize = AuditSpoolSegment.DEFAULT_SEGMENT_SIZE;
+	long syncIntervalMS = AuditSpoolSegment.DEFAULT_SYNC_INTERVAL_MS;
+	AuditEventCodec eventCodec = AuditEventCodecFactory.getDefaultCodec();
 
 	int errorLogIntervalMS = 30 * 1000; // Every 30 seconds
 	long lastErrorLogMS = 0;
@@ -98,6 +105,7 @@ public enum SPOOL_FILE_STATUS {
 	boolean initDone = false;
 
 	PrintWriter logWriter = null;
+	AuditSpoolSegment.Writer segmentWriter = null;
 	AuditIndexRecord currentWriterIndexRecord = null;
 	AuditIndexRecord currentConsumerIndexRecord = null;
 
@@ -154,6 +162,15 @@ public boolean init(Properties props, String basePropertyName) {
 					+ PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
 			maxArchiveFiles = MiscUtil.getIntProperty(props, propPrefix + "."
 					+ PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
+			spoolFormat = MiscUtil.getStringProperty(props, propPrefix + "."
+					+ AuditSpoolSegment.PROP_FILE_SPOOL_FORMAT, spoolFormat);
+			segmentSize = MiscUtil.getLongProperty(props, propPrefix + "."
+					+ AuditSpoolSegment.PROP_FILE_SPOOL_SEGMENT_SIZE, segmentSize);
+			syncIntervalMS = MiscUtil.getLongProperty(props, propPrefix + "."
+					+ AuditSpoolSegment.PROP_FILE_SPOOL_SYNC_INTERVAL_MS, syncIntervalMS);
+			// spooled events are sent to the consumer as JSON
+			eventCodec = AuditEventCodecFactory.getTextCodec(props, propPrefix
+					+ "." + AuditEventCodecFactory.PROP_FILE_SPOOL_CODEC);
 
 			logger.info("retryDestinationMS=" + retryDestinationMS
 					+ ", queueName=" + queueProvider.getName());
@@ -161,6 +178,10 @@ public boolean init(Properties props, String basePropertyName) {
 					+ queueProvider.getName());
 			logger.info("maxArchiveFiles=" + maxArchiveFiles + ", queueName="
 					+ queueProvider.getName());
+			logger.info("spoolFormat=" + spoolFormat + ", segmentSize="
+					+ segmentSize + ", syncIntervalMS=" + syncIntervalMS
+					+ ", codec=" + eventCodec.getName()
+					+ ", queueName=" + queueProvider.getName());
 
 			if (logFolderProp == null || logFolderProp.isEmpty()) {
 				logger.error("Audit spool folder is not configured. Please set "
@@ -185,8 +206,12 @@ public boolean init(Properties props, String basePropertyName) {
 					+ queueProvider.getName());
 
 			if (logFileNameFormat == null || logFileNameFormat.isEmpty()) {
-				logFileNameFormat = "spool_" + "%app-type%" + "_"
-						+ "%time:yyyyMMdd-HHmm.ss%.log";
+				if (isBinaryFormat()) {
+					logFileNameFormat = AuditSpoolSegment.DEFAULT_FILE_NAME_FORMAT;
+				} else {
+					logFileNameFormat = "spool_" + "%app-type%" + "_"
+							+ "%time:yyyyMMdd-HHmm.ss%.log";
+				}
 			}
 			logger.info("logFileNameFormat=" + logFileNameFormat
 					+ ", queueName=" + queueProvider.getName());
@@ -349,6 +374,7 @@ public void stop() {
 				}
 			}
 		}
+		closeSegmentWriter();
 		try {
 			if (destinationThread != null) {
 				destinationThread.interrupt();
@@ -369,6 +395,7 @@ public void flush() {
 		if (out != null) {
 			out.flush();
 		}
+		commitSegmentWriter();
 	}
 
 	/**
@@ -408,10 +435,14 @@ synchronized public void stashLogs(AuditEventBase event) {
 		}
 		try {
 			isWriting = true;
-			PrintWriter logOut = getLogFileStream();
 			// Convert event to json
-			String jsonStr = MiscUtil.stringify(event);
-			logOut.println(jsonStr);
+			String jsonStr = eventCodec.encodeToString(event);
+			if (isBinaryFormat()) {
+				appendToSegment(jsonStr);
+			} else {
+				PrintWriter logOut = getLogFileStream();
+				logOut.println(jsonStr);
+			}
 			isPending = true;
 		} catch (Exception ex) {
 			logger.error("Error writing to file. event=" + event, ex);
@@ -437,8 +468,12 @@ synchronized public void stashLogsString(String event) {
 		}
 		try {
 			isWriting = true;
-			PrintWriter logOut = getLogFileStream();
-			logOut.println(event);
+			if (isBinaryFormat()) {
+				appendToSegment(event);
+			} else {
+				PrintWriter logOut = getLogFileStream();
+				logOut.println(event);
+			}
 		} catch (Exception ex) {
 			logger.error("Error writing to file. event=" + event, ex);
 		} finally {
@@ -475,43 +510,10 @@ synchronized private PrintWriter getLogFileStream() throws Exception {
 		// Either there are no open log file or the previous one has been rolled
 		// over
 		if (currentWriterIndexRecord == null) {
-			Date currentTime = new Date();
-			// Create a new file
-			String fileName = MiscUtil.replaceTokens(logFileNameFormat,
-					currentTime.getTime());
-			String newFileName = fileName;
-			File outLogFile = null;
-			int i = 0;
-			while (true) {
-				outLogFile = new File(logFolder, newFileName);
-				File archiveLogFile = new File(archiveFolder, newFileName);
-				if (!outLogFile.exists() && !archiveLogFile.exists()) {
-					break;
-				}
-				i++;
-				int lastDot = fileName.lastIndexOf('.');
-				String baseName = fileName.substring(0, lastDot);
-				String extension = fileName.substring(lastDot);
-				newFileName = baseName + "." + i + extension;
-			}
-			fileName = newFileName;
-			logger.info("Creating new file. queueName="
-					+ queueProvider.getName() + ", fileName=" + fileName);
+			File outLogFile = createWriterIndexRecord();
 			// Open the file
 			logWriter = new PrintWriter(new BufferedWriter(new FileWriter(
 					outLogFile)));
-
-			AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
-
-			tmpIndexRecord.id = MiscUtil.generateUniqueId();
-			tmpIndexRecord.filePath = outLogFile.getPath();
-			tmpIndexRecord.status = SPOOL_FILE_STATUS.write_inprogress;
-			tmpIndexRecord.fileCreateTime = currentTime;
-			tmpIndexRecord.lastAttempt = true;
-			currentWriterIndexRecord = tmpIndexRecord;
-			indexRecords.add(currentWriterIndexRecord);
-			saveIndexFile();
-
 		} else {
 			if (logWriter == null) {
 				// This means the process just started. We need to open the file
@@ -526,6 +528,123 @@ synchronized private PrintWriter getLogFileStream() throws Exception {
 		return logWriter;
 	}
 
+	/**
+	 * Returns the segment to write records to, creating a new one if there is
+	 * no open segment or the previous one has been rolled over
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	synchronized private AuditSpoolSegment.Writer getSegmentWriter() throws Exception {
+		closeFileIfNeeded();
+
+		if (currentWriterIndexRecord == null) {
+			File outLogFile = createWriterIndexRecord();
+			segmentWriter = AuditSpoolSegment.Writer.open(outLogFile,
+					segmentSize, syncIntervalMS);
+		} else if (segmentWriter == null) {
+			// This means the process just started. Records are appended after
+			// the records already in the segment
+			logger.info("Opening existing segment for append. queueName="
+					+ queueProvider.getName() + ", fileName="
+					+ currentWriterIndexRecord.filePath);
+			segmentWriter = AuditSpoolSegment.Writer.open(new File(
+					currentWriterIndexRecord.filePath), segmentSize,
+					syncIntervalMS);
+		}
+		return segmentWriter;
+	}
+
+	synchronized private void appendToSegment(String event) throws Exception {
+		byte[] record = event.getBytes(StandardCharsets.UTF_8);
+		AuditSpoolSegment.Writer writer = getSegmentWriter();
+		if (!writer.append(record)) {
+			// The segment is full. It will be rolled over, and the record
+			// written to a new segment
+			writer = getSegmentWriter();
+			writer.append(record);
+		}
+	}
+
+	synchronized private void commitSegmentWriter() {
+		if (segmentWriter != null) {
+			try {
+				segmentWriter.commit();
+			} catch (IOException ex) {
+				logger.error("Error writing to spool segment. file="
+						+ segmentWriter.getFile(), ex);
+			}
+		}
+	}
+
+	synchronized private void closeSegmentWriter() {
+		if (segmentWriter != null) {
+			try {
+				logger.info("Closing open segment, queueName="
+						+ queueProvider.getName() + ", consumer="
+						+ consumerProvider.getName());
+				segmentWriter.close();
+			} catch (Throwable t) {
+				logger.error("Error closing spool segment. file="
+						+ segmentWriter.getFile(), t);
+			}
+			segmentWriter = null;
+		}
+	}
+
+	/**
+	 * Creates the index record for a new file to spool logs to
+	 *
+	 * @return the new file
+	 * @throws IOException
+	 */
+	synchronized private File createWriterIndexRecord() throws IOException {
+		Date currentTime = new Date();
+		// Create a new file
+		String fileName = MiscUtil.replaceTokens(logFileNameFormat,
+				currentTime.getTime());
+		String newFileName = fileName;
+		File outLogFile = null;
+		int i = 0;
+		while (true) {
+			outLogFile = new File(logFolder, newFileName);
+			File archiveLogFile = new File(archiveFolder, newFileName);
+			if (!outLogFile.exists() && !archiveLogFile.exists()) {
+				break;
+			}
+			i++;
+			int lastDot = fileName.lastIndexOf('.');
+			String baseName = fileName.substring(0, lastDot);
+			String extension = fileName.substring(lastDot);
+			newFileName = baseName + "." + i + extension;
+		}
+		fileName = newFileName;
+		logger.info("Creating new file. queueName="
+				+ queueProvider.getName() + ", fileName=" + fileName);
+
+		AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
+
+		tmpIndexRecord.id = MiscUtil.generateUniqueId();
+		tmpIndexRecord.filePath = outLogFile.getPath();
+		tmpIndexRecord.format = spoolFormat;
+		tmpIndexRecord.status = SPOOL_FILE_STATUS.write_inprogress;
+		tmpIndexRecord.fileCreateTime = currentTime;
+		tmpIndexRecord.lastAttempt = true;
+		currentWriterIndexRecord = tmpIndexRecord;
+		indexRecords.add(currentWriterIndexRecord);
+		saveIndexFile();
+
+		return outLogFile;
+	}
+
+	boolean isBinaryFormat() {
+		return AuditSpoolSegment.FORMAT_BINARY.equalsIgnoreCase(spoolFormat);
+	}
+
+	boolean isBinaryFormat(AuditIndexRecord indexRecord) {
+		return AuditSpoolSegment.FORMAT_BINARY.equalsIgnoreCase(indexRecord.format);
+	}
+
 	synchronized private void closeFileIfNeeded() throws FileNotFoundException,
 			IOException {
 		// Is there file open to write or there are no pending file, then close
@@ -544,6 +663,16 @@ synchronized private void closeFileIfNeeded() throws FileNotFoundException,
 				logger.info("Closing file. Rolling over. queueName="
 						+ queueProvider.getName() + ", fileName="
 						+ currentWriterIndexRecord.filePath);
+			} else if (segmentWriter != null && segmentWriter.isFull()) {
+				closeFile = true;
+				logger.info("Closing file. Segment is full. queueName="
+						+ queueProvider.getName() + ", fileName="
+						+ currentWriterIndexRecord.filePath);
+			} else if (isBinaryFormat() != isBinaryFormat(currentWriterIndexRecord)) {
+				closeFile = true;
+				logger.info("Closing file. Spool format changed. queueName="
+						+ queueProvider.getName() + ", fileName="
+						+ currentWriterIndexRecord.filePath);
 			}
 			if (closeFile) {
 				// Roll the file
@@ -552,6 +681,10 @@ synchronized private void closeFileIfNeeded() throws FileNotFoundException,
 					logWriter.close();
 					logWriter = null;
 				}
+				if (segmentWriter != null) {
+					segmentWriter.close();
+					segmentWriter = null;
+				}
 				currentWriterIndexRecord.status = SPOOL_FILE_STATUS.pending;
 				currentWriterIndexRecord.writeCompleteTime = new Date();
 				saveIndexFile();
@@ -658,7 +791,8 @@ void appendToDoneFile(AuditIndexRecord indexRecord)
 			// Remove old files
 			File[] logFiles = archiveFolder.listFiles(new FileFilter() {
 				public boolean accept(File pathname) {
-					return pathname.getName().toLowerCase().endsWith(".log");
+					String fileName = pathname.getName().toLowerCase();
+					return fileName.endsWith(".log") || fileName.endsWith(".seg");
 				}
 			});
 
@@ -714,7 +848,9 @@ void logError(String msg) {
 	class AuditIndexRecord {
 		String id;
 		String filePath;
+		String format;
 		int linePosition = 0;
+		long bytePosition = 0;
 		SPOOL_FILE_STATUS status = SPOOL_FILE_STATUS.write_inprogress;
 		Date fileCreateTime;
 		Date writeCompleteTime;
@@ -727,7 +863,8 @@ class AuditIndexRecord {
 		@Override
 		public String toString() {
 			return "AuditIndexRecord [id=" + id + ", filePath=" + filePath
-					+ ", linePosition=" + linePosition + ", status=" + status
+					+ ", format=" + format + ", linePosition=" + linePosition
+					+ ", bytePosition=" + bytePosition + ", status=" + status
 					+ ", fileCreateTime=" + fileCreateTime
 					+ ", writeCompleteTime=" + writeCompleteTime
 					+ ", doneCompleteTime=" + doneCompleteTime
@@ -804,32 +941,10 @@ public void runLogAudit() {
 					BufferedReader br = new BufferedReader(new FileReader(
 							currentConsumerIndexRecord.filePath));
 					try {
-						int startLine = currentConsumerIndexRecord.linePosition;
-						String line;
-						int currLine = 0;
-						List<String> lines = new ArrayList<String>();
-						while ((line = br.readLine()) != null) {
-							currLine++;
-							if (currLine < startLine) {
-								continue;
-							}
-							lines.add(line);
-							if (lines.size() == queueProvider.getMaxBatchSize()) {
-								boolean ret = sendEvent(lines,
-										currentConsumerIndexRecord, currLine);
-								if (!ret) {
-									throw new Exception("Destination down");
-								}
-								lines.clear();
-							}
-						}
-						if (lines.size() > 0) {
-							boolean ret = sendEvent(lines,
-									currentConsumerIndexRecord, currLine);
-							if (!ret) {
-								throw new Exception("Destination down");
-							}
-							lines.clear();
+						if (isBinaryFormat(currentConsumerIndexRecord)) {
+							logSegment(consumerFile);
+						} else {
+							logLines(br);
 						}
 						logger.info("Done reading file. file="
 								+ currentConsumerIndexRecord.filePath
@@ -873,8 +988,75 @@ public void runLogAudit() {
 				+ ", consumer=" + consumerProvider.getName());
 	}
 
+	private void logLines(BufferedReader br) throws Exception {
+		int startLine = currentConsumerIndexRecord.linePosition;
+		String line;
+		int currLine = 0;
+		List<String> lines = new ArrayList<String>();
+		while ((line = br.readLine()) != null) {
+			currLine++;
+			if (currLine < startLine) {
+				continue;
+			}
+			lines.add(line);
+			if (lines.size() == queueProvider.getMaxBatchSize()) {
+				boolean ret = sendEvent(lines,
+						currentConsumerIndexRecord, currLine, 0);
+				if (!ret) {
+					throw new Exception("Destination down");
+				}
+				lines.clear();
+			}
+		}
+		if (lines.size() > 0) {
+			boolean ret = sendEvent(lines,
+					currentConsumerIndexRecord, currLine, 0);
+			if (!ret) {
+				throw new Exception("Destination down");
+			}
+			lines.clear();
+		}
+	}
+
+	/**
+	 * Sends records of the segment, starting after the last record sent earlier
+	 *
+	 * @param file
+	 * @throws Exception
+	 */
+	private void logSegment(File file) throws Exception {
+		try (AuditSpoolSegment.Reader reader = new AuditSpoolSegment.Reader(
+				file, currentConsumerIndexRecord.bytePosition)) {
+			int currLine = currentConsumerIndexRecord.linePosition;
+			String line;
+			List<String> lines = new ArrayList<String>();
+			while ((line = reader.next()) != null) {
+				currLine++;
+				lines.add(line);
+				if (lines.size() == queueProvider.getMaxBatchSize()) {
+					boolean ret = sendEvent(lines,
+							currentConsumerIndexRecord, currLine,
+							reader.getPosition());
+					if (!ret) {
+						throw new Exception("Destination down");
+					}
+					lines.clear();
+				}
+			}
+			if (lines.size() > 0) {
+				boolean ret = sendEvent(lines,
+						currentConsumerIndexRecord, currLine,
+						reader.getPosition());
+				if (!ret) {
+					throw new Exception("Destination down");
+				}
+				lines.clear();
+			}
+		}
+	}
+
 	private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord,
-			int currLine) {
+			int currLine, long bytePosition) {
 		boolean ret = true;
 		try {
 			ret = consumerProvider.logJSON(lines);
@@ -886,6 +1068,7 @@ private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord,
 			} else {
 				// Update index and save
 				indexRecord.linePosition = currLine;
+				indexRecord.bytePosition = bytePosition;
 				indexRecord.status = SPOOL_FILE_STATUS.read_inprogress;
 				indexRecord.lastSuccessTime = new Date();
 				indexRecord.lastAttempt = true;
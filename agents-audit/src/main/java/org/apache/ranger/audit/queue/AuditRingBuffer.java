@@ -0,0 +1,590 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, lock-free queue for audit events - written by many threads and read by one consumer thread.
+ *
+ * Producers claim slots by advancing the producer index with a CAS - one CAS for a batch of events - and then publish
+ * events in the claimed slots; the consumer takes published events in order and frees their slots by advancing the
+ * consumer index. Unlike ArrayBlockingQueue, producers and the consumer don't take a lock.
+ *
+ * When empty, the consumer waits for events as per its WaitStrategy: SPIN and YIELD keep the consumer thread running,
+ * for lowest latency; PARK - the default - parks the consumer thread until a producer publishes an event. When full,
+ * events are dropped (FullPolicy.DROP) or producers wait for free slots up to a configured time (FullPolicy.BACKPRESSURE).
+ *
+ * Only one thread must read from the queue - with poll(), take() or drainTo(); iterator() is not supported.
+ */
+public class AuditRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+	private static final Logger LOG = LoggerFactory.getLogger(AuditRingBuffer.class);
+
+	public enum WaitStrategy { SPIN, YIELD, PARK }
+	public enum FullPolicy { DROP, BACKPRESSURE }
+
+	public static final String PROP_QUEUE_TYPE               = "queue.type";
+	public static final String PROP_WAIT_STRATEGY            = "queue.ring.wait.strategy";
+	public static final String PROP_FULL_POLICY              = "queue.ring.full.policy";
+	public static final String PROP_BACKPRESSURE_MAX_WAIT_MS = "queue.ring.backpressure.max.wait.ms";
+
+	public static final String QUEUE_TYPE_ARRAY = "array";
+	public static final String QUEUE_TYPE_RING  = "ring";
+
+	public static final int DEFAULT_BACKPRESSURE_MAX_WAIT_MS = 1000;
+
+	private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final int  LATENCY_BUCKETS     = 40; // bucket i has latencies in [2^i, 2^(i+1)) nanoseconds
+
+	private static final Map<String, AuditRingBuffer<?>> INSTANCES = new ConcurrentHashMap<>();
+
+	private final String                  name;
+	private final int                     capacity;
+	private final int                     mask;
+	private final AtomicReferenceArray<E> buffer;
+	private final WaitStrategy            waitStrategy;
+	private final FullPolicy              fullPolicy;
+	private final long                    backPressureMaxWaitNanos;
+	private final AtomicLong              producerIndex  = new PaddedAtomicLong(); // next slot to claim
+	private final AtomicLong              consumerIndex  = new PaddedAtomicLong(); // next slot to read
+	private final LongAdder               enqueuedCount  = new LongAdder();
+	private final LongAdder               droppedCount   = new LongAdder();
+	private final LongAdder               fullCount      = new LongAdder();
+	private final LongAdder[]             latencyBuckets = new LongAdder[LATENCY_BUCKETS];
+	private volatile Thread               waitingConsumer;
+
+	/**
+	 * Creates the queue configured with propPrefix + ".queue.type": ArrayBlockingQueue - the default - or AuditRingBuffer.
+	 */
+	public static <E> BlockingQueue<E> createQueue(Properties props, String propPrefix, String name, int capacity) {
+		String          queueType = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_TYPE, QUEUE_TYPE_ARRAY);
+		BlockingQueue<E> ret;
+
+		if (QUEUE_TYPE_RING.equalsIgnoreCase(queueType.trim())) {
+			WaitStrategy waitStrategy = toEnum(WaitStrategy.class, MiscUtil.getStringProperty(props, propPrefix + "." + PROP_WAIT_STRATEGY, null), WaitStrategy.PARK);
+			FullPolicy   fullPolicy   = toEnum(FullPolicy.class, MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FULL_POLICY, null), FullPolicy.DROP);
+			int          maxWaitMs    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_BACKPRESSURE_MAX_WAIT_MS, DEFAULT_BACKPRESSURE_MAX_WAIT_MS);
+
+			LOG.info("Creating AuditRingBuffer: name=" + name + ", capacity=" + capacity + ", waitStrategy=" + waitStrategy + ", fullPolicy=" + fullPolicy + ", backPressureMaxWaitMs=" + maxWaitMs);
+
+			ret = new AuditRingBuffer<>(name, capacity, waitStrategy, fullPolicy, maxWaitMs);
+		} else {
+			if (!QUEUE_TYPE_ARRAY.equalsIgnoreCase(queueType.trim())) {
+				LOG.warn("Unknown " + propPrefix + "." + PROP_QUEUE_TYPE + ": " + queueType + ". Using " + QUEUE_TYPE_ARRAY);
+			}
+
+			LOG.info("Creating ArrayBlockingQueue with maxSize=" + capacity);
+
+			ret = new ArrayBlockingQueue<>(capacity);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Metrics of all AuditRingBuffer instances in use, by name.
+	 */
+	public static Map<String, Object> getAllMetrics() {
+		Map<String, Object> ret = new TreeMap<>();
+
+		for (AuditRingBuffer<?> ringBuffer : INSTANCES.values()) {
+			ret.put(ringBuffer.getName(), ringBuffer.getMetrics());
+		}
+
+		return ret;
+	}
+
+	public AuditRingBuffer(String name, int capacity, WaitStrategy waitStrategy, FullPolicy fullPolicy, long backPressureMaxWaitMs) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+
+		int size = Integer.highestOneBit(capacity);
+
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		this.name                     = name;
+		this.capacity                 = capacity;
+		this.mask                     = size - 1;
+		this.buffer                   = new AtomicReferenceArray<>(size);
+		this.waitStrategy             = waitStrategy;
+		this.fullPolicy               = fullPolicy;
+		this.backPressureMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(backPressureMaxWaitMs);
+
+		for (int i = 0; i < latencyBuckets.length; i++) {
+			latencyBuckets[i] = new LongAdder();
+		}
+
+		if (name != null) {
+			INSTANCES.put(name, this);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	public FullPolicy getFullPolicy() {
+		return fullPolicy;
+	}
+
+	/**
+	 * Stops reporting metrics of this instance in getAllMetrics().
+	 */
+	public void close() {
+		if (name != null) {
+			INSTANCES.remove(name, this);
+		}
+	}
+
+	/**
+	 * Adds the event; when the queue is full, the event is dropped or, with FullPolicy.BACKPRESSURE, added once there
+	 * is space - unless that takes longer than the configured maximum wait time. Time taken is recorded in metrics.
+	 *
+	 * @return false if the event was dropped
+	 */
+	public boolean enqueue(E e) {
+		long    startTime = System.nanoTime();
+		boolean ret       = offer(e);
+
+		if (!ret) {
+			fullCount.increment();
+
+			if (fullPolicy == FullPolicy.BACKPRESSURE) {
+				ret = waitToOffer(e, startTime + backPressureMaxWaitNanos);
+			}
+		}
+
+		if (ret) {
+			enqueuedCount.increment();
+		} else {
+			droppedCount.increment();
+		}
+
+		recordLatency(System.nanoTime() - startTime);
+
+		return ret;
+	}
+
+	/**
+	 * Adds events in as few batches as free space allows - one CAS for each batch; when the queue is full, events are
+	 * dropped or added as space becomes available, as in enqueue().
+	 *
+	 * @return number of events added
+	 */
+	public int enqueueAll(Collection<? extends E> events) {
+		for (E e : events) {
+			if (e == null) {
+				throw new NullPointerException();
+			}
+		}
+
+		long                  startTime = System.nanoTime();
+		int                   count     = events.size();
+		Iterator<? extends E> iter      = events.iterator();
+		int                   ret       = offerBatch(iter, count);
+
+		if (ret < count) {
+			fullCount.increment();
+
+			if (fullPolicy == FullPolicy.BACKPRESSURE) {
+				long deadline = startTime + backPressureMaxWaitNanos;
+
+				while (ret < count && (deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+					waitForSpace();
+
+					ret += offerBatch(iter, count - ret);
+				}
+			}
+		}
+
+		enqueuedCount.add(ret);
+		droppedCount.add(count - ret);
+
+		recordLatency(System.nanoTime() - startTime);
+
+		return ret;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		long pIdx;
+
+		do {
+			pIdx = producerIndex.get();
+
+			if (pIdx - consumerIndex.get() >= capacity) {
+				return false;
+			}
+		} while (!producerIndex.compareAndSet(pIdx, pIdx + 1));
+
+		buffer.lazySet(index(pIdx), e);
+
+		signalConsumer();
+
+		return true;
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (!offer(e)) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+			if ((deadline - System.nanoTime()) <= 0) {
+				return false;
+			}
+
+			waitForSpace();
+		}
+
+		return true;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		while (!offer(e)) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+			waitForSpace();
+		}
+	}
+
+	@Override
+	public E poll() {
+		long cIdx = consumerIndex.get();
+		int  idx  = index(cIdx);
+		E    ret  = buffer.get(idx);
+
+		if (ret == null) {
+			if (cIdx == producerIndex.get()) {
+				return null;
+			}
+
+			// slot is claimed by a producer, which is about to publish the event
+			while ((ret = buffer.get(idx)) == null) {
+				Thread.yield();
+			}
+		}
+
+		buffer.lazySet(idx, null);
+		consumerIndex.lazySet(cIdx + 1);
+
+		return ret;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		E ret = poll();
+
+		if (ret == null) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+			while ((ret = poll()) == null) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+
+				long remaining = deadline - System.nanoTime();
+
+				if (remaining <= 0) {
+					break;
+				}
+
+				waitForEvents(remaining);
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E ret;
+
+		while ((ret = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) == null) {
+			// wait again
+		}
+
+		return ret;
+	}
+
+	@Override
+	public E peek() {
+		return buffer.get(index(consumerIndex.get()));
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Moves published events to the given collection; the consumer index is advanced once for the batch.
+	 */
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		long cIdx = consumerIndex.get();
+		int  ret  = 0;
+
+		while (ret < maxElements) {
+			int idx = index(cIdx);
+			E   e   = buffer.get(idx);
+
+			if (e == null) { // empty, or the next event is not yet published
+				break;
+			}
+
+			buffer.lazySet(idx, null);
+			c.add(e);
+
+			cIdx++;
+			ret++;
+		}
+
+		if (ret > 0) {
+			consumerIndex.lazySet(cIdx);
+		}
+
+		return ret;
+	}
+
+	@Override
+	public int size() {
+		long cIdx = consumerIndex.get();
+		long pIdx = producerIndex.get();
+
+		return (int) Math.max(0, Math.min(capacity, pIdx - cIdx));
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return consumerIndex.get() == producerIndex.get();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		throw new UnsupportedOperationException("AuditRingBuffer.iterator()");
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("capacity", capacity);
+		ret.put("size", size());
+		ret.put("waitStrategy", waitStrategy.name());
+		ret.put("fullPolicy", fullPolicy.name());
+		ret.put("enqueuedCount", enqueuedCount.sum());
+		ret.put("droppedCount", droppedCount.sum());
+		ret.put("fullCount", fullCount.sum());
+		ret.put("enqueueLatencyNanos", getLatencyPercentiles());
+
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return "AuditRingBuffer={name=" + name + ", capacity=" + capacity + ", size=" + size() + ", waitStrategy=" + waitStrategy + ", fullPolicy=" + fullPolicy + "}";
+	}
+
+	// claims up to maxCount free slots with one CAS and publishes the next events from iter in them
+	private int offerBatch(Iterator<? extends E> iter, int maxCount) {
+		long pIdx;
+		int  count;
+
+		do {
+			pIdx  = producerIndex.get();
+			count = (int) Math.min(maxCount, capacity - (pIdx - consumerIndex.get()));
+
+			if (count <= 0) {
+				return 0;
+			}
+		} while (!producerIndex.compareAndSet(pIdx, pIdx + count));
+
+		for (int i = 0; i < count; i++) {
+			buffer.lazySet(index(pIdx + i), iter.next());
+		}
+
+		signalConsumer();
+
+		return count;
+	}
+
+	private boolean waitToOffer(E e, long deadline) {
+		boolean ret;
+
+		while (!(ret = offer(e)) && (deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+			waitForSpace();
+		}
+
+		return ret;
+	}
+
+	private void waitForSpace() {
+		switch (waitStrategy) {
+			case SPIN:
+				break;
+
+			case YIELD:
+				Thread.yield();
+				break;
+
+			default:
+				LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+				break;
+		}
+	}
+
+	private void waitForEvents(long maxWaitNanos) {
+		switch (waitStrategy) {
+			case SPIN:
+				break;
+
+			case YIELD:
+				Thread.yield();
+				break;
+
+			default:
+				// producers unpark waitingConsumer after publishing; it is set before checking for events, so that a
+				// producer either sees it or publishes before the check
+				waitingConsumer = Thread.currentThread();
+
+				if (isEmpty()) {
+					LockSupport.parkNanos(this, maxWaitNanos);
+				}
+
+				waitingConsumer = null;
+				break;
+		}
+	}
+
+	private void signalConsumer() {
+		Thread consumer = waitingConsumer;
+
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	private int index(long idx) {
+		return (int) (idx & mask);
+	}
+
+	private void recordLatency(long nanos) {
+		int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, nanos));
+
+		latencyBuckets[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+	}
+
+	// upper bound of the bucket having each percentile
+	private Map<String, Long> getLatencyPercentiles() {
+		long[] counts = new long[LATENCY_BUCKETS];
+		long   total  = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = latencyBuckets[i].sum();
+			total    += counts[i];
+		}
+
+		Map<String, Long> ret = new LinkedHashMap<>();
+
+		ret.put("p50", getPercentile(counts, total, 0.50));
+		ret.put("p90", getPercentile(counts, total, 0.90));
+		ret.put("p99", getPercentile(counts, total, 0.99));
+		ret.put("p999", getPercentile(counts, total, 0.999));
+
+		return ret;
+	}
+
+	private static long getPercentile(long[] counts, long total, double percentile) {
+		long target     = (long) Math.ceil(total * percentile);
+		long cumulative = 0;
+
+		for (int i = 0; i < counts.length && total > 0; i++) {
+			cumulative += counts[i];
+
+			if (cumulative >= target) {
+				return 1L << (i + 1);
+			}
+		}
+
+		return 0;
+	}
+
+	private static <T extends Enum<T>> T toEnum(Class<T> cls, String value, T defaultValue) {
+		T ret = defaultValue;
+
+		if (value != null && !value.trim().isEmpty()) {
+			try {
+				ret = Enum.valueOf(cls, value.trim().toUpperCase());
+			} catch (IllegalArgumentException excp) {
+				LOG.warn("Invalid " + cls.getSimpleName() + ": " + value + ". Using " + defaultValue);
+			}
+		}
+
+		return ret;
+	}
+
+	// padded to keep producer and consumer indexes in different cache lines
+	@SuppressWarnings("unused")
+	private static class PaddedAtomicLong extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+
+		long p1, p2, p3, p4, p5, p6, p7;
+	}
+}
@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary spool file of audit records, used by AuditFileSpool and AuditFileQueueSpool with filespool.format=binary.
+ *
+ * A segment starts with an 8 byte header - magic and version - followed by records, each having the payload length,
+ * CRC32 of the payload and the payload. Segment files are preallocated to the configured size; a record with length 0,
+ * the end of file or a record failing the length/CRC checks - like one partially written before a crash - marks the end
+ * of records. Records are buffered and written to the file together on commit(); the file is synced on commit once the
+ * configured interval has passed. Segments are read in chunks, with positional reads into a reused buffer, starting at
+ * the position persisted in the spool index.
+ */
+public class AuditSpoolSegment {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSpoolSegment.class);
+
+	public static final String PROP_FILE_SPOOL_FORMAT           = "filespool.format";
+	public static final String PROP_FILE_SPOOL_SEGMENT_SIZE     = "filespool.segment.size.bytes";
+	public static final String PROP_FILE_SPOOL_SYNC_INTERVAL_MS = "filespool.sync.interval.ms";
+
+	public static final String FORMAT_JSON   = "json";
+	public static final String FORMAT_BINARY = "binary";
+
+	public static final long   DEFAULT_SEGMENT_SIZE     = 64L * 1024 * 1024;
+	public static final long   DEFAULT_SYNC_INTERVAL_MS = 1000;
+	public static final String DEFAULT_FILE_NAME_FORMAT = "spool_%app-type%_%time:yyyyMMdd-HHmm.ss%.seg";
+
+	static final int MAGIC         = 0x52535047; // "RSPG"
+	static final int VERSION       = 1;
+	static final int HEADER_SIZE   = 8;
+	static final int RECORD_HEADER = 8; // length + crc
+
+	private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+	private static final int READ_BUFFER_SIZE  = 256 * 1024;
+
+	private AuditSpoolSegment() {
+	}
+
+	public static class Writer implements Closeable {
+		private final File             file;
+		private final RandomAccessFile raf;
+		private final FileChannel      channel;
+		private final long             segmentSize;
+		private final long             syncIntervalMS;
+		private final ByteBuffer       buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		private final CRC32            crc    = new CRC32();
+		private long                   position;      // file position of the next record
+		private long                   bufferPosition; // file position of the data in buffer
+		private long                   recordCount;
+		private long                   lastSyncTime;
+		private boolean                isFull;
+
+		/**
+		 * Opens the segment for writing; records are appended after existing records, if any.
+		 */
+		public static Writer open(File file, long segmentSize, long syncIntervalMS) throws IOException {
+			long position = HEADER_SIZE;
+
+			if (file.exists() && file.length() >= HEADER_SIZE) {
+				try (Reader reader = new Reader(file, HEADER_SIZE)) {
+					while (reader.next() != null) {
+						// find the end of records
+					}
+
+					position = reader.getPosition();
+				}
+			}
+
+			return new Writer(file, segmentSize, syncIntervalMS, position);
+		}
+
+		private Writer(File file, long segmentSize, long syncIntervalMS, long position) throws IOException {
+			this.file           = file;
+			this.raf            = new RandomAccessFile(file, "rw");
+			this.channel        = raf.getChannel();
+			this.segmentSize    = segmentSize;
+			this.syncIntervalMS = syncIntervalMS;
+			this.position       = position;
+			this.bufferPosition = position;
+			this.lastSyncTime   = System.currentTimeMillis();
+
+			try {
+				if (raf.length() < segmentSize) {
+					raf.setLength(segmentSize);
+				}
+
+				if (position == HEADER_SIZE) {
+					ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + RECORD_HEADER);
+
+					header.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0);
+					header.flip();
+
+					writeFully(header, 0);
+				} else {
+					// mark the end of records, in case a partially written record follows
+					writeFully(ByteBuffer.allocate(RECORD_HEADER), position);
+				}
+
+				channel.force(true);
+			} catch (IOException excp) {
+				raf.close();
+
+				throw excp;
+			}
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public long getPosition() {
+			return position;
+		}
+
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		/**
+		 * @return true once a record didn't fit in the segment - a new segment should be used for further records
+		 */
+		public boolean isFull() {
+			return isFull;
+		}
+
+		/**
+		 * Adds the record to the write buffer, to be written to the file on commit() or when the buffer fills up.
+		 * The first record of a segment is always accepted, even if it exceeds the segment size.
+		 *
+		 * @return false if the record doesn't fit in the segment
+		 */
+		public boolean append(byte[] payload) throws IOException {
+			return append(payload, 0, payload.length);
+		}
+
+		public boolean append(byte[] payload, int offset, int length) throws IOException {
+			int recordSize = RECORD_HEADER + length;
+
+			if (recordCount > 0 && position + recordSize + RECORD_HEADER > segmentSize) {
+				isFull = true;
+
+				return false;
+			}
+
+			crc.reset();
+			crc.update(payload, offset, length);
+
+			if (buffer.remaining() < recordSize) {
+				writeBuffer();
+			}
+
+			if (buffer.remaining() < recordSize) { // record larger than the buffer
+				ByteBuffer record = ByteBuffer.allocate(recordSize);
+
+				record.putInt(length).putInt((int) crc.getValue()).put(payload, offset, length);
+				record.flip();
+
+				writeFully(record, position);
+
+				bufferPosition = position + recordSize;
+			} else {
+				buffer.putInt(length).putInt((int) crc.getValue()).put(payload, offset, length);
+			}
+
+			position += recordSize;
+			recordCount++;
+
+			return true;
+		}
+
+		public boolean append(String record) throws IOException {
+			return append(record.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Writes buffered records to the file - one write for all records appended since the last commit; syncs the
+		 * file if the sync interval has passed since the last sync.
+		 */
+		public void commit() throws IOException {
+			writeBuffer();
+
+			long now = System.currentTimeMillis();
+
+			if (now - lastSyncTime >= syncIntervalMS) {
+				channel.force(false);
+
+				lastSyncTime = now;
+			}
+		}
+
+		/**
+		 * Commits and syncs buffered records, and truncates unused preallocated space.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				writeBuffer();
+
+				if (raf.length() > position) {
+					raf.setLength(position);
+				}
+
+				channel.force(true);
+			} finally {
+				raf.close();
+			}
+		}
+
+		private void writeBuffer() throws IOException {
+			if (buffer.position() > 0) {
+				buffer.flip();
+
+				writeFully(buffer, bufferPosition);
+
+				buffer.clear();
+			}
+
+			bufferPosition = position;
+		}
+
+		private void writeFully(ByteBuffer buf, long filePosition) throws IOException {
+			while (buf.hasRemaining()) {
+				filePosition += channel.write(buf, filePosition);
+			}
+		}
+	}
+
+	public static class Reader implements Closeable {
+		private final File             file;
+		private final RandomAccessFile raf;
+		private final FileChannel      channel;
+		private final long             length;
+		private final CRC32            crc          = new CRC32();
+		private ByteBuffer             buffer       = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		private long                   bufferStart;  // file position of the data in buffer
+		private long                   position;     // file position of the next record
+		private int                    recordOffset; // offset in buffer of the payload of the last record read
+		private boolean                isEnd;
+
+		/**
+		 * Opens the segment and positions the reader at the given file position - i.e. the position after the last
+		 * record processed earlier, or HEADER_SIZE to read from the first record.
+		 */
+		public Reader(File file, long position) throws IOException {
+			this.file    = file;
+			this.raf     = new RandomAccessFile(file, "r");
+			this.channel = raf.getChannel();
+
+			try {
+				this.length = raf.length();
+
+				buffer.limit(0); // nothing read yet
+
+				if (!fill(0, HEADER_SIZE) || buffer.getInt(0) != MAGIC) {
+					throw new IOException(file + ": not an audit spool segment");
+				}
+
+				if (buffer.getInt(4) != VERSION) {
+					throw new IOException(file + ": unsupported audit spool segment version " + buffer.getInt(4));
+				}
+
+				this.position = Math.min(Math.max(position, HEADER_SIZE), length);
+			} catch (IOException excp) {
+				raf.close();
+
+				throw excp;
+			}
+		}
+
+		/**
+		 * @return position after the last record returned by next() or nextRecord()
+		 */
+		public long getPosition() {
+			return position;
+		}
+
+		/**
+		 * @return payload of the next record; null at the end of records
+		 */
+		public String next() throws IOException {
+			int recordLength = readRecord();
+
+			return recordLength != -1 ? new String(buffer.array(), recordOffset, recordLength, StandardCharsets.UTF_8) : null;
+		}
+
+		/**
+		 * @return payload of the next record, as a read-only view of the read buffer - valid until the next call to
+		 *         next() or nextRecord(); null at the end of records
+		 */
+		public ByteBuffer nextRecord() throws IOException {
+			int recordLength = readRecord();
+
+			if (recordLength == -1) {
+				return null;
+			}
+
+			ByteBuffer record = buffer.duplicate();
+
+			record.limit(recordOffset + recordLength);
+			record.position(recordOffset);
+
+			return record.slice().asReadOnlyBuffer();
+		}
+
+		@Override
+		public void close() throws IOException {
+			raf.close();
+		}
+
+		// reads the next record to buffer, at recordOffset; returns the payload length, -1 at the end of records
+		private int readRecord() throws IOException {
+			if (isEnd || length - position < RECORD_HEADER || !fill(position, RECORD_HEADER)) {
+				return -1;
+			}
+
+			int headerOffset = (int) (position - bufferStart);
+			int recordLength = buffer.getInt(headerOffset);
+
+			if (recordLength <= 0 || recordLength > length - position - RECORD_HEADER) {
+				if (recordLength != 0) {
+					logger.warn("Ignoring partially written record at position " + position + " in " + file);
+				}
+
+				isEnd = true;
+
+				return -1;
+			}
+
+			if (!fill(position, RECORD_HEADER + recordLength)) {
+				isEnd = true;
+
+				return -1;
+			}
+
+			headerOffset = (int) (position - bufferStart);
+
+			crc.reset();
+			crc.update(buffer.array(), headerOffset + RECORD_HEADER, recordLength);
+
+			if ((int) crc.getValue() != buffer.getInt(headerOffset + 4)) {
+				logger.warn("Ignoring record with CRC mismatch at position " + position + " in " + file);
+
+				isEnd = true;
+
+				return -1;
+			}
+
+			recordOffset = headerOffset + RECORD_HEADER;
+			position    += RECORD_HEADER + recordLength;
+
+			return recordLength;
+		}
+
+		// makes count bytes from filePosition available in buffer, reading from the file if needed
+		private boolean fill(long filePosition, int count) throws IOException {
+			if (filePosition >= bufferStart && filePosition + count <= bufferStart + buffer.limit()) {
+				return true;
+			}
+
+			if (buffer.capacity() < count) {
+				buffer = ByteBuffer.allocate(Math.max(count, buffer.capacity() * 2));
+			}
+
+			buffer.clear();
+
+			bufferStart = filePosition;
+
+			for (long readPosition = filePosition; buffer.hasRemaining(); ) {
+				int bytesRead = channel.read(buffer, readPosition);
+
+				if (bytesRead < 0) {
+					break;
+				}
+
+				readPosition += bytesRead;
+			}
+
+			buffer.flip();
+
+			return buffer.limit() >= count;
+		}
+	}
+}
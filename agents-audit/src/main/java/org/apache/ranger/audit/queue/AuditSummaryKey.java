@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Objects;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+/**
+ * Key of an audit summary: the fields of AuthzAuditEvent.getEventKey(), held as-is instead of being concatenated into
+ * a string; the hash is computed once, when the key is created. Events of other types are keyed by getEventKey().
+ */
+final class AuditSummaryKey {
+	private final String user;
+	private final String accessType;
+	private final String resourcePath;
+	private final String resourceType;
+	private final String action;
+	private final short  accessResult;
+	private final String sessionId;
+	private final String clientIP;
+	private final String eventKey;
+	private final int    hash;
+
+	private AuditSummaryKey(String user, String accessType, String resourcePath, String resourceType, String action, short accessResult, String sessionId, String clientIP, String eventKey) {
+		this.user         = user;
+		this.accessType   = accessType;
+		this.resourcePath = resourcePath;
+		this.resourceType = resourceType;
+		this.action       = action;
+		this.accessResult = accessResult;
+		this.sessionId    = sessionId;
+		this.clientIP     = clientIP;
+		this.eventKey     = eventKey;
+
+		int h = Objects.hashCode(user);
+
+		h = 31 * h + Objects.hashCode(accessType);
+		h = 31 * h + Objects.hashCode(resourcePath);
+		h = 31 * h + Objects.hashCode(resourceType);
+		h = 31 * h + Objects.hashCode(action);
+		h = 31 * h + accessResult;
+		h = 31 * h + Objects.hashCode(sessionId);
+		h = 31 * h + Objects.hashCode(clientIP);
+		h = 31 * h + Objects.hashCode(eventKey);
+
+		this.hash = h ^ (h >>> 16);
+	}
+
+	static AuditSummaryKey of(AuditEventBase event) {
+		if (event instanceof AuthzAuditEvent) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+
+			return new AuditSummaryKey(authzEvent.getUser(), authzEvent.getAccessType(), authzEvent.getResourcePath(), authzEvent.getResourceType(),
+			                           authzEvent.getAction(), authzEvent.getAccessResult(), authzEvent.getSessionId(), authzEvent.getClientIP(), null);
+		}
+
+		return new AuditSummaryKey(null, null, null, null, null, (short) 0, null, null, event.getEventKey());
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof AuditSummaryKey)) {
+			return false;
+		}
+
+		AuditSummaryKey other = (AuditSummaryKey) obj;
+
+		return hash == other.hash &&
+		       accessResult == other.accessResult &&
+		       Objects.equals(user, other.user) &&
+		       Objects.equals(resourcePath, other.resourcePath) &&
+		       Objects.equals(accessType, other.accessType) &&
+		       Objects.equals(clientIP, other.clientIP) &&
+		       Objects.equals(sessionId, other.sessionId) &&
+		       Objects.equals(resourceType, other.resourceType) &&
+		       Objects.equals(action, other.action) &&
+		       Objects.equals(eventKey, other.eventKey);
+	}
+
+	@Override
+	public String toString() {
+		return eventKey != null ? eventKey : (user + "^" + accessType + "^" + resourcePath + "^" + resourceType + "^" + action + "^" + accessResult + "^" + sessionId + "^" + clientIP);
+	}
+}
@@ -19,14 +19,18 @@
 
 package org.apache.ranger.audit.queue;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
@@ -36,29 +40,50 @@
 import org.slf4j.MDC;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * Summarizes audit events having the same key into one event, dispatched to the consumer every summary interval.
+ *
+ * Summaries are kept in a table of concurrent hash-map shards, updated by producer threads directly - i.e. without
+ * handing events over to the consumer thread. Producers pre-aggregate events in a thread-local map, merged into the
+ * shared table when it reaches summary.local.max.entries entries, summary.local.merge.interval.ms after the last merge
+ * or when summaries are dispatched. The number of pending summaries is limited by queue.size.
  */
 public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory
 			.getLogger(AuditSummaryQueue.class);
 
-	public static final String PROP_SUMMARY_INTERVAL = "summary.interval.ms";
+	public static final String PROP_SUMMARY_INTERVAL             = "summary.interval.ms";
+	public static final String PROP_SUMMARY_SHARDS               = "summary.shards";
+	public static final String PROP_SUMMARY_LOCAL_MAX_ENTRIES    = "summary.local.max.entries";
+	public static final String PROP_SUMMARY_LOCAL_MERGE_INTERVAL = "summary.local.merge.interval.ms";
 
-	LinkedBlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<AuditEventBase>();
 	Thread consumerThread = null;
 
 	static int threadCount = 0;
 	static final String DEFAULT_NAME = "summary";
 
-	private static final int MAX_DRAIN = 100000;
+	private static final long SEALED = -1;
 
 	private int maxSummaryIntervalMs = 5000;
+	private int localMaxEntries      = 1024;
+	private int localMergeIntervalMs = 1000;
+
+	private ConcurrentHashMap<AuditSummaryKey, AuditSummary>[] shards;
+	private int                                                shardMask;
+
+	private final AtomicInteger                         summaryCount      = new AtomicInteger();
+	private final ConcurrentLinkedQueue<LocalSummaries> allLocalSummaries = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<LocalSummaries>           localSummaries    = ThreadLocal.withInitial(() -> {
+		LocalSummaries ret = new LocalSummaries();
+
+		allLocalSummaries.add(ret);
 
-	HashMap<String, AuditSummary> summaryMap = new HashMap<String, AuditSummary>();
+		return ret;
+	});
 
 	public AuditSummaryQueue(AuditHandler consumer) {
 		super(consumer);
 		setName(DEFAULT_NAME);
+		initShards(Runtime.getRuntime().availableProcessors() * 2);
 	}
 
 	@Override
@@ -66,7 +91,17 @@ public void init(Properties props, String propPrefix) {
 		super.init(props, propPrefix);
 		maxSummaryIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
 				+ PROP_SUMMARY_INTERVAL, maxSummaryIntervalMs);
-		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs + ", name="
+		localMaxEntries = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_LOCAL_MAX_ENTRIES, localMaxEntries);
+		localMergeIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_LOCAL_MERGE_INTERVAL, localMergeIntervalMs);
+
+		initShards(MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_SHARDS, shards.length));
+
+		logger.info("maxSummaryInterval=" + maxSummaryIntervalMs + ", shards="
+				+ shards.length + ", localMaxEntries=" + localMaxEntries
+				+ ", localMergeInterval=" + localMergeIntervalMs + ", name="
 				+ getName());
 	}
 
@@ -79,11 +114,34 @@ public void init(Properties props, String propPrefix) {
 	 */
 	@Override
 	public boolean log(AuditEventBase event) {
-		// Add to the queue and return ASAP
-		if (queue.size() >= getMaxQueueSize()) {
+		if (summaryCount.get() >= getMaxQueueSize()) {
 			return false;
 		}
-		queue.add(event);
+
+		AuditSummaryKey key       = AuditSummaryKey.of(event);
+		long            eventTime = getEventTime(event);
+
+		if (localMaxEntries <= 0) {
+			return addToSummary(key, event, 1, eventTime, eventTime);
+		}
+
+		LocalSummaries local = localSummaries.get();
+
+		synchronized (local) {
+			LocalSummary summary = local.summaries.get(key);
+
+			if (summary == null) {
+				local.summaries.put(key, new LocalSummary(event, eventTime));
+			} else {
+				summary.add(eventTime);
+			}
+
+			if (local.summaries.size() >= localMaxEntries
+					|| System.currentTimeMillis() - local.lastMergeTime >= localMergeIntervalMs) {
+				mergeLocalSummaries(local);
+			}
+		}
+
 		return true;
 	}
 
@@ -165,26 +223,11 @@ public void runLogAudit() {
 			long nextDispatchDuration = lastDispatchTime
 					- System.currentTimeMillis() + maxSummaryIntervalMs;
 
-			Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
-
 			try {
-				AuditEventBase event = null;
 				if (!isDrain() && nextDispatchDuration > 0) {
-					event = queue.poll(nextDispatchDuration,
-							TimeUnit.MILLISECONDS);
-				} else {
-					// For poll() is non blocking
-					event = queue.poll();
-				}
+					Thread.sleep(nextDispatchDuration);
 
-				if (event != null) {
-					eventList.add(event);
-					queue.drainTo(eventList, MAX_DRAIN - 1);
-				} else {
-					// poll returned due to timeout, so reseting clock
-					nextDispatchDuration = lastDispatchTime
-							- System.currentTimeMillis() + maxSummaryIntervalMs;
-					lastDispatchTime = System.currentTimeMillis();
+					nextDispatchDuration = 0;
 				}
 			} catch (InterruptedException e) {
 				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
@@ -192,46 +235,19 @@ public void runLogAudit() {
 				logger.error("Caught error during processing request.", t);
 			}
 
-			for (AuditEventBase event : eventList) {
-				// Add to hash map
-				String key = event.getEventKey();
-				AuditSummary auditSummary = summaryMap.get(key);
-				if (auditSummary == null) {
-					auditSummary = new AuditSummary();
-					auditSummary.event = event;
-					auditSummary.startTime = event.getEventTime();
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count = 1;
-					summaryMap.put(key, auditSummary);
-				} else {
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count++;
-				}
-			}
-
 			if (isDrain() || nextDispatchDuration <= 0) {
 				// Reset time just before sending the logs
 				lastDispatchTime = System.currentTimeMillis();
 
-				for (Map.Entry<String, AuditSummary> entry : summaryMap
-						.entrySet()) {
-					AuditSummary auditSummary = entry.getValue();
-					auditSummary.event.setEventCount(auditSummary.count);
-					long timeDiff = auditSummary.endTime.getTime()
-							- auditSummary.startTime.getTime();
-					timeDiff = timeDiff > 0 ? timeDiff : 1;
-					auditSummary.event.setEventDurationMS(timeDiff);
-					boolean ret = consumer.log(auditSummary.event);
-					if (!ret) {
-						// We need to drop this event
-						logFailedEvent(auditSummary.event);
-					}
+				try {
+					dispatchSummaries();
+				} catch (Throwable t) {
+					logger.error("Caught error while dispatching summaries.", t);
 				}
-				summaryMap.clear();
 			}
 
 			if (isDrain()) {
-				if (summaryMap.isEmpty() && queue.isEmpty()) {
+				if (summaryCount.get() == 0 && !hasLocalSummaries()) {
 					break;
 				}
 				if (isDrainMaxTimeElapsed()) {
@@ -239,6 +255,7 @@ public void runLogAudit() {
 							+ getName()
 							+ ", waited for "
 							+ (stopTime - System.currentTimeMillis()) + " ms");
+					break;
 				}
 			}
 
@@ -256,10 +273,209 @@ public void runLogAudit() {
 		logger.info("Exiting consumerThread.run() method. name=" + getName());
 	}
 
-	class AuditSummary {
-		Date startTime = null;
-		Date endTime = null;
-		int count = 0;
-		AuditEventBase event;
+	@SuppressWarnings("unchecked")
+	private void initShards(int shardCount) {
+		int count = Integer.highestOneBit(Math.max(shardCount, 1) * 2 - 1);
+
+		if (shards == null || shards.length != count) {
+			shards    = new ConcurrentHashMap[count];
+			shardMask = count - 1;
+
+			for (int i = 0; i < count; i++) {
+				shards[i] = new ConcurrentHashMap<>();
+			}
+		}
+	}
+
+	private boolean addToSummary(AuditSummaryKey key, AuditEventBase event, long count, long startTime, long endTime) {
+		ConcurrentHashMap<AuditSummaryKey, AuditSummary> shard = shards[key.hashCode() & shardMask];
+
+		while (true) {
+			AuditSummary summary = shard.get(key);
+
+			if (summary == null) {
+				if (summaryCount.get() >= getMaxQueueSize()) {
+					return false;
+				}
+
+				AuditSummary newSummary = new AuditSummary(event, count, startTime, endTime);
+
+				summary = shard.putIfAbsent(key, newSummary);
+
+				if (summary == null) {
+					summaryCount.incrementAndGet();
+
+					return true;
+				}
+			}
+
+			if (summary.add(count, startTime, endTime)) {
+				return true;
+			}
+
+			// summary is being dispatched: remove it and add a new one
+			if (shard.remove(key, summary)) {
+				summaryCount.decrementAndGet();
+			}
+		}
+	}
+
+	// called with lock on local
+	private void mergeLocalSummaries(LocalSummaries local) {
+		if (!local.summaries.isEmpty()) {
+			List<AuditEventBase> failedEvents = null;
+
+			for (Map.Entry<AuditSummaryKey, LocalSummary> entry : local.summaries.entrySet()) {
+				LocalSummary summary = entry.getValue();
+
+				if (!addToSummary(entry.getKey(), summary.event, summary.count, summary.startTime, summary.endTime)) {
+					if (failedEvents == null) {
+						failedEvents = new ArrayList<>();
+					}
+
+					failedEvents.add(summary.event);
+				}
+			}
+
+			local.summaries.clear();
+
+			if (failedEvents != null) {
+				logFailedEvent(failedEvents);
+			}
+		}
+
+		local.lastMergeTime = System.currentTimeMillis();
+	}
+
+	private boolean hasLocalSummaries() {
+		for (LocalSummaries local : allLocalSummaries) {
+			synchronized (local) {
+				if (!local.summaries.isEmpty()) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private void dispatchSummaries() {
+		for (Iterator<LocalSummaries> iter = allLocalSummaries.iterator(); iter.hasNext(); ) {
+			LocalSummaries local = iter.next();
+
+			synchronized (local) {
+				mergeLocalSummaries(local);
+
+				if (local.owner.get() == null) { // owner thread is gone
+					iter.remove();
+				}
+			}
+		}
+
+		List<AuditEventBase> events = new ArrayList<>();
+
+		for (ConcurrentHashMap<AuditSummaryKey, AuditSummary> shard : shards) {
+			for (Map.Entry<AuditSummaryKey, AuditSummary> entry : shard.entrySet()) {
+				AuditSummary summary = entry.getValue();
+				long         count   = summary.seal();
+
+				if (shard.remove(entry.getKey(), summary)) {
+					summaryCount.decrementAndGet();
+				}
+
+				if (count > 0) {
+					summary.event.setEventCount(count);
+					long timeDiff = summary.endTime.get() - summary.startTime.get();
+					timeDiff = timeDiff > 0 ? timeDiff : 1;
+					summary.event.setEventDurationMS(timeDiff);
+
+					events.add(summary.event);
+				}
+			}
+		}
+
+		if (!events.isEmpty()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Dispatching " + events.size() + " summaries. name=" + getName());
+			}
+
+			boolean ret = consumer.log(events);
+			if (!ret) {
+				// We need to drop this event
+				logFailedEvent(events);
+			}
+		}
+	}
+
+	private static long getEventTime(AuditEventBase event) {
+		return event.getEventTime() != null ? event.getEventTime().getTime() : System.currentTimeMillis();
+	}
+
+	static class AuditSummary {
+		final AuditEventBase event;
+		final AtomicLong     count;
+		final AtomicLong     startTime;
+		final AtomicLong     endTime;
+
+		AuditSummary(AuditEventBase event, long count, long startTime, long endTime) {
+			this.event     = event;
+			this.count     = new AtomicLong(count);
+			this.startTime = new AtomicLong(startTime);
+			this.endTime   = new AtomicLong(endTime);
+		}
+
+		// returns false if the summary was sealed for dispatch
+		boolean add(long n, long start, long end) {
+			while (true) {
+				long c = count.get();
+
+				if (c == SEALED) {
+					return false;
+				}
+
+				if (count.compareAndSet(c, c + n)) {
+					break;
+				}
+			}
+
+			startTime.accumulateAndGet(start, Math::min);
+			endTime.accumulateAndGet(end, Math::max);
+
+			return true;
+		}
+
+		long seal() {
+			return count.getAndSet(SEALED);
+		}
+	}
+
+	static class LocalSummary {
+		final AuditEventBase event;
+		long                 count;
+		long                 startTime;
+		long                 endTime;
+
+		LocalSummary(AuditEventBase event, long eventTime) {
+			this.event     = event;
+			this.count     = 1;
+			this.startTime = eventTime;
+			this.endTime   = eventTime;
+		}
+
+		void add(long eventTime) {
+			count++;
+
+			if (eventTime < startTime) {
+				startTime = eventTime;
+			} else if (eventTime > endTime) {
+				endTime = eventTime;
+			}
+		}
+	}
+
+	static class LocalSummaries {
+		final WeakReference<Thread>                  owner         = new WeakReference<>(Thread.currentThread());
+		final HashMap<AuditSummaryKey, LocalSummary> summaries     = new HashMap<>();
+		long                                         lastMergeTime = System.currentTimeMillis();
 	}
 }
@@ -54,11 +54,14 @@ public class ORCFileUtil {
     protected VectorizedRowBatch batch              = null;
     protected String             auditSchema        = null;
     protected String             dateFormat         = "yyyy-MM-dd HH:mm:ss";
+    protected Format             dateFormatter      = null;
 
     protected ArrayList<String>         schemaFields          = new ArrayList<>();
     protected Map<String,ColumnVector>  vectorizedRowBatchMap = new HashMap<>();
+    protected Field[]                   schemaFieldRefs       = new Field[0];
     protected int                       orcBufferSize;
     protected long                      orcStripeSize;
+    protected int                       orcRowIndexStride;
 
     public static ORCFileUtil getInstance() {
         ORCFileUtil orcFileUtil = me;
@@ -74,16 +77,24 @@ public static ORCFileUtil getInstance() {
     }
 
     public void init(int orcBufferSize, long orcStripeSize, String compression) throws Exception{
+        init(orcBufferSize, orcStripeSize, 0, compression);
+    }
+
+    /**
+     * @param orcRowIndexStride rows in each row group of a stripe; 0 to use the ORC default
+     */
+    public void init(int orcBufferSize, long orcStripeSize, int orcRowIndexStride, String compression) throws Exception{
         if (logger.isDebugEnabled()) {
             logger.debug("==> ORCFileUtil.init()");
         }
-        this.orcBufferSize   = orcBufferSize;
-        this.orcStripeSize   = orcStripeSize;
-        this.compressionKind = getORCCompression(compression);
+        this.orcBufferSize     = orcBufferSize;
+        this.orcStripeSize     = orcStripeSize;
+        this.orcRowIndexStride = orcRowIndexStride;
+        this.compressionKind   = getORCCompression(compression);
         initORCAuditSchema();
         if (logger.isDebugEnabled()) {
             logger.debug("<== ORCFileUtil.init() : orcBufferSize: " + orcBufferSize + " stripeSize: " + orcStripeSize +
-                    " compression: " + compression);
+                    " rowIndexStride: " + orcRowIndexStride + " compression: " + compression);
         }
     }
 
@@ -99,6 +110,10 @@ public Writer createWriter(Configuration conf, FileSystem fs, String path) throw
                 .stripeSize(orcStripeSize)
                 .compress(compressionKind);
 
+        if (orcRowIndexStride > 0) {
+            writeOptions.rowIndexStride(orcRowIndexStride);
+        }
+
         ret = OrcFile.createWriter(new Path(path), writeOptions);
         if (logger.isDebugEnabled()) {
             logger.debug("<== ORCFileUtil.createWriter()");
@@ -118,29 +133,26 @@ public void close(Writer writer) throws  Exception {
         }
     }
 
-    public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Exception {
+    synchronized public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Exception {
         int eventBatchSize = events.size();
 
         if (logger.isDebugEnabled()) {
             logger.debug("==> ORCFileUtil.log() : EventSize: " + eventBatchSize + "ORC bufferSize:" + orcBufferSize );
         }
 
-        //increase the batch size according to event size, so it can accomodate all the events.
-        if (eventBatchSize > orcBufferSize) {
-            batch  = schema.createRowBatch(orcBufferSize);
-        }
-
         try {
+            // field values are copied to the column vectors of the batch; the batch is added to the writer when full
+            ColumnVector[] columnVectors = batch.cols;
+
             for(AuthzAuditEvent event : events) {
                 int row = batch.size++;
-                for (int j=0;j<schemaFields.size();j++) {
-                    String fieldName          = schemaFields.get(j);
-                    SchemaInfo schemaInfo     = getFieldValue(event, fieldName);
-                    ColumnVector columnVector = vectorizedRowBatchMap.get(fieldName);
+                for (int j=0;j<schemaFieldRefs.length;j++) {
+                    Object       value        = schemaFieldRefs[j].get(event);
+                    ColumnVector columnVector = columnVectors[j];
                     if (columnVector instanceof LongColumnVector) {
-                        ((LongColumnVector) columnVector).vector[row] = castLongObject(schemaInfo.getValue());
+                        ((LongColumnVector) columnVector).vector[row] = castLongObject(value);
                     } else if (columnVector instanceof BytesColumnVector) {
-                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(schemaInfo.getValue())));
+                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(value)));
                     }
                 }
                 if (batch.size == orcBufferSize) {
@@ -173,8 +185,10 @@ protected byte[] getBytesValues(String val) {
 
     protected String getDateString(Date date) {
         String ret = null;
-        Format formatter = new SimpleDateFormat(dateFormat);
-        ret = formatter.format(date);
+        if (dateFormatter == null) {
+            dateFormatter = new SimpleDateFormat(dateFormat);
+        }
+        ret = dateFormatter.format(date);
         return ret;
     }
 
@@ -187,6 +201,12 @@ protected void initORCAuditSchema() throws Exception {
         schema = TypeDescription.fromString(auditSchema);
         batch  = schema.createRowBatch(orcBufferSize);
         buildVectorRowBatch(schemaFieldTypeMap);
+        schemaFieldRefs = new Field[schemaFields.size()];
+        for (int i = 0; i < schemaFields.size(); i++) {
+            Field fld = AuthzAuditEvent.class.getDeclaredField(schemaFields.get(i));
+            fld.setAccessible(true);
+            schemaFieldRefs[i] = fld;
+        }
         if (logger.isDebugEnabled()) {
             logger.debug("<== ORCWriter.initORCAuditSchema()");
         }
@@ -29,8 +29,10 @@
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  *  This class writes the Ranger audits to HDFS as ORC files
@@ -48,13 +50,16 @@ public class RangerORCAuditWriter extends AbstractRangerAuditWriter {
     protected int     defaultbufferSize              = 100000;
     protected long    orcStripeSize                  = 0;
     protected long    defaultStripeSize              = 100000L;
+    protected int     orcRowIndexStride              = 0;
+    protected long    writtenEventCount              = 0;
+    protected long    writtenRawBytes                = 0;
+    protected long    writeTimeNanos                 = 0;
 
     @Override
     public void init(Properties props, String propPrefix, String auditProviderName, Map<String,String> auditConfigs) {
         if (logger.isDebugEnabled()) {
             logger.debug("==> RangerORCAuditWriter.init()");
         }
-        init(props,propPrefix);
         super.init(props, propPrefix, auditProviderName, auditConfigs);
         if (logger.isDebugEnabled()) {
             logger.debug("<== RangerORCAuditWriter.init()");
@@ -62,8 +67,9 @@ public void init(Properties props, String propPrefix, String auditProviderName,
     }
 
     synchronized public boolean logAuditAsORC(final Collection<AuthzAuditEvent> events) throws  Exception {
-        boolean ret = false;
-        Writer  out = null;
+        boolean ret       = false;
+        Writer  out       = null;
+        long    startTime = System.nanoTime();
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("UGI=" + MiscUtil.getUGILoginUser()
@@ -87,6 +93,9 @@ public Writer run()  throws Exception {
                 logger.debug("Flushing HDFS audit in ORC Format. Event Size:" + events.size());
             }
             if (out != null) {
+                // from the writer, as the size of the file is known only to the NameNode once the writer is closed
+                long rawDataSize = out.getRawDataSize();
+
                 try {
                     //flush and close the ORC batch file
                     orcFileUtil.close(out);
@@ -96,6 +105,8 @@ public Writer run()  throws Exception {
                     throw e;
                 }
                 orcLogWriter = null;
+
+                updateWriteStats(events.size(), rawDataSize, System.nanoTime() - startTime);
             }
         }
         return ret;
@@ -153,6 +164,25 @@ synchronized protected Writer getORCFileWrite() throws Exception {
         return orcLogWriter;
     }
 
+    /**
+     * Events written, their size before encoding and compression, and time taken to write, since this writer was created.
+     */
+    synchronized public Map<String, Long> getWriteStats() {
+        Map<String, Long> ret = new LinkedHashMap<>();
+
+        ret.put("eventCount", writtenEventCount);
+        ret.put("rawDataBytes", writtenRawBytes);
+        ret.put("timeMs", TimeUnit.NANOSECONDS.toMillis(writeTimeNanos));
+
+        return ret;
+    }
+
+    private void updateWriteStats(int eventCount, long rawDataSize, long timeNanos) {
+        writtenEventCount += eventCount;
+        writtenRawBytes   += rawDataSize;
+        writeTimeNanos    += timeNanos;
+    }
+
     public boolean logAsORC(Collection<String> events) throws  Exception {
         boolean ret = false;
         Collection<AuthzAuditEvent> authzAuditEvents = getAuthzAuditEvents(events);
@@ -174,14 +204,19 @@ public Collection<AuthzAuditEvent> getAuthzAuditEvents(Collection<String> events
         return ret;
     }
 
+    @Override
     public void init(Properties props, String propPrefix) {
+        // folder and file name properties; the extension must be set first, as it is part of the default file name
+        setFileExtension(ORC_FILE_EXTENSION);
+        super.init(props, propPrefix);
+
         compression    = MiscUtil.getStringProperty(props, propPrefix + "." + fileType +".compression");
         orcBufferSize  = MiscUtil.getIntProperty(props, propPrefix + "." + fileType +".buffersize",defaultbufferSize);
         orcStripeSize  = MiscUtil.getLongProperty(props, propPrefix + "." + fileType +".stripesize",defaultStripeSize);
-        setFileExtension(ORC_FILE_EXTENSION);
+        orcRowIndexStride = MiscUtil.getIntProperty(props, propPrefix + "." + fileType +".rowindex.stride", orcRowIndexStride);
         try {
             orcFileUtil = ORCFileUtil.getInstance();
-            orcFileUtil.init(orcBufferSize, orcStripeSize, compression);
+            orcFileUtil.init(orcBufferSize, orcStripeSize, orcRowIndexStride, compression);
         } catch ( Exception e) {
             logger.error("Error while doing ORCWriter.init() ", e);
         }
@@ -116,4 +116,9 @@ public List<String> getTagTypes(String tagTypePattern) throws Exception {
     public RangerUserStore getUserStoreIfUpdated(long lastKnownUserStoreVersion, long lastActivationTimeInMillis) throws Exception {
         return null;
     }
+
+    @Override
+    public RangerServiceVersions waitForServiceVersionChange(long lastKnownPolicyVersion, long lastKnownTagVersion, long lastKnownRoleVersion, long waitTimeMs) throws Exception {
+        return null;
+    }
 }
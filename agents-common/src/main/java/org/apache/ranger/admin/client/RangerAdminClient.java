@@ -25,6 +25,7 @@
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
 import org.apache.ranger.plugin.util.GrantRevokeRoleRequest;
 import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerServiceVersions;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.apache.ranger.plugin.util.ServiceTags;
 import org.apache.ranger.plugin.util.RangerUserStore;
@@ -64,4 +65,13 @@ public interface RangerAdminClient {
 
 	RangerUserStore getUserStoreIfUpdated(long lastKnownUserStoreVersion, long lastActivationTimeInMillis) throws Exception;
 
+	/**
+	 * Waits up to waitTimeMs for the policy, tag or role version of the service to differ from the given versions;
+	 * a negative version is not waited on.
+	 *
+	 * @return versions known to Ranger Admin when one of them changed or when the wait timed out; null if the wait
+	 * is not supported or failed, in which case the caller should fall back to polling
+	 */
+	RangerServiceVersions waitForServiceVersionChange(long lastKnownPolicyVersion, long lastKnownTagVersion, long lastKnownRoleVersion, long waitTimeMs) throws Exception;
+
 }
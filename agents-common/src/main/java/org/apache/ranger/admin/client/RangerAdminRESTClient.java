@@ -37,6 +37,7 @@
 
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.NewCookie;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.ParameterizedType;
@@ -66,6 +67,10 @@ public class RangerAdminRESTClient extends AbstractRangerAdminClient {
 	private Cookie			 roleDownloadSessionId              = null;
 	private boolean			 isValidRoleDownloadSessionCookie   = false;
 	private final String	 pluginCapabilities      = Long.toHexString(new RangerPluginCapability().getPluginCapabilities());
+	private volatile RangerBulkDownloader bulkDownloader;
+	private volatile DownloadETag         policiesETag;
+	private volatile DownloadETag         tagsETag;
+	private volatile DownloadETag         rolesETag;
 
 	public static <T> GenericType<List<T>> getGenericType(final T clazz) {
 
@@ -124,12 +129,22 @@ public void init(String serviceName, String appId, String propertyPrefix, Config
 
 		init(url, sslConfigFileName, restClientConnTimeOutMs , restClientReadTimeOutMs, restClientMaxRetryAttempts, restClientRetryIntervalMs, config);
 
+		restClient.setLatencyAwareUrlSelection(config.getBoolean(propertyPrefix + ".policy.rest.client.url.selection.latency.aware", false));
+		restClient.setCompressionEnabled(config.getBoolean(propertyPrefix + ".policy.rest.client.compression.enabled", true));
+
         try {
             this.serviceNameUrlParam = URLEncoderUtil.encodeURIParam(serviceName);
         } catch (UnsupportedEncodingException e) {
             LOG.warn("Unsupported encoding, serviceName=" + serviceName);
             this.serviceNameUrlParam = serviceName;
         }
+
+		if (config.getBoolean(propertyPrefix + ".policy.rest.client.bulk.download.enabled", false)) {
+			// plugins polling within half the poll interval of a bulk download are served from its results
+			long pollIntervalMs = config.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000);
+
+			bulkDownloader = RangerBulkDownloader.register(url + "|" + sslConfigFileName, pollIntervalMs / 2, serviceName, pluginId, clusterName, pluginCapabilities, supportsPolicyDeltas, supportsTagDeltas, this::bulkDownload);
+		}
 	}
 
 	@Override
@@ -138,12 +153,13 @@ public ServicePolicies getServicePoliciesIfUpdated(final long lastKnownVersion,
 			LOG.debug("==> RangerAdminRESTClient.getServicePoliciesIfUpdated(" + lastKnownVersion + ", " + lastActivationTimeInMillis + ")");
 		}
 
-		final ServicePolicies ret;
+		final ServicePolicies      ret;
+		final RangerBulkDownloader bulkDownloader = this.bulkDownloader;
 
-		if (isRangerCookieEnabled && policyDownloadSessionId != null && isValidPolicyDownloadSessionCookie) {
-			ret = getServicePoliciesIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis);
+		if (bulkDownloader != null && bulkDownloader.isSupported()) {
+			ret = bulkDownloader.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, lastActivationTimeInMillis, () -> downloadServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis));
 		} else {
-			ret = getServicePoliciesIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis);
+			ret = downloadServicePoliciesIfUpdated(lastKnownVersion, lastActivationTimeInMillis);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -159,12 +175,13 @@ public RangerRoles getRolesIfUpdated(final long lastKnownRoleVersion, final long
 			LOG.debug("==> RangerAdminRESTClient.getRolesIfUpdated(" + lastKnownRoleVersion + ", " + lastActivationTimeInMillis + ")");
 		}
 
-		final RangerRoles ret;
+		final RangerRoles          ret;
+		final RangerBulkDownloader bulkDownloader = this.bulkDownloader;
 
-		if (isRangerCookieEnabled && roleDownloadSessionId != null && isValidRoleDownloadSessionCookie) {
-			ret = getRolesIfUpdatedWithCookie(lastKnownRoleVersion, lastActivationTimeInMillis);
+		if (bulkDownloader != null && bulkDownloader.isSupported()) {
+			ret = bulkDownloader.getRolesIfUpdated(serviceName, lastKnownRoleVersion, lastActivationTimeInMillis, () -> downloadRolesIfUpdated(lastKnownRoleVersion, lastActivationTimeInMillis));
 		} else {
-			ret = getRolesIfUpdatedWithCred(lastKnownRoleVersion, lastActivationTimeInMillis);
+			ret = downloadRolesIfUpdated(lastKnownRoleVersion, lastActivationTimeInMillis);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -174,6 +191,31 @@ public RangerRoles getRolesIfUpdated(final long lastKnownRoleVersion, final long
 		return ret;
 	}
 
+	/**
+	 * Sets the listener to be called when a bulk download, triggered by plugin of another service, receives updated
+	 * policies or roles for this service. Has no effect when bulk download is not enabled.
+	 */
+	public void setBulkDownloadListener(Runnable listener) {
+		RangerBulkDownloader bulkDownloader = this.bulkDownloader;
+
+		if (bulkDownloader != null) {
+			bulkDownloader.setUpdateListener(serviceName, listener);
+		}
+	}
+
+	/**
+	 * Stops bulk download for this service - called when the plugin stops; later downloads are individual.
+	 */
+	public void stopBulkDownload() {
+		RangerBulkDownloader bulkDownloader = this.bulkDownloader;
+
+		this.bulkDownloader = null;
+
+		if (bulkDownloader != null) {
+			bulkDownloader.unregister(serviceName);
+		}
+	}
+
 	@Override
 	public RangerRole createRole(final RangerRole request) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -680,12 +722,13 @@ public ServiceTags getServiceTagsIfUpdated(final long lastKnownVersion, final lo
 			LOG.debug("==> RangerAdminRESTClient.getServiceTagsIfUpdated(" + lastKnownVersion + ", " + lastActivationTimeInMillis + "): ");
 		}
 
-		final ServiceTags ret;
+		final ServiceTags          ret;
+		final RangerBulkDownloader bulkDownloader = this.bulkDownloader;
 
-		if (isRangerCookieEnabled && tagDownloadSessionId != null && isValidTagDownloadSessionCookie) {
-			ret = getServiceTagsIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis);
+		if (bulkDownloader != null && bulkDownloader.isSupported()) {
+			ret = bulkDownloader.getServiceTagsIfUpdated(serviceName, lastKnownVersion, lastActivationTimeInMillis, () -> downloadServiceTagsIfUpdated(lastKnownVersion, lastActivationTimeInMillis));
 		} else {
-			ret = getServiceTagsIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis);
+			ret = downloadServiceTagsIfUpdated(lastKnownVersion, lastActivationTimeInMillis);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -829,6 +872,141 @@ public ClientResponse run() {
 		return ret;
 	}
 
+	@Override
+	public RangerServiceVersions waitForServiceVersionChange(final long lastKnownPolicyVersion, final long lastKnownTagVersion, final long lastKnownRoleVersion, final long waitTimeMs) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAdminRESTClient.waitForServiceVersionChange(" + lastKnownPolicyVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ")");
+		}
+
+		final RangerServiceVersions ret;
+		final UserGroupInformation  user         = MiscUtil.getUGILoginUser();
+		final boolean               isSecureMode = user != null && UserGroupInformation.isSecurityEnabled();
+		final ClientResponse        response;
+
+		// the wait must end well before the read on the connection times out
+		final long maxWaitTimeMs = restClient.getRestClientReadTimeOutMs() / 2;
+
+		Map<String, String> queryParams = new HashMap<String, String>();
+		queryParams.put(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownPolicyVersion));
+		queryParams.put(RangerRESTUtils.REST_PARAM_LAST_KNOWN_TAG_VERSION, Long.toString(lastKnownTagVersion));
+		queryParams.put(RangerRESTUtils.REST_PARAM_LAST_KNOWN_ROLE_VERSION, Long.toString(lastKnownRoleVersion));
+		queryParams.put(RangerRESTUtils.REST_PARAM_WAIT_TIME_MS, Long.toString(Math.min(waitTimeMs, maxWaitTimeMs)));
+		queryParams.put(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+
+		if (isSecureMode) {
+			PrivilegedAction<ClientResponse> action = new PrivilegedAction<ClientResponse>() {
+				public ClientResponse run() {
+					ClientResponse clientRes = null;
+					String relativeURL = RangerRESTUtils.REST_URL_SECURE_WAIT_FOR_SERVICE_VERSION_CHANGE + serviceNameUrlParam;
+					try {
+						clientRes = restClient.get(relativeURL, queryParams);
+					} catch (Exception e) {
+						LOG.error("Failed to get response, Error is : " + e.getMessage());
+					}
+					return clientRes;
+				}
+			};
+			response = user.doAs(action);
+		} else {
+			String relativeURL = RangerRESTUtils.REST_URL_WAIT_FOR_SERVICE_VERSION_CHANGE + serviceNameUrlParam;
+			response = restClient.get(relativeURL, queryParams);
+		}
+
+		if (response == null) {
+			LOG.warn("Error waiting for service version change; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user + ", serviceName=" + serviceName);
+			ret = null;
+		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
+			ret = response.getEntity(RangerServiceVersions.class);
+		} else {
+			// 404 from a Ranger Admin that doesn't support the wait, 503 when too many plugins are waiting
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Error waiting for service version change. secureMode=" + isSecureMode + ", user=" + user + ", response=" + RESTResponse.fromClientResponse(response) + ", serviceName=" + serviceName);
+			}
+			ret = null;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAdminRESTClient.waitForServiceVersionChange(" + lastKnownPolicyVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	private ServicePolicies downloadServicePoliciesIfUpdated(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
+		if (isRangerCookieEnabled && policyDownloadSessionId != null && isValidPolicyDownloadSessionCookie) {
+			return getServicePoliciesIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis);
+		} else {
+			return getServicePoliciesIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis);
+		}
+	}
+
+	private RangerRoles downloadRolesIfUpdated(final long lastKnownRoleVersion, final long lastActivationTimeInMillis) throws Exception {
+		if (isRangerCookieEnabled && roleDownloadSessionId != null && isValidRoleDownloadSessionCookie) {
+			return getRolesIfUpdatedWithCookie(lastKnownRoleVersion, lastActivationTimeInMillis);
+		} else {
+			return getRolesIfUpdatedWithCred(lastKnownRoleVersion, lastActivationTimeInMillis);
+		}
+	}
+
+	private ServiceTags downloadServiceTagsIfUpdated(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
+		if (isRangerCookieEnabled && tagDownloadSessionId != null && isValidTagDownloadSessionCookie) {
+			return getServiceTagsIfUpdatedWithCookie(lastKnownVersion, lastActivationTimeInMillis);
+		} else {
+			return getServiceTagsIfUpdatedWithCred(lastKnownVersion, lastActivationTimeInMillis);
+		}
+	}
+
+	/**
+	 * Bulk download call used by RangerBulkDownloader, on behalf of plugins of all services sharing this Ranger Admin.
+	 *
+	 * @return null if Ranger Admin doesn't support bulk download
+	 */
+	private RangerBulkDownloadResponse bulkDownload(final RangerBulkDownloadRequest request) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAdminRESTClient.bulkDownload(" + request + ")");
+		}
+
+		final RangerBulkDownloadResponse ret;
+		final UserGroupInformation       user         = MiscUtil.getUGILoginUser();
+		final boolean                    isSecureMode = user != null && UserGroupInformation.isSecurityEnabled();
+		final ClientResponse             response;
+
+		if (isSecureMode) {
+			PrivilegedAction<ClientResponse> action = new PrivilegedAction<ClientResponse>() {
+				public ClientResponse run() {
+					ClientResponse clientRes = null;
+					try {
+						clientRes = restClient.post(RangerRESTUtils.REST_URL_SECURE_BULK_DOWNLOAD, null, request);
+					} catch (Exception e) {
+						LOG.error("Failed to get response, Error is : " + e.getMessage());
+					}
+					return clientRes;
+				}
+			};
+			response = user.doAs(action);
+		} else {
+			response = restClient.post(RangerRESTUtils.REST_URL_BULK_DOWNLOAD, null, request);
+		}
+
+		if (response == null) {
+			throw new Exception("Bulk download failed; Received NULL response!!. secureMode=" + isSecureMode + ", user=" + user);
+		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
+			ret = response.getEntity(RangerBulkDownloadResponse.class);
+		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
+			ret = null;
+		} else {
+			RESTResponse resp = RESTResponse.fromClientResponse(response);
+
+			throw new Exception("Bulk download failed. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAdminRESTClient.bulkDownload(" + request + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	/* Policies Download ranger admin rest call methods */
 	private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnownVersion, final long lastActivationTimeInMillis) throws Exception {
 		if (LOG.isDebugEnabled()) {
@@ -856,6 +1034,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCred(final long lastKnown
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			setCookieReceivedFromCredSession(response);
 			ret = response.getEntity(ServicePolicies.class);
+			policiesETag = ret != null ? DownloadETag.of(response, ret.getPolicyVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			policyDownloadSessionId = null;
 			ret       = null;
@@ -907,6 +1086,7 @@ private ServicePolicies getServicePoliciesIfUpdatedWithCookie(final long lastKno
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			checkAndResetSessionCookie(response);
 			ret = response.getEntity(ServicePolicies.class);
+			policiesETag = ret != null ? DownloadETag.of(response, ret.getPolicyVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			policyDownloadSessionId = null;
 			isValidPolicyDownloadSessionCookie = false;
@@ -948,6 +1128,8 @@ private ClientResponse getRangerAdminPolicyDownloadResponse(final long lastKnown
 		queryParams.put(RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS, Boolean.toString(supportsPolicyDeltas));
 		queryParams.put(RangerRESTUtils.REST_PARAM_CAPABILITIES, pluginCapabilities);
 
+		final String eTag = DownloadETag.getIfNoneMatch(policiesETag, lastKnownVersion);
+
 		if (isSecureMode) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Checking Service policy if updated as user : " + user);
@@ -957,7 +1139,7 @@ public ClientResponse run() {
 					String relativeURL = RangerRESTUtils.REST_URL_POLICY_GET_FOR_SECURE_SERVICE_IF_UPDATED + serviceNameUrlParam;
 					ClientResponse clientResp = null;
 					try {
-						clientResp = restClient.get(relativeURL, queryParams, policyDownloadSessionId);
+						clientResp = restClient.get(relativeURL, queryParams, policyDownloadSessionId, eTag);
 					} catch (Exception e) {
 						LOG.error("Failed to get response, Error is : "+e.getMessage());
 					}
@@ -970,7 +1152,7 @@ public ClientResponse run() {
 				LOG.debug("Checking Service policy if updated with old api call");
 			}
 			String relativeURL = RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED + serviceNameUrlParam;
-			ret = restClient.get(relativeURL, queryParams, policyDownloadSessionId);
+			ret = restClient.get(relativeURL, queryParams, policyDownloadSessionId, eTag);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -1037,6 +1219,7 @@ private ServiceTags getServiceTagsIfUpdatedWithCred(final long lastKnownVersion,
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			setCookieReceivedFromTagDownloadSession(response);
 			ret = response.getEntity(ServiceTags.class);
+			tagsETag = ret != null ? DownloadETag.of(response, ret.getTagVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			tagDownloadSessionId = null;
 			ret = null;
@@ -1092,6 +1275,7 @@ private ServiceTags getServiceTagsIfUpdatedWithCookie(final long lastKnownVersio
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			checkAndResetTagDownloadSessionCookie(response);
 			ret = response.getEntity(ServiceTags.class);
+			tagsETag = ret != null ? DownloadETag.of(response, ret.getTagVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			tagDownloadSessionId = null;
 			isValidTagDownloadSessionCookie = false;
@@ -1133,13 +1317,15 @@ private ClientResponse getRangerAdminTagDownloadResponse(final long lastKnownVer
 		queryParams.put(RangerRESTUtils.REST_PARAM_SUPPORTS_TAG_DELTAS, Boolean.toString(supportsTagDeltas));
 		queryParams.put(RangerRESTUtils.REST_PARAM_CAPABILITIES, pluginCapabilities);
 
+		final String eTag = DownloadETag.getIfNoneMatch(tagsETag, lastKnownVersion);
+
 		if (isSecureMode) {
 			PrivilegedAction<ClientResponse> action = new PrivilegedAction<ClientResponse>() {
 				public ClientResponse run() {
 					String relativeURL = RangerRESTUtils.REST_URL_GET_SECURE_SERVICE_TAGS_IF_UPDATED + serviceNameUrlParam;
 					ClientResponse clientResp = null;
 					try {
-						clientResp = restClient.get(relativeURL, queryParams, tagDownloadSessionId);
+						clientResp = restClient.get(relativeURL, queryParams, tagDownloadSessionId, eTag);
 					} catch (Exception e) {
 						LOG.error("Failed to get response, Error is : "+e.getMessage());
 					}
@@ -1152,7 +1338,7 @@ public ClientResponse run() {
 			ret = user.doAs(action);
 		} else {
 			String relativeURL = RangerRESTUtils.REST_URL_GET_SERVICE_TAGS_IF_UPDATED + serviceNameUrlParam;
-			ret = restClient.get(relativeURL, queryParams);
+			ret = restClient.get(relativeURL, queryParams, eTag);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -1219,6 +1405,7 @@ private RangerRoles getRolesIfUpdatedWithCred(final long lastKnownRoleVersion, f
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			setCookieReceivedFromRoleDownloadSession(response);
 			ret = response.getEntity(RangerRoles.class);
+			rolesETag = ret != null ? DownloadETag.of(response, ret.getRoleVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			roleDownloadSessionId = null;
 			ret = null;
@@ -1275,6 +1462,7 @@ private RangerRoles getRolesIfUpdatedWithCookie(final long lastKnownRoleVersion,
 		} else if (response.getStatus() == HttpServletResponse.SC_OK) {
 			checkAndResetRoleDownloadSessionCookie(response);
 			ret = response.getEntity(RangerRoles.class);
+			rolesETag = ret != null ? DownloadETag.of(response, ret.getRoleVersion()) : null;
 		} else if (response.getStatus() == HttpServletResponse.SC_NOT_FOUND) {
 			roleDownloadSessionId = null;
 			isValidRoleDownloadSessionCookie = false;
@@ -1315,6 +1503,8 @@ private ClientResponse getRangerRolesDownloadResponse(final long lastKnownRoleVe
 		queryParams.put(RangerRESTUtils.REST_PARAM_CLUSTER_NAME, clusterName);
 		queryParams.put(RangerRESTUtils.REST_PARAM_CAPABILITIES, pluginCapabilities);
 
+		final String eTag = DownloadETag.getIfNoneMatch(rolesETag, lastKnownRoleVersion);
+
 		if (isSecureMode) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Checking Roles updated as user : " + user);
@@ -1324,7 +1514,7 @@ public ClientResponse run() {
 					ClientResponse clientRes = null;
 					String relativeURL = RangerRESTUtils.REST_URL_SERVICE_SERCURE_GET_USER_GROUP_ROLES + serviceNameUrlParam;
 					try {
-						clientRes =  restClient.get(relativeURL, queryParams, roleDownloadSessionId);
+						clientRes =  restClient.get(relativeURL, queryParams, roleDownloadSessionId, eTag);
 					} catch (Exception e) {
 						LOG.error("Failed to get response, Error is : "+e.getMessage());
 					}
@@ -1337,7 +1527,7 @@ public ClientResponse run() {
 				LOG.debug("Checking Roles updated as user : " + user);
 			}
 			String relativeURL = RangerRESTUtils.REST_URL_SERVICE_GET_USER_GROUP_ROLES + serviceNameUrlParam;
-			ret = restClient.get(relativeURL, queryParams);
+			ret = restClient.get(relativeURL, queryParams, eTag);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -1373,4 +1563,28 @@ private void setCookieReceivedFromRoleDownloadSession(ClientResponse clientRespo
 			isValidRoleDownloadSessionCookie = (roleDownloadSessionId != null);
 		}
 	}
+
+	/**
+	 * ETag of a downloaded response and the version of the downloaded entity. The ETag is sent in If-None-Match only
+	 * with requests based on that version, so that a plugin asking for a different version always gets the response.
+	 */
+	private static class DownloadETag {
+		final long   version;
+		final String value;
+
+		DownloadETag(long version, String value) {
+			this.version = version;
+			this.value   = value;
+		}
+
+		static DownloadETag of(ClientResponse response, Long version) {
+			String value = response.getHeaders().getFirst(HttpHeaders.ETAG);
+
+			return value != null && version != null ? new DownloadETag(version, value) : null;
+		}
+
+		static String getIfNoneMatch(DownloadETag eTag, long lastKnownVersion) {
+			return eTag != null && eTag.version == lastKnownVersion ? eTag.value : null;
+		}
+	}
 }
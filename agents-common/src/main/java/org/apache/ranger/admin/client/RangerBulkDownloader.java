@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.admin.client;
+
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest.ServiceRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse.ServiceResponse;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Downloads updated policies, tags and roles of all services whose plugins share a Ranger Admin URL in one call, and
+ * hands the results to each plugin as it polls.
+ *
+ * The first plugin to poll triggers a bulk download for every registered service; other plugins polling within the
+ * coalesce interval are served from its results without calling Ranger Admin. A plugin whose policies or roles were
+ * updated by a bulk download is notified right away, so that it doesn't wait for its next poll. If Ranger Admin
+ * doesn't support bulk download, or a bulk download fails, plugins download individually as before.
+ *
+ * Each plugin registers with the transport of its own Ranger Admin client, and unregisters when it stops; a downloader
+ * is discarded when its last plugin unregisters, so that it doesn't hold on to clients of stopped plugins.
+ */
+public class RangerBulkDownloader {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerBulkDownloader.class);
+
+    private static final Map<String, RangerBulkDownloader> INSTANCES = new ConcurrentHashMap<>();
+
+    public interface BulkDownloadTransport {
+        /**
+         * @return null if Ranger Admin doesn't support bulk download
+         */
+        RangerBulkDownloadResponse download(RangerBulkDownloadRequest request) throws Exception;
+    }
+
+    private final String                    key;
+    private final long                      coalesceIntervalMs;
+    private final Map<String, ServiceState> services       = new HashMap<>(); // guarded by this
+    private final Object                    downloadLock   = new Object();
+    private volatile boolean                isSupported    = true;
+    private          long                   downloadCount;                    // guarded by downloadLock
+    private          boolean                isLastDownloadSucceeded;          // guarded by downloadLock
+
+    /**
+     * Registers the service with the downloader for the given key - i.e. for the Ranger Admin of the plugin - creating
+     * the downloader if none exists.
+     */
+    public static RangerBulkDownloader register(String key, long coalesceIntervalMs, String serviceName, String pluginId, String clusterName, String pluginCapabilities, boolean supportsPolicyDeltas, boolean supportsTagDeltas, BulkDownloadTransport transport) {
+        return INSTANCES.compute(key, (k, instance) -> {
+            if (instance == null) {
+                instance = new RangerBulkDownloader(k, coalesceIntervalMs);
+            }
+
+            instance.register(serviceName, pluginId, clusterName, pluginCapabilities, supportsPolicyDeltas, supportsTagDeltas, transport);
+
+            return instance;
+        });
+    }
+
+    RangerBulkDownloader(String key, long coalesceIntervalMs) {
+        this.key                = key;
+        this.coalesceIntervalMs = coalesceIntervalMs;
+    }
+
+    synchronized void register(String serviceName, String pluginId, String clusterName, String pluginCapabilities, boolean supportsPolicyDeltas, boolean supportsTagDeltas, BulkDownloadTransport transport) {
+        ServiceState state = services.computeIfAbsent(serviceName, ServiceState::new);
+
+        state.pluginId             = pluginId;
+        state.clusterName          = clusterName;
+        state.pluginCapabilities   = pluginCapabilities;
+        state.supportsPolicyDeltas = supportsPolicyDeltas;
+        state.supportsTagDeltas    = supportsTagDeltas;
+        state.transport            = transport;
+    }
+
+    /**
+     * Removes the service from further bulk downloads; the downloader is discarded once no service is registered.
+     */
+    public void unregister(String serviceName) {
+        if (key == null) {
+            removeService(serviceName);
+        } else { // in compute(), so that a concurrent register() doesn't add to a discarded downloader
+            INSTANCES.compute(key, (k, instance) -> removeService(serviceName) && instance == this ? null : instance);
+        }
+    }
+
+    public synchronized void setUpdateListener(String serviceName, Runnable listener) {
+        ServiceState state = services.get(serviceName);
+
+        if (state != null) {
+            state.updateListener = listener;
+        }
+    }
+
+    public boolean isSupported() {
+        return isSupported;
+    }
+
+    synchronized boolean isRegistered(String serviceName) {
+        return services.containsKey(serviceName);
+    }
+
+    public ServicePolicies getServicePoliciesIfUpdated(String serviceName, long lastKnownVersion, long lastActivationTimeInMillis, Callable<ServicePolicies> fallback) throws Exception {
+        return getIfUpdated(serviceName, EntityType.POLICIES, lastKnownVersion, lastActivationTimeInMillis, fallback);
+    }
+
+    public ServiceTags getServiceTagsIfUpdated(String serviceName, long lastKnownVersion, long lastActivationTimeInMillis, Callable<ServiceTags> fallback) throws Exception {
+        return getIfUpdated(serviceName, EntityType.TAGS, lastKnownVersion, lastActivationTimeInMillis, fallback);
+    }
+
+    public RangerRoles getRolesIfUpdated(String serviceName, long lastKnownVersion, long lastActivationTimeInMillis, Callable<RangerRoles> fallback) throws Exception {
+        return getIfUpdated(serviceName, EntityType.ROLES, lastKnownVersion, lastActivationTimeInMillis, fallback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getIfUpdated(String serviceName, EntityType entityType, long lastKnownVersion, long lastActivationTimeInMillis, Callable<T> fallback) throws Exception {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> RangerBulkDownloader.getIfUpdated(" + serviceName + ", " + entityType + ", " + lastKnownVersion + ")");
+        }
+
+        if (!isSupported) {
+            return fallback.call();
+        }
+
+        final ServiceState state;
+        final long         downloadCount;
+
+        synchronized (this) {
+            state = services.get(serviceName);
+
+            if (state == null) { // not registered
+                return fallback.call();
+            }
+
+            state.lastActivationTime = lastActivationTimeInMillis;
+
+            state.setLastKnownVersion(entityType, lastKnownVersion);
+
+            Downloaded downloaded = state.takeDownloaded(entityType, lastKnownVersion, coalesceIntervalMs);
+
+            if (downloaded != null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("<== RangerBulkDownloader.getIfUpdated(" + serviceName + ", " + entityType + ", " + lastKnownVersion + "): from earlier bulk download, status=" + downloaded.status);
+                }
+
+                return (T) downloaded.value;
+            }
+        }
+
+        synchronized (downloadLock) {
+            downloadCount = this.downloadCount;
+        }
+
+        Downloaded downloaded = null;
+
+        if (download(downloadCount)) {
+            synchronized (this) {
+                downloaded = state.takeDownloaded(entityType, lastKnownVersion, Long.MAX_VALUE);
+            }
+        }
+
+        final T ret;
+
+        if (downloaded != null) {
+            ret = (T) downloaded.value;
+        } else { // bulk download failed or unsupported, or failed for this service - download individually
+            ret = fallback.call();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerBulkDownloader.getIfUpdated(" + serviceName + ", " + entityType + ", " + lastKnownVersion + "): isBulk=" + (downloaded != null));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Downloads for all registered services, unless a download completed after the caller read downloadCount.
+     *
+     * @return true if the download succeeded
+     */
+    private boolean download(long prevDownloadCount) {
+        List<Runnable> listeners = new ArrayList<>();
+        boolean        ret;
+
+        synchronized (downloadLock) {
+            if (downloadCount != prevDownloadCount) { // another thread downloaded while this one waited
+                return isLastDownloadSucceeded;
+            }
+
+            RangerBulkDownloadRequest request   = new RangerBulkDownloadRequest();
+            BulkDownloadTransport     transport = null;
+
+            synchronized (this) {
+                for (ServiceState state : services.values()) {
+                    request.getServices().add(state.toRequest());
+
+                    transport = state.transport; // clients of all services registered with a downloader share the Ranger Admin
+                }
+            }
+
+            if (transport == null) { // all services unregistered
+                return false;
+            }
+
+            try {
+                RangerBulkDownloadResponse response = transport.download(request);
+
+                if (response == null) {
+                    LOG.info("RangerBulkDownloader: Ranger Admin doesn't support bulk download. Plugins will download individually");
+
+                    isSupported = false;
+                    ret         = false;
+                } else {
+                    long now = System.currentTimeMillis();
+
+                    synchronized (this) {
+                        Map<String, ServiceRequest> requests = new HashMap<>();
+
+                        for (ServiceRequest serviceRequest : request.getServices()) {
+                            requests.put(serviceRequest.getServiceName(), serviceRequest);
+                        }
+
+                        for (ServiceResponse serviceResponse : response.getServices()) {
+                            ServiceState   state          = services.get(serviceResponse.getServiceName());
+                            ServiceRequest serviceRequest = requests.get(serviceResponse.getServiceName());
+
+                            if (state != null && serviceRequest != null) {
+                                boolean isPoliciesUpdated = state.setDownloaded(serviceRequest, serviceResponse, now);
+
+                                if (isPoliciesUpdated && state.updateListener != null) {
+                                    listeners.add(state.updateListener);
+                                }
+                            }
+                        }
+                    }
+
+                    ret = true;
+                }
+            } catch (Exception excp) {
+                LOG.warn("RangerBulkDownloader: bulk download failed. Plugins will download individually", excp);
+
+                ret = false;
+            }
+
+            downloadCount++;
+            isLastDownloadSucceeded = ret;
+        }
+
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception excp) {
+                LOG.warn("RangerBulkDownloader: update listener failed", excp);
+            }
+        }
+
+        return ret;
+    }
+
+    // returns true if no service is registered
+    private synchronized boolean removeService(String serviceName) {
+        services.remove(serviceName);
+
+        return services.isEmpty();
+    }
+
+    enum EntityType { POLICIES, TAGS, ROLES }
+
+    private static class Downloaded {
+        final long   baseVersion; // version known to the plugin when downloaded; deltas apply only on this version
+        final int    status;
+        final Object value;
+        final long   downloadTime;
+
+        Downloaded(long baseVersion, int status, Object value, long downloadTime) {
+            this.baseVersion  = baseVersion;
+            this.status       = status;
+            this.value        = value;
+            this.downloadTime = downloadTime;
+        }
+    }
+
+    private static class ServiceState { // guarded by the enclosing RangerBulkDownloader
+        final String          serviceName;
+        String                pluginId;
+        String                clusterName;
+        String                pluginCapabilities;
+        boolean               supportsPolicyDeltas;
+        boolean               supportsTagDeltas;
+        long                  lastActivationTime;
+        Long                  policyVersion;
+        Long                  tagVersion;
+        Long                  roleVersion;
+        Downloaded            policies;
+        Downloaded            tags;
+        Downloaded            roles;
+        Runnable              updateListener;
+        BulkDownloadTransport transport;
+
+        ServiceState(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        void setLastKnownVersion(EntityType entityType, Long version) {
+            switch (entityType) {
+                case POLICIES: policyVersion = version; break;
+                case TAGS:     tagVersion    = version; break;
+                case ROLES:    roleVersion   = version; break;
+            }
+        }
+
+        /**
+         * @return the downloaded result if it applies to the given version: an update, or no-change if downloaded within maxAgeMs
+         */
+        Downloaded takeDownloaded(EntityType entityType, long lastKnownVersion, long maxAgeMs) {
+            final Downloaded downloaded;
+
+            switch (entityType) {
+                case POLICIES: downloaded = policies; policies = null; break;
+                case TAGS:     downloaded = tags;     tags     = null; break;
+                default:       downloaded = roles;    roles    = null; break;
+            }
+
+            final Downloaded ret;
+
+            if (downloaded == null || downloaded.baseVersion != lastKnownVersion) {
+                ret = null;
+            } else if (downloaded.status == HttpServletResponse.SC_OK) {
+                ret = downloaded;
+
+                // the plugin is about to apply the update; next download must be based on the updated version
+                setLastKnownVersion(entityType, getVersion(downloaded.value));
+            } else if (downloaded.status == HttpServletResponse.SC_NOT_MODIFIED && (System.currentTimeMillis() - downloaded.downloadTime) < maxAgeMs) {
+                ret = downloaded;
+            } else {
+                ret = null;
+            }
+
+            return ret;
+        }
+
+        /**
+         * @return true if policies or roles were updated
+         */
+        boolean setDownloaded(ServiceRequest request, ServiceResponse response, long downloadTime) {
+            policies = toDownloaded(request.getLastKnownPolicyVersion(), response.getPolicyStatus(), response.getPolicies(), downloadTime);
+            tags     = toDownloaded(request.getLastKnownTagVersion(), response.getTagStatus(), response.getTags(), downloadTime);
+            roles    = toDownloaded(request.getLastKnownRoleVersion(), response.getRoleStatus(), response.getRoles(), downloadTime);
+
+            return (policies != null && policies.status == HttpServletResponse.SC_OK) || (roles != null && roles.status == HttpServletResponse.SC_OK);
+        }
+
+        ServiceRequest toRequest() {
+            ServiceRequest ret = new ServiceRequest();
+
+            ret.setServiceName(serviceName);
+            ret.setPluginId(pluginId);
+            ret.setClusterName(clusterName);
+            ret.setPluginCapabilities(pluginCapabilities);
+            ret.setLastKnownPolicyVersion(policyVersion != null ? policyVersion : -1L);
+            ret.setLastKnownTagVersion(tagVersion);   // tags and roles are downloaded only for plugins that asked for them earlier
+            ret.setLastKnownRoleVersion(roleVersion);
+            ret.setLastActivationTime(lastActivationTime);
+            ret.setSupportsPolicyDeltas(supportsPolicyDeltas);
+            ret.setSupportsTagDeltas(supportsTagDeltas);
+
+            return ret;
+        }
+
+        private static Long getVersion(Object value) {
+            if (value instanceof ServicePolicies) {
+                return ((ServicePolicies) value).getPolicyVersion();
+            } else if (value instanceof ServiceTags) {
+                return ((ServiceTags) value).getTagVersion();
+            } else if (value instanceof RangerRoles) {
+                return ((RangerRoles) value).getRoleVersion();
+            }
+
+            return null;
+        }
+
+        private static Downloaded toDownloaded(Long baseVersion, Integer status, Object value, long downloadTime) {
+            if (baseVersion == null || status == null) {
+                return null;
+            } else if (status == HttpServletResponse.SC_OK && value == null) {
+                return null;
+            }
+
+            return new Downloaded(baseVersion, status, value, downloadTime);
+        }
+    }
+}
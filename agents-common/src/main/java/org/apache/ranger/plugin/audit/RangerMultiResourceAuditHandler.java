@@ -23,13 +23,15 @@
 import java.util.Collection;
 
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class RangerMultiResourceAuditHandler extends RangerDefaultAuditHandler {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerMultiResourceAuditHandler.class);
 
-	Collection<AuthzAuditEvent> auditEvents = new ArrayList<>();
+	Collection<AuthzAuditEvent> auditEvents  = new ArrayList<>();
+	boolean                     deniedExists = false;
 
 	public RangerMultiResourceAuditHandler() {
 	}
@@ -37,37 +39,58 @@ public RangerMultiResourceAuditHandler() {
 
 	@Override
 	public void logAuthzAudit(AuthzAuditEvent auditEvent) {
+		if (auditEvent == null) {
+			return;
+		}
+
+		// once a denied access is seen, only denied accesses are logged on flush
+		if (auditEvent.getAccessResult() == 0) {
+			if (!deniedExists) {
+				deniedExists = true;
+
+				auditEvents.clear();
+			}
+		} else if (deniedExists) {
+			return;
+		}
+
 		auditEvents.add(auditEvent);
 	}
 
 	@Override
 	public void logAuthzAudits(Collection<AuthzAuditEvent> auditEvents) {
-		this.auditEvents.addAll(auditEvents);
-	}
-
-	public void flushAudit() {
-		try {
-			boolean deniedExists = false;
-			// First iterate to see if there are any denied
+		if (auditEvents != null) {
 			for (AuthzAuditEvent auditEvent : auditEvents) {
-				if (auditEvent.getAccessResult() == 0) {
-					deniedExists = true;
-					break;
-				}
+				logAuthzAudit(auditEvent);
 			}
+		}
+	}
 
-			for (AuthzAuditEvent auditEvent : auditEvents) {
-				if (deniedExists && auditEvent.getAccessResult() != 0) {
+	@Override
+	public void processResults(Collection<RangerAccessResult> results) {
+		if (results != null) {
+			for (RangerAccessResult result : results) {
+				// skip creating audit events for allowed accesses that won't be logged
+				if (result == null || !result.getIsAudited() || (deniedExists && result.getIsAllowed())) {
 					continue;
 				}
 
+				logAuthzAudit(getAuthzEvents(result));
+			}
+		}
+	}
+
+	public void flushAudit() {
+		try {
+			for (AuthzAuditEvent auditEvent : auditEvents) {
 				super.logAuthzAudit(auditEvent);
 			}
 		} catch (Throwable t) {
 			LOG.error("Error occured while writing audit log... ", t);
 		} finally {
 			// reset auditEvents once audits are logged
-			auditEvents = new ArrayList<>();
+			auditEvents  = new ArrayList<>();
+			deniedExists = false;
 		}
 	}
 }
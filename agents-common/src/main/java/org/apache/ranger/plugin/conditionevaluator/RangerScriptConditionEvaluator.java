@@ -28,6 +28,8 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import java.util.List;
 import java.util.Map;
@@ -37,8 +39,11 @@
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
-	private Boolean      enableJsonCtx = null;
+	private          ScriptEngine          scriptEngine;
+	private          Boolean               enableJsonCtx  = null;
+	private          boolean               reuseBindings  = false;
+	private volatile CompiledCondition     compiled       = null;
+	private final    ThreadLocal<Bindings> threadBindings = new ThreadLocal<>();
 
 	@Override
 	public void init() {
@@ -59,6 +64,8 @@ public void init() {
 			if (StringUtils.isNotEmpty(strEnableJsonCtx)) {
 				enableJsonCtx = Boolean.parseBoolean(strEnableJsonCtx);
 			}
+
+			reuseBindings = Boolean.parseBoolean(evalOptions.get(SCRIPT_OPTION_REUSE_BINDINGS));
 		}
 
 		if (StringUtils.isBlank(engineName)) {
@@ -66,7 +73,7 @@ public void init() {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerScriptConditionEvaluator.init() - engineName=" + engineName);
+			LOG.debug("RangerScriptConditionEvaluator.init() - engineName=" + engineName + ", reuseBindings=" + reuseBindings);
 		}
 
 		scriptEngine = ScriptEngineUtil.createScriptEngine(engineName, serviceDef.getName());
@@ -106,7 +113,13 @@ public boolean isMatched(RangerAccessRequest request) {
 					enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
 				}
 
-				evaluator.evaluateConditionScript(scriptEngine, script, enableJsonCtx);
+				CompiledScript compiledScript = getCompiledScript(script, enableJsonCtx);
+
+				if (compiledScript != null) {
+					evaluator.evaluateConditionScript(scriptEngine, compiledScript, getBindings(), enableJsonCtx);
+				} else {
+					evaluator.evaluateConditionScript(scriptEngine, script, enableJsonCtx);
+				}
 
 				result = evaluator.getResult();
 			} else {
@@ -142,4 +155,44 @@ protected String getScript() {
 
 		return ret;
 	}
+
+	// script is compiled on first evaluation, as getScript() in subclasses returns a value only after their init()
+	private CompiledScript getCompiledScript(String script, boolean enableJsonCtx) {
+		CompiledCondition ret = compiled;
+
+		if (ret == null || ret.enableJsonCtx != enableJsonCtx || !StringUtils.equals(ret.script, script)) {
+			ret      = new CompiledCondition(script, enableJsonCtx, RangerRequestScriptEvaluator.compileScript(scriptEngine, script, enableJsonCtx));
+			compiled = ret;
+		}
+
+		return ret.compiledScript;
+	}
+
+	private Bindings getBindings() {
+		Bindings ret = null;
+
+		if (reuseBindings) {
+			ret = threadBindings.get();
+
+			if (ret == null) {
+				ret = scriptEngine.createBindings();
+
+				threadBindings.set(ret);
+			}
+		}
+
+		return ret;
+	}
+
+	private static class CompiledCondition {
+		final String         script;
+		final boolean        enableJsonCtx;
+		final CompiledScript compiledScript;
+
+		CompiledCondition(String script, boolean enableJsonCtx, CompiledScript compiledScript) {
+			this.script         = script;
+			this.enableJsonCtx  = enableJsonCtx;
+			this.compiledScript = compiledScript;
+		}
+	}
 }
@@ -31,6 +31,7 @@
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestBatch;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
@@ -41,6 +42,7 @@
 import org.apache.ranger.plugin.util.DownloaderTask;
 import org.apache.ranger.plugin.service.RangerAuthContext;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBinaryCacheFile;
 import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
@@ -83,7 +85,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 	private RangerTagRefresher                 tagRefresher;
 	private RangerTagRetriever                 tagRetriever;
 	private boolean                            disableTrieLookupPrefilter;
-	private EnrichedServiceTags                enrichedServiceTags;
+	private volatile EnrichedServiceTags       enrichedServiceTags;
 	private boolean                            disableCacheIfServiceNotFound = true;
 
 	private final BlockingQueue<DownloadTrigger> tagDownloadQueue = new LinkedBlockingQueue<>();
@@ -135,7 +137,8 @@ public void init() {
 				cacheFilename = cacheFilename.replace(File.separatorChar,  '_');
 				cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
-				String cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+				String  cacheFile      = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
+				boolean useBinaryCache = StringUtils.equalsIgnoreCase(getConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.POLICY_CACHE_FORMAT_DEFAULT), RangerCommonConstants.POLICY_CACHE_FORMAT_BINARY);
 
 				createLock();
 
@@ -146,7 +149,7 @@ public void init() {
 				tagRetriever.setPluginContext(getPluginContext());
 				tagRetriever.init(enricherDef.getEnricherOptions());
 
-				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, tagDownloadQueue, cacheFile);
+				tagRefresher = new RangerTagRefresher(tagRetriever, this, -1L, tagDownloadQueue, cacheFile, useBinaryCache);
 				LOG.info("Created RangerTagRefresher Thread(" + tagRefresher.getName() + ")");
 
 				try {
@@ -220,7 +223,8 @@ public void enrich(RangerAccessRequest request, Object dataStore) {
 				}
 			}
 
-			matchedTags = enrichedServiceTags == null ? null : findMatchingTags(request, enrichedServiceTags);
+			// trie lookups can be shared by requests in a batch only if the tries are not updated in place
+			matchedTags = enrichedServiceTags == null ? null : findMatchingTags(request, enrichedServiceTags, !readLock.isLockingEnabled());
 
 			RangerAccessRequestUtil.setRequestTagsInContext(request.getContext(), matchedTags);
 		}
@@ -447,7 +451,7 @@ private void processServiceTags(ServiceTags serviceTags) {
 					serviceResourceTrie = new HashMap<>();
 
 					for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-						serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null));
+						serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().optimizeTagTrieForCompactness, null));
 					}
 				}
 				enrichedServiceTags = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie);
@@ -491,7 +495,7 @@ private void processServiceTagDeltas(ServiceTags deltas, ServiceTags allServiceT
 									LOG.debug("Added resource-matcher for service-resource:[" + serviceResource + "]");
 								}
 							} else {
-								trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null);
+								trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().optimizeTagTrieForCompactness, null);
 								serviceResourceTrie.put(resourceDef.getName(), trie);
 							}
 						}
@@ -653,7 +657,7 @@ private void setEnrichedServiceTagsInPlugin() {
 		}
 	}
 
-	private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request, EnrichedServiceTags dataStore) {
+	private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request, EnrichedServiceTags dataStore, boolean isBatchLookupAllowed) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerTagEnricher.findMatchingTags(" + request + ")");
 		}
@@ -669,7 +673,7 @@ private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request
 			ret = enrichedServiceTags.getTagsForEmptyResourceAndAnyAccess();
 		} else {
 
-			final List<RangerServiceResourceMatcher> serviceResourceMatchers = getEvaluators(request, enrichedServiceTags);
+			final List<RangerServiceResourceMatcher> serviceResourceMatchers = getEvaluators(request, enrichedServiceTags, isBatchLookupAllowed);
 
 			if (CollectionUtils.isNotEmpty(serviceResourceMatchers)) {
 
@@ -716,6 +720,10 @@ private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request
 	}
 
 	private List<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest request, EnrichedServiceTags enrichedServiceTags) {
+		return getEvaluators(request, enrichedServiceTags, false);
+	}
+
+	private List<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest request, EnrichedServiceTags enrichedServiceTags, boolean isBatchLookupAllowed) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerTagEnricher.getEvaluators(request=" + request + ")");
 		}
@@ -746,7 +754,8 @@ private List<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest req
 						continue;
 					}
 
-					Set<RangerServiceResourceMatcher> serviceResourceMatchersForResource = trie.getEvaluatorsForResource(resource.getValue(resourceName), request.getResourceMatchingScope());
+					Set<RangerServiceResourceMatcher> serviceResourceMatchersForResource = isBatchLookupAllowed ? RangerAccessRequestBatch.getEvaluatorsForResource(trie, resource.getValue(resourceName), request.getResourceMatchingScope())
+					                                                                                            : trie.getEvaluatorsForResource(resource.getValue(resourceName), request.getResourceMatchingScope());
 					Set<RangerServiceResourceMatcher> inheritedResourceMatchers = trie.getInheritedEvaluators();
 
 					if (smallestList != null) {
@@ -854,12 +863,17 @@ private static Set<RangerTagForEval> getTagsForServiceResource(Date accessTime,
 		return ret;
 	}
 
+	/*
+	 * Returns copy-on-write copies of the tries in enrichedServiceTags: applying deltas to the copies copies only the
+	 * modified nodes, and the nodes in their paths from root; rest of the nodes are shared with the current tries, which
+	 * continue to serve lookups - without locks - until the new enrichedServiceTags is published.
+	 */
 	private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> copyServiceResourceTrie() {
 		Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> ret = new HashMap<>();
 
 		if (enrichedServiceTags != null) {
 			for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : enrichedServiceTags.getServiceResourceTrie().entrySet()) {
-				RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue());
+				RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue(), true);
 				ret.put(entry.getKey(), resourceTrie);
 			}
 		}
@@ -905,15 +919,17 @@ static class RangerTagRefresher extends Thread {
 		private long lastActivationTimeInMillis;
 
 		private final String cacheFile;
+		private final boolean useBinaryCache;
 		private boolean hasProvidedTagsToReceiver;
 		private Gson gson;
 
-		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, BlockingQueue<DownloadTrigger> tagDownloadQueue, String cacheFile) {
+		RangerTagRefresher(RangerTagRetriever tagRetriever, RangerTagEnricher tagEnricher, long lastKnownVersion, BlockingQueue<DownloadTrigger> tagDownloadQueue, String cacheFile, boolean useBinaryCache) {
 			this.tagRetriever = tagRetriever;
 			this.tagEnricher = tagEnricher;
 			this.lastKnownVersion = lastKnownVersion;
 			this.tagDownloadQueue = tagDownloadQueue;
 			this.cacheFile = cacheFile;
+			this.useBinaryCache = useBinaryCache;
 			try {
 				gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
 			} catch(Throwable excp) {
@@ -1072,7 +1088,13 @@ final ServiceTags loadFromCache() {
 
 			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-			if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+			if (useBinaryCache && cacheFile != null) {
+				serviceTags = loadFromBinaryCache(RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+			}
+
+			if (serviceTags != null) {
+				LOG.info("RangerTagRefresher(serviceName=" + tagEnricher.getServiceName() + "): loaded service-tags from binary cache file. version=" + serviceTags.getTagVersion());
+			} else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 				Reader reader = null;
 
 				try {
@@ -1107,6 +1129,36 @@ final ServiceTags loadFromCache() {
 			return serviceTags;
 		}
 
+		private ServiceTags loadFromBinaryCache(File cacheFile) {
+			ServiceTags serviceTags = null;
+
+			if (cacheFile.isFile() && cacheFile.canRead()) {
+				RangerPerfTracer perf = null;
+
+				if (RangerPerfTracer.isPerfTraceEnabled(PERF_CONTEXTENRICHER_INIT_LOG)) {
+					perf = RangerPerfTracer.getPerfTracer(PERF_CONTEXTENRICHER_INIT_LOG, "RangerTagRefresher.loadFromBinaryCache(serviceName=" + tagEnricher.getServiceName() + ")");
+				}
+
+				try {
+					serviceTags = RangerBinaryCacheFile.readServiceTags(cacheFile);
+
+					if (serviceTags != null && !StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
+						LOG.warn("ignoring unexpected serviceName '" + serviceTags.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
+
+						serviceTags.setServiceName(tagEnricher.getServiceName());
+					}
+				} catch (Exception excp) {
+					LOG.error("failed to load service-tags from binary cache file " + cacheFile.getAbsolutePath() + ". Will try JSON cache file", excp);
+
+					serviceTags = null;
+				} finally {
+					RangerPerfTracer.log(perf);
+				}
+			}
+
+			return serviceTags;
+		}
+
 		final void saveToCache(ServiceTags serviceTags) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> RangerTagRetriever(serviceName=" + tagEnricher.getServiceName() + ").saveToCache()");
@@ -1119,9 +1171,13 @@ final void saveToCache(ServiceTags serviceTags) {
 					Writer writer = null;
 
 					try {
-						writer = new FileWriter(cacheFile);
+						if (useBinaryCache) {
+							RangerBinaryCacheFile.writeServiceTags(serviceTags, RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+						} else {
+							writer = new FileWriter(cacheFile);
 
-						gson.toJson(serviceTags, writer);
+							gson.toJson(serviceTags, writer);
+						}
 					} catch (Exception excp) {
 						LOG.error("failed to save service-tags to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 					} finally {
@@ -1148,7 +1204,19 @@ final void disableCache() {
 				LOG.debug("==> RangerTagRetriever.disableCache(serviceName=" + tagEnricher.getServiceName() + ")");
 			}
 
-			File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+			File cacheFile       = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
+			File binaryCacheFile = cacheFile == null ? null : RangerBinaryCacheFile.getBinaryCacheFile(cacheFile);
+
+			if (binaryCacheFile != null && binaryCacheFile.isFile()) {
+				String renamedCacheFile = binaryCacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
+
+				if (!binaryCacheFile.renameTo(new File(renamedCacheFile))) {
+					LOG.error("Failed to move " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+				} else {
+					LOG.warn("moved " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+				}
+			}
+
 			if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 				LOG.warn("Cleaning up local tags cache");
 				String renamedCacheFile = cacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
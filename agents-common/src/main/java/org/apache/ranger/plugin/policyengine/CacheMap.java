@@ -24,6 +24,11 @@
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * @deprecated access-ordered map that must be externally synchronized; use
+ *             {@link org.apache.ranger.plugin.util.RangerTinyLfuCache} instead.
+ */
+@Deprecated
 public class CacheMap<K, V> extends LinkedHashMap<K, V> {
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LoggerFactory.getLogger(CacheMap.class);
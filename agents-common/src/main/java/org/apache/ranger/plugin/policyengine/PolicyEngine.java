@@ -32,6 +32,8 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerUserStoreEnricher;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
@@ -110,6 +112,38 @@ public long getPolicyVersion() {
         return policyRepository.getPolicyVersion();
     }
 
+    public long getTagVersion() {
+        Long ret = null;
+
+        if (allContextEnrichers != null) {
+            for (RangerContextEnricher enricher : allContextEnrichers) {
+                if (enricher instanceof RangerTagEnricher) {
+                    ret = ((RangerTagEnricher) enricher).getServiceTagsVersion();
+
+                    break;
+                }
+            }
+        }
+
+        return ret != null ? ret : -1L;
+    }
+
+    public long getUserStoreVersion() {
+        Long ret = null;
+
+        if (allContextEnrichers != null) {
+            for (RangerContextEnricher enricher : allContextEnrichers) {
+                if (enricher instanceof RangerUserStoreEnricher) {
+                    ret = ((RangerUserStoreEnricher) enricher).getUserStoreVersion();
+
+                    break;
+                }
+            }
+        }
+
+        return ret != null ? ret : -1L;
+    }
+
     public RangerPolicyRepository getPolicyRepository() {
         return policyRepository;
     }
@@ -480,7 +514,7 @@ private Set<String> getMatchedZonesForResourceAndChildren(Map<String, ?> resourc
 
                 Object resourceValues = resource.get(resourceDefName);
 
-                Set<RangerZoneResourceMatcher> zoneMatchersForResource = trie.getEvaluatorsForResource(resourceValues);
+                Set<RangerZoneResourceMatcher> zoneMatchersForResource = RangerAccessRequestBatch.getEvaluatorsForResource(trie, resourceValues, RangerAccessRequest.ResourceMatchingScope.SELF);
                 Set<RangerZoneResourceMatcher> inheritedZoneMatchers = trie.getInheritedEvaluators();
 
                 if (LOG.isDebugEnabled()) {
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State shared by evaluation of a batch of requests, in RangerPolicyEngine.evaluatePolicies(Collection, ...).
+ *
+ * Requests in a batch are often on resources having the same parent - for example, columns of a table. While a batch
+ * is open in the current thread, results of resource-trie lookups - for policies, security-zones and tags - are remembered
+ * and reused for subsequent requests, hence lookups for the parent levels are done only once. The tries don't change
+ * while the batch is open, as the policy-engine read lock is held for the entire batch.
+ *
+ * Identical requests in a batch - i.e. with same resource, user, groups, roles, access-type, request-data, etc. - are
+ * evaluated once; results for the rest are copied from the first one.
+ */
+public final class RangerAccessRequestBatch implements AutoCloseable {
+    private static final ThreadLocal<RangerAccessRequestBatch> CURRENT_BATCH    = new ThreadLocal<>();
+    private static final AtomicInteger                         OPEN_BATCH_COUNT = new AtomicInteger();
+    private static final Object                                NO_EVALUATORS    = new Object();
+
+    private final RangerAccessRequestBatch            previous;
+    private final Map<TrieLookupKey, Object>          trieLookups = new HashMap<>();
+    private final Map<RequestKey, RangerAccessResult> results     = new HashMap<>();
+    private       int                                 lookupHitCount;
+    private       int                                 resultHitCount;
+
+    private RangerAccessRequestBatch(RangerAccessRequestBatch previous) {
+        this.previous = previous;
+    }
+
+    static RangerAccessRequestBatch open() {
+        RangerAccessRequestBatch ret = new RangerAccessRequestBatch(CURRENT_BATCH.get());
+
+        CURRENT_BATCH.set(ret);
+        OPEN_BATCH_COUNT.incrementAndGet();
+
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        OPEN_BATCH_COUNT.decrementAndGet();
+
+        if (previous != null) {
+            CURRENT_BATCH.set(previous);
+        } else {
+            CURRENT_BATCH.remove();
+        }
+    }
+
+    /**
+     * Looks up the given trie; when a batch is open in the current thread, the result is remembered for the rest of
+     * the batch. Callers must not modify the returned set.
+     */
+    public static <T extends RangerResourceEvaluator> Set<T> getEvaluatorsForResource(RangerResourceTrie<T> trie, Object resource, RangerAccessRequest.ResourceMatchingScope scope) {
+        RangerAccessRequestBatch batch = OPEN_BATCH_COUNT.get() > 0 ? CURRENT_BATCH.get() : null;
+
+        return batch != null ? batch.lookup(trie, resource, scope) : trie.getEvaluatorsForResource(resource, scope);
+    }
+
+    RequestKey createKey(RangerAccessRequest request, int policyType) {
+        return new RequestKey(request, policyType);
+    }
+
+    /**
+     * @return a new result for the given request, copied from the result of an identical request in this batch; null if not found
+     */
+    RangerAccessResult getResult(RequestKey key, RangerAccessRequest request) {
+        RangerAccessResult result = results.get(key);
+        RangerAccessResult ret    = null;
+
+        if (result != null) {
+            ret = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), request);
+
+            ret.setAccessResultFrom(result);
+            ret.setAuditResultFrom(result);
+
+            resultHitCount++;
+        }
+
+        return ret;
+    }
+
+    void putResult(RequestKey key, RangerAccessResult result) {
+        if (result != null) {
+            results.putIfAbsent(key, result);
+        }
+    }
+
+    int getLookupHitCount() { return lookupHitCount; }
+
+    int getResultHitCount() { return resultHitCount; }
+
+    @Override
+    public String toString() {
+        return "RangerAccessRequestBatch={trieLookups=" + trieLookups.size() + ", lookupHitCount=" + lookupHitCount + ", results=" + results.size() + ", resultHitCount=" + resultHitCount + "}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends RangerResourceEvaluator> Set<T> lookup(RangerResourceTrie<T> trie, Object resource, RangerAccessRequest.ResourceMatchingScope scope) {
+        TrieLookupKey key = new TrieLookupKey(trie, resource, scope);
+        Object        val = trieLookups.get(key);
+
+        if (val == null) {
+            Set<T> evaluators = trie.getEvaluatorsForResource(resource, scope);
+
+            trieLookups.put(key, evaluators != null ? evaluators : NO_EVALUATORS);
+
+            return evaluators;
+        }
+
+        lookupHitCount++;
+
+        return val == NO_EVALUATORS ? null : (Set<T>) val;
+    }
+
+    private static final class TrieLookupKey {
+        private final RangerResourceTrie<?>                     trie;
+        private final Object                                    resource;
+        private final RangerAccessRequest.ResourceMatchingScope scope;
+        private final int                                       hashCode;
+
+        TrieLookupKey(RangerResourceTrie<?> trie, Object resource, RangerAccessRequest.ResourceMatchingScope scope) {
+            this.trie     = trie;
+            this.resource = resource;
+            this.scope    = scope;
+            this.hashCode = System.identityHashCode(trie) * 31 + Objects.hashCode(resource) * 7 + Objects.hashCode(scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof TrieLookupKey)) {
+                return false;
+            }
+
+            TrieLookupKey other = (TrieLookupKey) obj;
+
+            return trie == other.trie && scope == other.scope && Objects.equals(resource, other.resource);
+        }
+    }
+
+    static final class RequestKey {
+        private final RangerAccessResultCache.Key key;
+        private final String                      requestData;
+
+        RequestKey(RangerAccessRequest request, int policyType) {
+            this.key         = new RangerAccessResultCache.Key(request, policyType, null);
+            this.requestData = request.getRequestData();
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof RequestKey)) {
+                return false;
+            }
+
+            RequestKey other = (RequestKey) obj;
+
+            return key.equals(other.key) && StringUtils.equals(requestData, other.requestData);
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.policyengine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -56,6 +57,7 @@ public class RangerAccessRequestImpl implements RangerAccessRequest {
 	private boolean isAccessTypeAny;
 	private boolean isAccessTypeDelegatedAdmin;
 	private ResourceMatchingScope resourceMatchingScope = ResourceMatchingScope.SELF;
+	private boolean isContextOwned;
 
 	public RangerAccessRequestImpl() {
 		this(null, null, null, null, null);
@@ -259,9 +261,11 @@ public void setClusterType(String clusterType) {
 
 	public void setContext(Map<String, Object> context) {
 		if (context == null) {
-			this.context = new HashMap<>();
+			this.context        = new HashMap<>();
+			this.isContextOwned = true;
 		} else {
-			this.context = context;
+			this.context        = context;
+			this.isContextOwned = false;
 		}
 
 		RangerAccessRequest current = RangerAccessRequestUtil.getRequestFromContext(this.context);
@@ -271,6 +275,45 @@ public void setContext(Map<String, Object> context) {
 		}
 	}
 
+	/**
+	 * Clears all fields, so that this instance can be reused for another request - see RangerAccessRequestPool. A
+	 * context map created by this instance is cleared in place, while a map set by the caller is replaced. The
+	 * resource, if a RangerAccessResourceImpl, is reset and retained for reuse.
+	 * User groups, roles and forwarded addresses are reset to empty immutable collections.
+	 */
+	public void reset() {
+		if (resource instanceof RangerAccessResourceImpl) {
+			((RangerAccessResourceImpl) resource).reset();
+		} else {
+			resource = null;
+		}
+
+		setAccessType(null);
+
+		user                  = null;
+		userGroups            = Collections.emptySet();
+		userRoles             = Collections.emptySet();
+		accessTime            = null;
+		clientIPAddress       = null;
+		forwardedAddresses    = Collections.emptyList();
+		remoteIPAddress       = null;
+		clientType            = null;
+		action                = null;
+		requestData           = null;
+		sessionId             = null;
+		clusterName           = null;
+		clusterType           = null;
+		resourceMatchingScope = ResourceMatchingScope.SELF;
+
+		if (context != null && isContextOwned) {
+			context.clear();
+
+			RangerAccessRequestUtil.setRequestInContext(this);
+		} else {
+			setContext(null);
+		}
+	}
+
 	public void extractAndSetClientIPAddress(boolean useForwardedIPAddress, String[]trustedProxyAddresses) {
 		String ip = getRemoteIPAddress();
 		if (ip == null) {
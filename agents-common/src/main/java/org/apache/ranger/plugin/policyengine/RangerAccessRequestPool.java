@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * Pool of reusable access-request instances, to avoid allocating a request, resource and context map for every
+ * authorization call. Each thread has its own set of free instances, hence acquire() and release() don't need any
+ * synchronization; an instance must be released by the thread that acquired it.
+ *
+ * A request must be released only after the caller is done with the request and with results of its evaluation -
+ * including audit, since a result refers to its request. release() resets the request, using
+ * RangerAccessRequestImpl.reset(). Instances in excess of maxPooledPerThread are left for garbage collection.
+ *
+ * When maxPooledPerThread is 0, the pool is disabled: acquire() always returns a new instance and release() does
+ * nothing, so that plugins can use the same code path whether or not pooling is enabled.
+ */
+public class RangerAccessRequestPool<T extends RangerAccessRequestImpl> {
+    private final Supplier<T>                factory;
+    private final int                        maxPooledPerThread;
+    private final ThreadLocal<ArrayDeque<T>> freeRequests;
+
+    public RangerAccessRequestPool(Supplier<T> factory, int maxPooledPerThread) {
+        this.factory            = factory;
+        this.maxPooledPerThread = Math.max(0, maxPooledPerThread);
+        this.freeRequests       = this.maxPooledPerThread > 0 ? ThreadLocal.withInitial(() -> new ArrayDeque<>(this.maxPooledPerThread)) : null;
+    }
+
+    public boolean isEnabled() {
+        return freeRequests != null;
+    }
+
+    public int getMaxPooledPerThread() {
+        return maxPooledPerThread;
+    }
+
+    /**
+     * @return a request with all fields reset, either from the free instances of the current thread or a new one
+     */
+    public T acquire() {
+        T ret = freeRequests != null ? freeRequests.get().pollFirst() : null;
+
+        if (ret == null) {
+            ret = factory.get();
+        }
+
+        return ret;
+    }
+
+    public void release(T request) {
+        if (request != null && freeRequests != null) {
+            ArrayDeque<T> free = freeRequests.get();
+
+            if (free.size() < maxPooledPerThread && !free.contains(request)) { // ignore repeated release of a request
+                request.reset();
+
+                free.addFirst(request);
+            }
+        }
+    }
+
+    // number of free instances for the current thread
+    int getFreeCount() {
+        return freeRequests != null ? freeRequests.get().size() : 0;
+    }
+}
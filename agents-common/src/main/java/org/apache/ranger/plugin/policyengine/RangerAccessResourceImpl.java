@@ -36,6 +36,7 @@ public class RangerAccessResourceImpl implements RangerMutableResource {
 	private String              stringifiedCacheKeyValue;
 	private String              leafName;
 	private RangerServiceDef    serviceDef;
+	private boolean             isElementsOwned;
 
 	public RangerAccessResourceImpl() {
 		this(null, null);
@@ -99,7 +100,8 @@ public void setValue(String name, Object value) {
 			}
 		} else {
 			if(elements == null) {
-				elements = new HashMap<>();
+				elements        = new HashMap<>();
+				isElementsOwned = true;
 			}
 			elements.put(name, value);
 		}
@@ -108,6 +110,25 @@ public void setValue(String name, Object value) {
 		stringifiedValue = stringifiedCacheKeyValue = leafName = null;
 	}
 
+	/**
+	 * Clears the owner, elements and service-def, so that this instance can be reused for another request. A map of
+	 * elements created by this instance is retained for reuse, while a map given in the constructor is dropped.
+	 */
+	public void reset() {
+		if (elements != null) {
+			if (isElementsOwned) {
+				elements.clear();
+			} else {
+				elements = null;
+			}
+		}
+
+		ownerUser  = null;
+		serviceDef = null;
+
+		stringifiedValue = stringifiedCacheKeyValue = leafName = null;
+	}
+
 	@Override
 	public void setServiceDef(final RangerServiceDef serviceDef) {
 		this.serviceDef = serviceDef;
@@ -80,7 +80,7 @@ public void setAccessResultFrom(final RangerAccessResult other) {
 		this.policyVersion  = other.policyVersion;
 		this.evaluatedPoliciesCount = other.evaluatedPoliciesCount;
 		this.reason      = other.getReason();
-		this.additionalInfo = other.additionalInfo == null ? new HashMap<String, Object>() : new HashMap<>(other.additionalInfo);
+		this.additionalInfo = other.additionalInfo == null ? null : new HashMap<>(other.additionalInfo);
 	}
 
 	public void setAuditResultFrom(final RangerAccessResult other) {
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.model.RangerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of access decisions, keyed on a canonical signature of the request.
+ *
+ * Entries are spread over a fixed number of stripes, each backed by a ConcurrentHashMap; lookups do not take
+ * any lock. Every key carries the policy, role, tag and userstore versions in effect when the result was
+ * computed, hence an entry can never be returned after any of these versions change. When a request with a
+ * different set of versions is seen, all stripes are replaced at once so that stale entries don't occupy space.
+ *
+ * The cache is opt-in: policies with conditions that depend on request attributes not included in the key
+ * (for example, request-data or time-of-day) can produce results that vary across identical keys. An optional
+ * time-to-live bounds the staleness of such results.
+ */
+public class RangerAccessResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAccessResultCache.class);
+
+    public static final int  DEFAULT_MAX_SIZE     = 64 * 1024;
+    public static final long DEFAULT_TTL_MS       = 30 * 1000L;
+    public static final int  DEFAULT_STRIPE_COUNT = 16;
+
+    private final String                      serviceName;
+    private final int                         maxSize;
+    private final int                         maxSizePerStripe;
+    private final long                        ttlMs;
+    private final AtomicReference<Generation> generation;
+    private final LongAdder                   hitCount          = new LongAdder();
+    private final LongAdder                   missCount         = new LongAdder();
+    private final LongAdder                   evictionCount     = new LongAdder();
+    private final LongAdder                   expiryCount       = new LongAdder();
+    private final LongAdder                   invalidationCount = new LongAdder();
+
+    public RangerAccessResultCache(String serviceName, int maxSize, long ttlMs) {
+        this(serviceName, maxSize, ttlMs, DEFAULT_STRIPE_COUNT);
+    }
+
+    public RangerAccessResultCache(String serviceName, int maxSize, long ttlMs, int stripeCount) {
+        int stripes = Math.max(1, Math.min(stripeCount, maxSize));
+
+        this.serviceName      = serviceName;
+        this.maxSize          = Math.max(1, maxSize);
+        this.maxSizePerStripe = Math.max(1, this.maxSize / stripes);
+        this.ttlMs            = ttlMs;
+        this.generation       = new AtomicReference<>(new Generation(null, stripes));
+    }
+
+    public Key createKey(RangerAccessRequest request, int policyType, Versions versions) {
+        return new Key(request, policyType, versions);
+    }
+
+    /**
+     * @return a new result for the given request, populated from the cached result; null if not found
+     */
+    public RangerAccessResult get(Key key, RangerAccessRequest request) {
+        Generation         gen   = getGeneration(key.versions);
+        CachedValue        value = gen.getStripe(key).get(key);
+        RangerAccessResult ret   = null;
+
+        if (value != null) {
+            if (value.isExpired(ttlMs)) {
+                if (gen.getStripe(key).remove(key, value)) {
+                    expiryCount.increment();
+                }
+            } else {
+                ret = value.toResult(request);
+            }
+        }
+
+        if (ret != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerAccessResultCache.get(" + key + "): " + (ret != null ? "hit" : "miss"));
+        }
+
+        return ret;
+    }
+
+    public void put(Key key, RangerAccessResult result) {
+        if (result == null) {
+            return;
+        }
+
+        Generation                          gen    = getGeneration(key.versions);
+        ConcurrentHashMap<Key, CachedValue> stripe = gen.getStripe(key);
+
+        stripe.put(key, new CachedValue(result));
+
+        if (stripe.size() > maxSizePerStripe) {
+            evict(stripe);
+        }
+    }
+
+    /**
+     * Discards all entries. Used when the policy-engine is updated in place, without a change in versions.
+     */
+    public void invalidate() {
+        Generation current = generation.get();
+
+        generation.set(new Generation(current.versions, current.stripes.length));
+
+        invalidationCount.increment();
+    }
+
+    public int size() {
+        int ret = 0;
+
+        for (ConcurrentHashMap<Key, CachedValue> stripe : generation.get().stripes) {
+            ret += stripe.size();
+        }
+
+        return ret;
+    }
+
+    public long getHitCount() { return hitCount.sum(); }
+
+    public long getMissCount() { return missCount.sum(); }
+
+    public long getEvictionCount() { return evictionCount.sum(); }
+
+    public long getExpiryCount() { return expiryCount.sum(); }
+
+    public long getInvalidationCount() { return invalidationCount.sum(); }
+
+    public RangerMetrics getMetrics() {
+        Map<String, Object> cacheMetrics = new LinkedHashMap<>();
+        long                hits         = getHitCount();
+        long                misses       = getMissCount();
+
+        cacheMetrics.put("serviceName", serviceName);
+        cacheMetrics.put("maxSize", maxSize);
+        cacheMetrics.put("ttlMs", ttlMs);
+        cacheMetrics.put("size", size());
+        cacheMetrics.put("hitCount", hits);
+        cacheMetrics.put("missCount", misses);
+        cacheMetrics.put("hitRatio", (hits + misses) > 0 ? ((double) hits / (hits + misses)) : 0.0);
+        cacheMetrics.put("evictionCount", getEvictionCount());
+        cacheMetrics.put("expiryCount", getExpiryCount());
+        cacheMetrics.put("invalidationCount", getInvalidationCount());
+
+        Map<String, Object> data = new LinkedHashMap<>();
+
+        data.put("accessResultCache", cacheMetrics);
+
+        return new RangerMetrics(data);
+    }
+
+    private Generation getGeneration(Versions versions) {
+        Generation ret = generation.get();
+
+        while (!Objects.equals(ret.versions, versions)) {
+            Generation newGeneration = new Generation(versions, ret.stripes.length);
+
+            if (generation.compareAndSet(ret, newGeneration)) {
+                if (ret.versions != null) {
+                    invalidationCount.increment();
+
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("RangerAccessResultCache(serviceName=" + serviceName + "): versions changed from " + ret.versions + " to " + versions + ". Discarded cached results");
+                    }
+                }
+
+                ret = newGeneration;
+            } else {
+                ret = generation.get();
+            }
+        }
+
+        return ret;
+    }
+
+    private void evict(ConcurrentHashMap<Key, CachedValue> stripe) {
+        Iterator<Key> iter = stripe.keySet().iterator();
+
+        while (stripe.size() > maxSizePerStripe && iter.hasNext()) {
+            iter.next();
+            iter.remove();
+
+            evictionCount.increment();
+        }
+    }
+
+    public static final class Versions {
+        private final long policyVersion;
+        private final long roleVersion;
+        private final long tagVersion;
+        private final long userStoreVersion;
+
+        public Versions(long policyVersion, long roleVersion, long tagVersion, long userStoreVersion) {
+            this.policyVersion    = policyVersion;
+            this.roleVersion      = roleVersion;
+            this.tagVersion       = tagVersion;
+            this.userStoreVersion = userStoreVersion;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Versions)) {
+                return false;
+            }
+
+            Versions other = (Versions) obj;
+
+            return policyVersion == other.policyVersion && roleVersion == other.roleVersion && tagVersion == other.tagVersion && userStoreVersion == other.userStoreVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(policyVersion, roleVersion, tagVersion, userStoreVersion);
+        }
+
+        @Override
+        public String toString() {
+            return "{policyVersion=" + policyVersion + ", roleVersion=" + roleVersion + ", tagVersion=" + tagVersion + ", userStoreVersion=" + userStoreVersion + "}";
+        }
+    }
+
+    public static final class Key {
+        private final Object                                    resource;
+        private final String                                    owner;
+        private final String                                    accessType;
+        private final String                                    action;
+        private final String                                    user;
+        private final Set<String>                               userGroups;
+        private final Set<String>                               userRoles;
+        private final String                                    clientIPAddress;
+        private final String                                    remoteIPAddress;
+        private final List<String>                              forwardedAddresses;
+        private final String                                    clusterName;
+        private final String                                    clusterType;
+        private final RangerAccessRequest.ResourceMatchingScope matchingScope;
+        private final int                                       policyType;
+        private final Versions                                  versions;
+        private final int                                       hashCode;
+
+        Key(RangerAccessRequest request, int policyType, Versions versions) {
+            RangerAccessResource resource = request.getResource();
+            String               cacheKey = resource != null ? resource.getCacheKey() : null;
+
+            if (cacheKey != null || resource == null) {
+                this.resource = cacheKey;
+            } else { // resource without service-def
+                this.resource = resource.getAsMap() != null ? new HashMap<>(resource.getAsMap()) : null;
+            }
+
+            this.owner              = resource != null ? resource.getOwnerUser() : null;
+            this.accessType         = request.getAccessType();
+            this.action             = request.getAction();
+            this.user               = request.getUser();
+            this.userGroups         = request.getUserGroups() != null ? request.getUserGroups() : Collections.emptySet();
+            this.userRoles          = request.getUserRoles() != null ? request.getUserRoles() : Collections.emptySet();
+            this.clientIPAddress    = request.getClientIPAddress();
+            this.remoteIPAddress    = request.getRemoteIPAddress();
+            this.forwardedAddresses = request.getForwardedAddresses() != null ? request.getForwardedAddresses() : Collections.emptyList();
+            this.clusterName        = request.getClusterName();
+            this.clusterType        = request.getClusterType();
+            this.matchingScope      = request.getResourceMatchingScope();
+            this.policyType         = policyType;
+            this.versions           = versions;
+            this.hashCode           = Objects.hash(this.resource, owner, accessType, action, user, userGroups, userRoles, clientIPAddress, remoteIPAddress, forwardedAddresses, clusterName, clusterType, matchingScope, policyType, versions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode &&
+                   policyType == other.policyType &&
+                   matchingScope == other.matchingScope &&
+                   Objects.equals(resource, other.resource) &&
+                   StringUtils.equals(accessType, other.accessType) &&
+                   StringUtils.equals(user, other.user) &&
+                   StringUtils.equals(owner, other.owner) &&
+                   StringUtils.equals(action, other.action) &&
+                   StringUtils.equals(clientIPAddress, other.clientIPAddress) &&
+                   StringUtils.equals(remoteIPAddress, other.remoteIPAddress) &&
+                   StringUtils.equals(clusterName, other.clusterName) &&
+                   StringUtils.equals(clusterType, other.clusterType) &&
+                   userGroups.equals(other.userGroups) &&
+                   userRoles.equals(other.userRoles) &&
+                   forwardedAddresses.equals(other.forwardedAddresses) &&
+                   Objects.equals(versions, other.versions);
+        }
+
+        @Override
+        public String toString() {
+            return "{resource=" + resource + ", accessType=" + accessType + ", user=" + user + ", userGroups=" + userGroups + ", userRoles=" + userRoles + ", policyType=" + policyType + ", versions=" + versions + "}";
+        }
+    }
+
+    private static final class Generation {
+        final Versions                              versions;
+        final ConcurrentHashMap<Key, CachedValue>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        Generation(Versions versions, int stripeCount) {
+            this.versions = versions;
+            this.stripes  = new ConcurrentHashMap[stripeCount];
+
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new ConcurrentHashMap<>();
+            }
+        }
+
+        ConcurrentHashMap<Key, CachedValue> getStripe(Key key) {
+            int h = key.hashCode;
+
+            h ^= (h >>> 16);
+
+            return stripes[(h & 0x7fffffff) % stripes.length];
+        }
+    }
+
+    private static final class CachedValue {
+        final RangerAccessResult result;
+        final long               createTime;
+
+        CachedValue(RangerAccessResult from) {
+            this.result     = new RangerAccessResult(from.getPolicyType(), from.getServiceName(), from.getServiceDef(), null);
+            this.createTime = System.currentTimeMillis();
+
+            result.setAccessResultFrom(from);
+            result.setAuditResultFrom(from);
+        }
+
+        boolean isExpired(long ttlMs) {
+            return ttlMs > 0 && (System.currentTimeMillis() - createTime) > ttlMs;
+        }
+
+        RangerAccessResult toResult(RangerAccessRequest request) {
+            RangerAccessResult ret = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), request);
+
+            ret.setAccessResultFrom(result);
+            ret.setAuditResultFrom(result);
+
+            return ret;
+        }
+    }
+}
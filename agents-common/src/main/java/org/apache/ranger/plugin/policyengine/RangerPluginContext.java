@@ -23,18 +23,25 @@
 import org.apache.ranger.admin.client.RangerAdminClient;
 import org.apache.ranger.admin.client.RangerAdminRESTClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcherCache;
 import org.apache.ranger.plugin.service.RangerAuthContext;
 import org.apache.ranger.plugin.service.RangerAuthContextListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
 public class RangerPluginContext {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerPluginContext.class);
 
-	private final RangerPluginConfig        config;
-	private       RangerAuthContext         authContext;
-	private       RangerAuthContextListener authContextListener;
-	private 	  RangerAdminClient         adminClient;
+	private final RangerPluginConfig               config;
+	private       RangerAuthContext                authContext;
+	private       RangerAuthContextListener        authContextListener;
+	private       RangerAdminClient                adminClient;
+	private       RangerAccessResultCache          accessResultCache;
+	private       ForkJoinPool                     batchEvaluationPool;
+	private       RangerPolicyResourceMatcherCache resourceMatcherCache;
 
 
 	public RangerPluginContext(RangerPluginConfig config) {
@@ -73,6 +80,72 @@ public void setAdminClient(RangerAdminClient adminClient) {
 		this.adminClient = adminClient;
 	}
 
+	public RangerAccessResultCache getAccessResultCache() { return accessResultCache; }
+
+	/**
+	 * @return cache to share resource matchers with other policy engines; null if matchers are not to be shared
+	 */
+	public RangerPolicyResourceMatcherCache getResourceMatcherCache() { return resourceMatcherCache; }
+
+	public void setResourceMatcherCache(RangerPolicyResourceMatcherCache resourceMatcherCache) { this.resourceMatcherCache = resourceMatcherCache; }
+
+	public synchronized RangerAccessResultCache getOrCreateAccessResultCache() {
+		RangerAccessResultCache ret = accessResultCache;
+
+		if (ret == null) {
+			String propertyPrefix = config.getPropertyPrefix();
+			int    maxSize        = config.getInt(propertyPrefix + ".policyengine.option.access.result.cache.size", RangerAccessResultCache.DEFAULT_MAX_SIZE);
+			long   ttlMs          = config.getLong(propertyPrefix + ".policyengine.option.access.result.cache.ttl.ms", RangerAccessResultCache.DEFAULT_TTL_MS);
+
+			ret = accessResultCache = new RangerAccessResultCache(config.getServiceName(), maxSize, ttlMs);
+
+			LOG.info("Created access-result cache for service " + config.getServiceName() + ": maxSize=" + maxSize + ", ttlMs=" + ttlMs);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return pool used to evaluate batches of requests in parallel; null if batchEvaluationParallelism is not positive
+	 */
+	public synchronized ForkJoinPool getOrCreateBatchEvaluationPool() {
+		ForkJoinPool ret         = batchEvaluationPool;
+		int          parallelism = config.getPolicyEngineOptions().batchEvaluationParallelism;
+
+		if (ret == null && parallelism > 0) {
+			final String threadNamePrefix = "ranger-batch-evaluator-" + config.getServiceName() + "-";
+
+			ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+				thread.setName(threadNamePrefix + thread.getPoolIndex());
+
+				return thread;
+			};
+
+			ret = batchEvaluationPool = new ForkJoinPool(parallelism, threadFactory, null, false);
+
+			LOG.info("Created batch-evaluation pool for service " + config.getServiceName() + ": parallelism=" + parallelism);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Releases resources held by this context - i.e. shuts down the batch-evaluation pool; called when the plugin is cleaned up.
+	 */
+	public synchronized void cleanup() {
+		ForkJoinPool batchEvaluationPool = this.batchEvaluationPool;
+
+		this.batchEvaluationPool = null;
+
+		if (batchEvaluationPool != null) {
+			batchEvaluationPool.shutdown();
+
+			LOG.info("Shut down batch-evaluation pool for service " + config.getServiceName());
+		}
+	}
+
 	public RangerAdminClient createAdminClient(RangerPluginConfig pluginConfig) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerBasePlugin.createAdminClient(" + pluginConfig.getServiceName() + ", " + pluginConfig.getAppId() + ", " + pluginConfig.getPropertyPrefix() + ")");
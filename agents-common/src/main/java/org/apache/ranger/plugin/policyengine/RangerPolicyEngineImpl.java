@@ -49,6 +49,7 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -57,6 +58,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.ACCESS_CONDITIONAL;
 
@@ -66,10 +70,16 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private static final Logger PERF_POLICYENGINE_REQUEST_LOG  = RangerPerfTracer.getPerfLogger("policyengine.request");
 	private static final Logger PERF_POLICYENGINE_AUDIT_LOG    = RangerPerfTracer.getPerfLogger("policyengine.audit");
 	private static final Logger PERF_POLICYENGINE_GET_ACLS_LOG = RangerPerfTracer.getPerfLogger("policyengine.getResourceACLs");
+	private static final Logger PERF_POLICYENGINE_BATCH_LOG    = RangerPerfTracer.getPerfLogger("policyengine.batch");
+
+	// batches smaller than this are evaluated in the calling thread; larger ones are split in tasks of at least this size
+	private static final int MIN_REQUESTS_PER_BATCH_TASK = 16;
 
 	private final PolicyEngine                 policyEngine;
 	private final RangerAccessRequestProcessor requestProcessor;
 	private final ServiceConfig                serviceConfig;
+	private final RangerAccessResultCache      accessResultCache;
+	private final ForkJoinPool                 batchEvaluationPool;
 
 
 	static public RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl other, final ServicePolicies servicePolicies) {
@@ -80,6 +90,10 @@ static public RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl ot
 
 			if (policyEngine != null) {
 				if (policyEngine == other.policyEngine) {
+					if (other.accessResultCache != null) { // policies were updated in place
+						other.accessResultCache.invalidate();
+					}
+
 					ret = other;
 				} else {
 					ret = new RangerPolicyEngineImpl(policyEngine, other);
@@ -102,9 +116,11 @@ public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPluginConte
 			isUseReadWriteLock = false;
 		}
 
-		policyEngine     = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
-		serviceConfig    = new ServiceConfig(servicePolicies.getServiceConfig());
-		requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
+		policyEngine        = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
+		serviceConfig       = new ServiceConfig(servicePolicies.getServiceConfig());
+		requestProcessor    = new RangerDefaultRequestProcessor(policyEngine);
+		accessResultCache   = createAccessResultCache(pluginContext);
+		batchEvaluationPool = createBatchEvaluationPool(pluginContext);
 	}
 
 	@Override
@@ -139,7 +155,7 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 
 			requestProcessor.preProcess(request);
 
-			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+			ret = evaluateWithCache(request, policyType);
 
 			if (resultProcessor != null) {
 				RangerPerfTracer perfAuditTracer = null;
@@ -171,7 +187,12 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 			LOG.debug("==> RangerPolicyEngineImpl.evaluatePolicies(" + requests + ", policyType=" + policyType + ")");
 		}
 
-		Collection<RangerAccessResult> ret = new ArrayList<>();
+		Collection<RangerAccessResult> ret  = new ArrayList<>();
+		RangerPerfTracer               perf = null;
+
+		if (requests != null && RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_BATCH_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_BATCH_LOG, "RangerPolicyEngine.evaluatePolicies(requestCount=" + requests.size() + ", policyType=" + policyType + ")");
+		}
 
 		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
 			if (LOG.isDebugEnabled()) {
@@ -179,14 +200,13 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 					LOG.debug("Acquired lock - " + readLock);
 				}
 			}
-			if (requests != null) {
-				for (RangerAccessRequest request : requests) {
-					requestProcessor.preProcess(request);
+			if (requests != null && !requests.isEmpty()) {
+				RangerAccessRequest[] batch   = requests.toArray(new RangerAccessRequest[0]);
+				RangerAccessResult[]  results = new RangerAccessResult[batch.length];
 
-					RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+				evaluateBatch(batch, policyType, results);
 
-					ret.add(result);
-				}
+				ret.addAll(Arrays.asList(results));
 			}
 
 			if (resultProcessor != null) {
@@ -194,6 +214,8 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 			}
 		}
 
+		RangerPerfTracer.log(perf);
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerPolicyEngineImpl.evaluatePolicies(" + requests + ", policyType=" + policyType + "): " + ret);
 		}
@@ -598,10 +620,132 @@ PolicyEngine getPolicyEngine() {
 		return policyEngine;
 	}
 
+	RangerAccessResultCache getAccessResultCache() {
+		return accessResultCache;
+	}
+
 	private RangerPolicyEngineImpl(final PolicyEngine policyEngine, RangerPolicyEngineImpl other) {
-		this.policyEngine     = policyEngine;
-		this.requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
-		this.serviceConfig    = new ServiceConfig(other.serviceConfig);
+		this.policyEngine        = policyEngine;
+		this.requestProcessor    = new RangerDefaultRequestProcessor(policyEngine);
+		this.serviceConfig       = new ServiceConfig(other.serviceConfig);
+		this.accessResultCache   = other.accessResultCache;
+		this.batchEvaluationPool = other.batchEvaluationPool;
+	}
+
+	private static RangerAccessResultCache createAccessResultCache(RangerPluginContext pluginContext) {
+		final RangerAccessResultCache ret;
+
+		if (pluginContext != null && pluginContext.getConfig() != null && pluginContext.getConfig().getPolicyEngineOptions().enableAccessResultCache) {
+			ret = pluginContext.getOrCreateAccessResultCache();
+		} else {
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	private static ForkJoinPool createBatchEvaluationPool(RangerPluginContext pluginContext) {
+		final ForkJoinPool ret;
+
+		if (pluginContext != null && pluginContext.getConfig() != null && pluginContext.getConfig().getPolicyEngineOptions().batchEvaluationParallelism > 0) {
+			ret = pluginContext.getOrCreateBatchEvaluationPool();
+		} else {
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Evaluates the requests, in the calling thread or - for large batches, when a batch-evaluation pool is configured -
+	 * in tasks of contiguous requests, hence requests on the same parent resource usually end up in the same task. The
+	 * result for batch[i] is saved in results[i]. Must be called with the read lock held.
+	 */
+	private void evaluateBatch(final RangerAccessRequest[] batch, final int policyType, final RangerAccessResult[] results) {
+		final ForkJoinPool pool      = batchEvaluationPool;
+		final int          taskCount = pool != null && !pool.isShutdown() ? Math.min(pool.getParallelism(), batch.length / MIN_REQUESTS_PER_BATCH_TASK) : 1;
+
+		if (taskCount <= 1) {
+			evaluateBatch(batch, 0, batch.length, policyType, results);
+		} else {
+			final int                   requestsPerTask = (batch.length + taskCount - 1) / taskCount;
+			final List<ForkJoinTask<?>> tasks           = new ArrayList<>(taskCount - 1);
+
+			try {
+				for (int fromIdx = requestsPerTask; fromIdx < batch.length; fromIdx += requestsPerTask) {
+					final int taskFromIdx = fromIdx;
+					final int taskToIdx   = Math.min(fromIdx + requestsPerTask, batch.length);
+
+					try {
+						tasks.add(pool.submit(() -> evaluateBatch(batch, taskFromIdx, taskToIdx, policyType, results)));
+					} catch (RejectedExecutionException excp) { // pool was shut down, by cleanup of the plugin
+						evaluateBatch(batch, taskFromIdx, taskToIdx, policyType, results);
+					}
+				}
+
+				// the first set of requests is evaluated in the calling thread
+				evaluateBatch(batch, 0, requestsPerTask, policyType, results);
+			} finally { // tasks must not outlive the read lock held by the caller
+				for (ForkJoinTask<?> task : tasks) {
+					task.quietlyJoin();
+				}
+			}
+
+			for (ForkJoinTask<?> task : tasks) {
+				task.join(); // rethrows the exception, if any, from the task
+			}
+		}
+	}
+
+	private void evaluateBatch(RangerAccessRequest[] batch, int fromIdx, int toIdx, int policyType, RangerAccessResult[] results) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.evaluateBatch(fromIdx=" + fromIdx + ", toIdx=" + toIdx + ", policyType=" + policyType + ")");
+		}
+
+		try (RangerAccessRequestBatch requestBatch = RangerAccessRequestBatch.open()) {
+			for (int i = fromIdx; i < toIdx; i++) {
+				RangerAccessRequest request = batch[i];
+
+				requestProcessor.preProcess(request);
+
+				RangerAccessRequestBatch.RequestKey key    = requestBatch.createKey(request, policyType);
+				RangerAccessResult                  result = requestBatch.getResult(key, request);
+
+				if (result == null) {
+					result = evaluateWithCache(request, policyType);
+
+					requestBatch.putResult(key, result);
+				}
+
+				results[i] = result;
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("<== RangerPolicyEngineImpl.evaluateBatch(fromIdx=" + fromIdx + ", toIdx=" + toIdx + ", policyType=" + policyType + "): " + requestBatch);
+			}
+		}
+	}
+
+	private RangerAccessResult evaluateWithCache(RangerAccessRequest request, int policyType) {
+		final RangerAccessResult ret;
+
+		if (accessResultCache != null) {
+			RangerAccessResultCache.Versions versions = new RangerAccessResultCache.Versions(policyEngine.getPolicyVersion(), policyEngine.getRoleVersion(), policyEngine.getTagVersion(), policyEngine.getUserStoreVersion());
+			RangerAccessResultCache.Key      key      = accessResultCache.createKey(request, policyType, versions);
+			RangerAccessResult               cached   = accessResultCache.get(key, request);
+
+			if (cached != null) {
+				ret = cached;
+			} else {
+				ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+
+				accessResultCache.put(key, ret);
+			}
+		} else {
+			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+		}
+
+		return ret;
 	}
 
 	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
@@ -42,6 +42,10 @@ public class RangerPolicyEngineOptions {
 	public boolean optimizeTrieForSpace = false;
 	public boolean optimizeTagTrieForRetrieval = false;
 	public boolean optimizeTagTrieForSpace = false;
+	public boolean optimizeTrieForCompactness = false;
+	public boolean optimizeTagTrieForCompactness = false;
+	public boolean enableAccessResultCache = false;
+	public int batchEvaluationParallelism = 0;
 
 
 	private RangerServiceDefHelper serviceDefHelper;
@@ -67,6 +71,10 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
 		this.optimizeTrieForSpace = other.optimizeTrieForSpace;
 		this.optimizeTagTrieForRetrieval = other.optimizeTagTrieForRetrieval;
 		this.optimizeTagTrieForSpace = other.optimizeTagTrieForSpace;
+		this.optimizeTrieForCompactness = other.optimizeTrieForCompactness;
+		this.optimizeTagTrieForCompactness = other.optimizeTagTrieForCompactness;
+		this.enableAccessResultCache = other.enableAccessResultCache;
+		this.batchEvaluationParallelism = other.batchEvaluationParallelism;
 	}
 
 	public void configureForPlugin(Configuration conf, String propertyPrefix) {
@@ -92,7 +100,10 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
 		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 		optimizeTagTrieForRetrieval = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
 		optimizeTagTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
-
+		optimizeTrieForCompactness = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.compactness", false);
+		optimizeTagTrieForCompactness = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.compactness", false);
+		enableAccessResultCache = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.access.result.cache", false);
+		batchEvaluationParallelism = conf.getInt(propertyPrefix + ".policyengine.option.batch.evaluation.parallelism", 0);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -147,6 +158,8 @@ public void configureRangerAdminForPolicySearch(Configuration conf, String prope
 		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 		optimizeTagTrieForRetrieval = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
 		optimizeTagTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", true);
+		optimizeTrieForCompactness = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.compactness", false);
+		optimizeTagTrieForCompactness = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.compactness", false);
 	}
 
 	public RangerServiceDefHelper getServiceDefHelper() {
@@ -183,6 +196,10 @@ public boolean equals(Object other) {
 					&& this.optimizeTrieForSpace == that.optimizeTrieForSpace
 					&& this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
 					&& this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
+					&& this.optimizeTrieForCompactness == that.optimizeTrieForCompactness
+					&& this.optimizeTagTrieForCompactness == that.optimizeTagTrieForCompactness
+					&& this.enableAccessResultCache == that.enableAccessResultCache
+					&& this.batchEvaluationParallelism == that.batchEvaluationParallelism
 			;
 		}
 		return ret;
@@ -223,6 +240,14 @@ public int hashCode() {
 		ret *= 2;
 		ret += optimizeTagTrieForSpace ? 1 : 0;
 		ret *= 2;
+		ret += optimizeTrieForCompactness ? 1 : 0;
+		ret *= 2;
+		ret += optimizeTagTrieForCompactness ? 1 : 0;
+		ret *= 2;
+		ret += enableAccessResultCache ? 1 : 0;
+		ret *= 2;
+		ret += batchEvaluationParallelism;
+		ret *= 2;
 		return ret;
 	}
 
@@ -246,6 +271,10 @@ public String toString() {
 				", optimizeTrieForSpace: " + optimizeTrieForSpace +
 				", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
 				", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
+				", optimizeTrieForCompactness: " + optimizeTrieForCompactness +
+				", optimizeTagTrieForCompactness: " + optimizeTagTrieForCompactness +
+				", enableAccessResultCache: " + enableAccessResultCache +
+				", batchEvaluationParallelism: " + batchEvaluationParallelism +
 				" }";
 
 	}
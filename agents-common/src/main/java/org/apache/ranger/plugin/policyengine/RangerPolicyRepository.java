@@ -43,6 +43,7 @@
 import org.apache.ranger.plugin.store.AbstractServiceStore;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
+import org.apache.ranger.plugin.util.RangerTinyLfuCache;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,7 +83,7 @@ enum AuditModeEnum {
     private final long                              policyVersion;
     private /*final*/ List<RangerContextEnricher>       contextEnrichers;
     private final AuditModeEnum                     auditModeEnum;
-    private final Map<String, AuditInfo>            accessAuditCache;
+    private final RangerTinyLfuCache<String, AuditInfo> accessAuditCache;
     private final String                            componentServiceName;
     private final RangerServiceDef                  componentServiceDef;
     private final Map<String, RangerResourceTrie>   policyResourceTrie;
@@ -155,9 +156,9 @@ enum AuditModeEnum {
         }
 
         if (other.accessAuditCache != null) {
-            int auditResultCacheSize = other.accessAuditCache.size();
+            int auditResultCacheSize = other.accessAuditCache.getMaxSize();
 
-            this.accessAuditCache = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
+            this.accessAuditCache = new RangerTinyLfuCache<>(other.accessAuditCache.getName(), auditResultCacheSize);
         } else {
             this.accessAuditCache = null;
         }
@@ -217,7 +218,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
                 final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
 
                 int auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
+                accessAuditCache = new RangerTinyLfuCache<>("auditResultCache-" + serviceName + (zoneName != null ? "-" + zoneName : ""), auditResultCacheSize);
             } else {
                 accessAuditCache = null;
             }
@@ -714,7 +715,7 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
                     continue;
                 }
 
-                Set<RangerPolicyResourceEvaluator> serviceResourceMatchersForResource = trie.getEvaluatorsForResource(resource.getValue(resourceName), request.getResourceMatchingScope());
+                Set<RangerPolicyResourceEvaluator> serviceResourceMatchersForResource = RangerAccessRequestBatch.getEvaluatorsForResource(trie, resource.getValue(resourceName), request.getResourceMatchingScope());
                 Set<RangerPolicyResourceEvaluator> inheritedResourceMatchers          = trie.getInheritedEvaluators();
 
                 if (smallestList != null) {
@@ -1231,7 +1232,7 @@ private Map<String, RangerResourceTrie> createResourceTrieMap(List<? extends Ran
             ret = new HashMap<>();
 
             for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, options.optimizeTrieForCompactness, pluginContext));
             }
         } else {
             ret = null;
@@ -1254,7 +1255,7 @@ private void updateTrie(Map<String, RangerResourceTrie> trieMap, Integer policyD
                 if (RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE == policyDeltaType || RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE == policyDeltaType) {
                     LOG.warn("policyDeltaType is not for POLICY_CREATE and trie for resourceDef:[" + resourceDefName + "] was null! Should not have happened!!");
                 }
-                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, pluginContext);
+                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, options.optimizeTrieForCompactness, pluginContext);
                 trieMap.put(resourceDefName, trie);
             }
 
@@ -33,6 +33,8 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.text.ParseException;
@@ -49,6 +51,7 @@ public final class RangerRequestScriptEvaluator {
 
 	private static final Logger PERF_POLICY_CONDITION_SCRIPT_TOJSON         = RangerPerfTracer.getPerfLogger("policy.condition.script.tojson");
 	private static final Logger PERF_POLICY_CONDITION_SCRIPT_EVAL           = RangerPerfTracer.getPerfLogger("policy.condition.script.eval");
+	private static final Logger PERF_POLICY_CONDITION_SCRIPT_COMPILE        = RangerPerfTracer.getPerfLogger("policy.condition.script.compile");
 	private static final String TAG_ATTR_DATE_FORMAT_PROP                   = "ranger.plugin.tag.attr.additional.date.formats";
 	private static final String TAG_ATTR_DATE_FORMAT_SEPARATOR              = "||";
 	private static final String TAG_ATTR_DATE_FORMAT_SEPARATOR_REGEX        = "\\|\\|";
@@ -164,6 +167,44 @@ public static String expandMacros(String script) {
 		return MACRO_PROCESSOR.expandMacros(script);
 	}
 
+	/**
+	 * Compiles the given script, after expanding macros, for repeated evaluation with evaluateScript()/evaluateConditionScript().
+	 *
+	 * @return compiled script; null if the script engine doesn't support compilation or if compilation failed - in which
+	 *         case the caller should continue to evaluate the script text
+	 */
+	public static CompiledScript compileScript(ScriptEngine scriptEngine, String script, boolean enableJsonCtx) {
+		CompiledScript ret = null;
+
+		if (scriptEngine instanceof Compilable && script != null) {
+			RangerPerfTracer perf = null;
+
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_CONDITION_SCRIPT_COMPILE)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_COMPILE, "RangerRequestScriptEvaluator.compileScript(scriptLength=" + script.length() + ")");
+			}
+
+			String scriptToCompile = expandMacros(script);
+
+			if (enableJsonCtx) {
+				scriptToCompile = SCRIPT_PREEXEC + scriptToCompile;
+			}
+
+			try {
+				ret = ((Compilable) scriptEngine).compile(scriptToCompile);
+			} catch (ScriptException excp) {
+				LOG.warn("RangerRequestScriptEvaluator.compileScript(): failed to compile script; it will be evaluated without compilation. script={" + script + "}, exception=" + excp);
+			} finally {
+				RangerPerfTracer.log(perf);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerRequestScriptEvaluator.compileScript(script={" + script + "}, enableJsonCtx=" + enableJsonCtx + "): isCompiled=" + (ret != null));
+		}
+
+		return ret;
+	}
+
 	public RangerRequestScriptEvaluator(final RangerAccessRequest accessRequest) {
 		this.accessRequest = accessRequest.getReadOnlyCopy();
 	}
@@ -171,13 +212,32 @@ public RangerRequestScriptEvaluator(final RangerAccessRequest accessRequest) {
 	public Object evaluateScript(ScriptEngine scriptEngine, String script) {
 		script = expandMacros(script);
 
-		return evaluateScript(scriptEngine, script, needsJsonCtxEnabled(script));
+		return evaluateScript(scriptEngine, script, null, null, needsJsonCtxEnabled(script));
+	}
+
+	/**
+	 * @param compiledScript script compiled with compileScript(), using the same value for enableJsonCtx
+	 */
+	public Object evaluateScript(ScriptEngine scriptEngine, CompiledScript compiledScript, boolean enableJsonCtx) {
+		return evaluateScript(scriptEngine, null, compiledScript, null, enableJsonCtx);
 	}
 
 	public Object evaluateConditionScript(ScriptEngine scriptEngine, String script, boolean enableJsonCtx) {
 		script = expandMacros(script);
 
-		Object ret = evaluateScript(scriptEngine, script, enableJsonCtx);
+		return evaluateConditionScript(scriptEngine, script, null, null, enableJsonCtx);
+	}
+
+	/**
+	 * @param compiledScript script compiled with compileScript(), using the same value for enableJsonCtx
+	 * @param bindings bindings to reuse for this evaluation; if null, new bindings are created from the script engine
+	 */
+	public Object evaluateConditionScript(ScriptEngine scriptEngine, CompiledScript compiledScript, Bindings bindings, boolean enableJsonCtx) {
+		return evaluateConditionScript(scriptEngine, null, compiledScript, bindings, enableJsonCtx);
+	}
+
+	private Object evaluateConditionScript(ScriptEngine scriptEngine, String script, CompiledScript compiledScript, Bindings bindings, boolean enableJsonCtx) {
+		Object ret = evaluateScript(scriptEngine, script, compiledScript, bindings, enableJsonCtx);
 
 		if (ret == null) {
 			ret = getResult();
@@ -190,12 +250,15 @@ public Object evaluateConditionScript(ScriptEngine scriptEngine, String script,
 		return ret;
 	}
 
-	private Object evaluateScript(ScriptEngine scriptEngine, String script, boolean enableJsonCtx) {
+	private Object evaluateScript(ScriptEngine scriptEngine, String script, CompiledScript compiledScript, Bindings bindings, boolean enableJsonCtx) {
 		Object              ret        = null;
-		Bindings            bindings   = scriptEngine.createBindings();
 		RangerTagForEval    currentTag = this.getCurrentTag();
 		Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
 
+		if (bindings == null) {
+			bindings = scriptEngine.createBindings();
+		}
+
 		bindings.put(SCRIPT_VAR_ctx, this);
 		bindings.put(SCRIPT_VAR_tag, currentTag);
 		bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
@@ -203,11 +266,13 @@ private Object evaluateScript(ScriptEngine scriptEngine, String script, boolean
 		if (enableJsonCtx) {
 			bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
 
-			script = SCRIPT_PREEXEC + script;
+			if (compiledScript == null) {
+				script = SCRIPT_PREEXEC + script;
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerRequestScriptEvaluator.evaluateScript(): script={" + script + "}");
+			LOG.debug("RangerRequestScriptEvaluator.evaluateScript(): script={" + (compiledScript != null ? compiledScript : script) + "}");
 		}
 
 		RangerPerfTracer perf = null;
@@ -216,10 +281,14 @@ private Object evaluateScript(ScriptEngine scriptEngine, String script, boolean
 			long requestHash = accessRequest.hashCode();
 
 			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_CONDITION_SCRIPT_EVAL)) {
-				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + requestHash + ")");
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + requestHash + ", isCompiled=" + (compiledScript != null) + ")");
 			}
 
-			ret = scriptEngine.eval(script, bindings);
+			if (compiledScript != null) {
+				ret = compiledScript.eval(bindings);
+			} else {
+				ret = scriptEngine.eval(script, bindings);
+			}
 		} catch (NullPointerException nullp) {
 			LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
 
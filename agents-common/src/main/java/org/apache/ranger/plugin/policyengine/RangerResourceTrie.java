@@ -35,14 +35,17 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -65,8 +68,11 @@
     private final String            wildcardChars;
     private final boolean           isOptimizedForRetrieval;
     private final boolean           isOptimizedForSpace;
+    private final boolean           isOptimizedForCompactness;
+    private final boolean           isCopyOnWrite;
     private final Character         separatorChar;
     private       Set<T>            inheritedEvaluators;
+    private final TrieOwner         owner;
     private final TrieNode<T>       root;
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
@@ -74,21 +80,35 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
     }
 
     public RangerResourceTrie(RangerResourceTrie<T> other) {
+        this(other, false);
+    }
+
+    /**
+     * @param isCopyOnWrite when false, all nodes of other are copied. When true, the copy shares nodes with other and a
+     *                      node is copied only when add() or delete() on this trie modifies it - along with the nodes in
+     *                      the path from the root; other must not be modified after this, though it can still be used
+     *                      for lookups. Since set up of a node depends on wildcard-evaluators of its ancestors, a change
+     *                      in wildcard-evaluators of a node copies its entire subtree, unless optimized for space.
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, boolean isCopyOnWrite) {
         RangerPerfTracer perf = null;
 
         if(RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
-            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + ")");
-        }
-
-        this.resourceDef             = other.resourceDef;
-        this.optIgnoreCase           = other.optIgnoreCase;
-        this.optWildcard             = other.optWildcard;
-        this.wildcardChars           = other.wildcardChars;
-        this.isOptimizedForSpace     = other.isOptimizedForSpace;
-        this.isOptimizedForRetrieval = false;
-        this.separatorChar           = other.separatorChar;
-        this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
+            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + ", isCopyOnWrite=" + isCopyOnWrite + ")");
+        }
+
+        this.resourceDef               = other.resourceDef;
+        this.optIgnoreCase             = other.optIgnoreCase;
+        this.optWildcard               = other.optWildcard;
+        this.wildcardChars             = other.wildcardChars;
+        this.isOptimizedForSpace       = other.isOptimizedForSpace;
+        this.isOptimizedForRetrieval   = false;
+        this.isOptimizedForCompactness = other.isOptimizedForCompactness;
+        this.isCopyOnWrite             = isCopyOnWrite;
+        this.separatorChar             = other.separatorChar;
+        this.inheritedEvaluators       = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
+        this.owner                     = createOwner();
+        this.root                      = isCopyOnWrite ? copyTrieNode(other.root) : copyTrieSubtree(other.root, null);
 
         RangerPerfTracer.logAlways(perf);
 
@@ -106,8 +126,16 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boo
     }
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, RangerPluginContext pluginContext) {
+        this(resourceDef, evaluators, isOptimizedForRetrieval, isOptimizedForSpace, false, pluginContext);
+    }
+
+    /**
+     * @param isOptimizedForCompactness when true, children of each node are kept in sorted char arrays instead of a
+     *                                  HashMap, and identical evaluator sets are shared across nodes - see wrapUpUpdate()
+     */
+    public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isOptimizedForCompactness, RangerPluginContext pluginContext) {
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + isOptimizedForRetrieval + ", isOptimizedForSpace=" + isOptimizedForSpace + ")");
+            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + isOptimizedForRetrieval + ", isOptimizedForSpace=" + isOptimizedForSpace + ", isOptimizedForCompactness=" + isOptimizedForCompactness + ")");
         }
 
         RangerPerfTracer perf = null;
@@ -146,13 +174,16 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boo
             tokenReplaceSpecialChars += RangerRequestExprResolver.EXPRESSION_START.charAt(0);
         }
 
-        this.resourceDef             = resourceDef;
-        this.optIgnoreCase           = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
-        this.optWildcard             = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
-        this.wildcardChars           = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
-        this.isOptimizedForSpace     = isOptimizedForSpace;
-        this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
-        this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.resourceDef               = resourceDef;
+        this.optIgnoreCase             = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
+        this.optWildcard               = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
+        this.wildcardChars             = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
+        this.isOptimizedForSpace       = isOptimizedForSpace;
+        this.isOptimizedForRetrieval   = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
+        this.isOptimizedForCompactness = isOptimizedForCompactness;
+        this.isCopyOnWrite             = false;
+        this.separatorChar             = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.owner                     = createOwner();
 
         TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
 
@@ -175,7 +206,7 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boo
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + "): " + toString());
+            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + ", isOptimizedForCompactness=" + this.isOptimizedForCompactness + "): " + toString());
         }
     }
 
@@ -251,6 +282,10 @@ public void delete(RangerPolicyResource resource, T evaluator) {
             for (String value : resource.getValues()) {
                 TrieNode<T> node = getNodeForResource(value);
                 if (node != null) {
+                    if (isCopyOnWrite && !isOptimizedForSpace && node.isWildcardEvaluator(evaluator)) {
+                        copySharedDescendants(node);
+                    }
+
                     node.removeEvaluatorFromSubtree(evaluator);
                 }
             }
@@ -263,9 +298,27 @@ public void delete(RangerPolicyResource resource, T evaluator) {
         }
     }
 
+    /**
+     * Completes an update of the trie - initial build, or add()/delete() of evaluators. When the trie is optimized for
+     * compactness, identical evaluator sets are replaced by a single shared instance; a node modifying a shared set
+     * later works on its own copy, as the shared instance may be referenced by other nodes and by copies of this trie.
+     */
     public void wrapUpUpdate() {
         if (root != null) {
             root.wrapUpUpdate();
+
+            if (isOptimizedForCompactness) {
+                RangerPerfTracer perf = null;
+
+                if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+                    perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.shareEvaluators(name=" + resourceDef.getName() + ")");
+                }
+
+                root.shareEvaluators(null, new HashMap<>());
+
+                RangerPerfTracer.logAlways(perf);
+            }
+
             if (TRACE_LOG.isTraceEnabled()) {
                 TRACE_LOG.trace("Trie Dump from RangerResourceTrie.wrapUpUpdate(name=" + resourceDef.getName() + "):\n[" + dumpTrie() + "]");
             }
@@ -308,45 +361,16 @@ private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T>
             TRACE_LOG.trace("==> copyTrieSubtree(" + sb + ")");
         }
 
-        TrieNode<T> dest = new TrieNode<>(source.str);
+        TrieNode<T> dest = new TrieNode<>(source.str, owner);
 
         if (parent != null) {
             parent.addChild(dest);
         }
 
-        synchronized (source.children) {
-            dest.isSetup                           = source.isSetup;
-            dest.isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
+        dest.copyFrom(source, false);
 
-            if (source.isSharingParentWildcardEvaluators) {
-                if (dest.getParent() != null) {
-                    dest.wildcardEvaluators = dest.getParent().getWildcardEvaluators();
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            } else {
-                if (source.wildcardEvaluators != null) {
-                    dest.wildcardEvaluators = new HashSet<>(source.wildcardEvaluators);
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            }
-
-            if (source.evaluators != null) {
-                if (source.evaluators == source.wildcardEvaluators) {
-                    dest.evaluators = dest.wildcardEvaluators;
-                } else {
-                    dest.evaluators = new HashSet<>(source.evaluators);
-                }
-            } else {
-                dest.evaluators = null;
-            }
-        }
-
-        Map<Character, TrieNode<T>> children = source.getChildren();
-
-        for (Map.Entry<Character, TrieNode<T>> entry : children.entrySet()) {
-            copyTrieSubtree(entry.getValue(), dest);
+        for (TrieNode<T> child : source.children.values()) {
+            copyTrieSubtree(child, dest);
         }
 
         if (TRACE_LOG.isTraceEnabled()) {
@@ -360,6 +384,34 @@ private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T>
         return dest;
     }
 
+    // root of a copy-on-write trie: the children are shared with the source trie
+    private TrieNode<T> copyTrieNode(final TrieNode<T> source) {
+        TrieNode<T> ret = new TrieNode<>(source.str, owner);
+
+        ret.copyFrom(source, true);
+
+        return ret;
+    }
+
+    /*
+     * Set up of a node includes wildcard-evaluators of its ancestors. Hence, before wildcard-evaluators of a node in a
+     * copy-on-write trie are modified, nodes in its subtree that are shared with the source trie are replaced by copies.
+     */
+    private void copySharedDescendants(TrieNode<T> node) {
+        for (TrieNode<T> child : new ArrayList<>(node.children.values())) {
+            if (child.isOwnedBy(owner)) {
+                copySharedDescendants(child);
+            } else {
+                copyTrieSubtree(child, node);
+            }
+        }
+    }
+
+    // shared sets are never modified, hence can be referenced by the copy as well
+    private static <E> Set<E> copyEvaluators(Set<E> evaluators) {
+        return evaluators instanceof SharedEvaluatorSet ? evaluators : new HashSet<>(evaluators);
+    }
+
     private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluators, int builderThreadCount) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> buildTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isMultiThreaded=" + (builderThreadCount > 1) + ")");
@@ -371,7 +423,7 @@ private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluat
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(resourceDef=" + resourceDef.getName() + ")");
         }
 
-        TrieNode<T>                           ret             = new TrieNode<>(null);
+        TrieNode<T>                           ret             = new TrieNode<>(null, owner);
         final boolean                         isMultiThreaded = builderThreadCount > 1;
         final List<ResourceTrieBuilderThread> builderThreads;
         final Map<Character, Integer>         builderThreadMap;
@@ -463,7 +515,7 @@ private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluat
                         t.add("", false, null);
                         // Wait for threads to finish work
                         t.join();
-                        ret.getChildren().putAll(t.getSubtrees());
+                        ret.addSubtrees(t.getSubtrees());
                     } catch (InterruptedException ex) {
                         LOG.error("BuilderThread " + t + " was interrupted:", ex);
                         LOG.error("Failing and retrying with one thread");
@@ -516,11 +568,15 @@ private int getMaxDepth() {
         return root.getMaxDepth();
     }
 
-    private Character getLookupChar(char ch) {
+    private TrieOwner createOwner() {
+        return new TrieOwner(resourceDef.getName(), optIgnoreCase, isOptimizedForRetrieval, isOptimizedForSpace, isOptimizedForCompactness);
+    }
+
+    private char getLookupChar(char ch) {
         return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private Character getLookupChar(String str, int index) {
+    private char getLookupChar(String str, int index) {
         return getLookupChar(str.charAt(index));
     }
 
@@ -555,6 +611,10 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
         }
 
         if(isWildcard || isRecursive) {
+            if (isCopyOnWrite && !isOptimizedForSpace) {
+                copySharedDescendants(curr);
+            }
+
             curr.addWildcardEvaluator(evaluator);
         } else {
             curr.addEvaluator(evaluator);
@@ -651,12 +711,14 @@ private Set<T> getEvaluatorsForResource(String resource, RangerAccessRequest.Res
 
             if (isSelfMatch) { // resource == path(curr)
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().stream().forEach(c -> c.collectChildEvaluators(separatorChar, 0, childEvalautors));
+                    final TrieNode<T> self = curr;
+
+                    curr.children.values().forEach(c -> c.collectChildEvaluators(self, separatorChar, 0, childEvalautors));
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    child = curr.getChild(separatorChar);
 
-                    if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, childEvalautors);
+                    if (child != null) {
+                        child.collectChildEvaluators(curr, separatorChar, 1, childEvalautors);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -665,9 +727,9 @@ private Set<T> getEvaluatorsForResource(String resource, RangerAccessRequest.Res
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, childEvalautors);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen, childEvalautors);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, childEvalautors);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen + 1, childEvalautors);
                     }
                 }
             }
@@ -690,6 +752,7 @@ private Set<T> getEvaluatorsForResource(String resource, RangerAccessRequest.Res
         return ret;
     }
 
+    // the returned node is to be modified, hence nodes in its path that are shared with another trie are replaced by copies
     private TrieNode<T> getNodeForResource(String resource) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerResourceTrie.getNodeForResource(" + resource + ")");
@@ -718,7 +781,7 @@ private TrieNode<T> getNodeForResource(String resource) {
                 break;
             }
 
-            curr = child;
+            curr = curr.getOwnedChild(child);
             i    += childStr.length();
         }
 
@@ -822,7 +885,7 @@ public String toString() {
             }
         }
 
-        private final TrieNode<T>             thisRoot  = new TrieNode<>(null);
+        private final TrieNode<T>             thisRoot  = new TrieNode<>(null, owner);
         private final BlockingQueue<WorkItem> workQueue = new LinkedBlockingQueue<>();
 
         ResourceTrieBuilderThread() {
@@ -879,17 +942,25 @@ static class TrieData {
         int wildcardEvaluatorListRefCount;
     }
 
-    class TrieNode<U extends T> {
-        private          String                      str;
-        private          TrieNode<U>                 parent;
-        private final    Map<Character, TrieNode<U>> children = new HashMap<>();
-        private          Set<U>                      evaluators;
-        private          Set<U>                      wildcardEvaluators;
-        private          boolean                     isSharingParentWildcardEvaluators;
-        private volatile boolean                     isSetup = false;
-
-        TrieNode(String str) {
-            this.str = str;
+    /*
+     * Nodes are shared between a copy-on-write trie and its source trie; hence a node references only the owner token
+     * of the trie that created it - not the trie, which would keep its entire tree, including the nodes replaced in
+     * later copies, reachable from shared nodes.
+     */
+    static class TrieNode<U extends RangerResourceEvaluator> {
+        private final    TrieOwner                 owner;
+        private          String                    str;
+        private          TrieNode<U>               parent;
+        private final    TrieChildren<TrieNode<U>> children;
+        private          Set<U>                    evaluators;
+        private          Set<U>                    wildcardEvaluators;
+        private          boolean                   isSharingParentWildcardEvaluators;
+        private volatile boolean                   isSetup = false;
+
+        TrieNode(String str, TrieOwner owner) {
+            this.owner    = owner;
+            this.str      = str;
+            this.children = owner.isOptimizedForCompactness ? new SortedArrayChildren<>() : new HashMapChildren<>();
         }
 
         String getStr() {
@@ -909,7 +980,7 @@ void setParent(TrieNode<U> parent) {
         }
 
         Map<Character, TrieNode<U>> getChildren() {
-            return children;
+            return children.asMap();
         }
 
         Set<U> getEvaluators() {
@@ -920,10 +991,73 @@ Set<U> getWildcardEvaluators() {
             return wildcardEvaluators;
         }
 
-        TrieNode<U> getChild(Character ch) {
+        TrieNode<U> getChild(char ch) {
             return children.get(ch);
         }
 
+        // nodes of other tries, in a copy-on-write trie, are shared with the source trie and must not be modified
+        boolean isOwnedBy(TrieOwner owner) {
+            return this.owner == owner;
+        }
+
+        boolean isWildcardEvaluator(U evaluator) {
+            return CollectionUtils.isNotEmpty(wildcardEvaluators) && wildcardEvaluators.contains(evaluator);
+        }
+
+        // returns child, after replacing it with a copy if it belongs to another trie
+        TrieNode<U> getOwnedChild(TrieNode<U> child) {
+            if (child.isOwnedBy(owner)) {
+                return child;
+            }
+
+            TrieNode<U> ret = new TrieNode<>(child.getStr(), owner);
+
+            addChild(ret);
+            ret.copyFrom(child, true);
+
+            return ret;
+        }
+
+        /*
+         * Copies evaluators of source, under the lock held by setupIfNeeded(), as source can be set up concurrently by
+         * lookups. The parent of this node must be set earlier. When shareChildren is true, children of source are
+         * added as children of this node as well.
+         */
+        void copyFrom(TrieNode<U> source, boolean shareChildren) {
+            synchronized (source.children) {
+                isSetup                           = source.isSetup;
+                isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
+
+                if (source.isSharingParentWildcardEvaluators) {
+                    if (getParent() != null) {
+                        wildcardEvaluators = getParent().getWildcardEvaluators();
+                    } else {
+                        wildcardEvaluators = null;
+                    }
+                } else {
+                    if (source.wildcardEvaluators != null) {
+                        wildcardEvaluators = copyEvaluators(source.wildcardEvaluators);
+                    } else {
+                        wildcardEvaluators = null;
+                    }
+                }
+
+                if (source.evaluators != null) {
+                    if (source.evaluators == source.wildcardEvaluators) {
+                        evaluators = wildcardEvaluators;
+                    } else {
+                        evaluators = copyEvaluators(source.evaluators);
+                    }
+                } else {
+                    evaluators = null;
+                }
+
+                if (shareChildren) {
+                    children.copyFrom(source.children);
+                }
+            }
+        }
+
         void populateTrieData(RangerResourceTrie.TrieData trieData) {
             trieData.nodeCount++;
 
@@ -948,9 +1082,7 @@ void populateTrieData(RangerResourceTrie.TrieData trieData) {
                     trieData.singleChildNodeCount++;
                 }
 
-                for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
-                    TrieNode<U> child = entry.getValue();
-
+                for (TrieNode<U> child : children.values()) {
                     child.populateTrieData(trieData);
                 }
             } else {
@@ -961,9 +1093,7 @@ void populateTrieData(RangerResourceTrie.TrieData trieData) {
         int getMaxDepth() {
             int ret = 0;
 
-            for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
-                TrieNode<U> child = entry.getValue();
-
+            for (TrieNode<U> child : children.values()) {
                 int maxChildDepth = child.getMaxDepth();
 
                 if (maxChildDepth > ret) {
@@ -976,23 +1106,25 @@ int getMaxDepth() {
 
         TrieNode<U> getOrCreateChild(String str) {
             int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
+            TrieNode<U> child = children.get(owner.getLookupChar(str, 0));
 
             if (child == null) {
-                child = new TrieNode<>(str);
+                child = new TrieNode<>(str, owner);
 
                 addChild(child);
             } else {
+                child = getOwnedChild(child);
+
                 final String  childStr     = child.getStr();
                 final int     childStrLen  = childStr.length();
-                final boolean isExactMatch = optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
+                final boolean isExactMatch = owner.optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
 
                 if (!isExactMatch) {
                     final int numOfCharactersToMatch = Math.min(childStrLen, len);
                     int       index                  = 1;
 
                     for (; index < numOfCharactersToMatch; index++) {
-                        if (getLookupChar(childStr, index) != getLookupChar(str, index)) {
+                        if (owner.getLookupChar(childStr, index) != owner.getLookupChar(str, index)) {
                             break;
                         }
                     }
@@ -1001,7 +1133,7 @@ TrieNode<U> getOrCreateChild(String str) {
                         // Matched all
                         if (childStrLen > len) {
                             // Existing node has longer string, need to break up this node
-                            TrieNode<U> newChild = new TrieNode<>(str);
+                            TrieNode<U> newChild = new TrieNode<>(str, owner);
 
                             this.addChild(newChild);
                             child.setStr(childStr.substring(index));
@@ -1015,7 +1147,7 @@ TrieNode<U> getOrCreateChild(String str) {
                     } else {
                         // Partial match for both; both have leftovers
                         String      matchedPart = str.substring(0, index);
-                        TrieNode<U> newChild    = new TrieNode<>(matchedPart);
+                        TrieNode<U> newChild    = new TrieNode<>(matchedPart, owner);
 
                         this.addChild(newChild);
                         child.setStr(childStr.substring(index));
@@ -1030,13 +1162,26 @@ TrieNode<U> getOrCreateChild(String str) {
         }
 
         private void addChild(TrieNode<U> child) {
-            children.put(getLookupChar(child.getStr(), 0), child);
+            children.put(owner.getLookupChar(child.getStr(), 0), child);
             child.setParent(this);
         }
 
+        // subtrees built by ResourceTrieBuilderThread
+        void addSubtrees(Map<Character, TrieNode<U>> subtrees) {
+            for (Map.Entry<Character, TrieNode<U>> entry : subtrees.entrySet()) {
+                children.put(entry.getKey(), entry.getValue());
+            }
+        }
+
         void addEvaluator(U evaluator) {
             if (evaluators == null) {
                 evaluators = new HashSet<>();
+            } else if (evaluators instanceof SharedEvaluatorSet || evaluators == wildcardEvaluators) { // setup() can set evaluators to the wildcardEvaluators instance
+                if (evaluators.contains(evaluator)) {
+                    return;
+                }
+
+                evaluators = new HashSet<>(evaluators);
             }
 
             evaluators.add(evaluator);
@@ -1050,12 +1195,18 @@ void addWildcardEvaluator(U evaluator) {
             }
 
             if (!wildcardEvaluators.contains(evaluator)) {
+                if (wildcardEvaluators instanceof SharedEvaluatorSet) {
+                    wildcardEvaluators = new HashSet<>(wildcardEvaluators);
+                }
+
                 wildcardEvaluators.add(evaluator);
             }
         }
 
         void removeEvaluator(U evaluator) {
             if (CollectionUtils.isNotEmpty(evaluators) && evaluators.contains(evaluator)) {
+                evaluators = getModifiableSet(evaluators);
+
                 evaluators.remove(evaluator);
 
                 if (CollectionUtils.isEmpty(evaluators)) {
@@ -1066,6 +1217,8 @@ void removeEvaluator(U evaluator) {
 
         void removeWildcardEvaluator(U evaluator) {
             if (CollectionUtils.isNotEmpty(wildcardEvaluators)) {
+                wildcardEvaluators = getModifiableSet(wildcardEvaluators);
+
                 wildcardEvaluators.remove(evaluator);
 
                 if (CollectionUtils.isEmpty(wildcardEvaluators)) {
@@ -1085,6 +1238,8 @@ void undoSetup() {
                         evaluators = null;
                     } else {
                         if (wildcardEvaluators != null) {
+                            evaluators = getModifiableSet(evaluators);
+
                             evaluators.removeAll(wildcardEvaluators);
 
                             if (CollectionUtils.isEmpty(evaluators)) {
@@ -1101,6 +1256,8 @@ void undoSetup() {
                         Set<U> parentWildcardEvaluators = getParent() == null ? null : getParent().getWildcardEvaluators();
 
                         if (parentWildcardEvaluators != null) {
+                            wildcardEvaluators = getModifiableSet(wildcardEvaluators);
+
                             wildcardEvaluators.removeAll(parentWildcardEvaluators);
 
                             if (CollectionUtils.isEmpty(wildcardEvaluators)) {
@@ -1116,7 +1273,7 @@ void undoSetup() {
         }
 
         void removeSelfFromTrie() {
-            if (evaluators == null && wildcardEvaluators == null && children.size() == 0) {
+            if (evaluators == null && wildcardEvaluators == null && children.isEmpty()) {
                 TrieNode<U> parent = getParent();
                 if (parent != null) {
                     parent.children.remove(str.charAt(0));
@@ -1125,11 +1282,11 @@ void removeSelfFromTrie() {
         }
 
         void wrapUpUpdate() {
-            if (isOptimizedForRetrieval) {
+            if (owner.isOptimizedForRetrieval) {
                 RangerPerfTracer postSetupPerf = null;
 
                 if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
-                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + resourceDef.getName() + "-postSetup)");
+                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + owner.resourceName + "-postSetup)");
                 }
 
                 postSetup(null);
@@ -1141,13 +1298,43 @@ void wrapUpUpdate() {
         void postSetup(Set<U> parentWildcardEvaluators) {
             setup(parentWildcardEvaluators);
 
-            for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
-                TrieNode<U> child = entry.getValue();
-
+            for (TrieNode<U> child : children.values()) {
                 child.postSetup(wildcardEvaluators);
             }
         }
 
+        /*
+         * Replaces evaluator sets of this subtree with shared instances from sharedSets. Relationships between sets that
+         * setup() creates are retained: evaluators identical to wildcardEvaluators, and wildcardEvaluators identical to
+         * that of the parent. An evaluators set that is equal to - but not the same as - wildcardEvaluators is not
+         * shared, since undoSetup() would take it to be the reference set by setup().
+         */
+        void shareEvaluators(Set<U> parentWildcardEvaluators, Map<Set<U>, Set<U>> sharedSets) {
+            final boolean isEvaluatorsSameAsWildcard = evaluators == wildcardEvaluators;
+
+            if (isSharingParentWildcardEvaluators) {
+                wildcardEvaluators = parentWildcardEvaluators;
+            } else {
+                wildcardEvaluators = getSharedSet(wildcardEvaluators, sharedSets);
+            }
+
+            if (isEvaluatorsSameAsWildcard) {
+                evaluators = wildcardEvaluators;
+            } else if (evaluators != null) {
+                Set<U> sharedEvaluators = getSharedSet(evaluators, sharedSets);
+
+                if (sharedEvaluators != wildcardEvaluators) {
+                    evaluators = sharedEvaluators;
+                }
+            }
+
+            for (TrieNode<U> child : children.values()) {
+                if (child.isOwnedBy(owner)) { // nodes shared with another trie must not be modified
+                    child.shareEvaluators(wildcardEvaluators, sharedSets);
+                }
+            }
+        }
+
         void setupIfNeeded(TrieNode<U> parent) {
             boolean setupNeeded = !isSetup;
 
@@ -1198,15 +1385,16 @@ void setup(Set<U> parentWildcardEvaluators) {
             }
         }
 
-        void collectChildEvaluators(Character sep, int startIdx, Set<U> childEvaluators) {
-            if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
+        // parent is passed by the caller, since parent of a node shared by a copy-on-write trie is in the source trie
+        void collectChildEvaluators(TrieNode<U> parent, Character sep, int startIdx, Set<U> childEvaluators) {
+            if (!owner.isOptimizedForSpace) {
+                setupIfNeeded(parent);
             }
 
             final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
 
             if (sepPos == -1) { // ex: startIdx=5, path(str)=/tmp/test, path(a child) could be: /tmp/test.txt, /tmp/test/, /tmp/test/a, /tmp/test/a/b
-                if (isOptimizedForSpace) {
+                if (owner.isOptimizedForSpace) {
                     if (this.wildcardEvaluators != null) {
                         childEvaluators.addAll(this.wildcardEvaluators);
                     }
@@ -1215,9 +1403,9 @@ void collectChildEvaluators(Character sep, int startIdx, Set<U> childEvaluators)
                     childEvaluators.addAll(this.evaluators);
                 }
 
-                children.values().stream().forEach(c -> c.collectChildEvaluators(sep, 0, childEvaluators));
+                children.values().forEach(c -> c.collectChildEvaluators(this, sep, 0, childEvaluators));
             } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
-                if (isOptimizedForSpace) {
+                if (owner.isOptimizedForSpace) {
                     if (this.wildcardEvaluators != null) {
                         childEvaluators.addAll(this.wildcardEvaluators);
                     }
@@ -1269,11 +1457,337 @@ void toString(String prefix, StringBuilder sb) {
             toString(sb);
             sb.append("]\n");
 
-            for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
-                TrieNode<U> child = entry.getValue();
-
+            for (TrieNode<U> child : children.values()) {
                 child.toString(nodeValue, sb);
             }
         }
+
+        private Set<U> getModifiableSet(Set<U> evaluators) {
+            return evaluators instanceof SharedEvaluatorSet ? new HashSet<>(evaluators) : evaluators;
+        }
+    }
+
+    /*
+     * Identifies nodes created by a trie, and holds the options of the trie that its nodes need; it must not reference
+     * the trie itself.
+     */
+    static final class TrieOwner {
+        final String  resourceName;
+        final boolean optIgnoreCase;
+        final boolean isOptimizedForRetrieval;
+        final boolean isOptimizedForSpace;
+        final boolean isOptimizedForCompactness;
+
+        TrieOwner(String resourceName, boolean optIgnoreCase, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isOptimizedForCompactness) {
+            this.resourceName              = resourceName;
+            this.optIgnoreCase             = optIgnoreCase;
+            this.isOptimizedForRetrieval   = isOptimizedForRetrieval;
+            this.isOptimizedForSpace       = isOptimizedForSpace;
+            this.isOptimizedForCompactness = isOptimizedForCompactness;
+        }
+
+        char getLookupChar(char ch) {
+            return optIgnoreCase ? Character.toLowerCase(ch) : ch;
+        }
+
+        char getLookupChar(String str, int index) {
+            return getLookupChar(str.charAt(index));
+        }
+    }
+
+    private static <E> Set<E> getSharedSet(Set<E> evaluators, Map<Set<E>, Set<E>> sharedSets) {
+        Set<E> ret = evaluators;
+
+        if (CollectionUtils.isNotEmpty(evaluators)) {
+            ret = sharedSets.get(evaluators);
+
+            if (ret == null) {
+                ret = evaluators instanceof SharedEvaluatorSet ? evaluators : new SharedEvaluatorSet<>(evaluators);
+
+                sharedSets.put(ret, ret);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Immutable evaluator set, referenced by multiple trie nodes and possibly by multiple tries (see copy constructor).
+     * Evaluators are kept in an array sized to the set; sets larger than LINEAR_SCAN_MAX_SIZE also have an
+     * open-addressing hash table for contains(). The hashCode is computed once, to make lookups in sharedSets cheaper.
+     * Being immutable, any attempt to update the set in place fails with UnsupportedOperationException.
+     */
+    private static final class SharedEvaluatorSet<E> extends AbstractSet<E> {
+        private static final int LINEAR_SCAN_MAX_SIZE = 8;
+
+        private final Object[] elements;
+        private final Object[] table;
+        private final int      hashCode;
+
+        SharedEvaluatorSet(Collection<E> evaluators) {
+            this.elements = evaluators.toArray();
+
+            int hashCode = 0;
+
+            for (Object element : elements) {
+                hashCode += element.hashCode();
+            }
+
+            this.hashCode = hashCode;
+
+            if (elements.length > LINEAR_SCAN_MAX_SIZE) {
+                table = new Object[Integer.highestOneBit(elements.length * 2 - 1) << 1]; // at most half full
+
+                for (Object element : elements) {
+                    int idx = getTableIndex(element);
+
+                    while (table[idx] != null) {
+                        idx = (idx + 1) & (table.length - 1);
+                    }
+
+                    table[idx] = element;
+                }
+            } else {
+                table = null;
+            }
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) {
+                return false;
+            }
+
+            if (table == null) {
+                for (Object element : elements) {
+                    if (element == o || element.equals(o)) {
+                        return true;
+                    }
+                }
+            } else {
+                for (int idx = getTableIndex(o); table[idx] != null; idx = (idx + 1) & (table.length - 1)) {
+                    if (table[idx] == o || table[idx].equals(o)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int idx = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return idx < elements.length;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (idx >= elements.length) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return (E) elements[idx++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || super.equals(other);
+        }
+
+        private int getTableIndex(Object element) {
+            int hash = element.hashCode();
+
+            return (hash ^ (hash >>> 16)) & (table.length - 1);
+        }
+    }
+
+    /*
+     * Children of a trie node, keyed by the first character of their str - in lower-case, if optIgnoreCase is set.
+     */
+    private static abstract class TrieChildren<N> {
+        abstract N get(char ch);
+
+        abstract void put(char ch, N child);
+
+        abstract void remove(char ch);
+
+        // replaces children with those in other, which must be of the same class
+        abstract void copyFrom(TrieChildren<N> other);
+
+        abstract int size();
+
+        abstract Collection<N> values();
+
+        abstract Map<Character, N> asMap();
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+    }
+
+    private static final class HashMapChildren<N> extends TrieChildren<N> {
+        private final Map<Character, N> children = new HashMap<>();
+
+        @Override
+        N get(char ch) {
+            return children.get(ch);
+        }
+
+        @Override
+        void put(char ch, N child) {
+            children.put(ch, child);
+        }
+
+        @Override
+        void remove(char ch) {
+            children.remove(ch);
+        }
+
+        @Override
+        void copyFrom(TrieChildren<N> other) {
+            children.clear();
+            children.putAll(((HashMapChildren<N>) other).children);
+        }
+
+        @Override
+        int size() {
+            return children.size();
+        }
+
+        @Override
+        Collection<N> values() {
+            return children.values();
+        }
+
+        @Override
+        Map<Character, N> asMap() {
+            return children;
+        }
+    }
+
+    /*
+     * Children in a sorted array of keys and a parallel array of nodes, each sized to the number of children. Lookup is
+     * by binary search over the keys, without boxing the character; most nodes of a large trie have zero or one child,
+     * for which these arrays take far less heap than a HashMap and its entries.
+     */
+    private static final class SortedArrayChildren<N> extends TrieChildren<N> {
+        private static final char[]   NO_KEYS  = new char[0];
+        private static final Object[] NO_NODES = new Object[0];
+
+        private char[]   keys  = NO_KEYS;
+        private Object[] nodes = NO_NODES;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        N get(char ch) {
+            final char[] keys = this.keys;
+
+            if (keys.length == 1) {
+                return keys[0] == ch ? (N) nodes[0] : null;
+            }
+
+            int idx = Arrays.binarySearch(keys, ch);
+
+            return idx >= 0 ? (N) nodes[idx] : null;
+        }
+
+        @Override
+        void put(char ch, N child) {
+            int idx = Arrays.binarySearch(keys, ch);
+
+            if (idx >= 0) {
+                nodes[idx] = child;
+            } else {
+                int      insertAt = -(idx + 1);
+                int      len      = keys.length;
+                char[]   newKeys  = new char[len + 1];
+                Object[] newNodes = new Object[len + 1];
+
+                System.arraycopy(keys, 0, newKeys, 0, insertAt);
+                System.arraycopy(nodes, 0, newNodes, 0, insertAt);
+                System.arraycopy(keys, insertAt, newKeys, insertAt + 1, len - insertAt);
+                System.arraycopy(nodes, insertAt, newNodes, insertAt + 1, len - insertAt);
+
+                newKeys[insertAt]  = ch;
+                newNodes[insertAt] = child;
+
+                keys  = newKeys;
+                nodes = newNodes;
+            }
+        }
+
+        @Override
+        void remove(char ch) {
+            int idx = Arrays.binarySearch(keys, ch);
+
+            if (idx >= 0) {
+                int len = keys.length;
+
+                if (len == 1) {
+                    keys  = NO_KEYS;
+                    nodes = NO_NODES;
+                } else {
+                    char[]   newKeys  = new char[len - 1];
+                    Object[] newNodes = new Object[len - 1];
+
+                    System.arraycopy(keys, 0, newKeys, 0, idx);
+                    System.arraycopy(nodes, 0, newNodes, 0, idx);
+                    System.arraycopy(keys, idx + 1, newKeys, idx, len - idx - 1);
+                    System.arraycopy(nodes, idx + 1, newNodes, idx, len - idx - 1);
+
+                    keys  = newKeys;
+                    nodes = newNodes;
+                }
+            }
+        }
+
+        @Override
+        void copyFrom(TrieChildren<N> other) {
+            SortedArrayChildren<N> src = (SortedArrayChildren<N>) other;
+
+            keys  = src.keys; // keys are never modified in place
+            nodes = src.nodes.length > 0 ? src.nodes.clone() : NO_NODES;
+        }
+
+        @Override
+        int size() {
+            return keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Collection<N> values() {
+            return (Collection<N>) Collections.unmodifiableList(Arrays.asList(nodes));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Map<Character, N> asMap() {
+            Map<Character, N> ret = new HashMap<>();
+
+            for (int i = 0; i < keys.length; i++) {
+                ret.put(keys[i], (N) nodes[i]);
+            }
+
+            return Collections.unmodifiableMap(ret);
+        }
     }
 }
@@ -30,6 +30,7 @@
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
 import org.apache.ranger.plugin.policyresourcematcher.RangerDefaultPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcherCache;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.slf4j.Logger;
@@ -245,12 +246,19 @@ public RangerDefaultPolicyResourceEvaluator(long id, Map<String, RangerPolicyRes
 			this.id              = id;
 			this.resource        = resource;
 			this.leafResourceDef = ServiceDefUtil.getLeafResourceDef(serviceDef, resource);
-			this.resourceMatcher = new RangerDefaultPolicyResourceMatcher();
 
-			this.resourceMatcher.setPolicyResources(resource, policyType);
-			this.resourceMatcher.setServiceDef(serviceDef);
-			this.resourceMatcher.setServiceDefHelper(serviceDefHelper);
-			this.resourceMatcher.init();
+			RangerPolicyResourceMatcherCache matcherCache = pluginContext != null ? pluginContext.getResourceMatcherCache() : null;
+
+			if (matcherCache != null) {
+				this.resourceMatcher = matcherCache.getOrCreate(resource, policyType, serviceDef, serviceDefHelper);
+			} else {
+				this.resourceMatcher = new RangerDefaultPolicyResourceMatcher();
+
+				this.resourceMatcher.setPolicyResources(resource, policyType);
+				this.resourceMatcher.setServiceDef(serviceDef);
+				this.resourceMatcher.setServiceDefHelper(serviceDefHelper);
+				this.resourceMatcher.init();
+			}
 		}
 
 		@Override
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyresourcematcher;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares initialized resource matchers between policy engines that hold policies with identical resources - for
+ * example, engines built with different options for the same version of a service's policies.
+ *
+ * Matchers are keyed by the service-def name and version, the policy type and the policy resources; once initialized,
+ * a matcher is not modified and can be used by any number of evaluators. The cache holds matchers only weakly: a
+ * matcher is dropped once no evaluator refers to it.
+ */
+public class RangerPolicyResourceMatcherCache {
+    private final ConcurrentHashMap<Key, MatcherRef>                 matchers  = new ConcurrentHashMap<>();
+    private final ReferenceQueue<RangerDefaultPolicyResourceMatcher> refQueue  = new ReferenceQueue<>();
+    private final LongAdder                                          hitCount  = new LongAdder();
+    private final LongAdder                                          missCount = new LongAdder();
+
+    public RangerDefaultPolicyResourceMatcher getOrCreate(Map<String, RangerPolicyResource> policyResources, int policyType, RangerServiceDef serviceDef, RangerServiceDefHelper serviceDefHelper) {
+        expungeStaleEntries();
+
+        Key                                key = new Key(serviceDef, policyType, policyResources);
+        MatcherRef                         ref = matchers.get(key);
+        RangerDefaultPolicyResourceMatcher ret = ref != null ? ref.get() : null;
+
+        if (ret == null) {
+            ret = new RangerDefaultPolicyResourceMatcher();
+
+            ret.setPolicyResources(policyResources, policyType);
+            ret.setServiceDef(serviceDef);
+            ret.setServiceDefHelper(serviceDefHelper);
+            ret.init();
+
+            matchers.put(key, new MatcherRef(key, ret, refQueue));
+
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+
+        return ret;
+    }
+
+    public int size() {
+        expungeStaleEntries();
+
+        return matchers.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+
+        ret.put("matcherCount", size());
+        ret.put("hitCount", hitCount.sum());
+        ret.put("missCount", missCount.sum());
+
+        return ret;
+    }
+
+    private void expungeStaleEntries() {
+        for (Object ref = refQueue.poll(); ref != null; ref = refQueue.poll()) {
+            MatcherRef matcherRef = (MatcherRef) ref;
+
+            matchers.remove(matcherRef.key, matcherRef); // the key might since have been mapped to a new matcher
+        }
+    }
+
+    private static final class MatcherRef extends WeakReference<RangerDefaultPolicyResourceMatcher> {
+        final Key key;
+
+        MatcherRef(Key key, RangerDefaultPolicyResourceMatcher matcher, ReferenceQueue<RangerDefaultPolicyResourceMatcher> refQueue) {
+            super(matcher, refQueue);
+
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+        final String                            serviceDefName;
+        final Long                              serviceDefVersion;
+        final int                               policyType;
+        final Map<String, RangerPolicyResource> policyResources;
+        final int                               hashCode;
+
+        Key(RangerServiceDef serviceDef, int policyType, Map<String, RangerPolicyResource> policyResources) {
+            this.serviceDefName    = serviceDef != null ? serviceDef.getName() : null;
+            this.serviceDefVersion = serviceDef != null ? serviceDef.getVersion() : null;
+            this.policyType        = policyType;
+            this.policyResources   = policyResources;
+            this.hashCode          = Objects.hash(serviceDefName, serviceDefVersion, policyType, policyResources);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode && policyType == other.policyType && Objects.equals(serviceDefName, other.serviceDefName) && Objects.equals(serviceDefVersion, other.serviceDefVersion) && Objects.equals(policyResources, other.policyResources);
+        }
+    }
+}
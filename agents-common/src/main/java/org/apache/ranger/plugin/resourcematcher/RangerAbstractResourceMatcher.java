@@ -522,44 +522,68 @@ boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 }
 
 final class CaseSensitiveWildcardMatcher extends ResourceMatcher {
+	private final RangerWildcardPattern pattern;
+
 	CaseSensitiveWildcardMatcher(String value, Map<String, String> options) {
 		super(value, options);
+
+		this.pattern = RangerWildcardPattern.compile(value, false);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		if (getNeedsDynamicEval()) {
+			return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		}
+
+		return pattern.matches(resourceValue);
 	}
 	int getPriority() { return 5 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
 
 
 final class CaseInsensitiveWildcardMatcher extends ResourceMatcher {
+	private final RangerWildcardPattern pattern;
+
 	CaseInsensitiveWildcardMatcher(String value, Map<String, String> options) {
 		super(value, options);
+
+		this.pattern = RangerWildcardPattern.compile(value, true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		if (getNeedsDynamicEval()) {
+			return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		}
+
+		return pattern.matches(resourceValue);
 	}
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
 
 final class QuotedCaseSensitiveWildcardMatcher extends ResourceMatcher {
-	private final String quoteChars;
+	private final String                quoteChars;
+	private final RangerWildcardPattern sensitivePattern;
+	private final RangerWildcardPattern insensitivePattern;
 
 	QuotedCaseSensitiveWildcardMatcher(String value, Map<String, String> options, String quoteChars) {
 		super(value, options);
 
-		this.quoteChars = quoteChars;
+		this.quoteChars         = quoteChars;
+		this.sensitivePattern   = RangerWildcardPattern.compile(value, false);
+		this.insensitivePattern = RangerWildcardPattern.compile(value, true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		IOCase caseSensitivity = startsWithAnyChar(resourceValue, quoteChars) ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
+		boolean isQuoted = startsWithAnyChar(resourceValue, quoteChars);
+
+		if (getNeedsDynamicEval()) {
+			return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), isQuoted ? IOCase.SENSITIVE : IOCase.INSENSITIVE);
+		}
 
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), caseSensitivity);
+		return isQuoted ? sensitivePattern.matches(resourceValue) : insensitivePattern.matches(resourceValue);
 	}
 
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -142,6 +142,41 @@ ResourceMatcher getMatcher(String policyValue) {
 		return ret;
 	}
 
+	static boolean isRecursiveWildCardMatch(String pathToCheck, RangerWildcardPattern wildcardPattern, char pathSeparatorChar) {
+		boolean ret = false;
+
+		if (! StringUtils.isEmpty(pathToCheck)) {
+			final int len                   = pathToCheck.length();
+			boolean   hasRepeatedSeparators = false;
+
+			for (int i = 1; i < len; i++) {
+				if (pathToCheck.charAt(i) == pathSeparatorChar && pathToCheck.charAt(i - 1) == pathSeparatorChar) {
+					hasRepeatedSeparators = true;
+					break;
+				}
+			}
+
+			if (hasRepeatedSeparators) { // prefixes to check differ from substrings of pathToCheck, as repeated separators are collapsed
+				ret = isRecursiveWildCardMatch(pathToCheck, wildcardPattern.getPattern(), pathSeparatorChar, wildcardPattern.isIgnoreCase() ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+			} else {
+				boolean hasElements = false;
+
+				for (int i = 0; i < len && !ret; i++) { // match each prefix of pathToCheck that ends with a path element
+					if (pathToCheck.charAt(i) != pathSeparatorChar && (i + 1 == len || pathToCheck.charAt(i + 1) == pathSeparatorChar)) {
+						hasElements = true;
+						ret         = wildcardPattern.matches(pathToCheck, 0, i + 1);
+					}
+				}
+
+				if (!hasElements) { // pathToCheck consists of only pathSeparatorChar
+					ret = wildcardPattern.matches(pathToCheck);
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, Character pathSeparatorChar, IOCase caseSensitivity) {
 
 		boolean ret = false;
@@ -233,14 +268,14 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		}
 
 		if (needWildcardMatch) { // test?, test*a*, test*a*b, *test*a
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else if (wildcardStartIdx == -1) { // test, testa, testab
 			ret = new StringResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase ? StringUtils::equalsIgnoreCase : StringUtils::equals, optIgnoreCase ? 2 : 1);
 		} else if (wildcardStartIdx == 0) { // *test, **test, *testa, *testab
 			String matchStr = policyValue.substring(wildcardEndIdx + 1);
 			ret = new StringResourceMatcher(matchStr, getOptions(), pathSeparatorChar, optIgnoreCase ? StringUtils::endsWithIgnoreCase : StringUtils::endsWith, optIgnoreCase ? 4 : 3);
 		} else if (wildcardEndIdx != (len - 1)) { // test*a, test*ab
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else { // test*, test**, testa*, testab*
 			String matchStr = policyValue.substring(0, wildcardStartIdx);
 			ret = new StringResourceMatcher(matchStr, getOptions(), pathSeparatorChar, optIgnoreCase ? StringUtils::startsWithIgnoreCase : StringUtils::startsWith, optIgnoreCase ? 4 : 3);
@@ -253,10 +288,6 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		return ret;
 	}
 
-	interface TriFunction<T, U, V, R> {
-		R apply(T t, U u, V v);
-	}
-
 	interface QuadFunction<T, U, V, W, R> {
 		R apply(T t, U u, V v, W w);
 	}
@@ -310,31 +341,41 @@ boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 	}
 
 	static class WildcardResourceMatcher extends PathResourceMatcher {
-		final TriFunction<String, String, IOCase, Boolean> function;
-		final IOCase ioCase;
+		final IOCase                ioCase;
+		final RangerWildcardPattern pattern;
+		final RangerWildcardPattern parentPattern;
 
-		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, TriFunction<String, String, IOCase, Boolean> function, int priority) {
+		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, int priority) {
 			super(value, options, pathSeparatorChar, priority);
-			this.function = function;
-			this.ioCase   = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+
+			int lastLevelSeparatorIndex = value.lastIndexOf(pathSeparatorChar);
+
+			this.ioCase        = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+			this.pattern       = RangerWildcardPattern.compile(value, optIgnoreCase);
+			this.parentPattern = lastLevelSeparatorIndex != -1 ? RangerWildcardPattern.compile(value.substring(0, lastLevelSeparatorIndex), optIgnoreCase) : null;
 		}
 		@Override
 		boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
-			String expandedValue = getExpandedValue(evalContext);
-			boolean ret = function.apply(resourceValue, expandedValue, ioCase);
+			final boolean needsDynamicEval = getNeedsDynamicEval();
+			String expandedValue = needsDynamicEval ? getExpandedValue(evalContext) : value;
+			boolean ret = needsDynamicEval ? FilenameUtils.wildcardMatch(resourceValue, expandedValue, ioCase) : pattern.matches(resourceValue);
 			if (!ret) {
 				RangerAccessRequest.ResourceMatchingScope scope = MapUtils.isNotEmpty(evalContext) ? (RangerAccessRequest.ResourceMatchingScope) evalContext.get(RangerAccessRequest.RANGER_ACCESS_REQUEST_SCOPE_STRING) : null;
 				if (scope == RangerAccessRequest.ResourceMatchingScope.SELF_OR_CHILD) {
 					int lastLevelSeparatorIndex = expandedValue.lastIndexOf(pathSeparatorChar);
 					if (lastLevelSeparatorIndex != -1) {
-						String shorterExpandedValue = expandedValue.substring(0, lastLevelSeparatorIndex);
-						if (resourceValue.charAt(resourceValue.length()-1) == pathSeparatorChar) {
-							resourceValue = resourceValue.substring(0, resourceValue.length()-1);
+						int resourceValueLength = resourceValue.length();
+						if (resourceValue.charAt(resourceValueLength - 1) == pathSeparatorChar) {
+							resourceValueLength--;
+						}
+						if (needsDynamicEval) {
+							ret = FilenameUtils.wildcardMatch(resourceValue.substring(0, resourceValueLength), expandedValue.substring(0, lastLevelSeparatorIndex), ioCase);
+						} else {
+							ret = parentPattern.matches(resourceValue, 0, resourceValueLength);
 						}
-						ret = function.apply(resourceValue, shorterExpandedValue, ioCase);
 					}
 				}
 			}
@@ -348,19 +389,22 @@ boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 	static class RecursiveWildcardResourceMatcher extends PathResourceMatcher {
 		final QuadFunction<String, String, Character, IOCase, Boolean> function;
 		final IOCase ioCase;
+		final RangerWildcardPattern pattern;
 
 		RecursiveWildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, QuadFunction<String, String, Character, IOCase, Boolean> function, int priority) {
 			super(value, options, pathSeparatorChar, priority);
 			this.function = function;
 			this.ioCase   = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+			this.pattern  = RangerWildcardPattern.compile(value, optIgnoreCase);
 		}
 		@Override
 		boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
-			String expandedValue = getExpandedValue(evalContext);
-			boolean ret = function.apply(resourceValue, expandedValue, pathSeparatorChar, ioCase);
+			final boolean needsDynamicEval = getNeedsDynamicEval();
+			String expandedValue = needsDynamicEval ? getExpandedValue(evalContext) : value;
+			boolean ret = needsDynamicEval ? function.apply(resourceValue, expandedValue, pathSeparatorChar, ioCase) : isRecursiveWildCardMatch(resourceValue, pattern, pathSeparatorChar);
 			if (!ret) {
 				RangerAccessRequest.ResourceMatchingScope scope = MapUtils.isNotEmpty(evalContext) ? (RangerAccessRequest.ResourceMatchingScope) evalContext.get(RangerAccessRequest.RANGER_ACCESS_REQUEST_SCOPE_STRING) : null;
 				if (scope == RangerAccessRequest.ResourceMatchingScope.SELF_OR_CHILD) {
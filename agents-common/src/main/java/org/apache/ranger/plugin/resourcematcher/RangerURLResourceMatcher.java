@@ -20,7 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -42,6 +41,9 @@ public class RangerURLResourceMatcher extends RangerDefaultResourceMatcher {
     public static final String OPTION_PATH_SEPARATOR       = "pathSeparatorChar";
     public static final char   DEFAULT_PATH_SEPARATOR_CHAR = org.apache.hadoop.fs.Path.SEPARATOR_CHAR;
 
+    private static final Pattern URL_SCHEME_SEPARATOR         = Pattern.compile(":/{2}");
+    private static final Pattern URL_INVALID_SCHEME_SEPARATOR = Pattern.compile(":/{3,}");
+
     boolean policyIsRecursive;
     char    pathSeparatorChar = DEFAULT_PATH_SEPARATOR_CHAR;
 
@@ -143,6 +145,10 @@ ResourceMatcher getMatcher(String policyValue) {
     }
 
     static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
+        return isRecursiveWildCardMatch(pathToCheck, RangerWildcardPattern.compile(wildcardPath, !caseSensitivity.isCaseSensitive()), pathSeparatorChar);
+    }
+
+    static boolean isRecursiveWildCardMatch(String pathToCheck, RangerWildcardPattern wildcardPattern, char pathSeparatorChar) {
 
         boolean ret = false;
 
@@ -159,7 +165,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                 String[] pathElements = StringUtils.split(path, pathSeparatorChar);
 
                 if (!ArrayUtils.isEmpty(pathElements)) {
-                    StringBuilder sb = new StringBuilder();
+                    StringBuilder sb = new StringBuilder(url.length() + 1);
 
                     sb.append(scheme);
 
@@ -170,7 +176,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                     for (String p : pathElements) {
                         sb.append(p);
 
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPattern.matches(sb);
 
                         if (ret) {
                             break;
@@ -180,16 +186,16 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                     }
 
                     if (!ret) {
-                        boolean isEndsWithPathSeparator = url.endsWith(Character.toString(pathSeparatorChar));
+                        boolean isEndsWithPathSeparator = url.charAt(url.length() - 1) == pathSeparatorChar;
                         if (!isEndsWithPathSeparator) {
                             sb.deleteCharAt(sb.length()-1);
                         }
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPattern.matches(sb);
                     }
 
                     sb = null;
                 } else { // pathToCheck consists of only pathSeparatorChar
-                    ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+                    ret = wildcardPattern.matches(pathToCheck);
                 }
             }
 
@@ -210,11 +216,9 @@ public StringBuilder toString(StringBuilder sb) {
 
     static boolean isPathURLType(String url) {
 
-        Pattern p1 = Pattern.compile(":/{2}");
-        Matcher m1 = p1.matcher(url);
+        Matcher m1 = URL_SCHEME_SEPARATOR.matcher(url);
 
-        Pattern p2 = Pattern.compile(":/{3,}");
-        Matcher m2 = p2.matcher(url);
+        Matcher m2 = URL_INVALID_SCHEME_SEPARATOR.matcher(url);
 
         return (m1.find() && !(m2.find()));
     }
@@ -230,29 +234,41 @@ static String getPathWithOutScheme(String url) {
 }
 
 final class CaseSensitiveURLRecursiveWildcardMatcher extends ResourceMatcher {
-    private final char levelSeparatorChar;
+    private final char                  levelSeparatorChar;
+    private final RangerWildcardPattern pattern;
     CaseSensitiveURLRecursiveWildcardMatcher(String value, Map<String, String> options, char levelSeparatorChar) {
         super(value, options);
         this.levelSeparatorChar = levelSeparatorChar;
+        this.pattern            = RangerWildcardPattern.compile(value, false);
     }
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+        if (getNeedsDynamicEval()) {
+            return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+        }
+
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, pattern, levelSeparatorChar);
     }
     int getPriority() { return 7 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 }
 
 final class CaseInsensitiveURLRecursiveWildcardMatcher extends ResourceMatcher {
-    private final char levelSeparatorChar;
+    private final char                  levelSeparatorChar;
+    private final RangerWildcardPattern pattern;
     CaseInsensitiveURLRecursiveWildcardMatcher(String value, Map<String, String> options, char levelSeparatorChar) {
         super(value, options);
         this.levelSeparatorChar = levelSeparatorChar;
+        this.pattern            = RangerWildcardPattern.compile(value, true);
     }
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+        if (getNeedsDynamicEval()) {
+            return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+        }
+
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, pattern, levelSeparatorChar);
     }
     int getPriority() { return 8 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 
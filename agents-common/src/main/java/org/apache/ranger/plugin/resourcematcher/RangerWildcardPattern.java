@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wildcard pattern, with '*' and '?', compiled into a match plan: a literal prefix, a literal suffix and the literal
+ * segments in between, which are located left to right. '?' within a literal matches any single character.
+ *
+ * Results are the same as FilenameUtils.wildcardMatch(str, pattern, ioCase); however, the pattern is parsed only once
+ * and matching does not allocate. FilenameUtils.wildcardMatch() treats '?' that follows a '*' as if the '*' wasn't
+ * present (for example, "a*?" matches only 2 character values); to retain this behavior, such patterns are matched
+ * using FilenameUtils.wildcardMatch().
+ */
+public final class RangerWildcardPattern {
+    private static final char WILDCARD_ANY_CHARS = '*';
+    private static final char WILDCARD_ONE_CHAR  = '?';
+
+    private final String    pattern;
+    private final boolean   ignoreCase;
+    private final boolean   hasAnyChars;
+    private final boolean   useFilenameUtils;
+    private final Segment   prefix;
+    private final Segment   suffix;
+    private final Segment[] middle;
+    private final int       minLength;
+
+    private RangerWildcardPattern(String pattern, boolean ignoreCase) {
+        List<Segment> segments    = new ArrayList<>();
+        int           segStartIdx = 0;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == WILDCARD_ANY_CHARS) {
+                segments.add(new Segment(pattern.substring(segStartIdx, i)));
+
+                segStartIdx = i + 1;
+            }
+        }
+
+        segments.add(new Segment(pattern.substring(segStartIdx)));
+
+        int minLength = 0;
+
+        for (Segment segment : segments) {
+            minLength += segment.length;
+        }
+
+        this.pattern          = pattern;
+        this.ignoreCase       = ignoreCase;
+        this.hasAnyChars      = segments.size() > 1;
+        this.useFilenameUtils = hasAnyCharsFollowedByOneChar(pattern);
+        this.prefix           = segments.get(0);
+        this.suffix           = segments.get(segments.size() - 1);
+        this.middle           = hasAnyChars ? segments.subList(1, segments.size() - 1).stream().filter(s -> s.length > 0).toArray(Segment[]::new) : new Segment[0];
+        this.minLength        = minLength;
+    }
+
+    public static RangerWildcardPattern compile(String pattern, boolean ignoreCase) {
+        return pattern != null ? new RangerWildcardPattern(pattern, ignoreCase) : null;
+    }
+
+    public String getPattern() { return pattern; }
+
+    public boolean isIgnoreCase() { return ignoreCase; }
+
+    public boolean matches(CharSequence str) {
+        return str != null && matches(str, 0, str.length());
+    }
+
+    /**
+     * @return true if str.subSequence(fromIdx, toIdx) matches this pattern
+     */
+    public boolean matches(CharSequence str, int fromIdx, int toIdx) {
+        if (str == null) {
+            return false;
+        }
+
+        if (useFilenameUtils) {
+            return FilenameUtils.wildcardMatch(str.subSequence(fromIdx, toIdx).toString(), pattern, ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+        }
+
+        final int len = toIdx - fromIdx;
+
+        if (!hasAnyChars) {
+            return len == prefix.length && prefix.matchesAt(str, fromIdx, ignoreCase);
+        }
+
+        if (len < minLength || !prefix.matchesAt(str, fromIdx, ignoreCase)) {
+            return false;
+        }
+
+        final int suffixIdx = toIdx - suffix.length;
+
+        if (!suffix.matchesAt(str, suffixIdx, ignoreCase)) {
+            return false;
+        }
+
+        int idx = fromIdx + prefix.length;
+
+        for (Segment segment : middle) {
+            int segIdx = segment.indexIn(str, idx, suffixIdx, ignoreCase);
+
+            if (segIdx == -1) {
+                return false;
+            }
+
+            idx = segIdx + segment.length;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerWildcardPattern(pattern=" + pattern + ", ignoreCase=" + ignoreCase + ")";
+    }
+
+    private static boolean hasAnyCharsFollowedByOneChar(String pattern) {
+        for (int i = 1; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == WILDCARD_ONE_CHAR && pattern.charAt(i - 1) == WILDCARD_ANY_CHARS) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Segment {
+        final String  value;
+        final int     length;
+        final boolean hasOneChar;
+
+        Segment(String value) {
+            this.value      = value;
+            this.length     = value.length();
+            this.hasOneChar = value.indexOf(WILDCARD_ONE_CHAR) != -1;
+        }
+
+        boolean matchesAt(CharSequence str, int idx, boolean ignoreCase) {
+            for (int i = 0; i < length; i++) {
+                char p = value.charAt(i);
+
+                if (p != WILDCARD_ONE_CHAR && !charEquals(str.charAt(idx + i), p, ignoreCase)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // index of the first match of this segment in str, that ends on or before toIdx; -1 if not found
+        int indexIn(CharSequence str, int fromIdx, int toIdx, boolean ignoreCase) {
+            final int lastIdx = toIdx - length;
+
+            if (!ignoreCase && !hasOneChar && str instanceof String) {
+                int ret = ((String) str).indexOf(value, fromIdx);
+
+                return ret <= lastIdx ? ret : -1;
+            }
+
+            for (int i = fromIdx; i <= lastIdx; i++) {
+                if (matchesAt(str, i, ignoreCase)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        // same comparison as String.regionMatches(ignoreCase=true, ...), which is used by IOCase.INSENSITIVE
+        private static boolean charEquals(char c1, char c2, boolean ignoreCase) {
+            if (c1 == c2) {
+                return true;
+            }
+
+            if (ignoreCase) {
+                char u1 = Character.toUpperCase(c1);
+                char u2 = Character.toUpperCase(c2);
+
+                return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+            }
+
+            return false;
+        }
+    }
+}
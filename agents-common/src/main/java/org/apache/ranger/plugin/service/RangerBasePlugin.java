@@ -20,6 +20,8 @@
 package org.apache.ranger.plugin.service;
 
 import java.util.*;
+import java.util.function.Supplier;
+
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -36,12 +38,15 @@
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.model.RangerMetrics;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerRole;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestPool;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResultCache;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
@@ -71,7 +76,11 @@ public class RangerBasePlugin {
 	private       RangerRoles                 roles;
 	private final List<RangerChainedPlugin>   chainedPlugins;
 	private final boolean                     enableImplicitUserStoreEnricher;
+	private final RangerAccessRequestPool<RangerAccessRequestImpl> accessRequestPool;
 	private       boolean                     isUserStoreEnricherAddedImplcitly = false;
+	private volatile boolean                  isFirstAuthorizationPending       = false;
+	private          long                     initStartTimeMs                   = -1;
+	private volatile long                     timeToFirstAuthorizationMs        = -1;
 
 
 	public RangerBasePlugin(String serviceType, String appId) {
@@ -103,6 +112,8 @@ public RangerBasePlugin(RangerPluginConfig pluginConfig) {
 		this.enableImplicitUserStoreEnricher = pluginConfig.getBoolean(pluginConfig.getPropertyPrefix() + ".enable.implicit.userstore.enricher", false);
 
 		this.chainedPlugins = initChainedPlugins();
+
+		this.accessRequestPool = createAccessRequestPool(() -> new RangerAccessRequestImpl(new RangerAccessResourceImpl(), null, null, null, null));
 	}
 
 	public RangerBasePlugin(RangerPluginConfig pluginConfig, ServicePolicies policies, ServiceTags tags, RangerRoles roles) {
@@ -225,6 +236,10 @@ public String getServiceName() {
 	public void init() {
 		cleanup();
 
+		initStartTimeMs             = System.currentTimeMillis();
+		timeToFirstAuthorizationMs  = -1;
+		isFirstAuthorizationPending = true;
+
 		AuditProviderFactory providerFactory = AuditProviderFactory.getInstance();
 
 		if (!providerFactory.isInitDone()) {
@@ -276,6 +291,41 @@ public long getUserStoreVersion() {
 		return ret != null ? ret : -1L;
 	}
 
+	/**
+	 * @return time taken, in milliseconds, from start of init() to the first authorization with policies; -1 if no authorization has been done yet
+	 */
+	public long getTimeToFirstAuthorizationMs() {
+		return timeToFirstAuthorizationMs;
+	}
+
+	/**
+	 * @return a request, with a RangerAccessResourceImpl as resource, to be released after the caller is done with the
+	 * request and its results; from a per-thread pool when <prefix>.access.request.pool.size is positive
+	 */
+	public RangerAccessRequestImpl acquireAccessRequest() {
+		return accessRequestPool.acquire();
+	}
+
+	public void releaseAccessRequest(RangerAccessRequestImpl request) {
+		accessRequestPool.release(request);
+	}
+
+	/**
+	 * Creates a pool for plugin-specific request types, sized by <prefix>.access.request.pool.size; the pool is
+	 * disabled by default, in which case acquire() always returns a new request.
+	 */
+	public <T extends RangerAccessRequestImpl> RangerAccessRequestPool<T> createAccessRequestPool(Supplier<T> factory) {
+		int maxPooledPerThread = pluginConfig.getInt(pluginConfig.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_ACCESS_REQUEST_POOL_SIZE, RangerCommonConstants.ACCESS_REQUEST_POOL_SIZE_DEFAULT);
+
+		return new RangerAccessRequestPool<>(factory, maxPooledPerThread);
+	}
+
+	public RangerMetrics getAccessResultCacheMetrics() {
+		RangerAccessResultCache accessResultCache = pluginContext.getAccessResultCache();
+
+		return accessResultCache != null ? accessResultCache.getMetrics() : null;
+	}
+
 	public void setPolicies(ServicePolicies policies) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> setPolicies(" + policies + ")");
@@ -447,6 +497,8 @@ public void cleanup() {
 		if (policyEngine != null) {
 			((RangerPolicyEngineImpl) policyEngine).releaseResources(true);
 		}
+
+		pluginContext.cleanup();
 	}
 
 	public void setResultProcessor(RangerAccessResultProcessor resultProcessor) {
@@ -471,6 +523,10 @@ public RangerAccessResult isAccessAllowed(RangerAccessRequest request, RangerAcc
 
 		if (policyEngine != null) {
 			ret = policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+			if (isFirstAuthorizationPending) {
+				recordFirstAuthorization(policyEngine);
+			}
 		}
 
 		if (ret != null) {
@@ -511,6 +567,10 @@ public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessReq
 
 		if (policyEngine != null) {
 			ret = policyEngine.evaluatePolicies(requests, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+			if (isFirstAuthorizationPending) {
+				recordFirstAuthorization(policyEngine);
+			}
 		}
 
 		if (CollectionUtils.isNotEmpty(ret)) {
@@ -1172,6 +1232,15 @@ private List<RangerChainedPlugin> initChainedPlugins() {
 		return ret;
 	}
 
+	private synchronized void recordFirstAuthorization(RangerPolicyEngine policyEngine) {
+		if (isFirstAuthorizationPending) {
+			isFirstAuthorizationPending = false;
+			timeToFirstAuthorizationMs  = System.currentTimeMillis() - initStartTimeMs;
+
+			LOG.info("RangerBasePlugin(serviceName=" + getServiceName() + "): time to first authorization=" + timeToFirstAuthorizationMs + "ms, policyVersion=" + policyEngine.getPolicyVersion());
+		}
+	}
+
 	private void updateResultFromChainedResult(RangerAccessResult result, RangerAccessResult chainedResult) {
 		boolean overrideResult = false;
 		int     policyType     = result.getPolicyType();
@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inverted indexes over the policies of a service, to find policies matching search criteria without evaluating
+ * predicates on every policy. Indexed criteria: user, group, role, policy-label (partial), policy-name, resource-value
+ * (polResource) and zone-name. These match exactly as the corresponding predicates in AbstractPredicateUtil: for
+ * partial-match criteria, the distinct indexed values - far fewer than policies - are compared with the search value.
+ * Other criteria are to be applied by predicates on the policies returned by search().
+ *
+ * An index is built for a list of policies and can be updated with policy-deltas, along with the list the deltas are
+ * applied to by RangerPolicyDeltaUtil.applyDeltas(). search() returns null when the given list is not the one the
+ * index is for, so that callers fall back to predicates.
+ */
+public class RangerPolicySearchIndex {
+	private static final Logger LOG      = LoggerFactory.getLogger(RangerPolicySearchIndex.class);
+	private static final Logger PERF_LOG = RangerPerfTracer.getPerfLogger("policy.search.index");
+
+	private static final String[] INDEXED_PARAMS = { SearchFilter.USER, SearchFilter.GROUP, SearchFilter.ROLE, SearchFilter.POLICY_LABELS_PARTIAL, SearchFilter.POLICY_NAME, SearchFilter.POL_RESOURCE, SearchFilter.ZONE_NAME };
+
+	private final ReadWriteLock                   lock           = new ReentrantReadWriteLock();
+	private final Map<Long, IndexedPolicy>        policiesById   = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> users          = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> groups         = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> roles          = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> labels         = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> names          = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> resourceValues = new HashMap<>();
+	private final Map<String, Set<IndexedPolicy>> zones          = new HashMap<>();
+	private       List<RangerPolicy>              policies;
+	private       boolean                         isOrderedById;
+
+	public RangerPolicySearchIndex(List<RangerPolicy> policies) {
+		RangerPerfTracer perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "RangerPolicySearchIndex.init(policyCount=" + (policies == null ? 0 : policies.size()) + ")");
+		}
+
+		this.policies      = policies;
+		this.isOrderedById = true;
+
+		if (policies != null) {
+			Long prevId = null;
+
+			for (RangerPolicy policy : policies) {
+				if (policy.getId() == null || policiesById.containsKey(policy.getId())) {
+					LOG.warn("RangerPolicySearchIndex: policy with null or duplicate id - " + policy.getId() + ". Index will not be used");
+
+					this.policies = null;
+
+					break;
+				}
+
+				if (prevId != null && prevId > policy.getId()) {
+					isOrderedById = false;
+				}
+
+				addPolicy(policy, policiesById.size());
+
+				prevId = policy.getId();
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+	}
+
+	public static boolean hasIndexedParams(SearchFilter filter) {
+		if (filter != null) {
+			for (String param : INDEXED_PARAMS) {
+				if (StringUtils.isNotEmpty(filter.getParam(param))) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	public static void removeIndexedParams(SearchFilter filter) {
+		for (String param : INDEXED_PARAMS) {
+			filter.removeParam(param);
+		}
+	}
+
+	/**
+	 * @return true if the index is for the given list of policies, hence can be used to search it
+	 */
+	public boolean isFor(List<RangerPolicy> policies) {
+		lock.readLock().lock();
+
+		try {
+			return this.policies != null && this.policies == policies;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getPolicyCount() {
+		lock.readLock().lock();
+
+		try {
+			return policiesById.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param policies list of policies to search; must be the list the index is for
+	 * @param filter   search criteria; only the indexed ones are used
+	 * @return policies matching the indexed criteria in the filter, in the order of the given list; null if the index
+	 *         is not for the given list or filter has no indexed criteria
+	 */
+	public List<RangerPolicy> search(List<RangerPolicy> policies, SearchFilter filter) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicySearchIndex.search(" + filter + ")");
+		}
+
+		List<RangerPolicy> ret  = null;
+		RangerPerfTracer   perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "RangerPolicySearchIndex.search(filter=" + filter + ")");
+		}
+
+		lock.readLock().lock();
+
+		try {
+			if (this.policies != null && this.policies == policies && hasIndexedParams(filter)) {
+				List<Collection<IndexedPolicy>> matches = new ArrayList<>();
+
+				matches.add(findPartialMatches(users, filter.getParam(SearchFilter.USER)));
+				matches.add(findPartialMatches(groups, filter.getParam(SearchFilter.GROUP)));
+				matches.add(findPartialMatches(roles, filter.getParam(SearchFilter.ROLE)));
+				matches.add(findPartialMatches(labels, filter.getParam(SearchFilter.POLICY_LABELS_PARTIAL)));
+				matches.add(findPartialMatches(resourceValues, filter.getParam(SearchFilter.POL_RESOURCE)));
+				matches.add(findExactMatches(names, filter.getParam(SearchFilter.POLICY_NAME)));
+				matches.add(findExactMatches(zones, filter.getParam(SearchFilter.ZONE_NAME)));
+
+				matches.removeIf(Objects::isNull); // criteria not in the filter
+
+				matches.sort(Comparator.comparingInt(Collection::size));
+
+				List<IndexedPolicy> result = new ArrayList<>(matches.get(0));
+
+				for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+					result.retainAll(matches.get(i));
+				}
+
+				result.sort(isOrderedById ? IndexedPolicy.ID_COMPARATOR : IndexedPolicy.ORDINAL_COMPARATOR);
+
+				ret = new ArrayList<>(result.size());
+
+				for (IndexedPolicy indexedPolicy : result) {
+					ret.add(indexedPolicy.policy);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicySearchIndex.search(" + filter + "): ret=" + (ret == null ? null : ret.size()));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Updates the index with deltas applied to the list of policies the index is for
+	 *
+	 * @param newPolicies list of policies after deltas are applied, by RangerPolicyDeltaUtil.applyDeltas()
+	 * @param deltas      policy deltas
+	 * @param serviceType type of the service; deltas of other service types are ignored, as in applyDeltas()
+	 */
+	public void update(List<RangerPolicy> newPolicies, List<RangerPolicyDelta> deltas, String serviceType) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicySearchIndex.update(deltaCount=" + (deltas == null ? 0 : deltas.size()) + ", serviceType=" + serviceType + ")");
+		}
+
+		lock.writeLock().lock();
+
+		try {
+			if (this.policies != null) {
+				boolean isValid    = true;
+				boolean isModified = false;
+
+				if (CollectionUtils.isNotEmpty(deltas)) {
+					for (RangerPolicyDelta delta : deltas) {
+						Integer changeType = delta.getChangeType();
+						Long    policyId   = delta.getPolicyId();
+
+						if (!StringUtils.equals(serviceType, delta.getServiceType()) || policyId == null || changeType == null) {
+							continue;
+						}
+
+						if (changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+							isValid = !policiesById.containsKey(policyId);
+						} else if (changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE || changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+							isValid = removePolicy(policyId);
+						} else {
+							continue;
+						}
+
+						if (isValid && changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+							isValid = delta.getPolicy() != null && policyId.equals(delta.getPolicy().getId());
+
+							if (isValid) {
+								addPolicy(delta.getPolicy(), policiesById.size());
+							}
+						}
+
+						if (!isValid) {
+							LOG.warn("RangerPolicySearchIndex.update(): unexpected delta " + delta + ". Index will not be used until rebuilt");
+
+							break;
+						}
+
+						isModified = true;
+					}
+				}
+
+				if (isValid && (newPolicies == null ? 0 : newPolicies.size()) != policiesById.size()) {
+					LOG.warn("RangerPolicySearchIndex.update(): policy count mismatch - indexed=" + policiesById.size() + ", actual=" + (newPolicies == null ? 0 : newPolicies.size()) + ". Index will not be used until rebuilt");
+
+					isValid = false;
+				}
+
+				this.policies = isValid ? newPolicies : null;
+
+				if (isModified) {
+					isOrderedById = true; // applyDeltas() sorts the updated list by policy-id
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicySearchIndex.update(deltaCount=" + (deltas == null ? 0 : deltas.size()) + ", serviceType=" + serviceType + "): policyCount=" + policiesById.size());
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.readLock().lock();
+
+		try {
+			return "RangerPolicySearchIndex={policyCount=" + policiesById.size() + ", users=" + users.size() + ", groups=" + groups.size() + ", roles=" + roles.size()
+			       + ", labels=" + labels.size() + ", names=" + names.size() + ", resourceValues=" + resourceValues.size() + ", zones=" + zones.size() + "}";
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void addPolicy(RangerPolicy policy, long ordinal) {
+		IndexedPolicy indexedPolicy = new IndexedPolicy(policy, ordinal);
+
+		policiesById.put(policy.getId(), indexedPolicy);
+
+		updateIndexes(indexedPolicy, true);
+	}
+
+	private boolean removePolicy(Long policyId) {
+		IndexedPolicy indexedPolicy = policiesById.remove(policyId);
+
+		if (indexedPolicy != null) {
+			updateIndexes(indexedPolicy, false);
+		}
+
+		return indexedPolicy != null;
+	}
+
+	private void updateIndexes(IndexedPolicy indexedPolicy, boolean isAdd) {
+		RangerPolicy policy = indexedPolicy.policy;
+		PolicyValues values = new PolicyValues(policy);
+
+		updateIndex(users, values.users, indexedPolicy, isAdd);
+		updateIndex(groups, values.groups, indexedPolicy, isAdd);
+		updateIndex(roles, values.roles, indexedPolicy, isAdd);
+		updateIndex(resourceValues, values.resourceValues, indexedPolicy, isAdd);
+		updateIndex(labels, policy.getPolicyLabels(), indexedPolicy, isAdd);
+		updateIndex(names, Collections.singleton(policy.getName()), indexedPolicy, isAdd);
+		updateIndex(zones, Collections.singleton(policy.getZoneName()), indexedPolicy, isAdd);
+	}
+
+	private static void updateIndex(Map<String, Set<IndexedPolicy>> index, Collection<String> values, IndexedPolicy policy, boolean isAdd) {
+		if (values != null) {
+			for (String value : values) {
+				if (value == null) {
+					continue;
+				}
+
+				if (isAdd) {
+					index.computeIfAbsent(value, k -> new HashSet<>()).add(policy);
+				} else {
+					Set<IndexedPolicy> policies = index.get(value);
+
+					if (policies != null) {
+						policies.remove(policy);
+
+						if (policies.isEmpty()) {
+							index.remove(value);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// same as StringUtils.containsIgnoreCase() used by predicates, applied to each distinct value
+	private static Collection<IndexedPolicy> findPartialMatches(Map<String, Set<IndexedPolicy>> index, String value) {
+		if (StringUtils.isEmpty(value)) {
+			return null;
+		}
+
+		Set<IndexedPolicy> ret = new HashSet<>();
+
+		for (Map.Entry<String, Set<IndexedPolicy>> entry : index.entrySet()) {
+			if (StringUtils.containsIgnoreCase(entry.getKey(), value)) {
+				ret.addAll(entry.getValue());
+			}
+		}
+
+		return ret;
+	}
+
+	private static Collection<IndexedPolicy> findExactMatches(Map<String, Set<IndexedPolicy>> index, String value) {
+		if (StringUtils.isEmpty(value)) {
+			return null;
+		}
+
+		Set<IndexedPolicy> ret = index.get(value);
+
+		return ret != null ? ret : Collections.emptySet();
+	}
+
+	private static class IndexedPolicy {
+		static final Comparator<IndexedPolicy> ID_COMPARATOR      = Comparator.comparing(p -> p.policy.getId());
+		static final Comparator<IndexedPolicy> ORDINAL_COMPARATOR = Comparator.comparingLong(p -> p.ordinal);
+
+		final RangerPolicy policy;
+		final long         ordinal;
+
+		IndexedPolicy(RangerPolicy policy, long ordinal) {
+			this.policy  = policy;
+			this.ordinal = ordinal;
+		}
+	}
+
+	// distinct values of a policy that are indexed; computed again to remove the policy from indexes, to avoid retaining these
+	private static class PolicyValues {
+		final Set<String> users          = new HashSet<>();
+		final Set<String> groups         = new HashSet<>();
+		final Set<String> roles          = new HashSet<>();
+		final Set<String> resourceValues = new HashSet<>();
+
+		PolicyValues(RangerPolicy policy) {
+			collectPrincipals(policy.getPolicyItems());
+			collectPrincipals(policy.getDenyPolicyItems());
+			collectPrincipals(policy.getAllowExceptions());
+			collectPrincipals(policy.getDenyExceptions());
+			collectPrincipals(policy.getDataMaskPolicyItems());
+			collectPrincipals(policy.getRowFilterPolicyItems());
+
+			if (policy.getResources() != null) {
+				for (RangerPolicyResource resource : policy.getResources().values()) {
+					if (resource != null && resource.getValues() != null) {
+						resourceValues.addAll(resource.getValues());
+					}
+				}
+			}
+		}
+
+		private void collectPrincipals(List<? extends RangerPolicyItem> policyItems) {
+			if (policyItems != null) {
+				for (RangerPolicyItem policyItem : policyItems) {
+					if (policyItem.getUsers() != null) {
+						users.addAll(policyItem.getUsers());
+					}
+
+					if (policyItem.getGroups() != null) {
+						groups.addAll(policyItem.getGroups());
+					}
+
+					if (policyItem.getRoles() != null) {
+						roles.addAll(policyItem.getRoles());
+					}
+				}
+			}
+		}
+	}
+}
@@ -30,6 +30,7 @@
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.admin.client.RangerAdminRESTClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
@@ -51,11 +52,15 @@ public class PolicyRefresher extends Thread {
 	private final RangerAdminClient              rangerAdmin;
 	private final RangerRolesProvider            rolesProvider;
 	private final long                           pollingIntervalMs;
+	private final boolean                        isVersionWatchEnabled;
+	private final long                           versionWatchTimeoutMs;
 	private final String                         cacheFileName;
 	private final String                         cacheDir;
 	private final Gson                           gson;
+	private final boolean                        useBinaryCache;
 	private final BlockingQueue<DownloadTrigger> policyDownloadQueue = new LinkedBlockingQueue<>();
 	private       Timer                          policyDownloadTimer;
+	private       RangerServiceVersionWatcher    serviceVersionWatcher;
 	private       long                           lastKnownVersion    = -1L;
 	private       long                           lastActivationTimeInMillis;
 	private       boolean                        policiesSetInPlugin;
@@ -81,7 +86,8 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
 		cacheFilename = cacheFilename.replace(File.separatorChar,  '_');
 		cacheFilename = cacheFilename.replace(File.pathSeparatorChar,  '_');
 
-		this.cacheFileName = cacheFilename;
+		this.cacheFileName  = cacheFilename;
+		this.useBinaryCache = StringUtils.equalsIgnoreCase(pluginConfig.get(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.POLICY_CACHE_FORMAT_DEFAULT), RangerCommonConstants.POLICY_CACHE_FORMAT_BINARY);
 
 		Gson gson = null;
 		try {
@@ -96,6 +102,8 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
 		this.gson                          = gson;
 		this.rolesProvider                 = new RangerRolesProvider(getServiceType(), appId, getServiceName(), rangerAdmin,  cacheDir, pluginConfig);
 		this.pollingIntervalMs             = pluginConfig.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000);
+		this.isVersionWatchEnabled         = pluginConfig.getBoolean(propertyPrefix + ".policy.notification.enabled", false);
+		this.versionWatchTimeoutMs         = pluginConfig.getLong(propertyPrefix + ".policy.notification.wait.timeoutMs", 15 * 1000);
 
 		setName("PolicyRefresher(serviceName=" + serviceName + ")-" + getId());
 
@@ -161,18 +169,40 @@ public void startRefresher() {
 			policyDownloadTimer = null;
 		}
 
+		if (rangerAdmin instanceof RangerAdminRESTClient) {
+			// download right away when a bulk download, by plugin of another service, receives updates for this service
+			((RangerAdminRESTClient) rangerAdmin).setBulkDownloadListener(() -> policyDownloadQueue.offer(new DownloadTrigger()));
+		}
+
+		if (isVersionWatchEnabled) {
+			serviceVersionWatcher = new RangerServiceVersionWatcher(plugIn, this, versionWatchTimeoutMs, pollingIntervalMs);
+
+			serviceVersionWatcher.start();
+
+			LOG.info("Started " + serviceVersionWatcher.getName() + " to download policies and tags as soon as they change in Ranger Admin");
+		}
 	}
 
 	public void stopRefresher() {
 
-		Timer policyDownloadTimer = this.policyDownloadTimer;
+		Timer                       policyDownloadTimer   = this.policyDownloadTimer;
+		RangerServiceVersionWatcher serviceVersionWatcher = this.serviceVersionWatcher;
 
-		this.policyDownloadTimer = null;
+		this.policyDownloadTimer   = null;
+		this.serviceVersionWatcher = null;
+
+		if (rangerAdmin instanceof RangerAdminRESTClient) {
+			((RangerAdminRESTClient) rangerAdmin).stopBulkDownload();
+		}
 
 		if (policyDownloadTimer != null) {
 			policyDownloadTimer.cancel();
 		}
 
+		if (serviceVersionWatcher != null) {
+			serviceVersionWatcher.stopWatcher();
+		}
+
 		if (super.isAlive()) {
 			super.interrupt();
 
@@ -353,7 +383,13 @@ private ServicePolicies loadFromCache() {
 
 		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
-    	if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+		if (useBinaryCache && cacheFile != null) {
+			policies = loadFromBinaryCache(RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+		}
+
+		if (policies != null) {
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): loaded policies from binary cache file. version=" + lastKnownVersion);
+		} else if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
     		Reader reader = null;
 
     		RangerPerfTracer perf = null;
@@ -399,7 +435,43 @@ private ServicePolicies loadFromCache() {
 
 		return policies;
 	}
-	
+
+	private ServicePolicies loadFromBinaryCache(File cacheFile) {
+		ServicePolicies policies = null;
+
+		if (cacheFile.isFile() && cacheFile.canRead()) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadFromBinaryCache(serviceName=" + serviceName + ")");
+			}
+
+			try {
+				policies = RangerBinaryCacheFile.readServicePolicies(cacheFile);
+
+				if (policies != null) {
+					if (!StringUtils.equals(serviceName, policies.getServiceName())) {
+						LOG.warn("ignoring unexpected serviceName '" + policies.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
+
+						policies.setServiceName(serviceName);
+					}
+
+					lastKnownVersion = policies.getPolicyVersion() == null ? -1 : policies.getPolicyVersion().longValue();
+				}
+			} catch (Exception excp) {
+				LOG.error("failed to load policies from binary cache file " + cacheFile.getAbsolutePath() + ". Will try JSON cache file", excp);
+
+				policies = null;
+			} finally {
+				RangerPerfTracer.log(perf);
+			}
+		} else if (LOG.isDebugEnabled()) {
+			LOG.debug("binary cache file does not exist or not readable '" + cacheFile.getAbsolutePath() + "'");
+		}
+
+		return policies;
+	}
+
 	public void saveToCache(ServicePolicies policies) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher(serviceName=" + serviceName + ").saveToCache()");
@@ -433,9 +505,13 @@ public void saveToCache(ServicePolicies policies) {
 				Writer writer = null;
 	
 				try {
-					writer = new FileWriter(cacheFile);
-	
-			        gson.toJson(policies, writer);
+					if (useBinaryCache) {
+						RangerBinaryCacheFile.writeServicePolicies(policies, RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+					} else {
+						writer = new FileWriter(cacheFile);
+
+						gson.toJson(policies, writer);
+					}
 		        } catch (Exception excp) {
 		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
@@ -465,7 +541,18 @@ private void disableCache() {
 			LOG.debug("==> PolicyRefresher.disableCache(serviceName=" + serviceName + ")");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile       = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File binaryCacheFile = cacheFile == null ? null : RangerBinaryCacheFile.getBinaryCacheFile(cacheFile);
+
+		if (binaryCacheFile != null && binaryCacheFile.isFile()) {
+			String renamedCacheFile = binaryCacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
+
+			if (!binaryCacheFile.renameTo(new File(renamedCacheFile))) {
+				LOG.error("Failed to move " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+			} else {
+				LOG.warn("Moved " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+			}
+		}
 
 		if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 			LOG.warn("Cleaning up local cache");
@@ -0,0 +1,1202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary format for policies, roles and tags saved by plugins in the policy cache directory. Compared to JSON, the
+ * file is smaller and much faster to load: each distinct string is stored only once, and large collections like
+ * policies are stored as individual records, which are decoded lazily from a memory-mapped buffer.
+ *
+ * Layout of the file:
+ *   header  : magic (int), format version (int), CRC32 of rest of the file (long)
+ *   strings : count (varint), followed by length (varint) and UTF-8 bytes of each string
+ *   sections: count (varint), followed by name (string-id), type (byte) and contents of each section
+ *             - object : length (int), value
+ *             - records: count (int), offset of each record (int), length of records (int), records
+ *
+ * Values are encoded from Gson JSON trees, hence the binary file contains the same data as the JSON cache file.
+ * Files are written to a temporary file first and then moved in place, so that readers never see partial content.
+ */
+public class RangerBinaryCacheFile {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerBinaryCacheFile.class);
+
+    public static final String FILE_EXTENSION = ".bin";
+
+    static final int MAGIC          = 0x52414e43; // "RANC"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_LENGTH  = 16;
+
+    private static final byte SECTION_OBJECT  = 1;
+    private static final byte SECTION_RECORDS = 2;
+
+    private static final byte TYPE_NULL   = 0;
+    private static final byte TYPE_TRUE   = 1;
+    private static final byte TYPE_FALSE  = 2;
+    private static final byte TYPE_LONG   = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_NUMBER = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_ARRAY  = 7;
+    private static final byte TYPE_OBJECT = 8;
+
+    private static final String SECTION_HEADER            = "header";
+    private static final String SECTION_POLICIES          = "policies";
+    private static final String SECTION_TAG_POLICIES      = "tagPolicies.policies";
+    private static final String SECTION_POLICY_DELTAS     = "policyDeltas";
+    private static final String SECTION_ROLES             = "rangerRoles";
+    private static final String SECTION_TAG_IDS           = "tagIds";
+    private static final String SECTION_TAGS              = "tags";
+    private static final String SECTION_SERVICE_RESOURCES = "serviceResources";
+
+    private static final Gson GSON = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").registerTypeAdapterFactory(new BinaryMapTypeAdapterFactory()).create();
+
+    private RangerBinaryCacheFile() {
+        // to block instantiation
+    }
+
+    /**
+     * @param jsonCacheFile JSON cache file
+     * @return binary cache file to be used in place of the given JSON cache file
+     */
+    public static File getBinaryCacheFile(File jsonCacheFile) {
+        String name = jsonCacheFile.getName();
+
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - ".json".length());
+        }
+
+        return new File(jsonCacheFile.getParentFile(), name + FILE_EXTENSION);
+    }
+
+    public static void writeServicePolicies(ServicePolicies policies, File file) throws IOException {
+        ServicePolicies header = new ServicePolicies();
+
+        header.setServiceName(policies.getServiceName());
+        header.setServiceId(policies.getServiceId());
+        header.setPolicyVersion(policies.getPolicyVersion());
+        header.setPolicyUpdateTime(policies.getPolicyUpdateTime());
+        header.setServiceDef(policies.getServiceDef());
+        header.setAuditMode(policies.getAuditMode());
+        header.setSecurityZones(policies.getSecurityZones());
+        header.setServiceConfig(policies.getServiceConfig());
+        header.setPolicies(null);
+        header.setPolicyDeltas(null);
+
+        if (policies.getTagPolicies() != null) {
+            ServicePolicies.TagPolicies tagPolicies = policies.getTagPolicies();
+            ServicePolicies.TagPolicies tagHeader   = new ServicePolicies.TagPolicies();
+
+            tagHeader.setServiceName(tagPolicies.getServiceName());
+            tagHeader.setServiceId(tagPolicies.getServiceId());
+            tagHeader.setPolicyVersion(tagPolicies.getPolicyVersion());
+            tagHeader.setPolicyUpdateTime(tagPolicies.getPolicyUpdateTime());
+            tagHeader.setServiceDef(tagPolicies.getServiceDef());
+            tagHeader.setAuditMode(tagPolicies.getAuditMode());
+            tagHeader.setServiceConfig(tagPolicies.getServiceConfig());
+            tagHeader.setPolicies(null);
+
+            header.setTagPolicies(tagHeader);
+        }
+
+        Encoder encoder = new Encoder();
+
+        encoder.addObject(SECTION_HEADER, GSON.toJsonTree(header));
+        encoder.addRecords(SECTION_POLICIES, policies.getPolicies());
+        encoder.addRecords(SECTION_TAG_POLICIES, policies.getTagPolicies() != null ? policies.getTagPolicies().getPolicies() : null);
+        encoder.addRecords(SECTION_POLICY_DELTAS, policies.getPolicyDeltas());
+
+        encoder.writeTo(file);
+    }
+
+    /**
+     * Policies and policy-deltas in the returned object are decoded lazily, when accessed for the first time.
+     */
+    public static ServicePolicies readServicePolicies(File file) throws IOException {
+        Decoder         decoder = new Decoder(file);
+        ServicePolicies ret     = decoder.getObject(SECTION_HEADER, ServicePolicies.class);
+
+        if (ret != null) {
+            ret.setPolicies(decoder.getRecords(SECTION_POLICIES, RangerPolicy.class));
+            ret.setPolicyDeltas(decoder.getRecords(SECTION_POLICY_DELTAS, RangerPolicyDelta.class));
+
+            if (ret.getTagPolicies() != null) {
+                ret.getTagPolicies().setPolicies(decoder.getRecords(SECTION_TAG_POLICIES, RangerPolicy.class));
+            }
+        }
+
+        return ret;
+    }
+
+    public static void writeRoles(RangerRoles roles, File file) throws IOException {
+        RangerRoles header = new RangerRoles();
+
+        header.setServiceName(roles.getServiceName());
+        header.setRoleVersion(roles.getRoleVersion());
+        header.setRoleUpdateTime(roles.getRoleUpdateTime());
+
+        Encoder encoder = new Encoder();
+
+        encoder.addObject(SECTION_HEADER, GSON.toJsonTree(header));
+        encoder.addRecords(SECTION_ROLES, roles.getRangerRoles());
+
+        encoder.writeTo(file);
+    }
+
+    public static RangerRoles readRoles(File file) throws IOException {
+        Decoder     decoder = new Decoder(file);
+        RangerRoles ret     = decoder.getObject(SECTION_HEADER, RangerRoles.class);
+
+        if (ret != null) {
+            List<RangerRole> roles = decoder.getRecords(SECTION_ROLES, RangerRole.class);
+
+            ret.setRangerRoles(roles != null ? new LinkedHashSet<>(roles) : null);
+        }
+
+        return ret;
+    }
+
+    public static void writeServiceTags(ServiceTags serviceTags, File file) throws IOException {
+        ServiceTags header = new ServiceTags(serviceTags.getOp(), serviceTags.getServiceName(), serviceTags.getTagVersion(), serviceTags.getTagUpdateTime(), serviceTags.getTagDefinitions(),
+                                             null, null, serviceTags.getResourceToTagIds(), serviceTags.getIsDelta(), serviceTags.getTagsChangeExtent());
+        Encoder     encoder = new Encoder();
+
+        encoder.addObject(SECTION_HEADER, GSON.toJsonTree(header));
+
+        if (serviceTags.getTags() != null) {
+            encoder.addObject(SECTION_TAG_IDS, GSON.toJsonTree(serviceTags.getTags().keySet()));
+            encoder.addRecords(SECTION_TAGS, serviceTags.getTags().values());
+        }
+
+        encoder.addRecords(SECTION_SERVICE_RESOURCES, serviceTags.getServiceResources());
+
+        encoder.writeTo(file);
+    }
+
+    /**
+     * Unlike policies, tags and service-resources are updated in place on applying deltas; hence these are decoded
+     * into modifiable collections when the file is read.
+     */
+    public static ServiceTags readServiceTags(File file) throws IOException {
+        Decoder     decoder = new Decoder(file);
+        ServiceTags ret     = decoder.getObject(SECTION_HEADER, ServiceTags.class);
+
+        if (ret != null) {
+            Long[]                      tagIds    = decoder.getObject(SECTION_TAG_IDS, Long[].class);
+            List<RangerTag>             tags      = decoder.getRecords(SECTION_TAGS, RangerTag.class);
+            List<RangerServiceResource> resources = decoder.getRecords(SECTION_SERVICE_RESOURCES, RangerServiceResource.class);
+
+            if (tagIds != null && tags != null) {
+                if (tagIds.length != tags.size()) {
+                    throw new IOException(file.getAbsolutePath() + ": tag count mismatch - ids=" + tagIds.length + ", tags=" + tags.size());
+                }
+
+                Map<Long, RangerTag> tagMap = new LinkedHashMap<>();
+
+                for (int i = 0; i < tagIds.length; i++) {
+                    tagMap.put(tagIds[i], tags.get(i));
+                }
+
+                ret.setTags(tagMap);
+            } else {
+                ret.setTags(null);
+            }
+
+            ret.setServiceResources(resources != null ? new ArrayList<>(resources) : null);
+        }
+
+        return ret;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    private static class Encoder {
+        private final Map<String, Integer>  stringIds    = new HashMap<>();
+        private final List<String>          strings      = new ArrayList<>();
+        private final Buffer                sections     = new Buffer();
+        private       int                   sectionCount = 0;
+
+        void addObject(String name, JsonElement value) {
+            Buffer content = new Buffer();
+
+            writeValue(content, value);
+
+            writeVarLong(sections, getStringId(name));
+            sections.write(SECTION_OBJECT);
+            writeInt(sections, content.size());
+            content.copyTo(sections);
+
+            sectionCount++;
+        }
+
+        void addRecords(String name, Collection<?> records) {
+            if (records == null) {
+                return;
+            }
+
+            int[]  offsets = new int[records.size()];
+            Buffer content = new Buffer();
+            int    idx     = 0;
+
+            for (Object record : records) {
+                offsets[idx++] = content.size();
+
+                writeValue(content, GSON.toJsonTree(record));
+            }
+
+            writeVarLong(sections, getStringId(name));
+            sections.write(SECTION_RECORDS);
+            writeInt(sections, offsets.length);
+
+            for (int offset : offsets) {
+                writeInt(sections, offset);
+            }
+
+            writeInt(sections, content.size());
+            content.copyTo(sections);
+
+            sectionCount++;
+        }
+
+        void writeTo(File file) throws IOException {
+            File dir     = file.getAbsoluteFile().getParentFile();
+            File tmpFile = File.createTempFile(file.getName() + ".", ".tmp", dir);
+
+            try {
+                try (FileOutputStream fileOut = new FileOutputStream(tmpFile)) {
+                    CRC32                 crc     = new CRC32();
+                    OutputStream          out     = new CheckedOutputStream(new BufferedOutputStream(fileOut), crc);
+                    ByteArrayOutputStream header  = new ByteArrayOutputStream(HEADER_LENGTH);
+                    ByteArrayOutputStream buffer  = new ByteArrayOutputStream();
+
+                    writeInt(header, MAGIC);
+                    writeInt(header, FORMAT_VERSION);
+                    writeLong(header, 0); // CRC32 is updated after rest of the file is written
+                    header.writeTo(fileOut);
+
+                    writeVarLong(buffer, strings.size());
+
+                    for (String str : strings) {
+                        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+                        writeVarLong(buffer, bytes.length);
+                        buffer.write(bytes, 0, bytes.length);
+
+                        if (buffer.size() > 64 * 1024) {
+                            buffer.writeTo(out);
+                            buffer.reset();
+                        }
+                    }
+
+                    writeVarLong(buffer, sectionCount);
+                    buffer.writeTo(out);
+                    sections.writeTo(out);
+                    out.flush();
+
+                    ByteBuffer checksum = ByteBuffer.allocate(8);
+
+                    checksum.putLong(0, crc.getValue());
+                    fileOut.getChannel().write(checksum, HEADER_LENGTH - 8);
+                    fileOut.getFD().sync();
+                }
+
+                try {
+                    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException excp) {
+                    LOG.warn("atomic move not supported in directory " + dir + ". Replacing " + file.getName() + " non-atomically");
+
+                    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                if (tmpFile.exists() && !tmpFile.delete()) {
+                    LOG.warn("failed to delete temporary file " + tmpFile.getAbsolutePath());
+                }
+            }
+        }
+
+        private void writeValue(ByteArrayOutputStream out, JsonElement value) {
+            if (value == null || value.isJsonNull()) {
+                out.write(TYPE_NULL);
+            } else if (value.isJsonPrimitive()) {
+                JsonPrimitive primitive = value.getAsJsonPrimitive();
+
+                if (primitive.isBoolean()) {
+                    out.write(primitive.getAsBoolean() ? TYPE_TRUE : TYPE_FALSE);
+                } else if (primitive.isString()) {
+                    out.write(TYPE_STRING);
+                    writeVarLong(out, getStringId(primitive.getAsString()));
+                } else {
+                    Number number = primitive.getAsNumber();
+
+                    if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+                        long val = number.longValue();
+
+                        out.write(TYPE_LONG);
+                        writeVarLong(out, (val << 1) ^ (val >> 63));
+                    } else if (number instanceof Double || number instanceof Float) {
+                        out.write(TYPE_DOUBLE);
+                        writeLong(out, Double.doubleToLongBits(number.doubleValue()));
+                    } else {
+                        out.write(TYPE_NUMBER);
+                        writeVarLong(out, getStringId(number.toString()));
+                    }
+                }
+            } else if (value.isJsonArray()) {
+                JsonArray array = value.getAsJsonArray();
+
+                out.write(TYPE_ARRAY);
+                writeVarLong(out, array.size());
+
+                for (JsonElement element : array) {
+                    writeValue(out, element);
+                }
+            } else {
+                JsonObject object = value.getAsJsonObject();
+
+                out.write(TYPE_OBJECT);
+                writeVarLong(out, object.size());
+
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    writeVarLong(out, getStringId(entry.getKey()));
+                    writeValue(out, entry.getValue());
+                }
+            }
+        }
+
+        private int getStringId(String str) {
+            Integer ret = stringIds.get(str);
+
+            if (ret == null) {
+                ret = strings.size();
+
+                strings.add(str);
+                stringIds.put(str, ret);
+            }
+
+            return ret;
+        }
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        void copyTo(ByteArrayOutputStream out) {
+            out.write(buf, 0, count);
+        }
+    }
+
+    private static class Decoder {
+        private final File                 file;
+        private final ByteBuffer           buffer;
+        private final String[]             strings;
+        private final Map<String, Integer> sections = new HashMap<>();
+
+        Decoder(File file) throws IOException {
+            this.file = file;
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file.getAbsolutePath() + ": not a binary cache file");
+            }
+
+            int formatVersion = buffer.getInt(4);
+
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException(file.getAbsolutePath() + ": unsupported format version " + formatVersion);
+            }
+
+            CRC32      crc     = new CRC32();
+            ByteBuffer content = buffer.duplicate();
+
+            content.position(HEADER_LENGTH);
+            crc.update(content);
+
+            if (crc.getValue() != buffer.getLong(8)) {
+                throw new IOException(file.getAbsolutePath() + ": checksum mismatch");
+            }
+
+            int pos         = HEADER_LENGTH;
+            int stringCount = (int) readVarLong(pos);
+
+            pos += varLongSize(pos);
+
+            strings = new String[stringCount];
+
+            for (int i = 0; i < stringCount; i++) {
+                int    len   = (int) readVarLong(pos);
+                byte[] bytes = new byte[len];
+
+                pos += varLongSize(pos);
+
+                content.position(pos);
+                content.get(bytes);
+
+                strings[i]  = new String(bytes, StandardCharsets.UTF_8);
+                pos        += len;
+            }
+
+            int sectionCount = (int) readVarLong(pos);
+
+            pos += varLongSize(pos);
+
+            for (int i = 0; i < sectionCount; i++) {
+                String name = strings[(int) readVarLong(pos)];
+
+                pos += varLongSize(pos);
+
+                byte type = buffer.get(pos++);
+
+                sections.put(name, pos);
+
+                if (type == SECTION_OBJECT) {
+                    pos += 4 + buffer.getInt(pos);
+                } else if (type == SECTION_RECORDS) {
+                    int count = buffer.getInt(pos);
+
+                    pos += 4 + (count * 4);
+                    pos += 4 + buffer.getInt(pos);
+                } else {
+                    throw new IOException(file.getAbsolutePath() + ": unknown section type " + type);
+                }
+            }
+        }
+
+        <T> T getObject(String name, Class<T> clazz) throws IOException {
+            Integer pos = sections.get(name);
+
+            return pos == null ? null : GSON.getAdapter(clazz).read(new BinaryJsonReader(this, pos + 4));
+        }
+
+        <T> List<T> getRecords(String name, Class<T> clazz) {
+            Integer pos = sections.get(name);
+
+            return pos == null ? null : new RecordList<>(this, clazz, pos);
+        }
+
+        <T> T getRecord(Class<T> clazz, int offsetPos, int dataPos) {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("RangerBinaryCacheFile.getRecord(file=" + file.getName() + ", class=" + clazz.getSimpleName() + ", offsetPos=" + offsetPos + ")");
+            }
+
+            try {
+                return GSON.getAdapter(clazz).read(new BinaryJsonReader(this, dataPos + buffer.getInt(offsetPos)));
+            } catch (IOException | RuntimeException excp) {
+                throw new JsonParseException(file.getAbsolutePath() + ": failed to decode " + clazz.getSimpleName() + " record at position " + offsetPos, excp);
+            }
+        }
+
+        long readVarLong(int pos) {
+            long ret   = 0;
+            int  shift = 0;
+
+            while (true) {
+                byte b = buffer.get(pos++);
+
+                ret |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+
+                shift += 7;
+            }
+
+            return ret;
+        }
+
+        int varLongSize(int pos) {
+            int ret = 1;
+
+            while ((buffer.get(pos++) & 0x80) != 0) {
+                ret++;
+            }
+
+            return ret;
+        }
+
+        // returns the position after the value at the given position
+        int skipValue(int pos) {
+            final byte type = buffer.get(pos++);
+
+            switch (type) {
+                case TYPE_NULL:
+                case TYPE_TRUE:
+                case TYPE_FALSE:
+                break;
+
+                case TYPE_LONG:
+                case TYPE_NUMBER:
+                case TYPE_STRING:
+                    pos += varLongSize(pos);
+                break;
+
+                case TYPE_DOUBLE:
+                    pos += 8;
+                break;
+
+                case TYPE_ARRAY: {
+                    long count = readVarLong(pos);
+
+                    pos += varLongSize(pos);
+
+                    for (long i = 0; i < count; i++) {
+                        pos = skipValue(pos);
+                    }
+                }
+                break;
+
+                case TYPE_OBJECT: {
+                    long count = readVarLong(pos);
+
+                    pos += varLongSize(pos);
+
+                    for (long i = 0; i < count; i++) {
+                        pos += varLongSize(pos);
+                        pos  = skipValue(pos);
+                    }
+                }
+                break;
+
+                default:
+                    throw new IllegalStateException(file.getAbsolutePath() + ": unknown value type " + type + " at position " + (pos - 1));
+            }
+
+            return pos;
+        }
+    }
+
+    /**
+     * Streams values from the binary file to Gson type adapters, without building intermediate JSON trees. Maps are
+     * read by BinaryMapTypeAdapterFactory, as Gson's map adapter depends on internals of JsonReader.
+     */
+    private static class BinaryJsonReader extends JsonReader {
+        private static final Reader UNREADABLE_READER = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int count) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        private final Decoder    decoder;
+        private final ByteBuffer buffer;
+        private       int        pos;
+        private       boolean    isDone;
+        private       boolean[]  isObject      = new boolean[16];
+        private       long[]     remaining     = new long[16];
+        private       boolean    isNamePending = false;
+        private       int        depth         = 0;
+
+        BinaryJsonReader(Decoder decoder, int pos) {
+            super(UNREADABLE_READER);
+
+            this.decoder = decoder;
+            this.buffer  = decoder.buffer;
+            this.pos     = pos;
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            expect(TYPE_ARRAY);
+            push(false);
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            pop(false);
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            expect(TYPE_OBJECT);
+            push(true);
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            pop(true);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !isDone && (depth == 0 || remaining[depth - 1] > 0);
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            if (isDone) {
+                return JsonToken.END_DOCUMENT;
+            } else if (depth > 0 && remaining[depth - 1] == 0) {
+                return isObject[depth - 1] ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+            } else if (isNamePending) {
+                return JsonToken.NAME;
+            }
+
+            switch (buffer.get(pos)) {
+                case TYPE_NULL:
+                    return JsonToken.NULL;
+
+                case TYPE_TRUE:
+                case TYPE_FALSE:
+                    return JsonToken.BOOLEAN;
+
+                case TYPE_LONG:
+                case TYPE_DOUBLE:
+                case TYPE_NUMBER:
+                    return JsonToken.NUMBER;
+
+                case TYPE_STRING:
+                    return JsonToken.STRING;
+
+                case TYPE_ARRAY:
+                    return JsonToken.BEGIN_ARRAY;
+
+                case TYPE_OBJECT:
+                    return JsonToken.BEGIN_OBJECT;
+
+                default:
+                    throw new IOException("unknown value type " + buffer.get(pos) + " at position " + pos);
+            }
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            if (!isNamePending || remaining[depth - 1] == 0) {
+                throw new IllegalStateException("Expected a name but was " + peek() + " at position " + pos);
+            }
+
+            isNamePending = false;
+
+            return nextStringRef();
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            final String ret;
+            final byte   type = nextType();
+
+            switch (type) {
+                case TYPE_STRING:
+                case TYPE_NUMBER:
+                    ret = nextStringRef();
+                break;
+
+                case TYPE_LONG:
+                    ret = Long.toString(nextZigZag());
+                break;
+
+                case TYPE_DOUBLE:
+                    ret = Double.toString(nextDoubleBits());
+                break;
+
+                default:
+                    throw unexpected(JsonToken.STRING, type);
+            }
+
+            afterValue();
+
+            return ret;
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            final byte type = nextType();
+
+            if (type != TYPE_TRUE && type != TYPE_FALSE) {
+                throw unexpected(JsonToken.BOOLEAN, type);
+            }
+
+            afterValue();
+
+            return type == TYPE_TRUE;
+        }
+
+        @Override
+        public void nextNull() throws IOException {
+            final byte type = nextType();
+
+            if (type != TYPE_NULL) {
+                throw unexpected(JsonToken.NULL, type);
+            }
+
+            afterValue();
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            final double ret;
+            final byte   type = nextType();
+
+            switch (type) {
+                case TYPE_LONG:
+                    ret = nextZigZag();
+                break;
+
+                case TYPE_DOUBLE:
+                    ret = nextDoubleBits();
+                break;
+
+                case TYPE_NUMBER:
+                case TYPE_STRING:
+                    ret = Double.parseDouble(nextStringRef());
+                break;
+
+                default:
+                    throw unexpected(JsonToken.NUMBER, type);
+            }
+
+            afterValue();
+
+            return ret;
+        }
+
+        @Override
+        public long nextLong() throws IOException {
+            final long ret;
+            final byte type = nextType();
+
+            switch (type) {
+                case TYPE_LONG:
+                    ret = nextZigZag();
+                break;
+
+                case TYPE_DOUBLE: {
+                    double val = nextDoubleBits();
+
+                    ret = (long) val;
+
+                    if (ret != val) {
+                        throw new NumberFormatException("Expected a long but was " + val + " at position " + pos);
+                    }
+                }
+                break;
+
+                case TYPE_NUMBER:
+                case TYPE_STRING:
+                    ret = new BigDecimal(nextStringRef()).longValueExact();
+                break;
+
+                default:
+                    throw unexpected(JsonToken.NUMBER, type);
+            }
+
+            afterValue();
+
+            return ret;
+        }
+
+        @Override
+        public int nextInt() throws IOException {
+            long ret = nextLong();
+
+            if (ret != (int) ret) {
+                throw new NumberFormatException("Expected an int but was " + ret + " at position " + pos);
+            }
+
+            return (int) ret;
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            if (isNamePending) {
+                nextName();
+            } else if (!isDone && (depth == 0 || remaining[depth - 1] > 0)) {
+                pos = decoder.skipValue(pos);
+
+                afterValue();
+            }
+        }
+
+        @Override
+        public void close() {
+            isDone = true;
+            depth  = 0;
+        }
+
+        @Override
+        public String getPath() {
+            return "$";
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(pos=" + pos + ")";
+        }
+
+        private byte nextType() {
+            if (isDone || isNamePending || (depth > 0 && remaining[depth - 1] == 0)) {
+                throw new IllegalStateException("Expected a value at position " + pos);
+            }
+
+            return buffer.get(pos++);
+        }
+
+        private void expect(byte type) throws IOException {
+            byte actual = nextType();
+
+            if (actual != type) {
+                throw unexpected(type == TYPE_ARRAY ? JsonToken.BEGIN_ARRAY : JsonToken.BEGIN_OBJECT, actual);
+            }
+        }
+
+        private void push(boolean object) {
+            if (depth == isObject.length) {
+                isObject  = Arrays.copyOf(isObject, depth * 2);
+                remaining = Arrays.copyOf(remaining, depth * 2);
+            }
+
+            isObject[depth]  = object;
+            remaining[depth] = readVarLong();
+            isNamePending    = object && remaining[depth] > 0;
+
+            depth++;
+        }
+
+        private void pop(boolean object) {
+            if (depth == 0 || isObject[depth - 1] != object || remaining[depth - 1] != 0) {
+                throw new IllegalStateException("Expected " + (object ? JsonToken.END_OBJECT : JsonToken.END_ARRAY) + " at position " + pos);
+            }
+
+            depth--;
+
+            afterValue();
+        }
+
+        private void afterValue() {
+            if (depth == 0) {
+                isDone = true;
+            } else {
+                long left = --remaining[depth - 1];
+
+                isNamePending = isObject[depth - 1] && left > 0;
+            }
+        }
+
+        private String nextStringRef() {
+            return decoder.strings[(int) readVarLong()];
+        }
+
+        private long nextZigZag() {
+            long val = readVarLong();
+
+            return (val >>> 1) ^ -(val & 1);
+        }
+
+        private double nextDoubleBits() {
+            double ret = Double.longBitsToDouble(buffer.getLong(pos));
+
+            pos += 8;
+
+            return ret;
+        }
+
+        private long readVarLong() {
+            long ret   = 0;
+            int  shift = 0;
+
+            while (true) {
+                byte b = buffer.get(pos++);
+
+                ret |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+
+                shift += 7;
+            }
+
+            return ret;
+        }
+
+        private IllegalStateException unexpected(JsonToken expected, byte type) {
+            return new IllegalStateException("Expected " + expected + " but found value of type " + type + " at position " + (pos - 1));
+        }
+    }
+
+    /**
+     * Reads maps from BinaryJsonReader; other readers, and writes, are handled by Gson's map adapter.
+     */
+    private static class BinaryMapTypeAdapterFactory implements TypeAdapterFactory {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+            if (!Map.class.isAssignableFrom(typeToken.getRawType())) {
+                return null;
+            }
+
+            Type   type      = typeToken.getType();
+            Type   keyType   = Object.class;
+            Type   valueType = Object.class;
+
+            if (type instanceof ParameterizedType && ((ParameterizedType) type).getActualTypeArguments().length == 2) {
+                keyType   = ((ParameterizedType) type).getActualTypeArguments()[0];
+                valueType = ((ParameterizedType) type).getActualTypeArguments()[1];
+            }
+
+            return new BinaryMapTypeAdapter<>(gson.getDelegateAdapter(this, typeToken), typeToken.getRawType(), keyType, gson.getAdapter(TypeToken.get(keyType)), gson.getAdapter(TypeToken.get(valueType)));
+        }
+    }
+
+    private static class BinaryMapTypeAdapter<T> extends TypeAdapter<T> {
+        private final TypeAdapter<T>      delegate;
+        private final Class<? super T>    rawType;
+        private final boolean             isStringKey;
+        private final TypeAdapter<Object> keyAdapter;
+        private final TypeAdapter<Object> valueAdapter;
+
+        @SuppressWarnings("unchecked")
+        BinaryMapTypeAdapter(TypeAdapter<T> delegate, Class<? super T> rawType, Type keyType, TypeAdapter<?> keyAdapter, TypeAdapter<?> valueAdapter) {
+            this.delegate     = delegate;
+            this.rawType      = rawType;
+            this.isStringKey  = keyType == String.class || keyType == Object.class;
+            this.keyAdapter   = (TypeAdapter<Object>) keyAdapter;
+            this.valueAdapter = (TypeAdapter<Object>) valueAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            delegate.write(out, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(JsonReader in) throws IOException {
+            if (!(in instanceof BinaryJsonReader)) {
+                return delegate.read(in);
+            }
+
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+
+                return null;
+            }
+
+            Map<Object, Object> ret = newMap();
+
+            in.beginObject();
+
+            while (in.hasNext()) {
+                String name  = in.nextName();
+                Object key   = isStringKey ? name : keyAdapter.fromJsonTree(new JsonPrimitive(name));
+                Object value = valueAdapter.read(in);
+
+                if (ret.put(key, value) != null) {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+            }
+
+            in.endObject();
+
+            return (T) ret;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<Object, Object> newMap() {
+            if (!rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers())) {
+                try {
+                    return (Map<Object, Object>) rawType.newInstance();
+                } catch (ReflectiveOperationException excp) {
+                    throw new JsonIOException("failed to create instance of " + rawType.getName(), excp);
+                }
+            } else if (SortedMap.class.isAssignableFrom(rawType)) {
+                return new TreeMap<>();
+            } else if (isStringKey) {
+                return new LinkedTreeMap<>();
+            } else {
+                return new LinkedHashMap<>();
+            }
+        }
+    }
+
+    /**
+     * List of records that are decoded on first access. The list is switched to an ArrayList, with all records
+     * decoded, when it is modified.
+     */
+    private static class RecordList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Decoder                 decoder;
+        private final transient Class<T>                clazz;
+        private final transient int                     offsetsPos;
+        private final transient int                     dataPos;
+        private final transient AtomicReferenceArray<T> records;
+        private       transient List<T>                 modifiable;
+
+        RecordList(Decoder decoder, Class<T> clazz, int sectionPos) {
+            int count = decoder.buffer.getInt(sectionPos);
+
+            this.decoder    = decoder;
+            this.clazz      = clazz;
+            this.offsetsPos = sectionPos + 4;
+            this.dataPos    = offsetsPos + (count * 4) + 4;
+            this.records    = new AtomicReferenceArray<>(count);
+        }
+
+        @Override
+        public T get(int index) {
+            List<T> modifiable = this.modifiable;
+
+            if (modifiable != null) {
+                return modifiable.get(index);
+            }
+
+            T ret = records.get(index);
+
+            if (ret == null) {
+                ret = decoder.getRecord(clazz, offsetsPos + (index * 4), dataPos);
+
+                if (!records.compareAndSet(index, null, ret)) {
+                    ret = records.get(index);
+                }
+            }
+
+            return ret;
+        }
+
+        @Override
+        public int size() {
+            List<T> modifiable = this.modifiable;
+
+            return modifiable != null ? modifiable.size() : records.length();
+        }
+
+        @Override
+        public T set(int index, T element) {
+            return getModifiable().set(index, element);
+        }
+
+        @Override
+        public void add(int index, T element) {
+            getModifiable().add(index, element);
+
+            modCount++;
+        }
+
+        @Override
+        public T remove(int index) {
+            T ret = getModifiable().remove(index);
+
+            modCount++;
+
+            return ret;
+        }
+
+        private List<T> getModifiable() {
+            if (modifiable == null) {
+                List<T> list = new ArrayList<>(records.length());
+
+                for (int i = 0; i < records.length(); i++) {
+                    list.add(get(i));
+                }
+
+                modifiable = list;
+            }
+
+            return modifiable;
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+    }
+}
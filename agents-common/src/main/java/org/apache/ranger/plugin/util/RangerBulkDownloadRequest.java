@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request to download updated policies, tags and roles of many services in one call - from plugins of different
+ * services running in the same host.
+ */
+@JsonAutoDetect(fieldVisibility= JsonAutoDetect.Visibility.ANY)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RangerBulkDownloadRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<ServiceRequest> services = new ArrayList<>();
+
+    public List<ServiceRequest> getServices() {
+        return services;
+    }
+
+    public void setServices(List<ServiceRequest> services) {
+        this.services = services;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerBulkDownloadRequest={services=" + services + "}";
+    }
+
+    /**
+     * Versions of a service known to its plugin; policies, tags or roles are not downloaded when their version is null.
+     */
+    @JsonAutoDetect(fieldVisibility= JsonAutoDetect.Visibility.ANY)
+    @JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+    @JsonIgnoreProperties(ignoreUnknown=true)
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class ServiceRequest implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String  serviceName;
+        private String  pluginId;
+        private String  clusterName;
+        private String  pluginCapabilities;
+        private Long    lastKnownPolicyVersion;
+        private Long    lastKnownTagVersion;
+        private Long    lastKnownRoleVersion;
+        private Long    lastActivationTime;
+        private boolean supportsPolicyDeltas;
+        private boolean supportsTagDeltas;
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public void setServiceName(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        public String getPluginId() {
+            return pluginId;
+        }
+
+        public void setPluginId(String pluginId) {
+            this.pluginId = pluginId;
+        }
+
+        public String getClusterName() {
+            return clusterName;
+        }
+
+        public void setClusterName(String clusterName) {
+            this.clusterName = clusterName;
+        }
+
+        public String getPluginCapabilities() {
+            return pluginCapabilities;
+        }
+
+        public void setPluginCapabilities(String pluginCapabilities) {
+            this.pluginCapabilities = pluginCapabilities;
+        }
+
+        public Long getLastKnownPolicyVersion() {
+            return lastKnownPolicyVersion;
+        }
+
+        public void setLastKnownPolicyVersion(Long lastKnownPolicyVersion) {
+            this.lastKnownPolicyVersion = lastKnownPolicyVersion;
+        }
+
+        public Long getLastKnownTagVersion() {
+            return lastKnownTagVersion;
+        }
+
+        public void setLastKnownTagVersion(Long lastKnownTagVersion) {
+            this.lastKnownTagVersion = lastKnownTagVersion;
+        }
+
+        public Long getLastKnownRoleVersion() {
+            return lastKnownRoleVersion;
+        }
+
+        public void setLastKnownRoleVersion(Long lastKnownRoleVersion) {
+            this.lastKnownRoleVersion = lastKnownRoleVersion;
+        }
+
+        public Long getLastActivationTime() {
+            return lastActivationTime;
+        }
+
+        public void setLastActivationTime(Long lastActivationTime) {
+            this.lastActivationTime = lastActivationTime;
+        }
+
+        public boolean getSupportsPolicyDeltas() {
+            return supportsPolicyDeltas;
+        }
+
+        public void setSupportsPolicyDeltas(boolean supportsPolicyDeltas) {
+            this.supportsPolicyDeltas = supportsPolicyDeltas;
+        }
+
+        public boolean getSupportsTagDeltas() {
+            return supportsTagDeltas;
+        }
+
+        public void setSupportsTagDeltas(boolean supportsTagDeltas) {
+            this.supportsTagDeltas = supportsTagDeltas;
+        }
+
+        @Override
+        public String toString() {
+            return "ServiceRequest={serviceName=" + serviceName
+                    + ", pluginId=" + pluginId
+                    + ", clusterName=" + clusterName
+                    + ", pluginCapabilities=" + pluginCapabilities
+                    + ", lastKnownPolicyVersion=" + lastKnownPolicyVersion
+                    + ", lastKnownTagVersion=" + lastKnownTagVersion
+                    + ", lastKnownRoleVersion=" + lastKnownRoleVersion
+                    + ", lastActivationTime=" + lastActivationTime
+                    + ", supportsPolicyDeltas=" + supportsPolicyDeltas
+                    + ", supportsTagDeltas=" + supportsTagDeltas
+                    + "}";
+        }
+    }
+}
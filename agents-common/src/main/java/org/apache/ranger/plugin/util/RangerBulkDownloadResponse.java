@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response to RangerBulkDownloadRequest: for each service, the status of policies, tags and roles download - same as
+ * the HTTP status of the corresponding download call - along with the updated policies, tags and roles.
+ */
+@JsonAutoDetect(fieldVisibility= JsonAutoDetect.Visibility.ANY)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RangerBulkDownloadResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<ServiceResponse> services = new ArrayList<>();
+
+    public List<ServiceResponse> getServices() {
+        return services;
+    }
+
+    public void setServices(List<ServiceResponse> services) {
+        this.services = services;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerBulkDownloadResponse={services=" + services + "}";
+    }
+
+    @JsonAutoDetect(fieldVisibility= JsonAutoDetect.Visibility.ANY)
+    @JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+    @JsonIgnoreProperties(ignoreUnknown=true)
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class ServiceResponse implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String          serviceName;
+        private Integer         policyStatus;
+        private Integer         tagStatus;
+        private Integer         roleStatus;
+        private String          errorMessage;
+        private ServicePolicies policies;
+        private ServiceTags     tags;
+        private RangerRoles     roles;
+
+        public ServiceResponse() {
+            this(null);
+        }
+
+        public ServiceResponse(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public void setServiceName(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        public Integer getPolicyStatus() {
+            return policyStatus;
+        }
+
+        public void setPolicyStatus(Integer policyStatus) {
+            this.policyStatus = policyStatus;
+        }
+
+        public Integer getTagStatus() {
+            return tagStatus;
+        }
+
+        public void setTagStatus(Integer tagStatus) {
+            this.tagStatus = tagStatus;
+        }
+
+        public Integer getRoleStatus() {
+            return roleStatus;
+        }
+
+        public void setRoleStatus(Integer roleStatus) {
+            this.roleStatus = roleStatus;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public void setErrorMessage(String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        public ServicePolicies getPolicies() {
+            return policies;
+        }
+
+        public void setPolicies(ServicePolicies policies) {
+            this.policies = policies;
+        }
+
+        public ServiceTags getTags() {
+            return tags;
+        }
+
+        public void setTags(ServiceTags tags) {
+            this.tags = tags;
+        }
+
+        public RangerRoles getRoles() {
+            return roles;
+        }
+
+        public void setRoles(RangerRoles roles) {
+            this.roles = roles;
+        }
+
+        @Override
+        public String toString() {
+            return "ServiceResponse={serviceName=" + serviceName
+                    + ", policyStatus=" + policyStatus
+                    + ", tagStatus=" + tagStatus
+                    + ", roleStatus=" + roleStatus
+                    + ", errorMessage=" + errorMessage
+                    + "}";
+        }
+    }
+}
@@ -54,7 +54,16 @@ public class RangerCommonConstants {
 
 	public static final boolean POLICY_REST_CLIENT_SESSION_COOKIE_ENABLED            = true;
 
+	public static final String PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT  = ".policy.cache.format";
+	public static final String POLICY_CACHE_FORMAT_JSON                  = "json";
+	public static final String POLICY_CACHE_FORMAT_BINARY                = "binary";
+	public static final String POLICY_CACHE_FORMAT_DEFAULT               = POLICY_CACHE_FORMAT_JSON;
+
+	public static final String PLUGIN_CONFIG_SUFFIX_ACCESS_REQUEST_POOL_SIZE = ".access.request.pool.size";
+	public static final int    ACCESS_REQUEST_POOL_SIZE_DEFAULT              = 0; // pooling disabled
+
 	public static final String SCRIPT_OPTION_ENABLE_JSON_CTX        = "enableJsonCtx";
+	public static final String SCRIPT_OPTION_REUSE_BINDINGS         = "reuseBindings";
 
 	public static final String SCRIPT_VAR_ctx                       = "ctx";
 	public static final String SCRIPT_VAR_tag                       = "tag";
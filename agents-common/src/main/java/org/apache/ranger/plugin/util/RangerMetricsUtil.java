@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.util;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.queue.AuditRingBuffer;
 import org.apache.ranger.plugin.model.RangerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -160,6 +161,18 @@ public RangerMetrics getVMStatus() {
 		vmDetails.putAll(getValues());
 		jvm.put("jvm", vmDetails);
 
+		Map<String, Object> restClientUrls = RangerRESTClient.getUrlStatsMetrics();
+
+		if (!restClientUrls.isEmpty()) {
+			jvm.put("restClientUrls", restClientUrls);
+		}
+
+		Map<String, Object> auditQueues = AuditRingBuffer.getAllMetrics();
+
+		if (!auditQueues.isEmpty()) {
+			jvm.put("auditQueues", auditQueues);
+		}
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerMetricsUtil.getVMStatus() " + jvm);
 		}
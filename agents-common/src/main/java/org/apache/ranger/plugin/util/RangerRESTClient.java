@@ -31,10 +31,14 @@
 import java.security.SecureRandom;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.KeyManager;
@@ -43,7 +47,9 @@
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
@@ -62,6 +68,7 @@
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 import com.sun.jersey.client.urlconnection.HTTPSProperties;
 
@@ -88,6 +95,15 @@ public class RangerRESTClient {
 	public static final String RANGER_SSL_TRUSTMANAGER_ALGO_TYPE				 = TrustManagerFactory.getDefaultAlgorithm();
 	public static final String RANGER_SSL_CONTEXT_ALGO_TYPE					     = "TLS";
 
+	private static final long URL_PROBE_INTERVAL_MS  = 60 * 1000;
+	private static final long URL_FAILURE_BACKOFF_MS = 30 * 1000;
+
+	// sends Accept-Encoding: gzip and decompresses gzip-encoded responses; request entities are not compressed
+	private static final GZIPContentEncodingFilter GZIP_FILTER = new GZIPContentEncodingFilter(false);
+
+	// shared by clients in the JVM, as health of a Ranger Admin URL doesn't depend on the client calling it
+	private static final Map<String, RangerRESTUrlStats> URL_STATS = new ConcurrentHashMap<>();
+
 	private String  mUrl;
 	private String  mSslConfigFileName;
 	private String  mUsername;
@@ -111,7 +127,9 @@ public class RangerRESTClient {
 
 	private final List<String> configuredURLs;
 
-	private volatile Client client;
+	private volatile Client  client;
+	private volatile boolean isLatencyAwareUrlSelection;
+	private volatile boolean isCompressionEnabled;
 
 
 	public RangerRESTClient(String url, String sslConfigFileName, Configuration config) {
@@ -232,6 +250,10 @@ public boolean verify(String urlHostName, SSLSession session) {
 			client.addFilter(new HTTPBasicAuthFilter(mUsername, mPassword));
 		}
 
+		if (isCompressionEnabled) {
+			client.addFilter(GZIP_FILTER);
+		}
+
 		// Set Connection Timeout and ReadTime for the PolicyRefresh
 		client.setConnectTimeout(mRestClientConnTimeOutMs);
 		client.setReadTimeout(mRestClientReadTimeOutMs);
@@ -461,199 +483,159 @@ private void close(InputStream str, String filename) {
 	}
 
 	public ClientResponse get(String relativeUrl, Map<String, String> params) throws Exception {
-		ClientResponse finalResponse = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
-
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
-
-				WebResource webResource = getClient().resource(configuredURLs.get(currentIndex) + relativeUrl);
-				webResource = setQueryParams(webResource, params);
-
-				finalResponse = webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+		return get(relativeUrl, params, (String) null);
+	}
 
-				if (finalResponse != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+	/**
+	 * @param eTag ETag of the response held by the caller, sent in If-None-Match header - Ranger Admin returns 304 (Not
+	 *             Modified) if its response has the same ETag; null to not send the header
+	 */
+	public ClientResponse get(String relativeUrl, Map<String, String> params, String eTag) throws Exception {
+		return execute(relativeUrl, urlIndex -> {
+			WebResource webResource = getClient().resource(configuredURLs.get(urlIndex) + relativeUrl);
+			webResource = setQueryParams(webResource, params);
 
-					index = -1; // start from first url
-				}
-			}
-		}
-		return finalResponse;
+			return setIfNoneMatch(webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON), eTag).get(ClientResponse.class);
+		});
 	}
 
 	public ClientResponse get(String relativeUrl, Map<String, String> params, Cookie sessionId) throws Exception{
-		ClientResponse finalResponse = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
-
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
-
-				WebResource webResource = createWebResourceForCookieAuth(currentIndex, relativeUrl);
-				webResource = setQueryParams(webResource, params);
-				WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
-				finalResponse = br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+		return get(relativeUrl, params, sessionId, null);
+	}
 
-				if (finalResponse != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+	public ClientResponse get(String relativeUrl, Map<String, String> params, Cookie sessionId, String eTag) throws Exception{
+		return execute(relativeUrl, urlIndex -> {
+			WebResource webResource = createWebResourceForCookieAuth(urlIndex, relativeUrl);
+			webResource = setQueryParams(webResource, params);
+			WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
 
-					index = -1; // start from first url
-				}
-			}
-		}
-		return finalResponse;
+			return setIfNoneMatch(br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON), eTag).get(ClientResponse.class);
+		});
 	}
 
 	public ClientResponse post(String relativeUrl, Map<String, String> params, Object obj) throws Exception {
-		ClientResponse finalResponse = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+		return execute(relativeUrl, urlIndex -> {
+			WebResource webResource = getClient().resource(configuredURLs.get(urlIndex) + relativeUrl);
+			webResource = setQueryParams(webResource, params);
 
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
+			return webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).post(ClientResponse.class, toJson(obj));
+		});
+	}
 
-				WebResource webResource = getClient().resource(configuredURLs.get(currentIndex) + relativeUrl);
-				webResource = setQueryParams(webResource, params);
-				finalResponse = webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).post(ClientResponse.class, toJson(obj));
-				if (finalResponse != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+	public ClientResponse post(String relativeURL, Map<String, String> params, Object obj, Cookie sessionId) throws Exception {
+		return execute(relativeURL, urlIndex -> {
+			WebResource webResource = createWebResourceForCookieAuth(urlIndex, relativeURL);
+			webResource = setQueryParams(webResource, params);
+			WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
 
-					index = -1; // start from first url
-				}
-			}
-		}
-		return finalResponse;
+			return br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).post(ClientResponse.class, toJson(obj));
+		});
 	}
 
-	public ClientResponse post(String relativeURL, Map<String, String> params, Object obj, Cookie sessionId) throws Exception {
-		ClientResponse response = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+	public ClientResponse delete(String relativeUrl, Map<String, String> params) throws Exception {
+		return execute(relativeUrl, urlIndex -> {
+			WebResource webResource = getClient().resource(configuredURLs.get(urlIndex) + relativeUrl);
+			webResource = setQueryParams(webResource, params);
 
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
-
-				WebResource webResource = createWebResourceForCookieAuth(currentIndex, relativeURL);
-				webResource = setQueryParams(webResource, params);
-				WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
-				response = br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON)
-						.post(ClientResponse.class, toJson(obj));
-				if (response != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+			return webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).delete(ClientResponse.class);
+		});
+	}
 
-					index = -1; // start from first url
-				}
-			}
-		}
-		return response;
+	public ClientResponse delete(String relativeURL, Map<String, String> params, Cookie sessionId) throws Exception {
+		return execute(relativeURL, urlIndex -> {
+			WebResource webResource = createWebResourceForCookieAuth(urlIndex, relativeURL);
+			webResource = setQueryParams(webResource, params);
+			WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
+
+			return br.delete(ClientResponse.class);
+		});
 	}
 
-	public ClientResponse delete(String relativeUrl, Map<String, String> params) throws Exception {
-		ClientResponse finalResponse = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+	public ClientResponse put(String relativeUrl, Map<String, String> params, Object obj) throws Exception {
+		return execute(relativeUrl, urlIndex -> {
+			WebResource webResource = getClient().resource(configuredURLs.get(urlIndex) + relativeUrl);
+			webResource = setQueryParams(webResource, params);
 
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
+			return webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).put(ClientResponse.class, toJson(obj));
+		});
+	}
 
-				WebResource webResource = getClient().resource(configuredURLs.get(currentIndex) + relativeUrl);
-				webResource = setQueryParams(webResource, params);
+	public ClientResponse put(String relativeURL, Object request, Cookie sessionId) throws Exception {
+		return execute(relativeURL, urlIndex -> {
+			WebResource webResource = createWebResourceForCookieAuth(urlIndex, relativeURL);
+			WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
 
-				finalResponse = webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).delete(ClientResponse.class);
-				if (finalResponse != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+			return br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).put(ClientResponse.class, toJson(request));
+		});
+	}
 
-					index = -1; // start from first url
-				}
-			}
-		}
-		return finalResponse;
+	public boolean isLatencyAwareUrlSelection() {
+		return isLatencyAwareUrlSelection;
 	}
 
-	public ClientResponse delete(String relativeURL, Map<String, String> params, Cookie sessionId) throws Exception {
-		ClientResponse response = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+	/**
+	 * When enabled, calls go first to the Ranger Admin URL with the lowest recent latency, instead of the URL that
+	 * responded last; URLs that failed recently are tried last.
+	 */
+	public void setLatencyAwareUrlSelection(boolean isLatencyAwareUrlSelection) {
+		this.isLatencyAwareUrlSelection = isLatencyAwareUrlSelection;
+	}
 
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
+	public boolean isCompressionEnabled() {
+		return isCompressionEnabled;
+	}
 
-				WebResource webResource = createWebResourceForCookieAuth(currentIndex, relativeURL);
-				webResource = setQueryParams(webResource, params);
-				WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
-				response = br.delete(ClientResponse.class);
-				if (response != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+	/**
+	 * When enabled, requests carry Accept-Encoding: gzip and gzip-encoded responses are decompressed, so that Ranger
+	 * Admin can send its compressed download payloads as is. Applies to clients built after the call.
+	 */
+	public void setCompressionEnabled(boolean isCompressionEnabled) {
+		this.isCompressionEnabled = isCompressionEnabled;
+	}
 
-					index = -1; // start from first url
-				}
-			}
+	public static Map<String, Object> getUrlStatsMetrics() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		for (RangerRESTUrlStats stats : URL_STATS.values()) {
+			ret.put(stats.getUrl(), stats.getMetrics());
 		}
-		return response;
+
+		return ret;
 	}
 
-	public ClientResponse put(String relativeUrl, Map<String, String> params, Object obj) throws Exception {
+	/**
+	 * Sends the request to each configured URL, in the order given by getUrlOrder(), until a response is received;
+	 * after failing on all URLs, retries as per shouldRetry().
+	 */
+	private ClientResponse execute(String relativeUrl, UrlRequest request) throws Exception {
 		ClientResponse finalResponse = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+		int[]          urlOrder      = getUrlOrder();
+		int            currentIndex  = 0;
+		int            retryAttempt  = 0;
 
 		for (int index = 0; index < configuredURLs.size(); index++) {
+			currentIndex = urlOrder[index];
+
+			RangerRESTUrlStats urlStats  = getUrlStats(currentIndex);
+			long               startTime = System.currentTimeMillis();
+
 			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
+				finalResponse = request.execute(currentIndex);
 
-				WebResource webResource = getClient().resource(configuredURLs.get(currentIndex) + relativeUrl);
-				webResource = setQueryParams(webResource, params);
-				finalResponse = webResource.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).put(ClientResponse.class, toJson(obj));
 				if (finalResponse != null) {
+					// 503 is returned when too many plugins wait for version changes, not when Ranger Admin is unhealthy
+					if (finalResponse.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR && finalResponse.getStatus() != HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+						urlStats.recordFailure();
+					} else if (isLatencyTracked(relativeUrl)) {
+						urlStats.recordLatency(System.currentTimeMillis() - startTime);
+					}
+
 					setLastKnownActiveUrlIndex(currentIndex);
 					break;
 				}
 			} catch (ClientHandlerException ex) {
+				urlStats.recordFailure();
+
 				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
 					retryAttempt++;
 
@@ -664,33 +646,50 @@ public ClientResponse put(String relativeUrl, Map<String, String> params, Object
 		return finalResponse;
 	}
 
-	public ClientResponse put(String relativeURL, Object request, Cookie sessionId) throws Exception {
-		ClientResponse response = null;
-		int startIndex = this.lastKnownActiveUrlIndex;
-		int currentIndex = 0;
-		int retryAttempt = 0;
+	/**
+	 * @return indexes of configured URLs in the order to try: starting with the last known active URL, or ordered by
+	 * health and latency when latency aware URL selection is enabled
+	 */
+	protected int[] getUrlOrder() {
+		int       urlCount = configuredURLs.size();
+		int       start    = lastKnownActiveUrlIndex;
+		Integer[] order    = new Integer[urlCount];
 
-		for (int index = 0; index < configuredURLs.size(); index++) {
-			try {
-				currentIndex = (startIndex + index) % configuredURLs.size();
+		for (int i = 0; i < urlCount; i++) {
+			order[i] = (start + i) % urlCount;
+		}
 
-				WebResource webResource = createWebResourceForCookieAuth(currentIndex, relativeURL);
-				WebResource.Builder br = webResource.getRequestBuilder().cookie(sessionId);
-				response = br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON)
-						.put(ClientResponse.class, toJson(request));
-				if (response != null) {
-					setLastKnownActiveUrlIndex(currentIndex);
-					break;
-				}
-			} catch (ClientHandlerException ex) {
-				if (shouldRetry(configuredURLs.get(currentIndex), index, retryAttempt, ex)) {
-					retryAttempt++;
+		if (isLatencyAwareUrlSelection && urlCount > 1) {
+			long     now    = System.currentTimeMillis();
+			double[] scores = new double[urlCount];
 
-					index = -1; // start from first url
-				}
+			for (int i = 0; i < urlCount; i++) {
+				scores[i] = getUrlStats(i).getScore(now, URL_PROBE_INTERVAL_MS, URL_FAILURE_BACKOFF_MS);
 			}
+
+			Arrays.sort(order, Comparator.comparingDouble(i -> scores[i])); // stable: last known active URL first among equals
 		}
-		return response;
+
+		int[] ret = new int[urlCount];
+
+		for (int i = 0; i < urlCount; i++) {
+			ret[i] = order[i];
+		}
+
+		return ret;
+	}
+
+	// long-polls are not included in latency, as they take as long as the wait
+	private boolean isLatencyTracked(String relativeUrl) {
+		return !StringUtils.startsWith(relativeUrl, RangerRESTUtils.REST_URL_WAIT_FOR_SERVICE_VERSION_CHANGE) && !StringUtils.startsWith(relativeUrl, RangerRESTUtils.REST_URL_SECURE_WAIT_FOR_SERVICE_VERSION_CHANGE);
+	}
+
+	private RangerRESTUrlStats getUrlStats(int urlIndex) {
+		return URL_STATS.computeIfAbsent(configuredURLs.get(urlIndex), RangerRESTUrlStats::new);
+	}
+
+	private interface UrlRequest {
+		ClientResponse execute(int urlIndex);
 	}
 
 	protected static WebResource setQueryParams(WebResource webResource, Map<String, String> params) {
@@ -704,6 +703,10 @@ protected static WebResource setQueryParams(WebResource webResource, Map<String,
 		return ret;
 	}
 
+	private static WebResource.Builder setIfNoneMatch(WebResource.Builder builder, String eTag) {
+		return eTag != null ? builder.header(HttpHeaders.IF_NONE_MATCH, eTag) : builder;
+	}
+
 	protected void setLastKnownActiveUrlIndex(int lastKnownActiveUrlIndex) {
 		this.lastKnownActiveUrlIndex = lastKnownActiveUrlIndex;
 	}
@@ -712,6 +715,9 @@ protected WebResource createWebResourceForCookieAuth(int currentIndex, String re
 		Client cookieClient = getClient();
 		cookieClient.removeAllFilters();
 		WebResource ret = cookieClient.resource(configuredURLs.get(currentIndex) + relativeURL);
+		if (isCompressionEnabled) {
+			ret.addFilter(GZIP_FILTER);
+		}
 		return ret;
 	}
 
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and failures of calls made by RangerRESTClient to one Ranger Admin URL; used to prefer the URL that is
+ * responding fastest, and exported as metrics.
+ */
+public class RangerRESTUrlStats {
+	private static final long[] LATENCY_BUCKETS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+	private static final double EWMA_WEIGHT        = 0.2;
+	private static final int    MAX_BACKOFF_FACTOR = 10;
+
+	private final String          url;
+	private final AtomicLongArray latencyCounts = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+	private final LongAdder       requestCount  = new LongAdder();
+	private final LongAdder       failureCount  = new LongAdder();
+	private       double          ewmaLatencyMs;       // guarded by this
+	private       long            lastSampleTimeMs;    // guarded by this
+	private       int             consecutiveFailures; // guarded by this
+	private       long            lastFailureTimeMs;   // guarded by this
+
+	public RangerRESTUrlStats(String url) {
+		this.url = url;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void recordLatency(long latencyMs) {
+		requestCount.increment();
+		latencyCounts.incrementAndGet(getBucket(latencyMs));
+
+		synchronized (this) {
+			ewmaLatencyMs       = lastSampleTimeMs == 0 ? latencyMs : (EWMA_WEIGHT * latencyMs + (1 - EWMA_WEIGHT) * ewmaLatencyMs);
+			lastSampleTimeMs    = System.currentTimeMillis();
+			consecutiveFailures = 0;
+		}
+	}
+
+	public void recordFailure() {
+		requestCount.increment();
+		failureCount.increment();
+
+		synchronized (this) {
+			consecutiveFailures++;
+			lastFailureTimeMs = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * @return lower is better: 0 for a URL not called within probeIntervalMs, so that its latency is measured again;
+	 * Double.MAX_VALUE for a URL that failed recently - backoff grows with consecutive failures
+	 */
+	public synchronized double getScore(long now, long probeIntervalMs, long failureBackoffMs) {
+		final double ret;
+
+		if (consecutiveFailures > 0 && (now - lastFailureTimeMs) < failureBackoffMs * Math.min(consecutiveFailures, MAX_BACKOFF_FACTOR)) {
+			ret = Double.MAX_VALUE;
+		} else if (lastSampleTimeMs == 0 || (now - lastSampleTimeMs) > probeIntervalMs) {
+			ret = 0;
+		} else {
+			ret = ewmaLatencyMs;
+		}
+
+		return ret;
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> ret       = new LinkedHashMap<>();
+		Map<String, Long>   histogram = new LinkedHashMap<>();
+
+		for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+			histogram.put("le_" + LATENCY_BUCKETS_MS[i] + "ms", latencyCounts.get(i));
+		}
+
+		histogram.put("gt_" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms", latencyCounts.get(LATENCY_BUCKETS_MS.length));
+
+		synchronized (this) {
+			ret.put("requestCount", requestCount.sum());
+			ret.put("failureCount", failureCount.sum());
+			ret.put("consecutiveFailures", consecutiveFailures);
+			ret.put("avgLatencyMs", Math.round(ewmaLatencyMs));
+		}
+
+		ret.put("latencyHistogram", histogram);
+
+		return ret;
+	}
+
+	private static int getBucket(long latencyMs) {
+		int ret = 0;
+
+		while (ret < LATENCY_BUCKETS_MS.length && latencyMs > LATENCY_BUCKETS_MS[ret]) {
+			ret++;
+		}
+
+		return ret;
+	}
+}
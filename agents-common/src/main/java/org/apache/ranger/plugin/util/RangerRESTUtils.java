@@ -76,6 +76,14 @@ public class RangerRESTUtils {
 	public static final String REST_URL_SERVICE_GET_USERSTORE          = "/service/xusers/download/";
 	public static final String REST_URL_SERVICE_SERCURE_GET_USERSTORE  = "/service/xusers/secure/download/";
 
+	public static final String REST_URL_WAIT_FOR_SERVICE_VERSION_CHANGE        = "/service/plugins/versions/wait/";
+	public static final String REST_URL_SECURE_WAIT_FOR_SERVICE_VERSION_CHANGE = "/service/plugins/secure/versions/wait/";
+	public static final String REST_PARAM_LAST_KNOWN_TAG_VERSION               = "lastKnownTagVersion";
+	public static final String REST_PARAM_WAIT_TIME_MS                         = "waitTimeMs";
+
+	public static final String REST_URL_BULK_DOWNLOAD        = "/service/plugins/bulk/download";
+	public static final String REST_URL_SECURE_BULK_DOWNLOAD = "/service/plugins/secure/bulk/download";
+
 	private static final int MAX_PLUGIN_ID_LEN = 255;
 	
 	public static final String REST_PARAM_CLUSTER_NAME   = "clusterName";
@@ -24,8 +24,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -39,9 +43,11 @@ public class RangerRequestExprResolver {
     private static final Pattern PATTERN            = Pattern.compile("\\$\\{\\{(?<" + REGEX_GROUP_EXPR + ">.*?)\\}\\}");
     public  static final String  EXPRESSION_START   = "${{";
 
-    private final String  str;
-    private final String  serviceType;
-    private final boolean hasTokens;
+    private final String         str;
+    private final String         serviceType;
+    private final boolean        hasTokens;
+    private final ScriptEngine   scriptEngine;
+    private final List<Fragment> fragments;
 
 
     public RangerRequestExprResolver(String str, String serviceType) {
@@ -49,6 +55,14 @@ public RangerRequestExprResolver(String str, String serviceType) {
         this.serviceType = serviceType;
         this.hasTokens   = hasExpressions(str);
 
+        if (hasTokens) {
+            this.scriptEngine = ScriptEngineUtil.createScriptEngine(SCRIPT_ENGINE_NAME, serviceType);
+            this.fragments    = compileExpressions(str, scriptEngine);
+        } else {
+            this.scriptEngine = null;
+            this.fragments    = Collections.emptyList();
+        }
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("RangerRequestExprResolver(" + str + "): hasTokens=" + hasTokens);
         }
@@ -59,18 +73,23 @@ public String resolveExpressions(RangerAccessRequest request) {
 
         if (hasTokens) {
             RangerRequestScriptEvaluator scriptEvaluator = new RangerRequestScriptEvaluator(request);
-            ScriptEngine                 scriptEngine    = ScriptEngineUtil.createScriptEngine(SCRIPT_ENGINE_NAME, serviceType);
-            StringBuffer                 sb              = new StringBuffer();
-            Matcher                      matcher         = PATTERN.matcher(str);
+            StringBuilder                sb              = new StringBuilder();
 
-            while (matcher.find()) {
-                String expr = matcher.group(REGEX_GROUP_EXPR);
-                String val  = Objects.toString(scriptEvaluator.evaluateScript(scriptEngine, expr));
+            for (Fragment fragment : fragments) {
+                sb.append(fragment.text);
 
-                matcher.appendReplacement(sb, val);
-            }
+                if (fragment.expr != null) {
+                    final Object val;
+
+                    if (fragment.compiledExpr != null) {
+                        val = scriptEvaluator.evaluateScript(scriptEngine, fragment.compiledExpr, fragment.enableJsonCtx);
+                    } else {
+                        val = scriptEvaluator.evaluateScript(scriptEngine, fragment.expr);
+                    }
 
-            matcher.appendTail(sb);
+                    sb.append(Objects.toString(val));
+                }
+            }
 
             ret = sb.toString();
 
@@ -186,4 +205,39 @@ public static boolean hasUserGroupAttributeInExpression(Collection<String> value
 
         return ret;
     }
+
+    // splits str into text and ${{...}} expressions; expressions are compiled here, once, instead of on each resolveExpressions()
+    private static List<Fragment> compileExpressions(String str, ScriptEngine scriptEngine) {
+        List<Fragment> ret     = new ArrayList<>();
+        Matcher        matcher = PATTERN.matcher(str);
+        int            textPos = 0;
+
+        while (matcher.find()) {
+            String         expr          = matcher.group(REGEX_GROUP_EXPR);
+            boolean        enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(RangerRequestScriptEvaluator.expandMacros(expr));
+            CompiledScript compiledExpr  = scriptEngine != null ? RangerRequestScriptEvaluator.compileScript(scriptEngine, expr, enableJsonCtx) : null;
+
+            ret.add(new Fragment(str.substring(textPos, matcher.start()), expr, compiledExpr, enableJsonCtx));
+
+            textPos = matcher.end();
+        }
+
+        ret.add(new Fragment(str.substring(textPos), null, null, false));
+
+        return ret;
+    }
+
+    private static class Fragment {
+        final String         text;
+        final String         expr;
+        final CompiledScript compiledExpr;
+        final boolean        enableJsonCtx;
+
+        Fragment(String text, String expr, CompiledScript compiledExpr, boolean enableJsonCtx) {
+            this.text          = text;
+            this.expr          = expr;
+            this.compiledExpr  = compiledExpr;
+            this.enableJsonCtx = enableJsonCtx;
+        }
+    }
 }
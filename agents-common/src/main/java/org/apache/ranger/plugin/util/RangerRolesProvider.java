@@ -51,6 +51,7 @@ public class RangerRolesProvider {
 	private final String            cacheDir;
 	private final Gson              gson;
 	private final boolean           disableCacheIfServiceNotFound;
+	private final boolean           useBinaryCache;
 
 	private long	lastActivationTimeInMillis;
 	private long    lastKnownRoleVersion = -1L;
@@ -89,6 +90,7 @@ public RangerRolesProvider(String serviceType, String appId, String serviceName,
 
 		String propertyPrefix = "ranger.plugin." + serviceType;
 		disableCacheIfServiceNotFound = config.getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+		useBinaryCache                = StringUtils.equalsIgnoreCase(config.get(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.POLICY_CACHE_FORMAT_DEFAULT), RangerCommonConstants.POLICY_CACHE_FORMAT_BINARY);
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerRolesProvider(serviceName=" + serviceName + ").RangerRolesProvider()");
@@ -220,7 +222,13 @@ private RangerRoles loadUserGroupRolesFromCache() {
 
 		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
-		if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+		if (useBinaryCache && cacheFile != null) {
+			roles = loadUserGroupRolesFromBinaryCache(RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+		}
+
+		if (roles != null) {
+			LOG.info("RangerRolesProvider(serviceName=" + serviceName + "): loaded roles from binary cache file. version=" + lastKnownRoleVersion);
+		} else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 			Reader reader = null;
 
 			RangerPerfTracer perf = null;
@@ -272,6 +280,40 @@ private RangerRoles loadUserGroupRolesFromCache() {
 		return roles;
 	}
 
+	private RangerRoles loadUserGroupRolesFromBinaryCache(File cacheFile) {
+		RangerRoles roles = null;
+
+		if (cacheFile.isFile() && cacheFile.canRead()) {
+			RangerPerfTracer perf = null;
+
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.loadUserGroupRolesFromBinaryCache(serviceName=" + serviceName + ")");
+			}
+
+			try {
+				roles = RangerBinaryCacheFile.readRoles(cacheFile);
+
+				if (roles != null) {
+					if (!StringUtils.equals(serviceName, roles.getServiceName())) {
+						LOG.warn("ignoring unexpected serviceName '" + roles.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
+
+						roles.setServiceName(serviceName);
+					}
+
+					lastKnownRoleVersion = roles.getRoleVersion() == null ? -1 : roles.getRoleVersion().longValue();
+				}
+			} catch (Exception excp) {
+				LOG.error("failed to load userGroupRoles from binary cache file " + cacheFile.getAbsolutePath() + ". Will try JSON cache file", excp);
+
+				roles = null;
+			} finally {
+				RangerPerfTracer.log(perf);
+			}
+		}
+
+		return roles;
+	}
+
 	public void saveToCache(RangerRoles roles) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerRolesProvider(serviceName=" + serviceName + ").saveToCache()");
@@ -305,9 +347,13 @@ public void saveToCache(RangerRoles roles) {
 				Writer writer = null;
 
 				try {
-					writer = new FileWriter(cacheFile);
+					if (useBinaryCache) {
+						RangerBinaryCacheFile.writeRoles(roles, RangerBinaryCacheFile.getBinaryCacheFile(cacheFile));
+					} else {
+						writer = new FileWriter(cacheFile);
 
-			        gson.toJson(roles, writer);
+						gson.toJson(roles, writer);
+					}
 		        } catch (Exception excp) {
 					LOG.error("failed to save roles to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
@@ -336,7 +382,18 @@ private void disableCache() {
 			LOG.debug("==> RangerRolesProvider.disableCache(serviceName=" + serviceName + ")");
 		}
 
-		File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File cacheFile       = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
+		File binaryCacheFile = cacheFile == null ? null : RangerBinaryCacheFile.getBinaryCacheFile(cacheFile);
+
+		if (binaryCacheFile != null && binaryCacheFile.isFile()) {
+			String renamedCacheFile = binaryCacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
+
+			if (!binaryCacheFile.renameTo(new File(renamedCacheFile))) {
+				LOG.error("Failed to move " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+			} else {
+				LOG.warn("Moved " + binaryCacheFile.getAbsolutePath() + " to " + renamedCacheFile);
+			}
+		}
 
 		if(cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 			LOG.warn("Cleaning up local RangerRoles cache");
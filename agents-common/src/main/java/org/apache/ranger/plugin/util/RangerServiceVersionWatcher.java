@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits in Ranger Admin for the policy, tag or role version of the service to change and then triggers an immediate
+ * download in PolicyRefresher and RangerTagEnricher, instead of waiting for their next scheduled poll. When Ranger
+ * Admin doesn't support the wait, or the wait fails, the watcher retries after the polling interval; scheduled polling
+ * continues in either case.
+ */
+public class RangerServiceVersionWatcher extends Thread {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerServiceVersionWatcher.class);
+
+	private final RangerBasePlugin  plugIn;
+	private final PolicyRefresher   policyRefresher;
+	private final RangerAdminClient rangerAdmin;
+	private final long              waitTimeMs;
+	private final long              retryIntervalMs;
+	private final DownloadTrigger   policyDownloadTrigger = new DownloadTrigger();
+	private final DownloadTrigger   tagDownloadTrigger    = new DownloadTrigger();
+
+	public RangerServiceVersionWatcher(RangerBasePlugin plugIn, PolicyRefresher policyRefresher, long waitTimeMs, long retryIntervalMs) {
+		this.plugIn          = plugIn;
+		this.policyRefresher = policyRefresher;
+		this.rangerAdmin     = policyRefresher.getRangerAdminClient();
+		this.waitTimeMs      = waitTimeMs;
+		this.retryIntervalMs = retryIntervalMs;
+
+		setName("RangerServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ")-" + getId());
+		setDaemon(true);
+	}
+
+	public void stopWatcher() {
+		if (super.isAlive()) {
+			// the watcher might be blocked on a wait in Ranger Admin; it exits once the wait returns
+			super.interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ").run()");
+		}
+
+		while (!isInterrupted()) {
+			try {
+				if (!waitAndSync()) {
+					Thread.sleep(retryIntervalMs);
+				}
+			} catch (InterruptedException excp) {
+				LOG.info("RangerServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ").run(): interrupted! Exiting thread");
+
+				break;
+			} catch (Exception excp) {
+				LOG.warn("RangerServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ").run(): failed to wait for version change. Will retry in " + retryIntervalMs + " milliseconds", excp);
+
+				try {
+					Thread.sleep(retryIntervalMs);
+				} catch (InterruptedException interruptedExcp) {
+					break;
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ").run()");
+		}
+	}
+
+	/**
+	 * @return false if the watcher should wait for the retry interval before the next wait in Ranger Admin
+	 */
+	boolean waitAndSync() throws Exception {
+		final long policyVersion = plugIn.getPoliciesVersion();
+
+		if (policyVersion < 0) { // policies not yet loaded; leave it to PolicyRefresher
+			return false;
+		}
+
+		final long              roleVersion = plugIn.getRolesVersion();
+		final RangerTagEnricher tagEnricher = plugIn.getTagEnricher();
+		final long              tagVersion  = tagEnricher != null ? plugIn.getTagsVersion() : -1L;
+
+		RangerServiceVersions versions = rangerAdmin.waitForServiceVersionChange(policyVersion, tagVersion, roleVersion, waitTimeMs);
+
+		if (versions == null) {
+			return false;
+		}
+
+		boolean isPoliciesChanged = isBehind(policyVersion, versions.getPolicyVersion()) || isBehind(roleVersion, versions.getRoleVersion());
+		boolean isTagsChanged     = tagEnricher != null && isBehind(tagVersion, versions.getTagVersion());
+
+		if (!isPoliciesChanged && !isTagsChanged) {
+			// wait timed out - wait again; otherwise Ranger Admin is behind the plugin, which can happen briefly across Ranger Admin instances
+			return !versions.isChangedFrom(policyVersion, tagVersion, roleVersion);
+		}
+
+		if (isPoliciesChanged) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerServiceVersionWatcher: policies/roles changed - " + versions + "; known policyVersion=" + policyVersion + ", roleVersion=" + roleVersion);
+			}
+
+			policyRefresher.syncPoliciesWithAdmin(policyDownloadTrigger);
+		}
+
+		if (isTagsChanged) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerServiceVersionWatcher: tags changed - " + versions + "; known tagVersion=" + tagVersion);
+			}
+
+			tagEnricher.syncTagsWithAdmin(tagDownloadTrigger);
+		}
+
+		// if a download didn't bring the plugin up to the notified versions, don't wait again right away: the wait would return immediately
+		boolean isStillBehind = isBehind(plugIn.getPoliciesVersion(), versions.getPolicyVersion()) ||
+		                        isBehind(plugIn.getRolesVersion(), versions.getRoleVersion()) ||
+		                        (tagEnricher != null && isBehind(plugIn.getTagsVersion(), versions.getTagVersion()));
+
+		return !isStillBehind;
+	}
+
+	private static boolean isBehind(long knownVersion, Long notifiedVersion) {
+		return notifiedVersion != null && knownVersion >= 0 && knownVersion < notifiedVersion;
+	}
+}
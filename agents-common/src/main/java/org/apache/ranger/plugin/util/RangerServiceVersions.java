@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Versions of the policies, tags and roles of a service, as known to Ranger Admin.
+ */
+@JsonAutoDetect(fieldVisibility= JsonAutoDetect.Visibility.ANY)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RangerServiceVersions implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String serviceName;
+    private Long   policyVersion;
+    private Long   tagVersion;
+    private Long   roleVersion;
+
+    public RangerServiceVersions() {
+        this(null, null, null, null);
+    }
+
+    public RangerServiceVersions(String serviceName, Long policyVersion, Long tagVersion, Long roleVersion) {
+        this.serviceName   = serviceName;
+        this.policyVersion = policyVersion;
+        this.tagVersion    = tagVersion;
+        this.roleVersion   = roleVersion;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public Long getPolicyVersion() {
+        return policyVersion;
+    }
+
+    public void setPolicyVersion(Long policyVersion) {
+        this.policyVersion = policyVersion;
+    }
+
+    public Long getTagVersion() {
+        return tagVersion;
+    }
+
+    public void setTagVersion(Long tagVersion) {
+        this.tagVersion = tagVersion;
+    }
+
+    public Long getRoleVersion() {
+        return roleVersion;
+    }
+
+    public void setRoleVersion(Long roleVersion) {
+        this.roleVersion = roleVersion;
+    }
+
+    /**
+     * @return true if any of the given versions differs from the corresponding version in this object; a negative
+     * known version, or a version not known in this object, is not compared
+     */
+    public boolean isChangedFrom(long lastKnownPolicyVersion, long lastKnownTagVersion, long lastKnownRoleVersion) {
+        return isChanged(policyVersion, lastKnownPolicyVersion) || isChanged(tagVersion, lastKnownTagVersion) || isChanged(roleVersion, lastKnownRoleVersion);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serviceName, policyVersion, tagVersion, roleVersion);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof RangerServiceVersions)) {
+            return false;
+        }
+
+        RangerServiceVersions other = (RangerServiceVersions) obj;
+
+        return Objects.equals(serviceName, other.serviceName) &&
+               Objects.equals(policyVersion, other.policyVersion) &&
+               Objects.equals(tagVersion, other.tagVersion) &&
+               Objects.equals(roleVersion, other.roleVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "RangerServiceVersions={serviceName=" + serviceName
+                + ", policyVersion=" + policyVersion
+                + ", tagVersion=" + tagVersion
+                + ", roleVersion=" + roleVersion
+                + "}";
+    }
+
+    private static boolean isChanged(Long version, long lastKnownVersion) {
+        return version != null && lastKnownVersion >= 0 && version != lastKnownVersion;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent, size-bounded cache with a W-TinyLFU eviction policy.
+ *
+ * Entries are held in a ConcurrentHashMap, so reads never block. New entries enter a small LRU window; when the
+ * window overflows, its oldest entry competes for a place in the main (segmented LRU) region against the main
+ * region's eviction victim, and the one with the lower estimated access frequency is dropped. Frequencies are
+ * estimated with a 4-bit count-min sketch that is periodically halved, so that old popularity decays.
+ *
+ * Updates to the eviction policy are made under a lock: writers always take it, while readers only record their
+ * access when the lock is free - under contention some reads are not counted, which is acceptable for a cache.
+ */
+public class RangerTinyLfuCache<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerTinyLfuCache.class);
+
+    private static final int WINDOW_PERCENT    = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final String                           name;
+    private final int                              maxSize;
+    private final int                              maxWindowSize;
+    private final int                              maxMainSize;
+    private final int                              maxProtectedSize;
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final FrequencySketch                  sketch;
+    private final ReentrantLock                    evictionLock  = new ReentrantLock();
+    private final AccessOrderQueue<K, V>           window        = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V>           probation     = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V>           protect       = new AccessOrderQueue<>();
+    private final LongAdder                        hitCount      = new LongAdder();
+    private final LongAdder                        missCount     = new LongAdder();
+    private final LongAdder                        evictionCount = new LongAdder();
+    private final LongAdder                        rejectedCount = new LongAdder();
+
+    public RangerTinyLfuCache(String name, int maxSize) {
+        this.name             = name;
+        this.maxSize          = Math.max(1, maxSize);
+        this.maxWindowSize    = Math.max(1, (this.maxSize * WINDOW_PERCENT) / 100);
+        this.maxMainSize      = this.maxSize - maxWindowSize;
+        this.maxProtectedSize = (maxMainSize * PROTECTED_PERCENT) / 100;
+        this.data             = new ConcurrentHashMap<>(Math.min(this.maxSize, 1024 * 1024));
+        this.sketch           = new FrequencySketch(this.maxSize);
+    }
+
+    public String getName() { return name; }
+
+    public int getMaxSize() { return maxSize; }
+
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+
+        if (node == null) {
+            missCount.increment();
+
+            if (evictionLock.tryLock()) {
+                try {
+                    sketch.increment(key);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+
+            return null;
+        }
+
+        hitCount.increment();
+
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        evictionLock.lock();
+
+        try {
+            Node<K, V> node = data.get(key);
+
+            if (node != null) {
+                node.value = value;
+
+                onAccess(node);
+            } else {
+                node = new Node<>(key, value);
+
+                data.put(key, node);
+                sketch.increment(key);
+                window.addLast(node, Node.WINDOW);
+
+                evictIfNeeded();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        evictionLock.lock();
+
+        try {
+            Node<K, V> node = data.remove(key);
+
+            if (node != null) {
+                unlink(node);
+            }
+
+            return node != null ? node.value : null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+
+        try {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() { return data.size(); }
+
+    public long getHitCount() { return hitCount.sum(); }
+
+    public long getMissCount() { return missCount.sum(); }
+
+    public long getEvictionCount() { return evictionCount.sum(); }
+
+    public long getRejectedCount() { return rejectedCount.sum(); }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> ret    = new LinkedHashMap<>();
+        long                hits   = getHitCount();
+        long                misses = getMissCount();
+
+        ret.put("name", name);
+        ret.put("maxSize", maxSize);
+        ret.put("size", size());
+        ret.put("hitCount", hits);
+        ret.put("missCount", misses);
+        ret.put("hitRatio", (hits + misses) > 0 ? ((double) hits / (hits + misses)) : 0.0);
+        ret.put("evictionCount", getEvictionCount());
+        ret.put("rejectedCount", getRejectedCount());
+
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerTinyLfuCache" + getStats();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+
+        switch (node.queueType) {
+            case Node.WINDOW:
+                window.moveToLast(node);
+                break;
+
+            case Node.PROBATION:
+                probation.remove(node);
+                protect.addLast(node, Node.PROTECTED);
+
+                while (protect.size > maxProtectedSize) {
+                    Node<K, V> demoted = protect.removeFirst();
+
+                    probation.addLast(demoted, Node.PROBATION);
+                }
+                break;
+
+            case Node.PROTECTED:
+                protect.moveToLast(node);
+                break;
+
+            default: // node was removed from the cache after it was read
+                break;
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (window.size > maxWindowSize) {
+            Node<K, V> candidate = window.removeFirst();
+
+            if (probation.size + protect.size < maxMainSize) {
+                probation.addLast(candidate, Node.PROBATION);
+
+                continue;
+            }
+
+            Node<K, V> victim = probation.size > 0 ? probation.peekFirst() : protect.peekFirst();
+
+            if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                unlink(victim);
+                evict(victim);
+
+                probation.addLast(candidate, Node.PROBATION);
+            } else {
+                evict(candidate);
+
+                rejectedCount.increment();
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            evictionCount.increment();
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerTinyLfuCache(" + name + "): evicted key=" + node.key);
+            }
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queueType) {
+            case Node.WINDOW:
+                window.remove(node);
+                break;
+
+            case Node.PROBATION:
+                probation.remove(node);
+                break;
+
+            case Node.PROTECTED:
+                protect.remove(node);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private static final class Node<K, V> {
+        static final int NONE      = 0;
+        static final int WINDOW    = 1;
+        static final int PROBATION = 2;
+        static final int PROTECTED = 3;
+
+        final K    key;
+        volatile V value;
+        int        queueType = NONE;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key   = key;
+            this.value = value;
+        }
+    }
+
+    private static final class AccessOrderQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int        size;
+
+        Node<K, V> peekFirst() { return head; }
+
+        void addLast(Node<K, V> node, int queueType) {
+            node.queueType = queueType;
+            node.prev      = tail;
+            node.next      = null;
+
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+
+            tail = node;
+            size++;
+        }
+
+        Node<K, V> removeFirst() {
+            Node<K, V> ret = head;
+
+            if (ret != null) {
+                remove(ret);
+            }
+
+            return ret;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+
+            node.prev      = null;
+            node.next      = null;
+            node.queueType = Node.NONE;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                int queueType = node.queueType;
+
+                remove(node);
+                addLast(node, queueType);
+            }
+        }
+
+        void clear() {
+            for (Node<K, V> node = head; node != null; ) {
+                Node<K, V> next = node.next;
+
+                node.prev      = null;
+                node.next      = null;
+                node.queueType = Node.NONE;
+                node           = next;
+            }
+
+            head = tail = null;
+            size = 0;
+        }
+    }
+
+    /*
+     * 4-bit count-min sketch, with depth of 4. Each long in the table holds 16 counters; an item maps to 4 counters
+     * within the long selected for each of the 4 hash functions. When the number of increments reaches the sample
+     * size, all counters are halved.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS      = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long   RESET_MASK = 0x7777777777777777L;
+        private static final long   ONE_MASK   = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int    tableMask;
+        private final int    sampleSize;
+        private       int    size;
+
+        FrequencySketch(int maxSize) {
+            int tableSize = Integer.highestOneBit(Math.max(2, Math.min(maxSize, 1 << 24)) - 1) << 1;
+
+            this.table      = new long[tableSize];
+            this.tableMask  = tableSize - 1;
+            this.sampleSize = 10 * Math.max(1, maxSize);
+        }
+
+        int frequency(Object item) {
+            int hash  = spread(item.hashCode());
+            int start = (hash & 3) << 2;
+            int ret   = Integer.MAX_VALUE;
+
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+
+                ret = Math.min(ret, count);
+            }
+
+            return ret;
+        }
+
+        void increment(Object item) {
+            int     hash    = spread(item.hashCode());
+            int     start   = (hash & 3) << 2;
+            boolean isAdded = false;
+
+            for (int i = 0; i < 4; i++) {
+                isAdded |= incrementAt(indexOf(hash, i), start + i);
+            }
+
+            if (isAdded && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int  offset = j << 2;
+            long mask   = (0xfL << offset);
+
+            if ((table[i] & mask) != mask) {
+                table[i] += (1L << offset);
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private void reset() {
+            int count = 0;
+
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+
+            size = (size - (count >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEEDS[i]) * SEEDS[i];
+
+            hash += (hash >>> 32);
+
+            return ((int) hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.admin.client;
+
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest.ServiceRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse.ServiceResponse;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RangerBulkDownloaderTest {
+    private final Map<String, Long>              adminPolicyVersions = new HashMap<>();
+    private final Map<String, ServicePolicies>   adminPolicies       = new HashMap<>();
+    private final List<RangerBulkDownloadRequest> requests           = new ArrayList<>();
+    private final AtomicInteger                  fallbackCount       = new AtomicInteger();
+
+    @Test
+    public void testDownloadForAllServices() throws Exception {
+        RangerBulkDownloader downloader = new RangerBulkDownloader(null, 60 * 1000);
+        AtomicInteger        notified   = new AtomicInteger();
+
+        setPolicies("cl1_hive", 5L);
+        setPolicies("cl1_hdfs", 8L);
+
+        downloader.register("cl1_hive", "hive@host1", "cl1", "1f", true, false, this::download);
+        downloader.register("cl1_hdfs", "hdfs@host1", "cl1", "1f", true, false, this::download);
+        downloader.setUpdateListener("cl1_hdfs", notified::incrementAndGet);
+
+        // first poll by hive plugin downloads for both services
+        assertSame(adminPolicies.get("cl1_hive"), downloader.getServicePoliciesIfUpdated("cl1_hive", -1, 0, this::fallback));
+        assertEquals(1, requests.size());
+        assertEquals(2, requests.get(0).getServices().size());
+        assertEquals(1, notified.get());
+
+        // hdfs plugin is served from the earlier download
+        assertSame(adminPolicies.get("cl1_hdfs"), downloader.getServicePoliciesIfUpdated("cl1_hdfs", -1, 0, this::fallback));
+        assertEquals(1, requests.size());
+
+        // no change: the next poll downloads again, and the other plugin's poll within coalesce interval doesn't
+        assertNull(downloader.getServicePoliciesIfUpdated("cl1_hive", 5, 0, this::fallback));
+        assertNull(downloader.getServicePoliciesIfUpdated("cl1_hdfs", 8, 0, this::fallback));
+        assertEquals(2, requests.size());
+
+        // tags are not downloaded for plugins that didn't ask for them
+        for (ServiceRequest request : requests.get(1).getServices()) {
+            assertNull(request.getLastKnownTagVersion());
+            assertNull(request.getLastKnownRoleVersion());
+        }
+
+        assertEquals(0, fallbackCount.get());
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        RangerBulkDownloader downloader = new RangerBulkDownloader(null, 60 * 1000);
+
+        setPolicies("cl1_hive", 5L);
+
+        downloader.register("cl1_hive", "hive@host1", "cl1", "1f", true, false, this::download);
+        downloader.register("cl1_unknown", "unknown@host1", "cl1", "1f", true, false, this::download);
+
+        // download failed for one service: its plugin downloads individually
+        assertNull(downloader.getServicePoliciesIfUpdated("cl1_unknown", -1, 0, this::fallback));
+        assertEquals(1, fallbackCount.get());
+
+        // unregistered service
+        assertNull(downloader.getServicePoliciesIfUpdated("cl1_kafka", -1, 0, this::fallback));
+        assertEquals(2, fallbackCount.get());
+
+        // Ranger Admin doesn't support bulk download
+        RangerBulkDownloader unsupported = new RangerBulkDownloader(null, 60 * 1000);
+
+        unsupported.register("cl1_hive", "hive@host1", "cl1", "1f", true, false, request -> { requests.add(request); return null; });
+
+        assertNull(unsupported.getServicePoliciesIfUpdated("cl1_hive", -1, 0, this::fallback));
+        assertNull(unsupported.getServicePoliciesIfUpdated("cl1_hive", -1, 0, this::fallback));
+        assertFalse(unsupported.isSupported());
+        assertEquals(4, fallbackCount.get());
+        assertEquals(2, requests.size()); // one by each downloader
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        List<String> transports = new ArrayList<>();
+
+        setPolicies("cl1_hive", 5L);
+        setPolicies("cl2_hdfs", 8L);
+
+        RangerBulkDownloader downloader = RangerBulkDownloader.register("admin1", 60 * 1000, "cl1_hive", "hive@host1", "cl1", "1f", true, false, request -> { transports.add("hive"); return download(request); });
+
+        assertSame(downloader, RangerBulkDownloader.register("admin1", 60 * 1000, "cl2_hdfs", "hdfs@host1", "cl2", "3f", true, false, request -> { transports.add("hdfs"); return download(request); }));
+
+        // cluster name and capabilities are sent for each service
+        assertSame(adminPolicies.get("cl2_hdfs"), downloader.getServicePoliciesIfUpdated("cl2_hdfs", -1, 0, this::fallback));
+
+        for (ServiceRequest request : requests.get(0).getServices()) {
+            assertEquals(request.getServiceName().equals("cl1_hive") ? "cl1" : "cl2", request.getClusterName());
+            assertEquals(request.getServiceName().equals("cl1_hive") ? "1f" : "3f", request.getPluginCapabilities());
+        }
+
+        // stopped plugin: not included in further downloads, and its transport is not used
+        downloader.unregister("cl1_hive");
+        transports.clear();
+
+        assertFalse(downloader.isRegistered("cl1_hive"));
+        assertNull(downloader.getServicePoliciesIfUpdated("cl2_hdfs", 8, 0, this::fallback));
+        assertEquals(2, requests.size());
+        assertEquals(1, requests.get(1).getServices().size());
+        assertEquals(Collections.singletonList("hdfs"), transports);
+
+        // downloader is discarded with its last service
+        downloader.unregister("cl2_hdfs");
+
+        RangerBulkDownloader newDownloader = RangerBulkDownloader.register("admin1", 60 * 1000, "cl1_hive", "hive@host1", "cl1", "1f", true, false, this::download);
+
+        assertNotSame(downloader, newDownloader);
+
+        newDownloader.unregister("cl1_hive");
+        assertEquals(0, fallbackCount.get());
+    }
+
+    private void setPolicies(String serviceName, Long version) {
+        ServicePolicies policies = new ServicePolicies();
+
+        policies.setServiceName(serviceName);
+        policies.setPolicyVersion(version);
+
+        adminPolicyVersions.put(serviceName, version);
+        adminPolicies.put(serviceName, policies);
+    }
+
+    private RangerBulkDownloadResponse download(RangerBulkDownloadRequest request) {
+        RangerBulkDownloadResponse ret = new RangerBulkDownloadResponse();
+
+        requests.add(request);
+
+        for (ServiceRequest serviceRequest : request.getServices()) {
+            ServiceResponse response = new ServiceResponse(serviceRequest.getServiceName());
+            Long            version  = adminPolicyVersions.get(serviceRequest.getServiceName());
+
+            if (version == null) {
+                response.setPolicyStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.setErrorMessage("service not found");
+            } else if (version.equals(serviceRequest.getLastKnownPolicyVersion())) {
+                response.setPolicyStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            } else {
+                response.setPolicyStatus(HttpServletResponse.SC_OK);
+                response.setPolicies(adminPolicies.get(serviceRequest.getServiceName()));
+            }
+
+            ret.getServices().add(response);
+        }
+
+        return ret;
+    }
+
+    private ServicePolicies fallback() {
+        fallbackCount.incrementAndGet();
+
+        return null;
+    }
+}
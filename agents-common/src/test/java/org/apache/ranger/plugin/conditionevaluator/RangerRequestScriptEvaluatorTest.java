@@ -29,8 +29,11 @@
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import java.util.Arrays;
@@ -138,6 +141,26 @@ public void testRequestAttributes() {
         Assert.assertFalse("test: HAS_NO_TAG", (Boolean) evaluator.evaluateScript(scriptEngine, "HAS_NO_TAG"));
     }
 
+    @Test
+    public void testCompiledScript() {
+        Assume.assumeNotNull(scriptEngine); // no JavaScript engine in JDK 15+
+
+        CompiledScript compiledScript = RangerRequestScriptEvaluator.compileScript(scriptEngine, "IS_IN_GROUP('test-group1') && USER.state == 'CA'", true);
+        Bindings       bindings       = scriptEngine.createBindings();
+
+        Assert.assertNotNull("test: script compiled", compiledScript);
+
+        for (List<String> tags : Arrays.asList(Arrays.asList("PII"), Arrays.asList("PCI"))) { // compiled script and bindings reused across requests
+            RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(createRequest(tags));
+
+            Assert.assertEquals("test: compiled condition", Boolean.TRUE, evaluator.evaluateConditionScript(scriptEngine, compiledScript, bindings, true));
+            Assert.assertTrue("test: compiled condition result", evaluator.getResult());
+            Assert.assertEquals("test: compiled TAG_NAMES_CSV", tags.get(0), evaluator.evaluateScript(scriptEngine, RangerRequestScriptEvaluator.compileScript(scriptEngine, "TAG_NAMES_CSV", true), true));
+        }
+
+        Assert.assertNull("test: invalid script is not compiled", RangerRequestScriptEvaluator.compileScript(scriptEngine, "IS_IN_GROUP(", true));
+    }
+
 
     RangerAccessRequest createRequest(List<String> resourceTags) {
         RangerAccessResource resource = mock(RangerAccessResource.class);
@@ -27,6 +27,8 @@
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,6 +38,8 @@
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 
 public class TestPathResourceTrie {
@@ -67,7 +71,8 @@ public class TestPathResourceTrie {
 																						EVAL_TMPA_B
 																						);
 
-	private final RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> trie        = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> compactTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, true, false, true, null);
 
 	@Test
 	public void testChildrenScope() {
@@ -99,7 +104,147 @@ public void testSelfScope() {
 		verifyEvaluators("invalid: does-not-begin-with-sep", scope);
 	}
 
+	@Test
+	public void testCompactTrieCopyOnWrite() {
+		final RangerAccessRequest.ResourceMatchingScope scope = RangerAccessRequest.ResourceMatchingScope.SELF;
+
+		RangerResourceTrie<RangerResourceEvaluator> copy = new RangerResourceTrie<>(compactTrie);
+
+		assertSame(compactTrie.getRoot().getChild('/').getWildcardEvaluators(), copy.getRoot().getChild('/').getWildcardEvaluators());
+
+		compactTrie.delete(EVAL_TMP_AB.getPolicyResource().get("path"), EVAL_TMP_AB);
+		compactTrie.wrapUpUpdate();
+
+		verifyEvaluators(compactTrie, "/tmp/ab", scope, EVAL_);
+		verifyEvaluators(copy, "/tmp/ab", scope, EVAL_, EVAL_TMP_AB);
+		verifyEvaluators(compactTrie, "/tmp", scope, EVAL_, EVAL_TMPnr);
+		verifyEvaluators(copy, "/tmp", scope, EVAL_, EVAL_TMPnr);
+
+		compactTrie.add(EVAL_TMP_AB.getPolicyResource().get("path"), EVAL_TMP_AB);
+		compactTrie.wrapUpUpdate();
+
+		verifyEvaluators(compactTrie, "/tmp/ab", scope, EVAL_, EVAL_TMP_AB);
+	}
+
+	@Test
+	public void testCopyOnWriteTrie() {
+		// default, lazy set up, optimized for space, compact
+		verifyCopyOnWrite(new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS));
+		verifyCopyOnWrite(new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, null));
+		verifyCopyOnWrite(new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, true, null));
+		verifyCopyOnWrite(new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, true, false, true, null));
+	}
+
+	private void verifyCopyOnWrite(RangerResourceTrie<RangerResourceEvaluator> source) {
+		final RangerAccessRequest.ResourceMatchingScope scope        = RangerAccessRequest.ResourceMatchingScope.SELF;
+		final RangerResourceEvaluator                   evalHomeUser = getEvaluator("/home/user1", false, false);
+		final RangerResourceEvaluator                   evalTmp      = getEvaluator("/tmp", false, true);
+
+		verifyEvaluators(source, "/tmp/ab", scope, EVAL_, EVAL_TMP_AB);
+
+		RangerResourceTrie<RangerResourceEvaluator> copy = new RangerResourceTrie<>(source, true);
+
+		assertSame(getNode(source, "/"), getNode(copy, "/"));
+
+		copy.delete(EVAL_TMP_AB.getPolicyResource().get("path"), EVAL_TMP_AB);
+		copy.add(evalHomeUser.getPolicyResource().get("path"), evalHomeUser);
+		copy.wrapUpUpdate();
+
+		// only nodes in the modified paths are copied
+		assertNotSame(getNode(source, "/tmp"), getNode(copy, "/tmp"));
+		assertNotSame(getNode(source, "/home"), getNode(copy, "/home"));
+		assertSame(getNode(source, "/tmpfile"), getNode(copy, "/tmpfile"));
+		assertSame(getNode(source, "/tmpa/b"), getNode(copy, "/tmpa/b"));
+
+		verifyEvaluators(copy, "/tmp/ab", scope, EVAL_);
+		verifyEvaluators(copy, "/home/user1", scope, EVAL_, EVAL_HOME, EVAL_HOME_, evalHomeUser);
+		verifyEvaluators(copy, "/tmp/ac/d/e/f", scope, EVAL_, EVAL_TMP_AC_D_E_F);
+
+		RangerResourceTrie<RangerResourceEvaluator> copy2 = new RangerResourceTrie<>(copy, true);
+
+		// a wildcard evaluator added to /tmp applies to the descendants of /tmp, that are shared with source and copy
+		copy2.add(evalTmp.getPolicyResource().get("path"), evalTmp);
+		copy2.wrapUpUpdate();
+
+		verifyEvaluators(copy2, "/tmp/ac/d/e/f", scope, EVAL_, EVAL_TMP_AC_D_E_F, evalTmp);
+		verifyEvaluators(copy2, "/tmp.txt", scope, EVAL_, EVAL_TMPdTXT, evalTmp);
+		verifyEvaluators(copy2, "/tmpa/b/c", scope, EVAL_, EVAL_TMPA_B, evalTmp);
+		verifyEvaluators(copy2, "/home/user1", scope, EVAL_, EVAL_HOME, EVAL_HOME_, evalHomeUser);
+
+		// earlier versions are unchanged
+		verifyEvaluators(copy, "/tmp/ac/d/e/f", scope, EVAL_, EVAL_TMP_AC_D_E_F);
+		verifyEvaluators(copy, "/tmp.txt", scope, EVAL_, EVAL_TMPdTXT);
+		verifyEvaluators(copy, "/tmpa/b/c", scope, EVAL_, EVAL_TMPA_B);
+		verifyEvaluators(source, "/tmp/ab", scope, EVAL_, EVAL_TMP_AB);
+		verifyEvaluators(source, "/home/user1", scope, EVAL_, EVAL_HOME, EVAL_HOME_);
+		verifyEvaluators(source, "/tmp/ac/d/e/f", scope, EVAL_, EVAL_TMP_AC_D_E_F);
+		verifyEvaluators(source, "/tmpa/b/c", scope, EVAL_, EVAL_TMPA_B);
+		verifyEvaluators(source, "/tmp", RangerAccessRequest.ResourceMatchingScope.SELF_OR_CHILD, EVAL_, EVAL_TMPnr, EVAL_TMP_nr, EVAL_TMP_AB);
+	}
+
+	@Test
+	public void testCopyOnWriteReleasesOldCopies() throws InterruptedException {
+		final int                                        numCopies = 200;
+		final List<WeakReference<RangerResourceTrie<?>>> oldCopies = new ArrayList<>();
+		final RangerResourceEvaluator                    evalTmp   = getEvaluator("/tmp", false, true);
+
+		RangerResourceTrie<RangerResourceEvaluator> latest = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, true, false, true, null);
+
+		for (int i = 0; i < numCopies; i++) {
+			RangerResourceTrie<RangerResourceEvaluator> copy = new RangerResourceTrie<>(latest, true);
+
+			if (i % 2 == 0) {
+				copy.add(evalTmp.getPolicyResource().get("path"), evalTmp);
+			} else {
+				copy.delete(evalTmp.getPolicyResource().get("path"), evalTmp);
+			}
+
+			copy.wrapUpUpdate();
+
+			oldCopies.add(new WeakReference<>(latest));
+
+			latest = copy;
+		}
+
+		// nodes shared with the latest copy must not keep earlier copies reachable
+		for (int i = 0; i < 50 && countReachable(oldCopies) > 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+
+		assertEquals("old trie copies still reachable", 0, countReachable(oldCopies));
+
+		verifyEvaluators(latest, "/tmp/ac/d/e/f", RangerAccessRequest.ResourceMatchingScope.SELF, EVAL_, EVAL_TMP_AC_D_E_F);
+	}
+
+	private static int countReachable(List<WeakReference<RangerResourceTrie<?>>> refs) {
+		int ret = 0;
+
+		for (WeakReference<RangerResourceTrie<?>> ref : refs) {
+			if (ref.get() != null) {
+				ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	private RangerResourceTrie.TrieNode<RangerResourceEvaluator> getNode(RangerResourceTrie<RangerResourceEvaluator> trie, String path) {
+		RangerResourceTrie.TrieNode<RangerResourceEvaluator> ret = trie.getRoot();
+
+		for (int i = 0; ret != null && i < path.length(); i += ret.getStr().length()) {
+			ret = ret.getChild(path.charAt(i));
+		}
+
+		return ret;
+	}
+
 	private void verifyEvaluators(String resource, RangerAccessRequest.ResourceMatchingScope scope, RangerResourceEvaluator... evaluators) {
+		verifyEvaluators(trie, resource, scope, evaluators);
+		verifyEvaluators(compactTrie, resource, scope, evaluators);
+	}
+
+	private void verifyEvaluators(RangerResourceTrie<RangerResourceEvaluator> trie, String resource, RangerAccessRequest.ResourceMatchingScope scope, RangerResourceEvaluator... evaluators) {
 		Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
 		Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
 
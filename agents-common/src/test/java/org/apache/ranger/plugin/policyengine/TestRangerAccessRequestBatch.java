@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessRequestBatch {
+	private static final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+	@Test
+	public void testDuplicateRequests() {
+		RangerAccessRequest first     = createRequest("finance", "tax", "c1", "select", "user1");
+		RangerAccessRequest duplicate = createRequest("finance", "tax", "c1", "select", "user1");
+		RangerAccessRequest otherUser = createRequest("finance", "tax", "c1", "select", "user2");
+
+		try (RangerAccessRequestBatch batch = RangerAccessRequestBatch.open()) {
+			RangerAccessRequestBatch.RequestKey key = batch.createKey(first, RangerPolicy.POLICY_TYPE_ACCESS);
+
+			assertNull(batch.getResult(key, first));
+
+			RangerAccessResult result = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, "cm_hive", null, first);
+
+			result.setIsAllowed(true);
+			result.setIsAccessDetermined(true);
+			result.setPolicyId(10L);
+
+			batch.putResult(key, result);
+
+			RangerAccessResult copy = batch.getResult(batch.createKey(duplicate, RangerPolicy.POLICY_TYPE_ACCESS), duplicate);
+
+			assertNotNull(copy);
+			assertTrue(copy.getIsAllowed());
+			assertEquals(10L, copy.getPolicyId());
+			assertSame(duplicate, copy.getAccessRequest());
+
+			assertNull(batch.getResult(batch.createKey(otherUser, RangerPolicy.POLICY_TYPE_ACCESS), otherUser));
+			assertNull(batch.getResult(batch.createKey(duplicate, RangerPolicy.POLICY_TYPE_DATAMASK), duplicate));
+
+			((RangerAccessRequestImpl) duplicate).setRequestData("select c1 from finance.tax where c2 = 1");
+
+			assertNull(batch.getResult(batch.createKey(duplicate, RangerPolicy.POLICY_TYPE_ACCESS), duplicate));
+			assertEquals(1, batch.getResultHitCount());
+		}
+	}
+
+	@Test
+	public void testBatchEvaluation() throws Exception {
+		RangerPolicyEngineImpl    policyEngine = createPolicyEngine(0);
+		List<RangerAccessRequest> requests     = createColumnRequests(20);
+
+		verifyBatchResults(policyEngine, requests);
+	}
+
+	@Test
+	public void testTrieLookupsAreShared() throws Exception {
+		RangerPolicyEngineImpl                            policyEngine = createPolicyEngine(0);
+		RangerResourceTrie<RangerPolicyResourceEvaluator> trie         = policyEngine.getPolicyEngine().getPolicyRepository().getTrie(RangerPolicy.POLICY_TYPE_ACCESS).get("table");
+
+		try (RangerAccessRequestBatch batch = RangerAccessRequestBatch.open()) {
+			Set<RangerPolicyResourceEvaluator> evaluators = RangerAccessRequestBatch.getEvaluatorsForResource(trie, "tax", RangerAccessRequest.ResourceMatchingScope.SELF);
+
+			assertNotNull(evaluators);
+			assertSame(evaluators, RangerAccessRequestBatch.getEvaluatorsForResource(trie, "tax", RangerAccessRequest.ResourceMatchingScope.SELF));
+			assertEquals(1, batch.getLookupHitCount());
+
+			RangerAccessRequestBatch.getEvaluatorsForResource(trie, "tax", RangerAccessRequest.ResourceMatchingScope.SELF_OR_DESCENDANTS);
+			RangerAccessRequestBatch.getEvaluatorsForResource(trie, "payroll", RangerAccessRequest.ResourceMatchingScope.SELF);
+
+			assertEquals(1, batch.getLookupHitCount());
+		}
+	}
+
+	@Test
+	public void testParallelBatchEvaluation() throws Exception {
+		RangerPolicyEngineImpl    policyEngine = createPolicyEngine(4);
+		List<RangerAccessRequest> requests     = createColumnRequests(500);
+
+		verifyBatchResults(policyEngine, requests);
+
+		ForkJoinPool pool = policyEngine.getPolicyEngine().getPluginContext().getOrCreateBatchEvaluationPool();
+
+		policyEngine.getPolicyEngine().getPluginContext().cleanup();
+
+		assertTrue(pool.isShutdown());
+
+		// after the pool is shut down, requests are evaluated in the calling thread
+		verifyBatchResults(policyEngine, requests);
+	}
+
+	private void verifyBatchResults(RangerPolicyEngineImpl policyEngine, List<RangerAccessRequest> requests) {
+		Map<RangerAccessRequest, Boolean> expected = new HashMap<>();
+
+		for (RangerAccessRequest request : requests) {
+			expected.put(request, policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null).getIsAllowed());
+		}
+
+		ResultCollector results = new ResultCollector();
+
+		assertEquals(requests.size(), results.evaluate(policyEngine, requests).size());
+
+		Iterator<RangerAccessRequest> iterRequest = requests.iterator();
+
+		for (RangerAccessResult result : results.results) { // results must be in the order of requests
+			RangerAccessRequest request = iterRequest.next();
+
+			assertSame(request, result.getAccessRequest());
+			assertEquals(request.toString(), expected.get(request), result.getIsAllowed());
+		}
+
+		assertTrue(results.allowedCount > 0);
+		assertTrue(results.allowedCount < requests.size());
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(int batchEvaluationParallelism) throws Exception {
+		ServicePolicies servicePolicies;
+
+		try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/policyengine/comparison/success/myServicePolicies.json"), StandardCharsets.UTF_8)) {
+			servicePolicies = gson.fromJson(reader, ServicePolicies.class);
+		}
+
+		RangerPolicy                      policy    = new RangerPolicy();
+		Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+		resources.put("database", new RangerPolicyResource("finance"));
+		resources.put("table", new RangerPolicyResource("tax"));
+		resources.put("column", new RangerPolicyResource(Arrays.asList("c1*", "c2*"), false, false));
+
+		policy.setId(100L);
+		policy.setService(servicePolicies.getServiceName());
+		policy.setName("finance-tax");
+		policy.setIsEnabled(true);
+		policy.setResources(resources);
+		policy.setPolicyItems(Collections.singletonList(new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user1"), null, null, null, false)));
+
+		servicePolicies.getPolicies().add(policy);
+
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.disableTagPolicyEvaluation = true;
+		options.batchEvaluationParallelism = batchEvaluationParallelism;
+
+		RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", servicePolicies.getServiceName(), "hive", "cl1", "on-prem", options));
+
+		return new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+	}
+
+	// columns of one table, with a few duplicates and requests from another user
+	private List<RangerAccessRequest> createColumnRequests(int count) {
+		List<RangerAccessRequest> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			String user   = (i % 7) == 0 ? "user2" : "user1";
+			String column = "c" + ((i % 10) == 0 ? 1 : i);
+
+			ret.add(createRequest("finance", "tax", column, "select", user));
+		}
+
+		return ret;
+	}
+
+	private RangerAccessRequest createRequest(String database, String table, String column, String accessType, String user) {
+		RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+		resource.setValue("database", database);
+		resource.setValue("table", table);
+		resource.setValue("column", column);
+
+		return new RangerAccessRequestImpl(resource, accessType, user, Collections.emptySet(), null);
+	}
+
+	private static class ResultCollector implements RangerAccessResultProcessor {
+		final List<RangerAccessResult> results = new ArrayList<>();
+		int                            allowedCount;
+
+		Collection<RangerAccessResult> evaluate(RangerPolicyEngine policyEngine, List<RangerAccessRequest> requests) {
+			return policyEngine.evaluatePolicies(new ArrayList<>(requests), RangerPolicy.POLICY_TYPE_ACCESS, this);
+		}
+
+		@Override
+		public void processResult(RangerAccessResult result) {
+			results.add(result);
+		}
+
+		@Override
+		public void processResults(Collection<RangerAccessResult> results) {
+			for (RangerAccessResult result : results) {
+				processResult(result);
+
+				if (result.getIsAllowed()) {
+					allowedCount++;
+				}
+			}
+		}
+	}
+}
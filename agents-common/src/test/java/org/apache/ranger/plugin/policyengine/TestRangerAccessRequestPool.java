@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessRequestPool {
+	@Test
+	public void testReset() {
+		RangerAccessRequestPool<RangerAccessRequestImpl> pool     = createPool(4);
+		RangerAccessRequestImpl                          request  = pool.acquire();
+		RangerAccessResourceImpl                         resource = (RangerAccessResourceImpl) request.getResource();
+		Map<String, Object>                              context  = request.getContext();
+
+		resource.setValue("database", "finance");
+		resource.setOwnerUser("owner1");
+		request.setAccessType("select");
+		request.setUser("user1");
+		request.setUserGroups(Collections.singleton("group1"));
+		request.setAccessTime(new Date());
+		request.setClientIPAddress("10.0.0.1");
+		request.setAction("query");
+		request.setRequestData("select * from finance.tax");
+		request.setResourceMatchingScope(RangerAccessRequest.ResourceMatchingScope.SELF_OR_DESCENDANTS);
+		context.put("key1", "value1");
+
+		pool.release(request);
+
+		RangerAccessRequestImpl reused = pool.acquire();
+
+		assertSame(request, reused);
+		assertSame(resource, reused.getResource());
+		assertSame(context, reused.getContext());
+		assertTrue(resource.getKeys() == null || resource.getKeys().isEmpty());
+		assertNull(resource.getOwnerUser());
+		assertEquals(RangerPolicyEngine.ANY_ACCESS, reused.getAccessType());
+		assertTrue(reused.isAccessTypeAny());
+		assertNull(reused.getUser());
+		assertTrue(reused.getUserGroups().isEmpty());
+		assertNull(reused.getAccessTime());
+		assertNull(reused.getClientIPAddress());
+		assertNull(reused.getAction());
+		assertNull(reused.getRequestData());
+		assertEquals(RangerAccessRequest.ResourceMatchingScope.SELF, reused.getResourceMatchingScope());
+		assertFalse(context.containsKey("key1"));
+		assertSame(reused, RangerAccessRequestUtil.getRequestFromContext(context));
+	}
+
+	@Test
+	public void testCallerOwnedMapsAreNotCleared() {
+		RangerAccessRequestPool<RangerAccessRequestImpl> pool     = createPool(4);
+		RangerAccessRequestImpl                          request  = pool.acquire();
+		Map<String, Object>                              elements = new HashMap<>();
+		Map<String, Object>                              context  = new HashMap<>();
+
+		elements.put("database", "finance");
+		context.put("key1", "value1");
+
+		request.setResource(new RangerAccessResourceImpl(elements));
+		request.setContext(context);
+
+		pool.release(request);
+
+		assertSame(request, pool.acquire());
+		assertEquals("finance", elements.get("database"));
+		assertEquals("value1", context.get("key1"));
+		assertNotSame(context, request.getContext());
+		assertFalse(request.getContext().containsKey("key1"));
+		assertNull(request.getResource().getValue("database"));
+	}
+
+	@Test
+	public void testPerThreadReuse() throws Exception {
+		RangerAccessRequestPool<RangerAccessRequestImpl> pool    = createPool(2);
+		RangerAccessRequestImpl                          request = pool.acquire();
+
+		pool.release(request);
+		pool.release(request); // repeated release must be ignored
+
+		assertEquals(1, pool.getFreeCount());
+
+		AtomicReference<RangerAccessRequestImpl> otherThreadRequest = new AtomicReference<>();
+		Thread                                   otherThread        = new Thread(() -> otherThreadRequest.set(pool.acquire()));
+
+		otherThread.start();
+		otherThread.join();
+
+		assertNotSame(request, otherThreadRequest.get());
+		assertSame(request, pool.acquire());
+		assertEquals(0, pool.getFreeCount());
+
+		RangerAccessRequestImpl r1 = pool.acquire();
+		RangerAccessRequestImpl r2 = pool.acquire();
+		RangerAccessRequestImpl r3 = pool.acquire();
+
+		pool.release(r1);
+		pool.release(r2);
+		pool.release(r3); // exceeds maxPooledPerThread
+
+		assertEquals(2, pool.getFreeCount());
+	}
+
+	@Test
+	public void testDisabledPool() {
+		RangerAccessRequestPool<RangerAccessRequestImpl> pool    = createPool(0);
+		RangerAccessRequestImpl                          request = pool.acquire();
+
+		request.setUser("user1");
+
+		pool.release(request);
+
+		assertFalse(pool.isEnabled());
+		assertEquals(0, pool.getFreeCount());
+		assertNotSame(request, pool.acquire());
+		assertEquals("user1", request.getUser());
+	}
+
+	private RangerAccessRequestPool<RangerAccessRequestImpl> createPool(int maxPooledPerThread) {
+		return new RangerAccessRequestPool<>(() -> new RangerAccessRequestImpl(new RangerAccessResourceImpl(), null, null, null, null), maxPooledPerThread);
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessResultCache {
+	private static final RangerAccessResultCache.Versions VERSIONS_1 = new RangerAccessResultCache.Versions(1, 1, 1, 1);
+	private static final RangerAccessResultCache.Versions VERSIONS_2 = new RangerAccessResultCache.Versions(2, 1, 1, 1);
+
+	@Test
+	public void testHitAndMiss() {
+		RangerAccessResultCache cache   = new RangerAccessResultCache("dev_hdfs", 100, 0);
+		RangerAccessRequest     request = createRequest("/tmp/a", "read", "user1");
+		RangerAccessResultCache.Key key = cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1);
+
+		assertNull(cache.get(key, request));
+
+		cache.put(key, createResult(request, true, 10L));
+
+		RangerAccessRequest sameRequest = createRequest("/tmp/a", "read", "user1");
+		RangerAccessResult  result      = cache.get(cache.createKey(sameRequest, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1), sameRequest);
+
+		assertNotNull(result);
+		assertTrue(result.getIsAllowed());
+		assertEquals(10L, result.getPolicyId());
+		assertSame(sameRequest, result.getAccessRequest());
+
+		RangerAccessRequest otherUser = createRequest("/tmp/a", "read", "user2");
+
+		assertNull(cache.get(cache.createKey(otherUser, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1), otherUser));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testResultIsCopied() {
+		RangerAccessResultCache     cache   = new RangerAccessResultCache("dev_hdfs", 100, 0);
+		RangerAccessRequest         request = createRequest("/tmp/a", "read", "user1");
+		RangerAccessResultCache.Key key     = cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1);
+		RangerAccessResult          result  = createResult(request, true, 10L);
+
+		cache.put(key, result);
+
+		result.setIsAllowed(false); // updates to the stored result must not affect the cached value
+
+		RangerAccessResult first  = cache.get(key, request);
+		RangerAccessResult second = cache.get(key, request);
+
+		assertTrue(first.getIsAllowed());
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void testInvalidationOnVersionChange() {
+		RangerAccessResultCache     cache   = new RangerAccessResultCache("dev_hdfs", 100, 0);
+		RangerAccessRequest         request = createRequest("/tmp/a", "read", "user1");
+		RangerAccessResultCache.Key key     = cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1);
+
+		cache.put(key, createResult(request, true, 10L));
+
+		assertEquals(1, cache.size());
+
+		RangerAccessResultCache.Key newKey = cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_2);
+
+		assertNull(cache.get(newKey, request));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getInvalidationCount());
+
+		cache.put(newKey, createResult(request, false, 11L));
+		cache.invalidate();
+
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getInvalidationCount());
+	}
+
+	@Test
+	public void testBoundedSize() {
+		RangerAccessResultCache cache = new RangerAccessResultCache("dev_hdfs", 64, 0, 4);
+
+		for (int i = 0; i < 1000; i++) {
+			RangerAccessRequest request = createRequest("/tmp/" + i, "read", "user1");
+
+			cache.put(cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1), createResult(request, true, i));
+		}
+
+		assertTrue(cache.size() <= 64);
+		assertEquals(1000 - cache.size(), cache.getEvictionCount());
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		RangerAccessResultCache     cache   = new RangerAccessResultCache("dev_hdfs", 100, 1);
+		RangerAccessRequest         request = createRequest("/tmp/a", "read", "user1");
+		RangerAccessResultCache.Key key     = cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1);
+
+		cache.put(key, createResult(request, true, 10L));
+
+		Thread.sleep(10);
+
+		assertNull(cache.get(key, request));
+		assertEquals(1, cache.getExpiryCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testMetrics() {
+		RangerAccessResultCache cache   = new RangerAccessResultCache("dev_hdfs", 100, 0);
+		RangerAccessRequest     request = createRequest("/tmp/a", "read", "user1");
+
+		cache.get(cache.createKey(request, RangerPolicy.POLICY_TYPE_ACCESS, VERSIONS_1), request);
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> metrics = (Map<String, Object>) cache.getMetrics().getData().get("accessResultCache");
+
+		assertNotNull(metrics);
+		assertEquals("dev_hdfs", metrics.get("serviceName"));
+		assertEquals(1L, metrics.get("missCount"));
+		assertEquals(0L, metrics.get("hitCount"));
+		assertFalse(metrics.containsKey("unknown"));
+	}
+
+	private RangerAccessRequest createRequest(String path, String accessType, String user) {
+		RangerAccessResourceImpl resource = new RangerAccessResourceImpl(Collections.singletonMap("path", path));
+
+		return new RangerAccessRequestImpl(resource, accessType, user, Collections.singleton("users"), null);
+	}
+
+	private RangerAccessResult createResult(RangerAccessRequest request, boolean isAllowed, long policyId) {
+		RangerAccessResult ret = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, "dev_hdfs", null, request);
+
+		ret.setIsAllowed(isAllowed);
+		ret.setIsAccessDetermined(true);
+		ret.setPolicyId(policyId);
+
+		return ret;
+	}
+}
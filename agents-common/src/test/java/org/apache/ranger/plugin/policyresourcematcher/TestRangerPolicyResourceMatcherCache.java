@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyresourcematcher;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyevaluator.RangerDefaultPolicyEvaluator;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestRangerPolicyResourceMatcherCache {
+    @Test
+    public void testMatchersAreShared() throws Exception {
+        RangerServiceDef                 serviceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive");
+        RangerPolicyResourceMatcherCache cache      = new RangerPolicyResourceMatcherCache();
+
+        RangerDefaultPolicyResourceMatcher matcher = cache.getOrCreate(createResources("db1", "tbl*"), RangerPolicy.POLICY_TYPE_ACCESS, serviceDef, null);
+
+        // equal resources, in a different map, share the matcher
+        assertSame(matcher, cache.getOrCreate(createResources("db1", "tbl*"), RangerPolicy.POLICY_TYPE_ACCESS, serviceDef, null));
+        assertNotSame(matcher, cache.getOrCreate(createResources("db1", "tbl"), RangerPolicy.POLICY_TYPE_ACCESS, serviceDef, null));
+        assertNotSame(matcher, cache.getOrCreate(createResources("db1", "tbl*"), RangerPolicy.POLICY_TYPE_DATAMASK, serviceDef, null));
+
+        RangerServiceDef updatedServiceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive");
+
+        updatedServiceDef.setVersion(serviceDef.getVersion() == null ? 2L : serviceDef.getVersion() + 1);
+
+        assertNotSame(matcher, cache.getOrCreate(createResources("db1", "tbl*"), RangerPolicy.POLICY_TYPE_ACCESS, updatedServiceDef, null));
+
+        Map<String, Object> metrics = cache.getMetrics();
+
+        assertEquals(1L, metrics.get("hitCount"));
+        assertEquals(4L, metrics.get("missCount"));
+
+        Map<String, Object> resource = new HashMap<>();
+
+        resource.put("database", "db1");
+        resource.put("table", "tbl1");
+
+        assertEquals(RangerPolicyResourceMatcher.MatchType.SELF_AND_ALL_DESCENDANTS, matcher.getMatchType(new RangerAccessResourceImpl(resource), null));
+    }
+
+    @Test
+    public void testEvaluatorsShareMatchers() throws Exception {
+        RangerServiceDef                 serviceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive");
+        RangerPolicyResourceMatcherCache cache      = new RangerPolicyResourceMatcherCache();
+        RangerPolicyEngineOptions        options1   = new RangerPolicyEngineOptions();
+        RangerPolicyEngineOptions        options2   = new RangerPolicyEngineOptions();
+
+        options2.evaluateDelegateAdminOnly = true;
+
+        RangerDefaultPolicyEvaluator evaluator1 = createEvaluator(serviceDef, options1, cache);
+        RangerDefaultPolicyEvaluator evaluator2 = createEvaluator(serviceDef, options2, cache);
+        RangerDefaultPolicyEvaluator evaluator3 = createEvaluator(serviceDef, options1, null);
+
+        RangerPolicyResourceMatcher matcher = evaluator1.getResourceEvaluators().get(0).getPolicyResourceMatcher();
+
+        assertSame(matcher, evaluator2.getResourceEvaluators().get(0).getPolicyResourceMatcher());
+        assertNotSame(matcher, evaluator3.getResourceEvaluators().get(0).getPolicyResourceMatcher());
+        assertEquals(1, cache.size());
+    }
+
+    private static RangerDefaultPolicyEvaluator createEvaluator(RangerServiceDef serviceDef, RangerPolicyEngineOptions options, RangerPolicyResourceMatcherCache cache) {
+        RangerPluginContext          pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", "cl1_hive", "hive", null, null, options));
+        RangerDefaultPolicyEvaluator ret           = new RangerDefaultPolicyEvaluator();
+        RangerPolicy                 policy        = new RangerPolicy();
+
+        pluginContext.setResourceMatcherCache(cache);
+
+        policy.setId(1L);
+        policy.setService("cl1_hive");
+        policy.setResources(createResources("db1", "tbl*"));
+        policy.setPolicyItems(Collections.singletonList(new RangerPolicy.RangerPolicyItem()));
+
+        ret.setPluginContext(pluginContext);
+        ret.init(policy, serviceDef, options);
+
+        return ret;
+    }
+
+    private static Map<String, RangerPolicyResource> createResources(String database, String table) {
+        Map<String, RangerPolicyResource> ret = new HashMap<>();
+
+        ret.put("database", new RangerPolicyResource(database));
+        ret.put("table", new RangerPolicyResource(table));
+        ret.put("column", new RangerPolicyResource("*"));
+
+        return ret;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangerWildcardPatternTest {
+    Object[][] data = {
+            // { value, pattern, ignoreCase, result }
+            { "",                  "",               false, true  },
+            { "",                  "*",              false, true  },
+            { "",                  "?",              false, false },
+            { "abc",               "abc",            false, true  },
+            { "abc",               "ABC",            false, false },
+            { "abc",               "ABC",            true,  true  },
+            { "abc",               "a?c",            false, true  },
+            { "abc",               "a??c",           false, false },
+            { "abc",               "*c",             false, true  },
+            { "abc",               "a*",             false, true  },
+            { "abc",               "a**c",           false, true  },
+            { "abc",               "*b*",            false, true  },
+            { "abc",               "*B*",            true,  true  },
+            { "abc",               "*d*",            false, false },
+            { "/app/hive/test.db", "/app/*/test.db", false, true  },
+            { "/app/hive/test.db", "/app/*/*.db",    false, true  },
+            { "/app/hive/test.db", "/app/*/*.tbl",   false, false },
+            { "/app/hive/test.db", "/APP/*/T?ST.*",  true,  true  },
+            { "aaa",               "a*a*a",          false, true  },
+            { "aa",                "a*a*a",          false, false },
+            { "abcab",             "*ab",            false, true  },
+            { "abcabd",            "*ab*d",          false, true  },
+            { "abc",               "a*?",            false, false }, // same as FilenameUtils.wildcardMatch()
+            { "ab",                "a*?",            false, true  },
+    };
+
+    @Test
+    public void testMatches() {
+        for (Object[] row : data) {
+            String  value      = (String) row[0];
+            String  pattern    = (String) row[1];
+            boolean ignoreCase = (boolean) row[2];
+            boolean expected   = (boolean) row[3];
+
+            assertEquals("value=" + value + ", pattern=" + pattern + ", ignoreCase=" + ignoreCase, expected, RangerWildcardPattern.compile(pattern, ignoreCase).matches(value));
+        }
+
+        assertFalse(RangerWildcardPattern.compile("*", false).matches(null));
+    }
+
+    @Test
+    public void testMatchesRegion() {
+        RangerWildcardPattern pattern = RangerWildcardPattern.compile("/app/*", false);
+
+        assertTrue(pattern.matches("/app/hive/test.db", 0, 9));
+        assertFalse(pattern.matches("/app/hive/test.db", 0, 4));
+        assertTrue(pattern.matches(new StringBuilder("/app/hive"), 0, 9));
+    }
+
+    @Test
+    public void testSameAsFilenameUtils() {
+        Random random   = new Random(20231017L);
+        String alphabet = "aAbB/?*";
+
+        for (int i = 0; i < 20000; i++) {
+            String  value      = randomString(random, alphabet.substring(0, 5), 8);
+            String  pattern    = randomString(random, alphabet, 6);
+            boolean ignoreCase = random.nextBoolean();
+            boolean expected   = FilenameUtils.wildcardMatch(value, pattern, ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+
+            assertEquals("value=" + value + ", pattern=" + pattern + ", ignoreCase=" + ignoreCase, expected, RangerWildcardPattern.compile(pattern, ignoreCase).matches(value));
+        }
+    }
+
+    @Test
+    public void testRecursivePathMatch() {
+        String[] paths    = { "/", "//", "/app", "/app/", "/app/hive/test.db", "/app//hive/test.db", "app/hive", "/App/Hive/" };
+        String[] patterns = { "/*", "/app/*", "/app/h*", "/app/hive", "/app/*/test.db", "/a?p/hive", "app/*", "*" };
+
+        for (String path : paths) {
+            for (String pattern : patterns) {
+                for (boolean ignoreCase : new boolean[] { false, true }) {
+                    IOCase  ioCase   = ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+                    boolean expected = RangerPathResourceMatcher.isRecursiveWildCardMatch(path, pattern, '/', ioCase);
+                    boolean actual   = RangerPathResourceMatcher.isRecursiveWildCardMatch(path, RangerWildcardPattern.compile(pattern, ignoreCase), '/');
+
+                    assertEquals("path=" + path + ", pattern=" + pattern + ", ignoreCase=" + ignoreCase, expected, actual);
+                }
+            }
+        }
+    }
+
+    private String randomString(Random random, String alphabet, int maxLength) {
+        int           len = random.nextInt(maxLength + 1);
+        StringBuilder sb  = new StringBuilder(len);
+
+        for (int i = 0; i < len; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.junit.Test;
+
+public class TestRangerPolicySearchIndex {
+	private static final String SERVICE_TYPE = "hive";
+
+	private final AbstractPredicateUtil predicateUtil = new AbstractPredicateUtil();
+	private final Random                random        = new Random(12345);
+
+	@Test
+	public void testSearchMatchesPredicates() {
+		List<RangerPolicy>      policies = createPolicies(1, 500);
+		RangerPolicySearchIndex index    = new RangerPolicySearchIndex(policies);
+
+		assertEquals(policies.size(), index.getPolicyCount());
+
+		verifySearches(index, policies);
+	}
+
+	@Test
+	public void testUpdateWithDeltas() {
+		List<RangerPolicy>      policies = createPolicies(1, 300);
+		RangerPolicySearchIndex index    = new RangerPolicySearchIndex(policies);
+		List<RangerPolicyDelta> deltas   = new ArrayList<>();
+
+		deltas.add(new RangerPolicyDelta(1L, RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 2L, createPolicy(1000L)));
+		deltas.add(new RangerPolicyDelta(2L, RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, createPolicy(10L)));
+		deltas.add(new RangerPolicyDelta(3L, RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 2L, policies.get(20)));
+
+		List<RangerPolicy> newPolicies = RangerPolicyDeltaUtil.applyDeltas(policies, deltas, SERVICE_TYPE);
+
+		assertFalse(index.isFor(newPolicies));
+
+		index.update(newPolicies, deltas, SERVICE_TYPE);
+
+		assertTrue(index.isFor(newPolicies));
+		assertFalse(index.isFor(policies));
+		assertNull(index.search(policies, createFilter(SearchFilter.USER, "user")));
+		assertEquals(newPolicies.size(), index.getPolicyCount());
+
+		verifySearches(index, newPolicies);
+	}
+
+	@Test
+	public void testInvalidDelta() {
+		List<RangerPolicy>      policies = createPolicies(1, 10);
+		RangerPolicySearchIndex index    = new RangerPolicySearchIndex(policies);
+
+		// update of a policy that doesn't exist
+		List<RangerPolicyDelta> deltas      = Collections.singletonList(new RangerPolicyDelta(1L, RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, createPolicy(100L)));
+		List<RangerPolicy>      newPolicies = RangerPolicyDeltaUtil.applyDeltas(policies, deltas, SERVICE_TYPE);
+
+		index.update(newPolicies, deltas, SERVICE_TYPE);
+
+		assertFalse(index.isFor(newPolicies));
+		assertNull(index.search(newPolicies, createFilter(SearchFilter.USER, "user")));
+	}
+
+	private void verifySearches(RangerPolicySearchIndex index, List<RangerPolicy> policies) {
+		String[][] searches = {
+				{ SearchFilter.USER, "user1" },
+				{ SearchFilter.USER, "USER2" },
+				{ SearchFilter.GROUP, "grp" },
+				{ SearchFilter.GROUP, "group7" },
+				{ SearchFilter.ROLE, "role" },
+				{ SearchFilter.POLICY_LABELS_PARTIAL, "Label1" },
+				{ SearchFilter.POLICY_NAME, "policy-10" },
+				{ SearchFilter.POLICY_NAME, "policy-unknown" },
+				{ SearchFilter.POL_RESOURCE, "db3" },
+				{ SearchFilter.ZONE_NAME, "zone1" },
+				{ SearchFilter.USER, "user1", SearchFilter.GROUP, "group2", SearchFilter.POL_RESOURCE, "tbl" },
+				{ SearchFilter.USER, "user", SearchFilter.ZONE_NAME, "zone2", SearchFilter.IS_ENABLED, "true" },
+		};
+
+		for (String[] search : searches) {
+			SearchFilter       filter   = createFilter(search);
+			List<RangerPolicy> expected = new ArrayList<>(policies);
+
+			predicateUtil.applyFilter(expected, filter);
+
+			List<RangerPolicy> actual = index.search(policies, filter);
+
+			assertNotNull(actual);
+
+			RangerPolicySearchIndex.removeIndexedParams(filter);
+
+			predicateUtil.applyFilter(actual, filter);
+
+			assertEquals(Arrays.toString(search), expected, actual);
+		}
+
+		assertNull(index.search(policies, createFilter(SearchFilter.IS_ENABLED, "true")));
+	}
+
+	private List<RangerPolicy> createPolicies(long startId, int count) {
+		List<RangerPolicy> ret = new ArrayList<>();
+
+		for (long id = startId; id < startId + count; id++) {
+			ret.add(createPolicy(id));
+		}
+
+		return ret;
+	}
+
+	private RangerPolicy createPolicy(long id) {
+		RangerPolicy                      ret       = new RangerPolicy();
+		Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+		resources.put("database", new RangerPolicyResource("db" + random.nextInt(20)));
+		resources.put("table", new RangerPolicyResource(Arrays.asList("tbl" + random.nextInt(100), "tmp_" + random.nextInt(10)), false, false));
+
+		ret.setId(id);
+		ret.setName("policy-" + id);
+		ret.setService("cl1_hive");
+		ret.setServiceType(SERVICE_TYPE);
+		ret.setIsEnabled(random.nextInt(10) > 0);
+		ret.setResources(resources);
+		ret.setPolicyLabels(Collections.singletonList("label" + random.nextInt(15)));
+		ret.setZoneName(random.nextInt(3) == 0 ? null : ("zone" + random.nextInt(3)));
+		ret.setPolicyItems(Collections.singletonList(createPolicyItem()));
+		ret.setDenyPolicyItems(random.nextBoolean() ? Collections.singletonList(createPolicyItem()) : new ArrayList<>());
+
+		return ret;
+	}
+
+	private RangerPolicyItem createPolicyItem() {
+		RangerPolicyItem ret = new RangerPolicyItem();
+
+		ret.setUsers(Arrays.asList("user" + random.nextInt(50), "User" + random.nextInt(50)));
+		ret.setGroups(Collections.singletonList((random.nextBoolean() ? "group" : "grp") + random.nextInt(20)));
+		ret.setRoles(random.nextInt(4) == 0 ? Collections.singletonList("role" + random.nextInt(5)) : new ArrayList<>());
+
+		return ret;
+	}
+
+	private static SearchFilter createFilter(String... nameValues) {
+		SearchFilter ret = new SearchFilter();
+
+		for (int i = 0; i + 1 < nameValues.length; i += 2) {
+			ret.setParam(nameValues[i], nameValues[i + 1]);
+		}
+
+		return ret;
+	}
+}
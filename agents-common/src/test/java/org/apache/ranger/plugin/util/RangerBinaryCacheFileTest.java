@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.commons.io.FileUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangerBinaryCacheFileTest {
+    private final Gson gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("ranger-cache-test").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    @Test
+    public void testGetBinaryCacheFile() {
+        assertEquals(new File(cacheDir, "hive_dev_hive.bin"), RangerBinaryCacheFile.getBinaryCacheFile(new File(cacheDir, "hive_dev_hive.json")));
+        assertEquals(new File(cacheDir, "hive_dev_hive_roles.bin"), RangerBinaryCacheFile.getBinaryCacheFile(new File(cacheDir, "hive_dev_hive_roles.json")));
+    }
+
+    @Test
+    public void testServicePolicies() throws IOException {
+        ServicePolicies policies = readResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+        File            file     = new File(cacheDir, "hive_cm_hive.bin");
+
+        RangerBinaryCacheFile.writeServicePolicies(policies, file);
+
+        ServicePolicies loaded = RangerBinaryCacheFile.readServicePolicies(file);
+
+        assertEquals(gson.toJson(policies), gson.toJson(loaded));
+        assertEquals(Collections.singletonList(file.getName()), Arrays.asList(cacheDir.list()));
+    }
+
+    @Test
+    public void testPoliciesAreModifiable() throws IOException {
+        ServicePolicies policies = readResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+        File            file     = new File(cacheDir, "hive_cm_hive.bin");
+
+        RangerBinaryCacheFile.writeServicePolicies(policies, file);
+
+        List<RangerPolicy> loaded = RangerBinaryCacheFile.readServicePolicies(file).getPolicies();
+        int                count  = loaded.size();
+        RangerPolicy       first  = loaded.get(0);
+
+        assertTrue(count > 1);
+        assertTrue("decoded policy must be reused", first == loaded.get(0));
+
+        loaded.remove(0);
+        loaded.add(first);
+
+        assertEquals(count, loaded.size());
+        assertTrue(first == loaded.get(count - 1));
+        assertEquals(policies.getPolicies().get(1).getId(), loaded.get(0).getId());
+    }
+
+    @Test
+    public void testServiceTags() throws IOException {
+        ServiceTags tags = readResource("/policyengine/plugin/resourceTags.json", ServiceTags.class);
+        File        file = new File(cacheDir, "hive_hivedev_tag.bin");
+
+        RangerBinaryCacheFile.writeServiceTags(tags, file);
+
+        ServiceTags loaded = RangerBinaryCacheFile.readServiceTags(file);
+
+        assertEquals(gson.toJson(tags), gson.toJson(loaded));
+
+        // tags and service-resources are updated in place on applying deltas
+        loaded.getServiceResources().clear();
+        loaded.getTags().clear();
+    }
+
+    @Test
+    public void testRoles() throws IOException {
+        RangerRoles roles = new RangerRoles();
+        RangerRole  role  = new RangerRole("finance", "finance team", null, Collections.singletonList(new RangerRole.RoleMember("user1", false)), Collections.singletonList(new RangerRole.RoleMember("group1", true)));
+
+        roles.setServiceName("hivedev");
+        roles.setRoleVersion(10L);
+        roles.setRoleUpdateTime(new Date());
+        roles.setRangerRoles(new HashSet<>(Collections.singletonList(role)));
+
+        File file = new File(cacheDir, "hive_hivedev_roles.bin");
+
+        RangerBinaryCacheFile.writeRoles(roles, file);
+
+        RangerRoles loaded = RangerBinaryCacheFile.readRoles(file);
+
+        assertEquals(gson.toJson(roles), gson.toJson(loaded));
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        ServicePolicies policies = readResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+        File            file     = new File(cacheDir, "hive_cm_hive.bin");
+
+        RangerBinaryCacheFile.writeServicePolicies(policies, file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() / 2);
+
+            int b = raf.read();
+
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0xFF);
+        }
+
+        try {
+            RangerBinaryCacheFile.readServicePolicies(file);
+
+            fail("expected checksum mismatch");
+        } catch (IOException excp) {
+            assertTrue(excp.getMessage().contains("checksum"));
+        }
+
+        FileUtils.writeStringToFile(file, gson.toJson(policies), StandardCharsets.UTF_8);
+
+        try {
+            RangerBinaryCacheFile.readServicePolicies(file);
+
+            fail("expected failure to read JSON file");
+        } catch (IOException excp) {
+            assertFalse(excp.getMessage().contains("checksum"));
+        }
+    }
+
+    private <T> T readResource(String name, Class<T> clazz) throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream(name), StandardCharsets.UTF_8)) {
+            T ret = gson.fromJson(reader, clazz);
+
+            assertNotNull(ret);
+
+            return ret;
+        }
+    }
+}
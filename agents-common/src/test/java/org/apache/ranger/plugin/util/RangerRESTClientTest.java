@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Cookie;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RangerRESTClientTest {
+    private static final String URL_POLICIES = "/service/plugins/policies/download/dev_hive";
+    private static final String ETAG         = "W/\"3e8f2a1c-2b\"";
+    private static final String POLICIES     = "{\"serviceName\":\"dev_hive\",\"policyVersion\":5}";
+
+    private final List<String> acceptEncodings = new ArrayList<>();
+    private final List<String> ifNoneMatches   = new ArrayList<>();
+    private HttpServer         server;
+    private RangerRESTClient   client;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext(URL_POLICIES, this::handlePolicyDownload);
+        server.start();
+
+        client = new RangerRESTClient("http://localhost:" + server.getAddress().getPort(), "", new Configuration());
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCompressedDownload() throws Exception {
+        client.setCompressionEnabled(true);
+
+        ClientResponse response = client.get(URL_POLICIES, null);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(Long.valueOf(5), response.getEntity(ServicePolicies.class).getPolicyVersion());
+        assertEquals(ETAG, response.getHeaders().getFirst("ETag"));
+
+        // cookie based requests use the same client, after its filters are removed
+        response = client.get(URL_POLICIES, null, new Cookie("RANGERADMINSESSIONID", "1"), null);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(Long.valueOf(5), response.getEntity(ServicePolicies.class).getPolicyVersion());
+        assertEquals(2, acceptEncodings.size());
+
+        for (String acceptEncoding : acceptEncodings) {
+            assertEquals("gzip", acceptEncoding);
+        }
+    }
+
+    @Test
+    public void testUncompressedDownload() throws Exception {
+        ClientResponse response = client.get(URL_POLICIES, null);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(Long.valueOf(5), response.getEntity(ServicePolicies.class).getPolicyVersion());
+        assertNull(acceptEncodings.get(0));
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        client.setCompressionEnabled(true);
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, client.get(URL_POLICIES, null, ETAG).getStatus());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, client.get(URL_POLICIES, null, new Cookie("RANGERADMINSESSIONID", "1"), ETAG).getStatus());
+        assertEquals(HttpServletResponse.SC_OK, client.get(URL_POLICIES, null, "W/\"0-0\"").getStatus());
+        assertEquals(HttpServletResponse.SC_OK, client.get(URL_POLICIES, null).getStatus());
+        assertNull(ifNoneMatches.get(3));
+    }
+
+    // serves POLICIES as RangerDownloadResponseFilter in Ranger Admin does: gzipped if accepted, 304 on matching ETag
+    private void handlePolicyDownload(HttpExchange exchange) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        String ifNoneMatch    = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+        acceptEncodings.add(acceptEncoding);
+        ifNoneMatches.add(ifNoneMatch);
+
+        exchange.getResponseHeaders().set("ETag", ETAG);
+
+        if (ETAG.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(HttpServletResponse.SC_NOT_MODIFIED, -1);
+        } else {
+            byte[] body = POLICIES.getBytes(StandardCharsets.UTF_8);
+
+            if ("gzip".equals(acceptEncoding)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                }
+
+                body = out.toByteArray();
+
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpServletResponse.SC_OK, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+
+        exchange.close();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RangerRESTUrlStatsTest {
+    private static final long PROBE_INTERVAL_MS  = 60 * 1000;
+    private static final long FAILURE_BACKOFF_MS = 30 * 1000;
+
+    @Test
+    public void testScore() {
+        RangerRESTUrlStats fast = new RangerRESTUrlStats("http://admin1:6080");
+        RangerRESTUrlStats slow = new RangerRESTUrlStats("http://admin2:6080");
+        long               now  = System.currentTimeMillis();
+
+        // not yet called: to be probed first
+        assertEquals(0, fast.getScore(now, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS), 0);
+
+        fast.recordLatency(20);
+        slow.recordLatency(400);
+
+        assertTrue(fast.getScore(now, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS) < slow.getScore(now, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS));
+
+        // failed recently: to be tried last, until the backoff ends
+        fast.recordFailure();
+
+        assertEquals(Double.MAX_VALUE, fast.getScore(now, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS), 0);
+        assertEquals(0, fast.getScore(now + FAILURE_BACKOFF_MS + PROBE_INTERVAL_MS + 1, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS), 0);
+
+        // latency not measured within probe interval: to be probed again
+        assertEquals(0, slow.getScore(now + PROBE_INTERVAL_MS + 1000, PROBE_INTERVAL_MS, FAILURE_BACKOFF_MS), 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMetrics() {
+        RangerRESTUrlStats stats = new RangerRESTUrlStats("http://admin1:6080");
+
+        stats.recordLatency(3);
+        stats.recordLatency(40);
+        stats.recordLatency(60000);
+        stats.recordFailure();
+
+        Map<String, Object> metrics   = stats.getMetrics();
+        Map<String, Long>   histogram = (Map<String, Long>) metrics.get("latencyHistogram");
+
+        assertEquals(4L, metrics.get("requestCount"));
+        assertEquals(1L, metrics.get("failureCount"));
+        assertEquals(Long.valueOf(1), histogram.get("le_5ms"));
+        assertEquals(Long.valueOf(1), histogram.get("le_50ms"));
+        assertEquals(Long.valueOf(1), histogram.get("gt_10000ms"));
+    }
+
+    @Test
+    public void testUrlOrder() {
+        RangerRESTClient client = new RangerRESTClient("http://order-test-1:6080,http://order-test-2:6080", null, new Configuration());
+
+        client.setLastKnownActiveUrlIndex(1);
+
+        // failover order: last known active URL first
+        assertArrayEquals(new int[] { 1, 0 }, client.getUrlOrder());
+
+        client.setLatencyAwareUrlSelection(true);
+
+        // neither URL called yet: failover order
+        assertArrayEquals(new int[] { 1, 0 }, client.getUrlOrder());
+
+        try {
+            client.setMaxRetryAttempts(0);
+            client.setRestClientConnTimeOutMs(1000);
+            client.get("/service/plugins/policies/download/dev_hive", null);
+        } catch (Exception excp) {
+            // expected: hosts don't exist
+        }
+
+        assertTrue(RangerRESTClient.getUrlStatsMetrics().containsKey("http://order-test-1:6080"));
+        assertTrue(RangerRESTClient.getUrlStatsMetrics().containsKey("http://order-test-2:6080"));
+    }
+}
@@ -26,6 +26,7 @@
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 import java.util.*;
@@ -103,6 +104,16 @@ public void testRequestAttributes() {
         }
     }
 
+    @Test
+    public void testResolverReusedAcrossRequests() {
+        Assume.assumeNotNull(ScriptEngineUtil.createScriptEngine("JavaScript", null)); // no JavaScript engine in JDK 15+
+
+        RangerRequestExprResolver resolver = new RangerRequestExprResolver("tag == '${{TAG._type}}' AND tags == '${{TAGNAMES.length}}' AND $ \\ {{}}", null);
+
+        Assert.assertEquals("tag == 'PII' AND tags == '2' AND $ \\ {{}}", resolver.resolveExpressions(createRequest(Arrays.asList("PII", "PCI"))));
+        Assert.assertEquals("tag == 'PCI' AND tags == '1' AND $ \\ {{}}", resolver.resolveExpressions(createRequest(Arrays.asList("PCI"))));
+    }
+
 
     RangerAccessRequest createRequest(List<String> resourceTags) {
         RangerAccessResource resource = mock(RangerAccessResource.class);
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RangerTinyLfuCacheTest {
+    @Test
+    public void testGetPutRemove() {
+        RangerTinyLfuCache<String, String> cache = new RangerTinyLfuCache<>("test", 16);
+
+        assertNull(cache.get("k1"));
+
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+
+        assertEquals("v1", cache.get("k1"));
+        assertEquals("v2", cache.get("k2"));
+
+        cache.put("k1", "v1-updated");
+
+        assertEquals("v1-updated", cache.get("k1"));
+        assertEquals("v1-updated", cache.remove("k1"));
+        assertNull(cache.get("k1"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testBoundedSize() {
+        RangerTinyLfuCache<Integer, Integer> cache = new RangerTinyLfuCache<>("test", 100);
+
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertEquals(10000 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() {
+        RangerTinyLfuCache<String, Integer> cache = new RangerTinyLfuCache<>("test", 100);
+
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot-" + i, i);
+        }
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get("hot-" + i));
+            }
+        }
+
+        for (int i = 0; i < 400; i++) { // one-time accesses should not flush the frequently accessed entries
+            cache.put("scan-" + i, i);
+        }
+
+        int hotCount = 0;
+
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i) != null) {
+                hotCount++;
+            }
+        }
+
+        assertEquals(50, hotCount);
+        assertTrue(cache.getRejectedCount() > 0);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final RangerTinyLfuCache<Integer, Integer> cache = new RangerTinyLfuCache<>("test", 1000);
+        final AtomicReference<Throwable>           error   = new AtomicReference<>();
+        final List<Thread>                         threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50000; i++) {
+                        int     key   = (i * 31 + seed) % 5000;
+                        Integer value = cache.get(key);
+
+                        if (value == null) {
+                            cache.put(key, key);
+                        } else if (value != key) {
+                            throw new IllegalStateException("unexpected value " + value + " for key " + key);
+                        }
+                    }
+                } catch (Throwable excp) {
+                    error.compareAndSet(null, excp);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(error.get());
+        assertTrue(cache.size() <= 1000);
+    }
+}
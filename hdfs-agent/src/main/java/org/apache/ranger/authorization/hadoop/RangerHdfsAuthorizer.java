@@ -57,6 +57,7 @@
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestPool;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
@@ -504,6 +505,8 @@ private void checkRangerPermission(String fsOwner, String superGroup, UserGroupI
 					context.auditHandler.flushAudit();
 				}
 
+				context.releaseRequests();
+
 				RangerPerfTracer.log(perf);
 
 				if(LOG.isDebugEnabled()) {
@@ -577,7 +580,7 @@ private AuthzStatus isAccessAllowedForTraversal(INode inode, INodeAttributes ino
 				LOG.debug("==> RangerAccessControlEnforcer.isAccessAllowedForTraversal(" + path + ", " + access + ", " + context.user + ", " + skipAuditOnAllow + ")");
 			}
 
-			RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, EXECUTE_ACCCESS_TYPE, context.operationName, context.user, context.userGroups);
+			RangerHdfsAccessRequest request = context.createRequest(inode, path, pathOwner, access, EXECUTE_ACCCESS_TYPE);
 
 			RangerAccessResult result = context.plugin.isAccessAllowed(request, null);
 
@@ -716,7 +719,7 @@ private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, S
 			}
 
 			for(String accessType : accessTypes) {
-				RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, accessType, context.operationName, context.user, context.userGroups);
+				RangerHdfsAccessRequest request = context.createRequest(inode, path, pathOwner, access, accessType);
 
 				Map<String, Object> requestContext = request.getContext();
 				requestContext.put(RangerAccessRequestUtil.KEY_CONTEXT_ACCESSTYPES, accessTypes);
@@ -782,7 +785,7 @@ private AuthzStatus isAccessAllowedForHierarchy(INode inode, INodeAttributes ino
 				subDirPath = subDirPath + rangerPlugin.getRandomizedWildcardPathName();
 
 				for (String accessType : accessTypes) {
-					RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, subDirPath, pathOwner, access, accessType, context.operationName, context.user, context.userGroups);
+					RangerHdfsAccessRequest request = context.createRequest(null, subDirPath, pathOwner, access, accessType);
 
 					Map<String, Object> requestContext = request.getContext();
 					requestContext.put(RangerAccessRequestUtil.KEY_CONTEXT_ACCESSTYPES, accessTypes);
@@ -829,6 +832,7 @@ class RangerHdfsPlugin extends RangerBasePlugin {
 	private final String      randomizedWildcardPathName;
 	private final String      hadoopModuleName;
 	private final Set<String> excludeUsers = new HashSet<>();
+	private final RangerAccessRequestPool<RangerHdfsAccessRequest> accessRequestPool;
 
 	public RangerHdfsPlugin(Path addlConfigFile) {
 		super("hdfs", "hdfs");
@@ -850,6 +854,8 @@ public RangerHdfsPlugin(Path addlConfigFile) {
 		this.randomizedWildcardPathName   = RangerPathResourceMatcher.WILDCARD_ASTERISK + random + RangerPathResourceMatcher.WILDCARD_ASTERISK;
 		this.hadoopModuleName             = config.get(RangerHadoopConstants.AUDITLOG_HADOOP_MODULE_ACL_NAME_PROP , RangerHadoopConstants.DEFAULT_HADOOP_MODULE_ACL_NAME);
 
+		this.accessRequestPool            = createAccessRequestPool(RangerHdfsAccessRequest::new);
+
 		String excludeUserList = config.get(RangerHadoopConstants.AUDITLOG_HDFS_EXCLUDE_LIST_PROP, RangerHadoopConstants.AUDITLOG_EMPTY_STRING);
 
 		if (excludeUserList != null && excludeUserList.trim().length() > 0) {
@@ -899,12 +905,17 @@ public String getRandomizedWildcardPathName() {
 		return randomizedWildcardPathName;
 	}
 	public String getHadoopModuleName() { return hadoopModuleName; }
+	public RangerAccessRequestPool<RangerHdfsAccessRequest> getAccessRequestPool() { return accessRequestPool; }
 	public Set<String> getExcludedUsers() { return  excludeUsers; }
 }
 
 class RangerHdfsResource extends RangerAccessResourceImpl {
 
 	public RangerHdfsResource(String path, String owner) {
+		init(path, owner);
+	}
+
+	public void init(String path, String owner) {
 		super.setValue(RangerHdfsAuthorizer.KEY_RESOURCE_PATH, path);
 		super.setOwnerUser(owner);
 	}
@@ -925,12 +936,24 @@ public String getAsString() {
 
 class RangerHdfsAccessRequest extends RangerAccessRequestImpl {
 
+	// used by RangerAccessRequestPool; init() must be called before use
+	public RangerHdfsAccessRequest() {
+		super.setResource(new RangerHdfsResource(null, null));
+	}
+
 	public RangerHdfsAccessRequest(INode inode, String path, String pathOwner, FsAction access, String accessType, String action, String user, Set<String> groups) {
+		this();
+
+		init(inode, path, pathOwner, access, accessType, action, user, groups);
+	}
+
+	public RangerHdfsAccessRequest init(INode inode, String path, String pathOwner, FsAction access, String accessType, String action, String user, Set<String> groups) {
 		if (action == null && access != null) {
 			action = access.toString();
 		}
 
-		super.setResource(new RangerHdfsResource(path, pathOwner));
+		((RangerHdfsResource) getResource()).init(path, pathOwner);
+
 		super.setAccessType(accessType);
 		super.setUser(user);
 		super.setUserGroups(groups);
@@ -943,6 +966,8 @@ public RangerHdfsAccessRequest(INode inode, String path, String pathOwner, FsAct
 		if (inode != null) {
 			buildRequestContext(inode);
 		}
+
+		return this;
 	}
 
 	private static String getRemoteIp() {
@@ -967,13 +992,14 @@ private void buildRequestContext(final INode inode) {
 }
 
 class AuthzContext {
-	public final RangerHdfsPlugin       plugin;
-	public final String                 user;
-	public final Set<String>            userGroups;
-	public final String                 operationName;
-	public final boolean                isTraverseOnlyCheck;
-	public       RangerHdfsAuditHandler auditHandler = null;
-	private      RangerAccessResult     lastResult   = null;
+	public final RangerHdfsPlugin              plugin;
+	public final String                        user;
+	public final Set<String>                   userGroups;
+	public final String                        operationName;
+	public final boolean                       isTraverseOnlyCheck;
+	public       RangerHdfsAuditHandler        auditHandler   = null;
+	private      RangerAccessResult            lastResult     = null;
+	private      List<RangerHdfsAccessRequest> pooledRequests = null;
 
 	public AuthzContext(RangerHdfsPlugin plugin, UserGroupInformation ugi, String operationName, boolean isTraverseOnlyCheck) {
 		this.plugin              = plugin;
@@ -992,6 +1018,39 @@ public void saveResult(RangerAccessResult result) {
 	public RangerAccessResult getLastResult() {
 		return lastResult;
 	}
+
+	public RangerHdfsAccessRequest createRequest(INode inode, String path, String pathOwner, FsAction access, String accessType) {
+		RangerAccessRequestPool<RangerHdfsAccessRequest> pool = plugin.getAccessRequestPool();
+		RangerHdfsAccessRequest                          ret;
+
+		if (pool.isEnabled()) {
+			ret = pool.acquire();
+
+			if (pooledRequests == null) {
+				pooledRequests = new ArrayList<>();
+			}
+
+			pooledRequests.add(ret);
+		} else {
+			ret = new RangerHdfsAccessRequest();
+		}
+
+		return ret.init(inode, path, pathOwner, access, accessType, operationName, user, userGroups);
+	}
+
+	// requests are released only after audit is flushed, since audit of lastResult refers to its request
+	public void releaseRequests() {
+		if (pooledRequests != null) {
+			RangerAccessRequestPool<RangerHdfsAccessRequest> pool = plugin.getAccessRequestPool();
+
+			for (RangerHdfsAccessRequest request : pooledRequests) {
+				pool.release(request);
+			}
+
+			pooledRequests = null;
+			lastResult     = null;
+		}
+	}
 }
 
 class RangerHdfsAuditHandler extends RangerDefaultAuditHandler {
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.services.hdfs;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.security.AccessControlException;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditProviderFactory;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestPool;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Runs the {@link RangerHdfsAuthorizerTest} tests with the access-request pool enabled, and checks that a request is
+ * released only after the audit of its result is flushed.
+ */
+public class RangerHdfsAuthorizerPooledRequestTest extends RangerHdfsAuthorizerTest {
+
+    private static final List<String> events = new ArrayList<>();
+
+    private static AuditHandler orgAuditProvider;
+
+    @BeforeClass
+    public static void setup() {
+        startAuthorizer("ranger.plugin.hdfs" + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_ACCESS_REQUEST_POOL_SIZE, "8");
+
+        try {
+            Object                     plugin = getField(authorizer, "rangerPlugin");
+            RangerAccessRequestPool<?> pool   = (RangerAccessRequestPool<?>) getField(plugin, "accessRequestPool");
+            RangerAccessRequestPool<?> spy    = Mockito.spy(pool);
+            AuditHandler               audit  = Mockito.mock(AuditHandler.class);
+
+            Assert.assertTrue("access request pool is not enabled", pool.isEnabled());
+
+            doAnswer(invocation -> {
+                RangerAccessRequest request = invocation.getArgument(0);
+
+                events.add("release:" + request.getResource().getAsString());
+
+                return invocation.callRealMethod();
+            }).when(spy).release(any());
+
+            doAnswer(invocation -> {
+                AuthzAuditEvent event = invocation.getArgument(0);
+
+                events.add("audit:" + event.getUser() + ":" + event.getResultReason() + ":" + event.getAccessType() + ":" + event.getAccessResult());
+
+                return true;
+            }).when(audit).log(any(AuditEventBase.class));
+
+            setField(plugin, "accessRequestPool", spy);
+
+            orgAuditProvider = (AuditHandler) getField(AuditProviderFactory.getInstance(), "mProvider");
+
+            setField(AuditProviderFactory.getInstance(), "mProvider", audit);
+        } catch (Exception excp) {
+            Assert.fail("Cannot set up pooled authorizer:[" + excp.getMessage() + "]");
+        }
+    }
+
+    @AfterClass
+    public static void teardown() {
+        try {
+            setField(AuditProviderFactory.getInstance(), "mProvider", orgAuditProvider);
+        } catch (Exception excp) {
+            Assert.fail("Cannot restore audit provider:[" + excp.getMessage() + "]");
+        } finally {
+            authorizer.stop();
+        }
+    }
+
+    @Before
+    public void clearEvents() {
+        events.clear();
+    }
+
+    @Test
+    public void releaseAfterAuditTest() throws AccessControlException {
+        final TestFileSystem fs = new TestFileSystem("/tmp/tmpdir/data-file2");
+
+        fs.checkAccess(FsAction.READ, "bob"); // allowed
+        assertReleasedAfterAudit("audit:bob:/tmp/tmpdir/data-file2:READ:1");
+
+        fs.checkAccessBlocked(FsAction.READ, "eve"); // denied
+        assertReleasedAfterAudit("audit:eve:/tmp/tmpdir/data-file2:READ:0");
+
+        fs.checkAccess(FsAction.READ, "alice", "IT"); // allowed, with requests reused from the pool
+        assertReleasedAfterAudit("audit:alice:/tmp/tmpdir/data-file2:READ:1");
+    }
+
+    // expects the audit of the check, followed by release of all requests of the check
+    private static void assertReleasedAfterAudit(String expectedAudit) {
+        Assert.assertTrue("no request released: " + events, events.size() > 1);
+        Assert.assertEquals("first event must be the audit: " + events, expectedAudit, events.get(0));
+
+        for (String event : events.subList(1, events.size())) {
+            Assert.assertTrue("request released before audit: " + events, event.startsWith("release:"));
+        }
+
+        events.clear();
+    }
+
+    private static Object getField(Object obj, String name) throws Exception {
+        Field field = obj.getClass().getDeclaredField(name);
+
+        field.setAccessible(true);
+
+        return field.get(obj);
+    }
+
+    private static void setField(Object obj, String name, Object value) throws Exception {
+        Field field = obj.getClass().getDeclaredField(name);
+
+        field.setAccessible(true);
+        field.set(obj, value);
+    }
+}
@@ -55,8 +55,8 @@ public class RangerHdfsAuthorizerTest {
     private static final FsPermission READ_ONLY = new FsPermission(FsAction.READ, FsAction.NONE, FsAction.NONE);
     private static final FsPermission EXEC_BY_OWNER = new FsPermission(FsAction.EXECUTE, FsAction.NONE, FsAction.NONE);
 
-    private static RangerHdfsAuthorizer authorizer;
-    private static AccessControlEnforcer rangerControlEnforcer;
+    static RangerHdfsAuthorizer authorizer;
+    static AccessControlEnforcer rangerControlEnforcer;
 
     static class TestFileSystem {
         final String path;
@@ -187,6 +187,13 @@ public void checkDirAccessBlocked(FsAction access, String userName, String... gr
 
     @BeforeClass
     public static void setup() {
+        startAuthorizer();
+    }
+
+    /**
+     * Starts the authorizer with the given additional properties, as name-value pairs.
+     */
+    static void startAuthorizer(String... addlProperties) {
         try {
             File file = File.createTempFile("hdfs-version-site", ".xml");
             file.deleteOnExit();
@@ -201,8 +208,16 @@ public static void setup() {
                         "        <property>\n" +
                         "                <name>xasecure.add-hadoop-authorization</name>\n" +
                         "                <value>true</value>\n" +
-                        "        </property>\n" +
-                        "</configuration>\n");
+                        "        </property>\n");
+
+                for (int i = 0; i + 1 < addlProperties.length; i += 2) {
+                    writer.write("        <property>\n" +
+                            "                <name>" + addlProperties[i] + "</name>\n" +
+                            "                <value>" + addlProperties[i + 1] + "</value>\n" +
+                            "        </property>\n");
+                }
+
+                writer.write("</configuration>\n");
             }
 
             authorizer = new RangerHdfsAuthorizer(new org.apache.hadoop.fs.Path(file.toURI()));
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.ranger.audit.codec;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+/**
+ * Compares encoding of AuthzAuditEvent by Gson - MiscUtil.stringify(), used by destinations and spool files earlier -
+ * against the json and binary codecs, and decoding of the JSON and binary forms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class AuditEventCodecBenchmark {
+    private final AuditEventCodec   jsonCodec   = AuditEventCodecFactory.getCodec(JsonAuditEventCodec.NAME);
+    private final AuditEventCodec   binaryCodec = AuditEventCodecFactory.getCodec(BinaryAuditEventCodec.NAME);
+    private final AuditEncodeBuffer buffer      = new AuditEncodeBuffer();
+
+    private AuthzAuditEvent event;
+    private byte[]          jsonBytes;
+    private byte[]          binaryBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        event = new AuthzAuditEvent(3, "cl1_hive", "user1", new Date(), "select", "db1/tbl1/col1", "@column", "select", (short) 1, "hiveServer2",
+                                    42L, null, "ranger-acl", "8c3a6e0f-1b2c-4d5e-9f60-7a8b9c0d1e2f", "HIVESERVER2", "10.0.0.1",
+                                    "select col1, col2 from db1.tbl1 where col3 = 'value'", "cl1");
+
+        event.setAgentHostname("host1.example.com");
+        event.setLogType("RangerAudit");
+        event.setEventId(MiscUtil.generateUniqueId());
+        event.setSeqNum(12345);
+        event.setTags(new HashSet<>(Arrays.asList("PII")));
+        event.setPolicyVersion(7L);
+
+        jsonBytes = MiscUtil.stringify(event).getBytes(StandardCharsets.UTF_8);
+
+        buffer.reset();
+        binaryCodec.encode(event, buffer);
+
+        binaryBytes = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeGson() {
+        return MiscUtil.stringify(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String encodeGsonToString() {
+        return MiscUtil.stringify(event);
+    }
+
+    @Benchmark
+    public int encodeJson() {
+        buffer.reset();
+        jsonCodec.encode(event, buffer);
+
+        return buffer.size();
+    }
+
+    @Benchmark
+    public String encodeJsonToString() {
+        return jsonCodec.encodeToString(event);
+    }
+
+    @Benchmark
+    public int encodeBinary() {
+        buffer.reset();
+        binaryCodec.encode(event, buffer);
+
+        return buffer.size();
+    }
+
+    @Benchmark
+    public AuditEventBase decodeGson() {
+        return jsonCodec.decode(ByteBuffer.wrap(jsonBytes));
+    }
+
+    @Benchmark
+    public AuditEventBase decodeBinary() {
+        return binaryCodec.decode(ByteBuffer.wrap(binaryBytes));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ArrayBlockingQueue - the default queue of AuditBatchQueue and AsyncAuditProvider - against AuditRingBuffer
+ * with each wait strategy: 4 threads log events while 1 thread drains batches, as the queue consumer thread does.
+ * Compare throughput of the "log" threads; events dropped when the queue is full are counted as operations too.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class AuditQueueBenchmark {
+    private static final AuditEventBase EVENT = new AuthzAuditEvent();
+
+    @Param({ "array", "spin", "yield", "park" })
+    public String queueType;
+
+    @Param({ "1024" })
+    public int queueSize;
+
+    @Param({ "100" })
+    public int batchSize;
+
+    private BlockingQueue<AuditEventBase>   queue;
+    private AuditRingBuffer<AuditEventBase> ringBuffer;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        if ("array".equals(queueType)) {
+            queue      = new ArrayBlockingQueue<>(queueSize);
+            ringBuffer = null;
+        } else {
+            ringBuffer = new AuditRingBuffer<>(null, queueSize, AuditRingBuffer.WaitStrategy.valueOf(queueType.toUpperCase()), AuditRingBuffer.FullPolicy.DROP, 0);
+            queue      = ringBuffer;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        queue.clear();
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(4)
+    public boolean log() {
+        return ringBuffer != null ? ringBuffer.enqueue(EVENT) : queue.offer(EVENT);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public int drain(ConsumerState state) throws InterruptedException {
+        List<AuditEventBase> batch = state.batch;
+        AuditEventBase       event = queue.poll(1, TimeUnit.MILLISECONDS);
+
+        if (event != null) {
+            batch.add(event);
+
+            queue.drainTo(batch, batchSize - 1);
+        }
+
+        int ret = batch.size();
+
+        batch.clear();
+
+        return ret;
+    }
+
+    @State(Scope.Thread)
+    public static class ConsumerState {
+        final List<AuditEventBase> batch = new ArrayList<>();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of AuditSummaryQueue.log() from 4 threads, for events repeating a fixed set of keys; summaries are
+ * dispatched to a destination that discards them. localMaxEntries=0 disables thread-local pre-aggregation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@Threads(4)
+public class AuditSummaryQueueBenchmark {
+    private static final String PROP_PREFIX = BaseAuditHandler.PROP_DEFAULT_PREFIX;
+
+    @Param({ "0", "1024" })
+    public String localMaxEntries;
+
+    @Param({ "1000" })
+    public int keyCount;
+
+    private AuditSummaryQueue queue;
+    private AuthzAuditEvent[] events;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_INTERVAL, "1000");
+        props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_LOCAL_MAX_ENTRIES, localMaxEntries);
+
+        queue  = new AuditSummaryQueue(new NoopDestination());
+        events = new AuthzAuditEvent[keyCount];
+
+        queue.init(props, PROP_PREFIX);
+        queue.start();
+
+        for (int i = 0; i < keyCount; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setUser("user" + (i % 50));
+            event.setAccessType("select");
+            event.setResourcePath("db" + (i % 10) + "/table" + i);
+            event.setResourceType("@table");
+            event.setAction("select");
+            event.setAccessResult((short) 1);
+            event.setClientIP("10.0.0." + (i % 200));
+            event.setEventTime(new Date());
+
+            events[i] = event;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.stop();
+    }
+
+    @Benchmark
+    public boolean log(ProducerState state) {
+        return queue.log(events[state.next(keyCount)]);
+    }
+
+    @State(Scope.Thread)
+    public static class ProducerState {
+        private int index;
+
+        int next(int count) {
+            index = (index + 1) % count;
+
+            return index;
+        }
+    }
+
+    public static class NoopDestination extends AuditDestination {
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH benchmarks, accepting the same arguments as org.openjdk.jmh.Main. Unless specified in the arguments, results
+ * are written in JSON format to ranger-benchmark-results.json and the GC profiler is enabled - to report allocations
+ * per operation. Results from different releases can be compared to detect regressions.
+ */
+public class RangerBenchmarkRunner {
+    public static final String DEFAULT_RESULT_FILE = "ranger-benchmark-results.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+        } else if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+        } else {
+            ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+
+            if (!cmdOptions.getResultFormat().hasValue()) {
+                builder.resultFormat(ResultFormatType.JSON);
+            }
+
+            if (!cmdOptions.getResult().hasValue()) {
+                builder.result(DEFAULT_RESULT_FILE);
+            }
+
+            if (cmdOptions.getProfilers().isEmpty()) {
+                builder.addProfiler(GCProfiler.class);
+            }
+
+            new Runner(builder.build()).run();
+        }
+    }
+}
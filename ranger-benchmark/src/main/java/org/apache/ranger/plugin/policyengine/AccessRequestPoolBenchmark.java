@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.policyengine.perftest.v2.RangerPolicyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a request for every authorization call against reusing requests from RangerAccessRequestPool.
+ * Run with the GC profiler (RangerBenchmarkRunner enables it) to compare gc.alloc.rate.norm - bytes allocated per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class AccessRequestPoolBenchmark {
+    private static final String[]    DATABASES = { "db1", "db2", "db3", "db4" };
+    private static final Set<String> GROUPS    = Collections.singleton("group1");
+
+    @Param({ "100", "1000" })
+    public int policyCount;
+
+    private RangerPolicyEngineImpl                           policyEngine;
+    private RangerAccessRequestPool<RangerAccessRequestImpl> requestPool;
+    private int                                              nextIdx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServicePolicies           servicePolicies = RangerPolicyFactory.createServicePolicy(policyCount);
+        RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+
+        options.disableTagPolicyEvaluation = true;
+        options.cacheAuditResults          = false;
+
+        RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", servicePolicies.getServiceName(), "perf-test", null, null, options));
+
+        policyEngine = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+        requestPool  = new RangerAccessRequestPool<>(() -> new RangerAccessRequestImpl(new RangerAccessResourceImpl(), null, null, null, null), 16);
+    }
+
+    @Benchmark
+    public boolean newRequest() {
+        RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+        RangerAccessRequestImpl  request  = new RangerAccessRequestImpl(resource, "select", "user1", GROUPS, null);
+
+        resource.setValue("database", nextDatabase());
+
+        return policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null).getIsAllowed();
+    }
+
+    @Benchmark
+    public boolean pooledRequest() {
+        RangerAccessRequestImpl request = requestPool.acquire();
+
+        try {
+            ((RangerAccessResourceImpl) request.getResource()).setValue("database", nextDatabase());
+
+            request.setAccessType("select");
+            request.setUser("user1");
+            request.setUserGroups(GROUPS);
+
+            return policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null).getIsAllowed();
+        } finally {
+            requestPool.release(request);
+        }
+    }
+
+    private String nextDatabase() {
+        String ret = DATABASES[nextIdx++];
+
+        if (nextIdx >= DATABASES.length) {
+            nextIdx = 0;
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.policyengine.perftest.v2.RangerPolicyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the policy-engine hot path, with policies, requests and tags generated by RangerPolicyFactory.
+ *
+ * Each invocation processes the next request from a fixed set of generated requests; about 70% of these requests
+ * match generated policies. When tagCount is non-zero, requests are enriched with tags before evaluatePolicies().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PolicyEngineBenchmark {
+    private static final int    NUMBER_OF_REQUESTS = 1000;
+    private static final String RESOURCE_DATABASE  = "database";
+
+    @Param({ "100", "1000", "5000" })
+    public int policyCount;
+
+    @Param({ "0", "1000" })
+    public int tagCount;
+
+    @Param({ "0.0", "0.25" })
+    public double wildcardRate;
+
+    private String                                            serviceName;
+    private RangerPolicyEngineImpl                            policyEngine;
+    private RangerTagEnricher                                 tagEnricher;
+    private RangerResourceTrie<RangerPolicyResourceEvaluator> databaseTrie;
+    private RangerPolicyEvaluator[]                           policyEvaluators;
+    private RangerAccessRequest[]                             requests;
+    private int                                               nextRequestIdx;
+    private int                                               nextEvaluatorIdx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServicePolicies           servicePolicies = RangerPolicyFactory.createServicePolicy(policyCount, wildcardRate);
+        RangerPolicyEngineOptions options         = new RangerPolicyEngineOptions();
+
+        options.disableTagPolicyEvaluation = tagCount == 0;
+        options.cacheAuditResults          = false;
+
+        RangerPluginContext    pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", servicePolicies.getServiceName(), "perf-test", null, null, options));
+        RangerPolicyRepository repository;
+
+        serviceName      = servicePolicies.getServiceName();
+        policyEngine     = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+        repository       = policyEngine.getPolicyEngine().getPolicyRepository();
+        policyEvaluators = repository.getPolicyEvaluators().toArray(new RangerPolicyEvaluator[0]);
+        databaseTrie     = repository.getTrie(RangerPolicy.POLICY_TYPE_ACCESS).get(RESOURCE_DATABASE);
+
+        tagEnricher = new RangerTagEnricher();
+
+        tagEnricher.setServiceName(servicePolicies.getServiceName());
+        tagEnricher.setServiceDef(servicePolicies.getServiceDef());
+        tagEnricher.setAppId("perf-test");
+        tagEnricher.init();
+        tagEnricher.setServiceTags(RangerPolicyFactory.createServiceTags(servicePolicies.getServiceName(), tagCount));
+
+        List<RangerAccessRequest> generatedRequests = RangerPolicyFactory.createAccessRequests(NUMBER_OF_REQUESTS);
+
+        requests = generatedRequests.toArray(new RangerAccessRequest[0]);
+
+        if (tagCount > 0) {
+            for (RangerAccessRequest request : requests) {
+                tagEnricher.enrich(request);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<RangerPolicyResourceEvaluator> resourceTrieGetEvaluatorsForResource() {
+        return databaseTrie.getEvaluatorsForResource(nextRequest().getResource().getValue(RESOURCE_DATABASE));
+    }
+
+    @Benchmark
+    public RangerAccessResult defaultPolicyEvaluatorEvaluate() {
+        RangerAccessRequest   request   = nextRequest();
+        RangerPolicyEvaluator evaluator = nextPolicyEvaluator();
+        RangerAccessResult    result    = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, serviceName, policyEngine.getServiceDef(), request);
+
+        evaluator.evaluate(request, result);
+
+        return result;
+    }
+
+    @Benchmark
+    public RangerAccessRequest tagEnricherEnrich() {
+        RangerAccessRequest request = nextRequest();
+
+        tagEnricher.enrich(request);
+
+        return request;
+    }
+
+    @Benchmark
+    public RangerAccessResult policyEngineEvaluatePolicies() {
+        return policyEngine.evaluatePolicies(nextRequest(), RangerPolicy.POLICY_TYPE_ACCESS, null);
+    }
+
+    @Benchmark
+    public RangerResourceACLs policyEngineGetResourceACLs() {
+        return policyEngine.getResourceACLs(nextRequest());
+    }
+
+    // benchmarks run with a single thread by default; with more threads, requests are still spread across all generated requests
+    private RangerAccessRequest nextRequest() {
+        int idx = nextRequestIdx++;
+
+        if (nextRequestIdx >= requests.length) {
+            nextRequestIdx = 0;
+        }
+
+        return requests[idx < requests.length ? idx : 0];
+    }
+
+    private RangerPolicyEvaluator nextPolicyEvaluator() {
+        int idx = nextEvaluatorIdx++;
+
+        if (nextEvaluatorIdx >= policyEvaluators.length) {
+            nextEvaluatorIdx = 0;
+        }
+
+        return policyEvaluators[idx < policyEvaluators.length ? idx : 0];
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
+import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the default and the compact (optimizeTrieForCompactness) representations of RangerResourceTrie, with a
+ * trie of resourceCount paths - like a tag trie with one service-resource per path; every 10th resource is a wildcard.
+ *
+ * The heap retained by the trie is printed during setup. Under the GC profiler, gc.alloc.rate.norm of buildTrie gives
+ * the bytes allocated to build the trie.
+ *
+ * copyTrieForDelta and copyOnWriteForDelta compare applying a delta - one resource removed and added again - to a full
+ * copy of the trie and to a copy-on-write copy, as RangerTagEnricher does for each tag delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ResourceTrieBenchmark {
+    private static final String            RESOURCE_NAME     = "path";
+    private static final RangerResourceDef RESOURCE_DEF      = createResourceDef();
+    private static final int               NUMBER_OF_LOOKUPS = 1024;
+
+    @Param({ "10000", "100000" })
+    public int resourceCount;
+
+    @Param({ "false", "true" })
+    public boolean optimizeForCompactness;
+
+    @Param({ "false", "true" })
+    public boolean optimizeForSpace;
+
+    private List<RangerResourceEvaluator>               evaluators;
+    private RangerResourceTrie<RangerResourceEvaluator> trie;
+    private String[]                                    lookupPaths;
+    private int                                         nextIdx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        evaluators  = new ArrayList<>(resourceCount);
+        lookupPaths = new String[NUMBER_OF_LOOKUPS];
+
+        for (int i = 0; i < resourceCount; i++) {
+            evaluators.add(new PathEvaluator(i, getPath(i)));
+        }
+
+        for (int i = 0; i < lookupPaths.length; i++) {
+            int resourceIdx = (int) ((i * 7919L) % resourceCount);
+
+            lookupPaths[i] = (i % 4) == 0 ? getPath(resourceIdx) + "/part-0000" : getPath(resourceIdx).replace("*", "file");
+        }
+
+        long heapBefore = getUsedHeap();
+
+        trie = buildTrie();
+
+        long heapAfter = getUsedHeap();
+
+        // lookups complete the lazy setup of nodes in the default mode
+        for (String path : lookupPaths) {
+            trie.getEvaluatorsForResource(path);
+        }
+
+        System.out.println("RangerResourceTrie(resourceCount=" + resourceCount + ", optimizeForCompactness=" + optimizeForCompactness + ", optimizeForSpace=" + optimizeForSpace + "): retained heap ~" + ((heapAfter - heapBefore) / 1024) + " KB; " + trie);
+    }
+
+    @Benchmark
+    public RangerResourceTrie<RangerResourceEvaluator> buildTrie() {
+        return new RangerResourceTrie<>(RESOURCE_DEF, evaluators, false, optimizeForSpace, optimizeForCompactness, null);
+    }
+
+    @Benchmark
+    public Set<RangerResourceEvaluator> getEvaluatorsForResource() {
+        String path = lookupPaths[nextIdx++];
+
+        if (nextIdx >= lookupPaths.length) {
+            nextIdx = 0;
+        }
+
+        return trie.getEvaluatorsForResource(path);
+    }
+
+    @Benchmark
+    public RangerResourceTrie<RangerResourceEvaluator> copyTrieForDelta() {
+        return applyDelta(new RangerResourceTrie<>(trie));
+    }
+
+    @Benchmark
+    public RangerResourceTrie<RangerResourceEvaluator> copyOnWriteForDelta() {
+        return applyDelta(new RangerResourceTrie<>(trie, true));
+    }
+
+    private RangerResourceTrie<RangerResourceEvaluator> applyDelta(RangerResourceTrie<RangerResourceEvaluator> copy) {
+        RangerResourceEvaluator evaluator = evaluators.get((int) ((nextIdx++ * 7919L) % resourceCount));
+        RangerPolicyResource    resource  = evaluator.getPolicyResource().get(RESOURCE_NAME);
+
+        if (nextIdx >= lookupPaths.length) {
+            nextIdx = 0;
+        }
+
+        copy.delete(resource, evaluator);
+        copy.add(resource, evaluator);
+        copy.wrapUpUpdate();
+
+        return copy;
+    }
+
+    private static String getPath(int idx) {
+        String ret = "/data/dept" + (idx % 20) + "/project" + (idx % 500) + "/table" + idx;
+
+        return (idx % 10) == 0 ? ret + "/*" : ret;
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static RangerResourceDef createResourceDef() {
+        RangerResourceDef   ret            = new RangerResourceDef();
+        Map<String, String> matcherOptions = new HashMap<>();
+
+        matcherOptions.put("wildCard", "true");
+        matcherOptions.put("ignoreCase", "false");
+        matcherOptions.put("pathSeparatorChar", "/");
+
+        ret.setItemId(1L);
+        ret.setName(RESOURCE_NAME);
+        ret.setType("path");
+        ret.setLevel(10);
+        ret.setMatcher("org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher");
+        ret.setMatcherOptions(matcherOptions);
+
+        return ret;
+    }
+
+    // only the policy-resource is needed to build the trie
+    private static final class PathEvaluator implements RangerResourceEvaluator {
+        private final long                              id;
+        private final Map<String, RangerPolicyResource> policyResource;
+
+        PathEvaluator(long id, String path) {
+            this.id             = id;
+            this.policyResource = Collections.singletonMap(RESOURCE_NAME, new RangerPolicyResource(path, false, false));
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public RangerPolicyResourceMatcher getPolicyResourceMatcher() {
+            return null;
+        }
+
+        @Override
+        public Map<String, RangerPolicyResource> getPolicyResource() {
+            return policyResource;
+        }
+
+        @Override
+        public RangerResourceMatcher getResourceMatcher(String resourceName) {
+            return null;
+        }
+
+        @Override
+        public boolean isAncestorOf(RangerResourceDef resourceDef) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares wildcard matching with FilenameUtils.wildcardMatch(), as done by resource matchers earlier, with matching
+ * using patterns compiled by RangerWildcardPattern. Run with -prof gc to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WildcardMatchBenchmark {
+    private static final String[] RESOURCES = {
+            "/app/hive/warehouse/sales.db/orders/year=2023/part-00000.orc",
+            "/app/hive/warehouse/finance.db/ledger",
+            "/user/testuser/data/input.csv",
+            "/tmp/staging/job_1697500000000_0001",
+            "/APP/HIVE/WAREHOUSE/SALES.DB/CUSTOMERS",
+    };
+
+    private static final String[] URLS = {
+            "hdfs://namenode:8020/app/hive/warehouse/sales.db/orders",
+            "s3a://bucket/data/finance/ledger/2023/10/part-0000.parquet",
+            "hdfs://namenode:8020/user/testuser/data/input.csv",
+    };
+
+    @Param({ "/app/*/warehouse/*.db/*", "*sales*orders*", "/user/?????user/*", "/tmp/*/job_*_0001" })
+    public String pattern;
+
+    @Param({ "false", "true" })
+    public boolean ignoreCase;
+
+    private IOCase                ioCase;
+    private RangerWildcardPattern compiledPattern;
+    private RangerWildcardPattern compiledUrlPattern;
+    private String                urlPattern;
+
+    @Setup
+    public void setup() {
+        ioCase             = ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+        compiledPattern    = RangerWildcardPattern.compile(pattern, ignoreCase);
+        urlPattern         = "*://*" + pattern;
+        compiledUrlPattern = RangerWildcardPattern.compile(urlPattern, ignoreCase);
+    }
+
+    @Benchmark
+    public void filenameUtilsWildcardMatch(Blackhole blackhole) {
+        for (String resource : RESOURCES) {
+            blackhole.consume(FilenameUtils.wildcardMatch(resource, pattern, ioCase));
+        }
+    }
+
+    @Benchmark
+    public void compiledWildcardMatch(Blackhole blackhole) {
+        for (String resource : RESOURCES) {
+            blackhole.consume(compiledPattern.matches(resource));
+        }
+    }
+
+    @Benchmark
+    public void filenameUtilsRecursivePathMatch(Blackhole blackhole) {
+        for (String resource : RESOURCES) {
+            blackhole.consume(RangerPathResourceMatcher.isRecursiveWildCardMatch(resource, pattern, '/', ioCase));
+        }
+    }
+
+    @Benchmark
+    public void compiledRecursivePathMatch(Blackhole blackhole) {
+        for (String resource : RESOURCES) {
+            blackhole.consume(RangerPathResourceMatcher.isRecursiveWildCardMatch(resource, compiledPattern, '/'));
+        }
+    }
+
+    // pattern is compiled on each call, as done for policy values that need dynamic evaluation
+    @Benchmark
+    public void uncompiledRecursiveUrlMatch(Blackhole blackhole) {
+        for (String url : URLS) {
+            blackhole.consume(RangerURLResourceMatcher.isRecursiveWildCardMatch(url, urlPattern, '/', ioCase));
+        }
+    }
+
+    @Benchmark
+    public void compiledRecursiveUrlMatch(Blackhole blackhole) {
+        for (String url : URLS) {
+            blackhole.consume(RangerURLResourceMatcher.isRecursiveWildCardMatch(url, compiledUrlPattern, '/'));
+        }
+    }
+}
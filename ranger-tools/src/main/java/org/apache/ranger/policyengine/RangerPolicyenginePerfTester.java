@@ -72,6 +72,8 @@ public static void main(String[] args) {
             policyEngineOptions.optimizeTrieForSpace = configuration.getBoolean("ranger.policyengine.option.optimize.policy.trie.for.space", false);
             policyEngineOptions.optimizeTagTrieForSpace = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.space", false);
             policyEngineOptions.optimizeTagTrieForRetrieval = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.retrieval", false);
+            policyEngineOptions.optimizeTrieForCompactness = configuration.getBoolean("ranger.policyengine.option.optimize.policy.trie.for.compactness", false);
+            policyEngineOptions.optimizeTagTrieForCompactness = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.compactness", false);
 
             PerfTestEngine perfTestEngine = new PerfTestEngine(servicePoliciesFileURL, policyEngineOptions, configurationFileURL);
             if (!perfTestEngine.init()) {
@@ -21,10 +21,13 @@
 
 import static com.google.common.base.Preconditions.checkState;
 
-import java.io.File;
 import java.lang.reflect.Type;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -34,6 +37,8 @@
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
@@ -41,6 +46,7 @@
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
 import org.apache.ranger.policyengine.RangerAccessRequestDeserializer;
 import org.apache.ranger.policyengine.RangerResourceDeserializer;
 
@@ -52,7 +58,7 @@
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
+import com.google.common.io.Resources;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -78,47 +84,108 @@ public class RangerPolicyFactory {
 
 	private static final List<String> ALWAYS_ALLOWED_ACCESS_TYPES = Arrays.asList("create", "select", "drop");
 
+	private static final int NUMBER_OF_TAG_TYPES = 10;
+
 	/**
 	 * Returns a {@link ServicePolicies service policy} instance with containing the specified number of generated policies.
 	 * @param numberOfPolicies
 	 * @return
 	 */
 	public static ServicePolicies createServicePolicy(int numberOfPolicies) {
+		return createServicePolicy(numberOfPolicies, 0d);
+	}
+
+	/**
+	 * Returns a {@link ServicePolicies service policy} instance with containing the specified number of generated policies.
+	 * @param numberOfPolicies
+	 * @param wildcardRate fraction, between 0 and 1, of resource values in generated policies to be replaced with a wildcard value
+	 * @return
+	 */
+	public static ServicePolicies createServicePolicy(int numberOfPolicies, double wildcardRate) {
 		ServicePolicies servicePolicies = loadTemplate("/testdata/test_servicepolicies_hive.json", new TypeToken<ServicePolicies>(){}.getType());
-		mutate(servicePolicies, numberOfPolicies);
+		mutate(servicePolicies, numberOfPolicies, wildcardRate);
 		return servicePolicies;
 	}
 
-	private static void mutate(ServicePolicies servicePolicies, int numberOfPolicies) {
+	/**
+	 * Returns {@link ServiceTags service tags} with the specified number of tags, each associated with a known database/table.
+	 * @param serviceName
+	 * @param numberOfTags
+	 * @return
+	 */
+	public static ServiceTags createServiceTags(String serviceName, int numberOfTags) {
+		ServiceTags                 serviceTags      = new ServiceTags();
+		Map<Long, RangerTag>        tags             = new HashMap<>();
+		List<RangerServiceResource> serviceResources = new ArrayList<>();
+		Map<Long, List<Long>>       resourceToTagIds = new HashMap<>();
+
+		for (long i = 0; i < numberOfTags; i++) {
+			RangerTag             tag      = new RangerTag(String.format("TAG_%s", i % NUMBER_OF_TAG_TYPES), Collections.singletonMap("level", Long.toString(i)));
+			RangerServiceResource resource = new RangerServiceResource(serviceName, ImmutableMap.of("database", new RangerPolicyResource(pickOneRandomly(KNOWN_DATABASES)), "table", new RangerPolicyResource(pickOneRandomly(KNOWN_TABLES))));
+
+			tag.setId(i);
+			resource.setId(i);
+
+			tags.put(i, tag);
+			serviceResources.add(resource);
+			resourceToTagIds.put(i, Collections.singletonList(i));
+		}
+
+		serviceTags.setServiceName(serviceName);
+		serviceTags.setTagVersion(1L);
+		serviceTags.setTagDefinitions(new HashMap<>());
+		serviceTags.setTags(tags);
+		serviceTags.setServiceResources(serviceResources);
+		serviceTags.setResourceToTagIds(resourceToTagIds);
+
+		return serviceTags;
+	}
+
+	private static void mutate(ServicePolicies servicePolicies, int numberOfPolicies, double wildcardRate) {
 		servicePolicies.getPolicies().clear(); // reset
-		servicePolicies.setPolicies(createPolicies(numberOfPolicies));
+		servicePolicies.setPolicies(createPolicies(numberOfPolicies, wildcardRate));
 	}
 
-	private static List<RangerPolicy> createPolicies(int numberOfPolicies) {
+	private static List<RangerPolicy> createPolicies(int numberOfPolicies, double wildcardRate) {
 		List<RangerPolicy> policies = Lists.newArrayList();
 		String template = readResourceFile("/testdata/single-policy-template.json");
 		for (int i = 0; i < numberOfPolicies; i++) {
-			policies.add(createPolicyFromTemplate(template, i, isAllowed()));
+			policies.add(createPolicyFromTemplate(template, i, isAllowed(), wildcardRate));
 		}
 		return policies;
 	}
 
-	private static RangerPolicy createPolicyFromTemplate(String template, long policyId, boolean isAllowed) {
+	private static RangerPolicy createPolicyFromTemplate(String template, long policyId, boolean isAllowed, double wildcardRate) {
 		RangerPolicy rangerPolicy = buildGson().fromJson(template, RangerPolicy.class);
 		rangerPolicy.setId(policyId);
 		rangerPolicy.setName(String.format("generated policyname #%s", policyId));
-		rangerPolicy.setResources(createRangerPolicyResourceMap(isAllowed));
+		rangerPolicy.setResources(createRangerPolicyResourceMap(isAllowed, wildcardRate));
 		rangerPolicy.setPolicyItems(createPolicyItems(isAllowed));
 		return rangerPolicy;
 	}
 
-	private static Map<String, RangerPolicyResource> createRangerPolicyResourceMap(boolean isAllowed) {
-		RangerPolicyResource db = new RangerPolicyResource(isAllowed ? pickFewRandomly(KNOWN_DATABASES): RANDOM_VALUES, false, false);
-		RangerPolicyResource table = new RangerPolicyResource(isAllowed ? pickFewRandomly(KNOWN_TABLES) : RANDOM_VALUES, false, false);
-		RangerPolicyResource column = new RangerPolicyResource(isAllowed ? pickFewRandomly(KNOWN_COLUMNS) : RANDOM_VALUES, false, false);
+	private static Map<String, RangerPolicyResource> createRangerPolicyResourceMap(boolean isAllowed, double wildcardRate) {
+		RangerPolicyResource db = new RangerPolicyResource(isAllowed ? withWildcards(pickFewRandomly(KNOWN_DATABASES), wildcardRate) : RANDOM_VALUES, false, false);
+		RangerPolicyResource table = new RangerPolicyResource(isAllowed ? withWildcards(pickFewRandomly(KNOWN_TABLES), wildcardRate) : RANDOM_VALUES, false, false);
+		RangerPolicyResource column = new RangerPolicyResource(isAllowed ? withWildcards(pickFewRandomly(KNOWN_COLUMNS), wildcardRate) : RANDOM_VALUES, false, false);
 		return ImmutableMap.of("database", db, "table", table, "column", column);
 	}
 
+	/**
+	 * Replaces the last character of values, at the given rate, with '*' - for example, table_12 => table_1*
+	 */
+	private static List<String> withWildcards(List<String> values, double wildcardRate) {
+		if (wildcardRate <= 0d) {
+			return values;
+		}
+
+		List<String> results = Lists.newArrayList();
+		for (String value : values) {
+			results.add(RANDOM.nextDouble() < wildcardRate ? value.substring(0, value.length() - 1) + "*" : value);
+		}
+		return results;
+	}
+
 
 	private static List<RangerPolicyItem> createPolicyItems(boolean isAllowed) {
 		List<RangerPolicyItem> policyItems = Lists.newArrayList();
@@ -233,9 +300,9 @@ private static Gson buildGson() {
 
 	public static String readResourceFile(String fileName) {
 		try {
-			File f = new File(RangerPolicyFactory.class.getResource(fileName).toURI());
-			checkState(f.exists() && f.isFile() && f.canRead());
-			return Files.toString(f, Charsets.UTF_8);
+			URL url = RangerPolicyFactory.class.getResource(fileName); // read as resource, to work when packaged in a jar as well
+			checkState(url != null, "resource not found: %s", fileName);
+			return Resources.toString(url, Charsets.UTF_8);
 		} catch (Exception e) {
 			throw Throwables.propagate(e);
 		}
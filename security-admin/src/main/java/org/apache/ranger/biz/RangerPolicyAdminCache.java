@@ -21,16 +21,29 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.store.RoleStore;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.PolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerPolicyRepository;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcherCache;
 import org.apache.ranger.plugin.store.SecurityZoneStore;
 import org.apache.ranger.plugin.store.ServiceStore;
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
@@ -44,9 +57,13 @@ public class RangerPolicyAdminCache {
 	static class RangerPolicyAdminWrapper {
 		final RangerPolicyAdmin policyAdmin;
 		final Lock              lock = new ReentrantLock();
+		final long              estimatedSize;
+		volatile long           lastAccessTime = System.currentTimeMillis();
+		volatile boolean        isReleased; // updated with the lock held: policyAdmin was released, or handed over to a newer wrapper
 
-		RangerPolicyAdminWrapper(RangerPolicyAdmin policyAdmin) {
-			this.policyAdmin = policyAdmin;
+		RangerPolicyAdminWrapper(RangerPolicyAdmin policyAdmin, long estimatedSize) {
+			this.policyAdmin   = policyAdmin;
+			this.estimatedSize = estimatedSize;
 		}
 		RangerPolicyAdmin getPolicyAdmin() {
 			return policyAdmin;
@@ -54,11 +71,57 @@ RangerPolicyAdmin getPolicyAdmin() {
 		Lock getLock() {
 			return lock;
 		}
+		long getEstimatedSize() {
+			return estimatedSize;
+		}
+		long getLastAccessTime() {
+			return lastAccessTime;
+		}
+		void setLastAccessTime(long lastAccessTime) {
+			this.lastAccessTime = lastAccessTime;
+		}
+		boolean isReleased() {
+			return isReleased;
+		}
+
+		// with the lock held, so that resources are not released while deltas are being applied to policyAdmin
+		void releasePolicyAdmin() {
+			lock.lock();
+
+			try {
+				if (!isReleased) {
+					isReleased = true;
+
+					((RangerPolicyAdminImpl) policyAdmin).releaseResources(true);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
 	}
 
 	private static final Logger LOG = LoggerFactory.getLogger(RangerPolicyAdminCache.class);
 
-	private final Map<String, RangerPolicyAdminWrapper> policyAdminCache = Collections.synchronizedMap(new HashMap<>());
+	// rough, shallow sizes - in bytes - used to estimate the heap held by a policy-engine
+	private static final int SIZE_OF_POLICY          = 1024; // policy, its evaluator and the evaluator's caches
+	private static final int SIZE_OF_RESOURCE        = 160;  // policy-resource, its matcher and trie entry
+	private static final int SIZE_OF_RESOURCE_VALUE  = 96;   // value matcher and trie node, excluding the string
+	private static final int SIZE_OF_POLICY_ITEM     = 256;  // policy-item and its evaluator
+	private static final int SIZE_OF_ITEM_ACCESS     = 48;
+	private static final int SIZE_OF_ITEM_CONDITION  = 128;
+	private static final int SIZE_OF_STRING_OVERHEAD = 40;
+
+	// access-ordered: iteration starts with the least recently used policy-admin
+	private final Map<String, RangerPolicyAdminWrapper> policyAdminCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true));
+	private final RangerPolicyResourceMatcherCache      resourceMatcherCache;
+
+	public RangerPolicyAdminCache() {
+		this(null);
+	}
+
+	public RangerPolicyAdminCache(RangerPolicyResourceMatcherCache resourceMatcherCache) {
+		this.resourceMatcherCache = resourceMatcherCache;
+	}
 
 	final RangerPolicyAdmin getServicePoliciesAdmin(String serviceName, ServiceStore svcStore, RoleStore roleStore, SecurityZoneStore zoneStore, RangerPolicyEngineOptions options) {
 
@@ -75,6 +138,10 @@ final RangerPolicyAdmin getServicePoliciesAdmin(String serviceName, ServiceStore
 
 		RangerPolicyAdminWrapper ret = policyAdminCache.get(serviceName);
 
+		if (ret != null) {
+			ret.setLastAccessTime(System.currentTimeMillis());
+		}
+
 		try {
 			if (ret == null) {
 				policyVersion = -1L;
@@ -100,7 +167,24 @@ final RangerPolicyAdmin getServicePoliciesAdmin(String serviceName, ServiceStore
 			ServicePolicies policies = svcStore.getServicePoliciesIfUpdated(serviceName, policyVersion, ServiceDBStore.isSupportsPolicyDeltas());
 
 			if (policies != null) {
-				ret = addOrUpdatePolicyAdmin(ret, policies, roles, options);
+				RangerPolicyAdminWrapper cached = ret;
+
+				ret = addOrUpdatePolicyAdmin(cached, policies, roles, options);
+
+				if (ret == null && cached != null && cached.isReleased()) {
+					ret = policyAdminCache.get(serviceName); // updated by another request
+
+					if (ret == null) { // evicted: build from all policies
+						LOG.info("getPolicyAdmin(" + serviceName + "): policy-engine was evicted while being updated; rebuilding it");
+
+						roles          = roleStore.getRoles(serviceName, -1L);
+						isRolesUpdated = true;
+						policies       = svcStore.getServicePoliciesIfUpdated(serviceName, -1L, ServiceDBStore.isSupportsPolicyDeltas());
+						ret            = policies != null ? addOrUpdatePolicyAdmin(null, policies, roles, options) : null;
+					} else {
+						isRolesUpdated = false;
+					}
+				}
 
 				if (ret == null) {
 					LOG.error("getPolicyAdmin(" + serviceName + "): failed to build engine from policies from service-store");
@@ -124,11 +208,45 @@ final RangerPolicyAdmin getServicePoliciesAdmin(String serviceName, ServiceStore
 
 	}
 
+	/*
+	 * Updates the policy-admin of policyAdminWrapper with the lock of the wrapper held, so that an eviction does not
+	 * release the policy-admin while it is being updated. Returns null if policyAdminWrapper was released, by an
+	 * eviction or by another update, before the lock was obtained.
+	 */
 	private RangerPolicyAdminWrapper addOrUpdatePolicyAdmin(RangerPolicyAdminWrapper policyAdminWrapper, ServicePolicies policies, RangerRoles roles, RangerPolicyEngineOptions options) {
+		if (policyAdminWrapper == null) {
+			return addOrUpdatePolicyAdminLocked(null, policies, roles, options);
+		}
+
+		try {
+			policyAdminWrapper.getLock().lockInterruptibly();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			LOG.warn("Interrupted while waiting to update policy-engine for service " + policies.getServiceName());
+
+			return null;
+		}
+
+		try {
+			if (policyAdminWrapper.isReleased()) {
+				LOG.info("Policy-engine for service " + policies.getServiceName() + " was evicted or replaced; not updating it");
+
+				return null;
+			}
+
+			return addOrUpdatePolicyAdminLocked(policyAdminWrapper, policies, roles, options);
+		} finally {
+			policyAdminWrapper.getLock().unlock();
+		}
+	}
+
+	private RangerPolicyAdminWrapper addOrUpdatePolicyAdminLocked(RangerPolicyAdminWrapper policyAdminWrapper, ServicePolicies policies, RangerRoles roles, RangerPolicyEngineOptions options) {
 		final RangerPolicyAdminWrapper ret;
 
 		RangerPolicyAdmin        policyAdmin          = null;
 		boolean                  isPolicyEngineShared = false;
+		long                     estimatedSize        = 0;
 
 		RangerPolicyAdminImpl    oldPolicyAdmin       = policyAdminWrapper == null ? null : (RangerPolicyAdminImpl) policyAdminWrapper.getPolicyAdmin();
 		Boolean                  hasPolicyDeltas      = RangerPolicyDeltaUtil.hasPolicyDeltas(policies);
@@ -136,25 +254,11 @@ private RangerPolicyAdminWrapper addOrUpdatePolicyAdmin(RangerPolicyAdminWrapper
 		if (hasPolicyDeltas != null) {
 			if (hasPolicyDeltas.equals(Boolean.TRUE)) {
 				if (oldPolicyAdmin != null) {
-					boolean isLocked = false;
-
-					try {
-						policyAdminWrapper.getLock().lockInterruptibly();
-						isLocked = true;
-					} catch (Exception e) {
-						// Ignore
-					}
-
-					if (isLocked) {
-						try {
-							policyAdmin = RangerPolicyAdminImpl.getPolicyAdmin(oldPolicyAdmin, policies);
-							if (policyAdmin != null) {
-								policyAdmin.setRoles(roles);
-								isPolicyEngineShared = true;
-							}
-						} finally {
-							policyAdminWrapper.getLock().unlock();
-						}
+					policyAdmin = RangerPolicyAdminImpl.getPolicyAdmin(oldPolicyAdmin, policies);
+					if (policyAdmin != null) {
+						policyAdmin.setRoles(roles);
+						isPolicyEngineShared = true;
+						estimatedSize        = getEstimatedSize(policyAdminWrapper.getEstimatedSize(), policies.getPolicyDeltas());
 					}
 				} else {
 					LOG.error("Old policy engine is null! Cannot apply deltas without old policy engine!");
@@ -164,10 +268,14 @@ private RangerPolicyAdminWrapper addOrUpdatePolicyAdmin(RangerPolicyAdminWrapper
 					policies.setPolicies(new ArrayList<>());
 				}
 				policyAdmin = addPolicyAdmin(policies, roles, options);
+				if (policyAdmin != null) {
+					estimatedSize = getEstimatedSize(policyAdmin);
+				}
 			}
 		} else {
 			LOG.warn("Provided policies do not require policy change !! [" + policies + "]. Keeping old policy-engine!");
-			policyAdmin = oldPolicyAdmin;
+			policyAdmin   = oldPolicyAdmin;
+			estimatedSize = policyAdminWrapper == null ? 0 : policyAdminWrapper.getEstimatedSize();
 		}
 
 		if (policyAdmin != null) {
@@ -178,10 +286,15 @@ private RangerPolicyAdminWrapper addOrUpdatePolicyAdmin(RangerPolicyAdminWrapper
 					LOG.debug("Replacing policy-engine in cache with serviceName:[" + policies.getServiceName() + "] as key");
 				}
 			}
-			ret = new RangerPolicyAdminWrapper(policyAdmin);
+			ret = new RangerPolicyAdminWrapper(policyAdmin, estimatedSize);
 			policyAdminCache.put(policies.getServiceName(), ret);
-			if (oldPolicyAdmin != null && oldPolicyAdmin != policyAdmin) {
-				oldPolicyAdmin.releaseResources(!isPolicyEngineShared);
+			if (policyAdminWrapper != null) {
+				// policyAdminWrapper no longer owns oldPolicyAdmin: a later eviction of it must not release the policy-admin
+				policyAdminWrapper.isReleased = true;
+
+				if (oldPolicyAdmin != policyAdmin) {
+					oldPolicyAdmin.releaseResources(!isPolicyEngineShared);
+				}
 			}
 		} else {
 			LOG.warn("Could not build new policy-engine.");
@@ -196,6 +309,205 @@ private RangerPolicyAdmin addPolicyAdmin(ServicePolicies policies, RangerRoles r
 		String              serviceType         = (serviceDef != null) ? serviceDef.getName() : "";
 		RangerPluginContext rangerPluginContext = new RangerPluginContext(new RangerPluginConfig(serviceType, null, "ranger-admin", null, null, options));
 
+		rangerPluginContext.setResourceMatcherCache(resourceMatcherCache);
+
 		return new RangerPolicyAdminImpl(policies, rangerPluginContext, roles);
 	}
+
+	int getPolicyAdminCount() {
+		return policyAdminCache.size();
+	}
+
+	long getEstimatedSize() {
+		long ret = 0;
+
+		synchronized (policyAdminCache) {
+			for (RangerPolicyAdminWrapper wrapper : policyAdminCache.values()) {
+				ret += wrapper.getEstimatedSize();
+			}
+		}
+
+		return ret;
+	}
+
+	// returns Long.MAX_VALUE if the cache is empty
+	long getLeastRecentAccessTime() {
+		synchronized (policyAdminCache) {
+			Iterator<RangerPolicyAdminWrapper> iter = policyAdminCache.values().iterator();
+
+			return iter.hasNext() ? iter.next().getLastAccessTime() : Long.MAX_VALUE;
+		}
+	}
+
+	/*
+	 * Removes the least recently used policy-admin from the cache; it will be rebuilt when next requested. A request
+	 * that already obtained the policy-admin can continue to use it. Resources are released with the lock of the
+	 * wrapper held, after any update in progress completes; if that update replaced the policy-admin, the replacement
+	 * stays in the cache and its resources are not released.
+	 */
+	boolean evictLeastRecentlyUsed() {
+		final Map.Entry<String, RangerPolicyAdminWrapper> evicted;
+
+		synchronized (policyAdminCache) {
+			Iterator<Map.Entry<String, RangerPolicyAdminWrapper>> iter = policyAdminCache.entrySet().iterator();
+
+			if (iter.hasNext()) {
+				evicted = iter.next();
+
+				iter.remove();
+			} else {
+				evicted = null;
+			}
+		}
+
+		if (evicted != null) {
+			LOG.info("Evicted policy-engine for service " + evicted.getKey() + ": policyVersion=" + evicted.getValue().getPolicyAdmin().getPolicyVersion() + ", estimatedSize=" + evicted.getValue().getEstimatedSize());
+
+			evicted.getValue().releasePolicyAdmin();
+		}
+
+		return evicted != null;
+	}
+
+	List<Map<String, Object>> getPolicyAdminMetrics() {
+		List<Map<String, Object>> ret = new ArrayList<>();
+
+		synchronized (policyAdminCache) {
+			for (Map.Entry<String, RangerPolicyAdminWrapper> entry : policyAdminCache.entrySet()) {
+				RangerPolicyAdminWrapper wrapper = entry.getValue();
+				Map<String, Object>      metrics = new LinkedHashMap<>();
+
+				metrics.put("serviceName", entry.getKey());
+				metrics.put("policyVersion", wrapper.getPolicyAdmin().getPolicyVersion());
+				metrics.put("roleVersion", wrapper.getPolicyAdmin().getRoleVersion());
+				metrics.put("estimatedSize", wrapper.getEstimatedSize());
+				metrics.put("lastAccessTime", wrapper.getLastAccessTime());
+
+				ret.add(metrics);
+			}
+		}
+
+		return ret;
+	}
+
+	static long getEstimatedSize(RangerPolicyAdmin policyAdmin) {
+		long         ret          = 0;
+		PolicyEngine policyEngine = ((RangerPolicyAdminImpl) policyAdmin).getPolicyEngine();
+
+		if (policyEngine != null) {
+			ret += getEstimatedSize(policyEngine.getPolicyRepository());
+			ret += getEstimatedSize(policyEngine.getTagPolicyRepository());
+
+			if (policyEngine.getZonePolicyRepositories() != null) {
+				for (RangerPolicyRepository zonePolicyRepository : policyEngine.getZonePolicyRepositories().values()) {
+					ret += getEstimatedSize(zonePolicyRepository);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	// policy-deltas update the estimate of the engine they are applied to: updated policies are assumed to not change in size
+	static long getEstimatedSize(long sizeBeforeDeltas, List<RangerPolicyDelta> deltas) {
+		long ret = sizeBeforeDeltas;
+
+		if (deltas != null) {
+			for (RangerPolicyDelta delta : deltas) {
+				if (delta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+					ret += getEstimatedSize(delta.getPolicy());
+				} else if (delta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+					ret -= getEstimatedSize(delta.getPolicy());
+				}
+			}
+		}
+
+		return Math.max(ret, 0);
+	}
+
+	static long getEstimatedSize(RangerPolicy policy) {
+		long ret = 0;
+
+		if (policy != null) {
+			ret += SIZE_OF_POLICY + getEstimatedSize(policy.getName()) + getEstimatedSize(policy.getGuid()) + getEstimatedSize(policy.getDescription());
+
+			ret += getEstimatedSize(policy.getResources());
+
+			if (policy.getAdditionalResources() != null) {
+				for (Map<String, RangerPolicyResource> additionalResources : policy.getAdditionalResources()) {
+					ret += getEstimatedSize(additionalResources);
+				}
+			}
+
+			for (List<? extends RangerPolicyItem> policyItems : PolicyRefUpdater.getAllPolicyItems(policy)) {
+				if (CollectionUtils.isEmpty(policyItems)) {
+					continue;
+				}
+
+				for (RangerPolicyItem policyItem : policyItems) {
+					ret += SIZE_OF_POLICY_ITEM + getEstimatedSize(policyItem.getUsers()) + getEstimatedSize(policyItem.getGroups()) + getEstimatedSize(policyItem.getRoles());
+
+					if (policyItem.getAccesses() != null) {
+						for (RangerPolicyItemAccess access : policyItem.getAccesses()) {
+							ret += SIZE_OF_ITEM_ACCESS + getEstimatedSize(access.getType());
+						}
+					}
+
+					if (policyItem.getConditions() != null) {
+						for (RangerPolicyItemCondition condition : policyItem.getConditions()) {
+							ret += SIZE_OF_ITEM_CONDITION + getEstimatedSize(condition.getType()) + getEstimatedSize(condition.getValues());
+						}
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static long getEstimatedSize(RangerPolicyRepository policyRepository) {
+		long ret = 0;
+
+		if (policyRepository != null) {
+			for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+				ret += getEstimatedSize(evaluator.getPolicy());
+			}
+		}
+
+		return ret;
+	}
+
+	private static long getEstimatedSize(Map<String, RangerPolicyResource> resources) {
+		long ret = 0;
+
+		if (resources != null) {
+			for (Map.Entry<String, RangerPolicyResource> entry : resources.entrySet()) {
+				List<String> values = entry.getValue() != null ? entry.getValue().getValues() : null;
+
+				ret += SIZE_OF_RESOURCE + getEstimatedSize(entry.getKey()) + getEstimatedSize(values);
+
+				if (values != null) {
+					ret += (long) values.size() * SIZE_OF_RESOURCE_VALUE;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static long getEstimatedSize(List<String> values) {
+		long ret = 0;
+
+		if (values != null) {
+			for (String value : values) {
+				ret += getEstimatedSize(value);
+			}
+		}
+
+		return ret;
+	}
+
+	private static long getEstimatedSize(String value) {
+		return value == null ? 0 : (SIZE_OF_STRING_OVERHEAD + 2L * value.length());
+	}
 }
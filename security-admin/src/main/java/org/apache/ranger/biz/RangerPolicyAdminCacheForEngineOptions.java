@@ -19,19 +19,48 @@
 
 package org.apache.ranger.biz;
 
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
 import org.apache.ranger.plugin.store.RoleStore;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcherCache;
 import org.apache.ranger.plugin.store.SecurityZoneStore;
 import org.apache.ranger.plugin.store.ServiceStore;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Policy-engines built in Ranger Admin, one per service for each set of engine options. The cache is bounded by the
+ * number of engines and, optionally, by their estimated heap size: when a limit is exceeded, the least recently used
+ * engines - across all engine options - are evicted and are rebuilt when next requested. Engines share resource
+ * matchers for policies with identical resources, as the engines built with different options for a service do.
+ */
 public class RangerPolicyAdminCacheForEngineOptions {
+    public static final String PROP_POLICY_ENGINE_CACHE_MAX_COUNT   = "ranger.admin.policy.engine.cache.max.count";
+    public static final String PROP_POLICY_ENGINE_CACHE_MAX_SIZE_MB = "ranger.admin.policy.engine.cache.max.size.mb";
+
+    private static final int DEFAULT_POLICY_ENGINE_CACHE_MAX_COUNT   = 1000;
+    private static final int DEFAULT_POLICY_ENGINE_CACHE_MAX_SIZE_MB = 0; // no limit
+
     private static volatile RangerPolicyAdminCacheForEngineOptions sInstance = null;
 
     private final Map<RangerPolicyEngineOptions, RangerPolicyAdminCache> policyAdminCacheForEngineOptions = Collections.synchronizedMap(new HashMap<>());
+    private final RangerPolicyResourceMatcherCache                       resourceMatcherCache             = new RangerPolicyResourceMatcherCache();
+    private final int                                                    maxEngineCount;
+    private final long                                                   maxSizeInBytes;
+    private final AtomicLong                                             evictionCount                    = new AtomicLong();
+
+    private RangerPolicyAdminCacheForEngineOptions() {
+        RangerAdminConfig config = RangerAdminConfig.getInstance();
+
+        this.maxEngineCount = config.getInt(PROP_POLICY_ENGINE_CACHE_MAX_COUNT, DEFAULT_POLICY_ENGINE_CACHE_MAX_COUNT);
+        this.maxSizeInBytes = config.getLong(PROP_POLICY_ENGINE_CACHE_MAX_SIZE_MB, DEFAULT_POLICY_ENGINE_CACHE_MAX_SIZE_MB) * 1024 * 1024;
+    }
 
     public static RangerPolicyAdminCacheForEngineOptions getInstance() {
         RangerPolicyAdminCacheForEngineOptions ret = sInstance;
@@ -63,14 +92,91 @@ private RangerPolicyAdmin getServicePoliciesAdmin(String serviceName, ServiceSto
                 policyAdminCache = policyAdminCacheForEngineOptions.get(options);
 
                 if (policyAdminCache == null) {
-                    policyAdminCache = new RangerPolicyAdminCache();
+                    policyAdminCache = new RangerPolicyAdminCache(resourceMatcherCache);
 
                     policyAdminCacheForEngineOptions.put(options, policyAdminCache);
                 }
             }
         }
 
-        return policyAdminCache.getServicePoliciesAdmin(serviceName, svcStore, roleStore, zoneStore, options);
+        RangerPolicyAdmin ret = policyAdminCache.getServicePoliciesAdmin(serviceName, svcStore, roleStore, zoneStore, options);
+
+        evictIfNeeded();
+
+        return ret;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object>       ret           = new LinkedHashMap<>();
+        List<Map<String, Object>> engines       = new ArrayList<>();
+        int                       engineCount   = 0;
+        long                      estimatedSize = 0;
+
+        for (Map.Entry<RangerPolicyEngineOptions, RangerPolicyAdminCache> entry : getPolicyAdminCaches().entrySet()) {
+            RangerPolicyAdminCache policyAdminCache = entry.getValue();
+
+            for (Map<String, Object> engineMetrics : policyAdminCache.getPolicyAdminMetrics()) {
+                engineMetrics.put("engineOptions", entry.getKey().toString());
+
+                engines.add(engineMetrics);
+            }
+
+            engineCount   += policyAdminCache.getPolicyAdminCount();
+            estimatedSize += policyAdminCache.getEstimatedSize();
+        }
+
+        ret.put("engineCount", engineCount);
+        ret.put("estimatedSize", estimatedSize);
+        ret.put("maxEngineCount", maxEngineCount);
+        ret.put("maxSize", maxSizeInBytes);
+        ret.put("evictionCount", evictionCount.get());
+        ret.put("sharedResourceMatchers", resourceMatcherCache.getMetrics());
+        ret.put("engines", engines);
+
+        return ret;
+    }
+
+    // evicts least recently used engines, across all engine options, until the cache is within its limits; the most recently used engine is always retained
+    private void evictIfNeeded() {
+        if (maxEngineCount <= 0 && maxSizeInBytes <= 0) {
+            return;
+        }
+
+        synchronized (this) {
+            while (true) {
+                Map<RangerPolicyEngineOptions, RangerPolicyAdminCache> policyAdminCaches = getPolicyAdminCaches();
+                RangerPolicyAdminCache                                 lruCache          = null;
+                long                                                   lruAccessTime     = Long.MAX_VALUE;
+                int                                                    engineCount       = 0;
+                long                                                   estimatedSize     = 0;
+
+                for (RangerPolicyAdminCache policyAdminCache : policyAdminCaches.values()) {
+                    long accessTime = policyAdminCache.getLeastRecentAccessTime();
+
+                    if (lruCache == null || accessTime < lruAccessTime) {
+                        lruCache      = policyAdminCache;
+                        lruAccessTime = accessTime;
+                    }
+
+                    engineCount   += policyAdminCache.getPolicyAdminCount();
+                    estimatedSize += policyAdminCache.getEstimatedSize();
+                }
+
+                boolean isOverLimit = (maxEngineCount > 0 && engineCount > maxEngineCount) || (maxSizeInBytes > 0 && estimatedSize > maxSizeInBytes);
+
+                if (!isOverLimit || engineCount <= 1 || lruCache == null || !lruCache.evictLeastRecentlyUsed()) {
+                    break;
+                }
+
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private Map<RangerPolicyEngineOptions, RangerPolicyAdminCache> getPolicyAdminCaches() {
+        synchronized (policyAdminCacheForEngineOptions) {
+            return new HashMap<>(policyAdminCacheForEngineOptions);
+        }
     }
 }
 
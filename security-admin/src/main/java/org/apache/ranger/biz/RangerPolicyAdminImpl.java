@@ -611,6 +611,10 @@ void releaseResources(boolean isForced) {
         }
     }
 
+    PolicyEngine getPolicyEngine() {
+        return policyEngine;
+    }
+
     private List<RangerPolicy> getMatchingPolicies(RangerAccessResource resource, String accessType) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyAdminImpl.getMatchingPolicies(" + resource + ", " + accessType + ")");
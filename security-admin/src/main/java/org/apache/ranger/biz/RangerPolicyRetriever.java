@@ -19,15 +19,24 @@
 
 package org.apache.ranger.biz;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.db.RangerDaoManager;
@@ -53,20 +62,44 @@
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.management.ThreadMXBean;
 
 public class RangerPolicyRetriever {
 	static final Logger LOG      = LoggerFactory.getLogger(RangerPolicyRetriever.class);
 	static final Logger PERF_LOG = RangerPerfTracer.getPerfLogger("db.RangerPolicyRetriever");
 
+	public static final String PROP_POLICY_LOADER_PAGE_SIZE    = "ranger.admin.policy.loader.page.size";
+	public static final String PROP_POLICY_LOADER_THREAD_COUNT = "ranger.admin.policy.loader.thread.count";
+
+	private static final int DEFAULT_POLICY_LOADER_PAGE_SIZE    = 1000;
+	private static final int DEFAULT_POLICY_LOADER_THREAD_COUNT = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+	private static final PolicyLoadMetrics loadMetrics = new PolicyLoadMetrics();
+	private static final ThreadMXBean      threadBean  = getThreadBean();
+	private static volatile boolean         isPolicyLoaderPoolInitialized;
+	private static          ExecutorService policyLoaderPool;
+
 	private final RangerDaoManager  daoMgr;
 	private final LookupCache       lookupCache = new LookupCache();
+	private final int               pageSize;
 
 	private final PlatformTransactionManager  txManager;
 	private final TransactionTemplate         txTemplate;
 
 	public RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager txManager) {
+		this(daoMgr, txManager, RangerAdminConfig.getInstance().getInt(PROP_POLICY_LOADER_PAGE_SIZE, DEFAULT_POLICY_LOADER_PAGE_SIZE));
+	}
+
+	public RangerPolicyRetriever(RangerDaoManager daoMgr) {
+		this(daoMgr, null);
+	}
+
+	// Not designed for public access - only for testability
+	RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager txManager, int pageSize) {
 		this.daoMgr     = daoMgr;
 		this.txManager  = txManager;
+		this.pageSize   = pageSize > 0 ? pageSize : DEFAULT_POLICY_LOADER_PAGE_SIZE;
 		if (this.txManager != null) {
 			this.txTemplate = new TransactionTemplate(this.txManager);
 			this.txTemplate.setReadOnly(true);
@@ -75,10 +108,8 @@ public RangerPolicyRetriever(RangerDaoManager daoMgr, PlatformTransactionManager
 		}
 	}
 
-	public RangerPolicyRetriever(RangerDaoManager daoMgr) {
-		this.daoMgr      = daoMgr;
-		this.txManager   = null;
-		this.txTemplate  = null;
+	public static Map<String, Object> getLoadMetrics() {
+		return loadMetrics.toMap();
 	}
 
 	public List<RangerPolicy> getServicePolicies(Long serviceId) {
@@ -137,7 +168,7 @@ public void run() {
 					@Override
 					public List<RangerPolicy> doInTransaction(TransactionStatus status) {
 						try {
-							RetrieverContext ctx = new RetrieverContext(xService);
+							RetrieverContext ctx = new RetrieverContext(xService, true);
 							return ctx.getAllPolicies();
 						} catch (Exception ex) {
 							LOG.error("RangerPolicyRetriever.getServicePolicies(): Failed to get policies for service:[" + xService.getName() + "] in a new transaction", ex);
@@ -172,7 +203,7 @@ public List<RangerPolicy> getServicePolicies(final XXService xService) {
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("Transaction Manager is null; Retrieving policies in the existing transaction");
 				}
-				RetrieverContext ctx = new RetrieverContext(xService);
+				RetrieverContext ctx = new RetrieverContext(xService, false);
 				ret = ctx.getAllPolicies();
 			} else {
 				if (LOG.isDebugEnabled()) {
@@ -459,6 +490,111 @@ public PolicyTextNameMap(Long policyId, String oldName, String currentName) {
 		}
 	}
 
+	static class PolicyRow {
+		final Long         id;
+		final String       guid;
+		final String       policyText;
+		final String       createdBy;
+		final String       updatedBy;
+		final Date         createTime;
+		final Date         updateTime;
+		final Long         version;
+		final Integer      policyType;
+		final String       zoneName;
+		final List<String> policyLabels;
+
+		PolicyRow(XXPolicy xPolicy, String createdBy, String updatedBy, String zoneName, List<String> policyLabels) {
+			this.id           = xPolicy.getId();
+			this.guid         = xPolicy.getGuid();
+			this.policyText   = xPolicy.getPolicyText();
+			this.createdBy    = createdBy;
+			this.updatedBy    = updatedBy;
+			this.createTime   = xPolicy.getCreateTime();
+			this.updateTime   = xPolicy.getUpdateTime();
+			this.version      = xPolicy.getVersion();
+			this.policyType   = xPolicy.getPolicyType();
+			this.zoneName     = zoneName;
+			this.policyLabels = policyLabels;
+		}
+	}
+
+	static class PolicyLoadMetrics {
+		private long   loadCount;
+		private long   totalLoadTimeMs;
+		private long   maxLoadTimeMs;
+		private String lastServiceName;
+		private int    lastPolicyCount;
+		private long   lastLoadTimeMs;
+		private long   maxAllocatedBytes;
+		private long   lastAllocatedBytes;
+
+		synchronized void record(String serviceName, int policyCount, long loadTimeMs, long allocatedBytes) {
+			loadCount++;
+
+			totalLoadTimeMs    += loadTimeMs;
+			maxLoadTimeMs      = Math.max(maxLoadTimeMs, loadTimeMs);
+			maxAllocatedBytes  = Math.max(maxAllocatedBytes, allocatedBytes);
+			lastServiceName    = serviceName;
+			lastPolicyCount    = policyCount;
+			lastLoadTimeMs     = loadTimeMs;
+			lastAllocatedBytes = allocatedBytes;
+		}
+
+		synchronized Map<String, Object> toMap() {
+			Map<String, Object> ret = new LinkedHashMap<>();
+
+			ret.put("loadCount", loadCount);
+			ret.put("avgLoadTimeMs", loadCount > 0 ? (totalLoadTimeMs / loadCount) : 0L);
+			ret.put("maxLoadTimeMs", maxLoadTimeMs);
+			ret.put("lastServiceName", lastServiceName);
+			ret.put("lastPolicyCount", lastPolicyCount);
+			ret.put("lastLoadTimeMs", lastLoadTimeMs);
+			ret.put("maxAllocatedBytes", maxAllocatedBytes);
+			ret.put("lastAllocatedBytes", lastAllocatedBytes);
+
+			return ret;
+		}
+	}
+
+	// returns null when the JVM doesn't measure per-thread allocation; allocation is then reported as 0
+	private static ThreadMXBean getThreadBean() {
+		java.lang.management.ThreadMXBean ret = ManagementFactory.getThreadMXBean();
+
+		if (ret instanceof ThreadMXBean && ((ThreadMXBean) ret).isThreadAllocatedMemorySupported() && ((ThreadMXBean) ret).isThreadAllocatedMemoryEnabled()) {
+			return (ThreadMXBean) ret;
+		}
+
+		LOG.info("RangerPolicyRetriever: per-thread memory allocation is not measured by this JVM; policy loader will report allocatedBytes=0");
+
+		return null;
+	}
+
+	// bytes allocated so far by the current thread
+	private static long getAllocatedBytes() {
+		return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	// returns null when the configured thread count is 1 or less; policies are then parsed in the calling thread
+	private static ExecutorService getPolicyLoaderPool() {
+		if (!isPolicyLoaderPoolInitialized) {
+			synchronized (RangerPolicyRetriever.class) {
+				if (!isPolicyLoaderPoolInitialized) {
+					int threadCount = RangerAdminConfig.getInstance().getInt(PROP_POLICY_LOADER_THREAD_COUNT, DEFAULT_POLICY_LOADER_THREAD_COUNT);
+
+					if (threadCount > 1) {
+						policyLoaderPool = Executors.newFixedThreadPool(threadCount, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("policy-loader-%d").build());
+					}
+
+					LOG.info("RangerPolicyRetriever: policy-loader threadCount=" + threadCount);
+
+					isPolicyLoaderPoolInitialized = true;
+				}
+			}
+		}
+
+		return policyLoaderPool;
+	}
+
     static List<XXPolicy> asList(XXPolicy policy) {
         List<XXPolicy> ret = new ArrayList<>();
 
@@ -470,12 +606,14 @@ static List<XXPolicy> asList(XXPolicy policy) {
     }
 
 	class RetrieverContext {
-		final XXService              service;
-		final ListIterator<XXPolicy> iterPolicy;
+		final XXService                      service;
+		final ListIterator<XXPolicy>         iterPolicy;
 		final ListIterator<XXPolicyLabelMap> iterPolicyLabels;
-		final XXServiceDef           serviceDef;
+		final XXServiceDef                   serviceDef;
+		final boolean                        detachLoadedPolicies;
+		final long                           startTimeMs = System.currentTimeMillis();
 
-		RetrieverContext(XXService xService) {
+		RetrieverContext(XXService xService, boolean detachLoadedPolicies) {
 			if (xService != null) {
 				Long serviceId = xService.getId();
 
@@ -489,7 +627,7 @@ class RetrieverContext {
 
 				this.service    = xService;
 				this.serviceDef = daoMgr.getXXServiceDef().getById(xService.getType());
-				this.iterPolicy = daoMgr.getXXPolicy().findByServiceId(serviceId).listIterator();
+				this.iterPolicy = null; // policies of the service are read a page at a time, in getAllPolicies()
 				this.iterPolicyLabels = daoMgr.getXXPolicyLabelMap().findByServiceId(serviceId).listIterator();
 			} else {
 				this.service    = null;
@@ -497,6 +635,8 @@ class RetrieverContext {
 				this.iterPolicy = null;
 				this.iterPolicyLabels = null;
 			}
+
+			this.detachLoadedPolicies = detachLoadedPolicies;
 		}
 
 		RetrieverContext(XXPolicy xPolicy, XXService xService) {
@@ -515,6 +655,7 @@ class RetrieverContext {
 			this.iterPolicy = asList(xPolicy).listIterator();
 			List<XXPolicyLabelMap> policyLabels = daoMgr.getXXPolicyLabelMap().findByPolicyId(policyId);
 			this.iterPolicyLabels = policyLabels != null ? policyLabels.listIterator() : null;
+			this.detachLoadedPolicies = false;
 		}
 
 		RangerPolicy getNextPolicy() {
@@ -526,42 +667,62 @@ RangerPolicy getNextPolicy() {
 				iterPolicy.remove();
 
 				if (xPolicy != null) {
-					String policyText = xPolicy.getPolicyText();
-
-					ret = JsonUtils.jsonToObject(policyText, RangerPolicy.class);
-
-					if (ret != null) {
-						ret.setId(xPolicy.getId());
-						ret.setGuid(xPolicy.getGuid());
-						ret.setCreatedBy(lookupCache.getUserScreenName(xPolicy.getAddedByUserId()));
-						ret.setUpdatedBy(lookupCache.getUserScreenName(xPolicy.getUpdatedByUserId()));
-						ret.setCreateTime(xPolicy.getCreateTime());
-						ret.setUpdateTime(xPolicy.getUpdateTime());
-						ret.setVersion(xPolicy.getVersion());
-						ret.setPolicyType(xPolicy.getPolicyType() == null ? RangerPolicy.POLICY_TYPE_ACCESS : xPolicy.getPolicyType());
-						ret.setService(service.getName());
-						ret.setServiceType(serviceDef.getName());
-						ret.setZoneName(lookupCache.getSecurityZoneName(xPolicy.getZoneId()));
-						updatePolicyReferenceFields(ret);
-						getPolicyLabels(ret);
-					}
+					ret = toPolicy(getPolicyRow(xPolicy));
+				}
+			}
+
+			return ret;
+		}
+
+		// called in the thread that reads from the database, as the lookups use its (not thread-safe) entity manager
+		PolicyRow getPolicyRow(XXPolicy xPolicy) {
+			return new PolicyRow(xPolicy,
+			                     lookupCache.getUserScreenName(xPolicy.getAddedByUserId()),
+			                     lookupCache.getUserScreenName(xPolicy.getUpdatedByUserId()),
+			                     lookupCache.getSecurityZoneName(xPolicy.getZoneId()),
+			                     getPolicyLabels(xPolicy.getId()));
+		}
+
+		// can be called in a policy-loader thread: only reads the name mappings in lookupCache
+		RangerPolicy toPolicy(PolicyRow row) {
+			RangerPolicy ret = JsonUtils.jsonToObject(row.policyText, RangerPolicy.class);
+
+			if (ret != null) {
+				ret.setId(row.id);
+				ret.setGuid(row.guid);
+				ret.setCreatedBy(row.createdBy);
+				ret.setUpdatedBy(row.updatedBy);
+				ret.setCreateTime(row.createTime);
+				ret.setUpdateTime(row.updateTime);
+				ret.setVersion(row.version);
+				ret.setPolicyType(row.policyType == null ? RangerPolicy.POLICY_TYPE_ACCESS : row.policyType);
+				ret.setService(service.getName());
+				ret.setServiceType(serviceDef.getName());
+				ret.setZoneName(row.zoneName);
+				updatePolicyReferenceFields(ret);
+
+				if (row.policyLabels != null) {
+					ret.setPolicyLabels(row.policyLabels);
 				}
 			}
 
 			return ret;
 		}
 
-		private void getPolicyLabels(RangerPolicy ret) {
-			List<String> xPolicyLabels = new ArrayList<String>();
+		private List<String> getPolicyLabels(Long policyId) {
+			List<String> ret = null;
+
 			if (iterPolicyLabels != null) {
 				while (iterPolicyLabels.hasNext()) {
 					XXPolicyLabelMap xPolicyLabel = iterPolicyLabels.next();
-					if (xPolicyLabel.getPolicyId().equals(ret.getId())) {
+					if (xPolicyLabel.getPolicyId().equals(policyId)) {
 						String policyLabel = lookupCache.getPolicyLabelName(xPolicyLabel.getPolicyLabelId());
+						if (ret == null) {
+							ret = new ArrayList<>();
+						}
 						if (policyLabel != null) {
-							xPolicyLabels.add(policyLabel);
+							ret.add(policyLabel);
 						}
-						ret.setPolicyLabels(xPolicyLabels);
 					} else {
 						if (iterPolicyLabels.hasPrevious()) {
 							iterPolicyLabels.previous();
@@ -570,6 +731,8 @@ private void getPolicyLabels(RangerPolicy ret) {
 					}
 				}
 			}
+
+			return ret;
 		}
 
 		void updatePolicyReferenceFields(final RangerPolicy policy) {
@@ -678,21 +841,122 @@ List<String> getUpdatedNames(final Map<Long, Map<String, String>> nameMappingCon
 			return ret;
 		}
 
+		/*
+		 * Reads policies of the service with keyset pagination, a page of pageSize rows at a time. The rows of a page
+		 * are reduced to PolicyRow, so that the entities can be detached, and the policy-text is parsed in the
+		 * policy-loader pool while the next page is read. Only the rows of the current and the previous page are
+		 * held at any time, in addition to the parsed policies. Memory allocated for the load - by this thread and by
+		 * the pool tasks of this load - is recorded in the load metrics.
+		 */
 		List<RangerPolicy> getAllPolicies() {
 			List<RangerPolicy> ret = new ArrayList<>();
 
-			if (iterPolicy != null) {
-				while (iterPolicy.hasNext()) {
-					RangerPolicy policy = getNextPolicy();
+			if (service != null) {
+				ExecutorService            executor     = getPolicyLoaderPool();
+				Long                       lastPolicyId = Long.MIN_VALUE;
+				List<Future<RangerPolicy>> prevPage     = null;
+				List<Future<RangerPolicy>> page         = null;
+				LongAdder                  poolBytes    = new LongAdder();
+				long                       startBytes   = getAllocatedBytes();
+
+				try {
+					while (true) {
+						List<XXPolicy> xPolicies = daoMgr.getXXPolicy().findByServiceIdAfterPolicyId(service.getId(), lastPolicyId, pageSize);
+
+						if (CollectionUtils.isEmpty(xPolicies)) {
+							break;
+						}
+
+						page = new ArrayList<>(xPolicies.size());
+
+						for (XXPolicy xPolicy : xPolicies) {
+							final PolicyRow row = getPolicyRow(xPolicy);
+
+							if (detachLoadedPolicies) {
+								daoMgr.getXXPolicy().detach(xPolicy);
+							}
+
+							if (executor != null) {
+								page.add(executor.submit(() -> {
+									long taskStartBytes = getAllocatedBytes();
+
+									try {
+										return toPolicy(row);
+									} finally {
+										poolBytes.add(getAllocatedBytes() - taskStartBytes);
+									}
+								}));
+							} else {
+								addPolicy(ret, toPolicy(row));
+							}
+						}
 
-					if (policy != null) {
-						ret.add(policy);
+						boolean isLastPage = xPolicies.size() < pageSize;
+
+						lastPolicyId = xPolicies.get(xPolicies.size() - 1).getId();
+
+						addPolicies(ret, prevPage);
+
+						prevPage = page;
+						page     = null;
+
+						if (isLastPage) {
+							break;
+						}
 					}
+
+					addPolicies(ret, prevPage);
+
+					prevPage = null;
+				} finally {
+					cancel(prevPage);
+					cancel(page);
+				}
+
+				long loadTimeMs     = System.currentTimeMillis() - startTimeMs;
+				long allocatedBytes = getAllocatedBytes() - startBytes + poolBytes.sum();
+
+				loadMetrics.record(service.getName(), ret.size(), loadTimeMs, allocatedBytes);
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerPolicyRetriever.getAllPolicies(serviceName=" + service.getName() + "): policyCount=" + ret.size() + ", loadTimeMs=" + loadTimeMs + ", allocatedBytes=" + allocatedBytes);
 				}
 			}
 
 			return ret;
 		}
+
+		private void addPolicies(List<RangerPolicy> policies, List<Future<RangerPolicy>> futures) {
+			if (futures != null) {
+				for (Future<RangerPolicy> future : futures) {
+					try {
+						addPolicy(policies, future.get());
+					} catch (InterruptedException excp) {
+						Thread.currentThread().interrupt();
+
+						throw new RuntimeException("interrupted while loading policies of service " + service.getName(), excp);
+					} catch (ExecutionException excp) {
+						Throwable cause = excp.getCause();
+
+						throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException("failed to load policies of service " + service.getName(), cause);
+					}
+				}
+			}
+		}
+
+		private void addPolicy(List<RangerPolicy> policies, RangerPolicy policy) {
+			if (policy != null) {
+				policies.add(policy);
+			}
+		}
+
+		private void cancel(List<Future<RangerPolicy>> futures) {
+			if (futures != null) {
+				for (Future<RangerPolicy> future : futures) {
+					future.cancel(false);
+				}
+			}
+		}
 	}
 
 }
@@ -71,6 +71,7 @@
 import org.apache.ranger.entity.XXTagChangeLog;
 import org.apache.ranger.plugin.model.RangerSecurityZone;
 import org.apache.ranger.plugin.util.RangerCommonConstants;
+import org.apache.ranger.plugin.util.RangerServiceVersions;
 import org.apache.ranger.plugin.util.ServiceTags;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefValidator;
 import org.apache.ranger.plugin.model.validation.RangerValidator;
@@ -89,6 +90,7 @@
 import org.apache.ranger.common.RangerConstants;
 import org.apache.ranger.common.RangerFactory;
 import org.apache.ranger.common.RangerServicePoliciesCache;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
 import org.apache.ranger.common.RangerVersionInfo;
 import org.apache.ranger.common.SearchCriteria;
 import org.apache.ranger.common.StringUtil;
@@ -159,6 +161,7 @@
 import org.apache.ranger.plugin.store.AbstractServiceStore;
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
 import org.apache.ranger.plugin.store.PList;
+import org.apache.ranger.plugin.store.RangerPolicySearchIndex;
 import org.apache.ranger.plugin.store.ServicePredicateUtil;
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.SearchFilter;
@@ -355,8 +358,9 @@ public class ServiceDBStore extends AbstractServiceStore {
 	public static final String ACCESS_TYPE_GENERATE_EEK   = "generateeek";
 	public static final String ACCESS_TYPE_GET_METADATA   = "getmetadata";
 
-	private ServicePredicateUtil predicateUtil = null;
-	private RangerAdminConfig    config = null;
+	private ServicePredicateUtil         predicateUtil          = null;
+	private RangerAdminConfig            config                 = null;
+	private RangerServiceVersionNotifier serviceVersionNotifier = null;
 
 
 	@Override
@@ -416,6 +420,8 @@ public Object doInTransaction(TransactionStatus status) {
 			}
 		}
 
+		serviceVersionNotifier = new RangerServiceVersionNotifier(this::loadServiceVersions);
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== ServiceDBStore.initStore()");
 		}
@@ -2606,7 +2612,18 @@ private List<RangerPolicy> getServicePolicies(XXService service, SearchFilter fi
 				LOG.debug("Using" + (useLegacyResourceSearch ? " old " : " new ") + "way of filtering service-policies");
 			}
 
-			ret = new ArrayList<>(policies);
+			RangerPolicySearchIndex policySearchIndex = RangerPolicySearchIndex.hasIndexedParams(searchFilter) ? RangerServicePoliciesCache.getInstance().getPolicySearchIndex(service.getName(), policies) : null;
+			List<RangerPolicy>      indexedPolicies   = policySearchIndex != null ? policySearchIndex.search(policies, searchFilter) : null;
+
+			if (indexedPolicies != null) {
+				// remaining criteria are not indexed
+				RangerPolicySearchIndex.removeIndexedParams(searchFilter);
+
+				ret = indexedPolicies;
+			} else {
+				ret = new ArrayList<>(policies);
+			}
+
 			predicateUtil.applyFilter(ret, searchFilter);
 
 			if (!useLegacyResourceSearch && CollectionUtils.isNotEmpty(ret)) {
@@ -5673,6 +5690,35 @@ public static boolean isSupportsRolesDownloadByService() {
 		return isRolesDownloadedByService;
 	}
 
+	public RangerServiceVersionNotifier getServiceVersionNotifier() {
+		return serviceVersionNotifier;
+	}
+
+	private Map<String, RangerServiceVersions> loadServiceVersions(final List<String> serviceNames) {
+		TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+		txTemplate.setReadOnly(true);
+
+		return txTemplate.execute(new TransactionCallback<Map<String, RangerServiceVersions>>() {
+			@Override
+			public Map<String, RangerServiceVersions> doInTransaction(TransactionStatus status) {
+				Map<String, RangerServiceVersions> ret = new HashMap<>();
+
+				for (String serviceName : serviceNames) {
+					XXServiceVersionInfo serviceVersionInfo = daoMgr.getXXServiceVersionInfo().findByServiceName(serviceName);
+
+					if (serviceVersionInfo != null) {
+						Long roleVersion = isRolesDownloadedByService ? serviceVersionInfo.getRoleVersion() : roleStore.getRoleVersion(serviceName);
+
+						ret.put(serviceName, new RangerServiceVersions(serviceName, serviceVersionInfo.getPolicyVersion(), serviceVersionInfo.getTagVersion(), roleVersion));
+					}
+				}
+
+				return ret;
+			}
+		});
+	}
+
 	public static class ServiceVersionUpdater implements Runnable {
 		final Long 			   serviceId;
 		final RangerDaoManager daoManager;
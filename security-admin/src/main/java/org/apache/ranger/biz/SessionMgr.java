@@ -156,7 +156,7 @@ public UserSessionBase processSuccessLogin(int authType, String userAgent,
 								gjAuthSession = storeAuthSession(gjAuthSession);
 								session.setAttribute("auditLoginId", gjAuthSession.getId());
 							}
-							else if (!StringUtils.isEmpty(httpRequest.getRequestURI()) && !(httpRequest.getRequestURI().contains("/secure/policies/download/") || httpRequest.getRequestURI().contains("/secure/download/"))){
+							else if (!StringUtils.isEmpty(httpRequest.getRequestURI()) && !(httpRequest.getRequestURI().contains("/secure/policies/download/") || httpRequest.getRequestURI().contains("/secure/download/") || httpRequest.getRequestURI().contains("/secure/versions/wait/") || httpRequest.getRequestURI().contains("/secure/bulk/download"))){
 								gjAuthSession = storeAuthSession(gjAuthSession);
 								session.setAttribute("auditLoginId", gjAuthSession.getId());
 							}else if (StringUtils.isEmpty(httpRequest.getRequestURI())){
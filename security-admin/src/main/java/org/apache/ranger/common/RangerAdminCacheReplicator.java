@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares policies, tags, roles and user-store loaded from the database with other Ranger Admin nodes, so that only one
+ * node loads each version from the database and the others receive it.
+ *
+ * Nodes exchange versions through a directory shared by all nodes - for example, an NFS mount; or a local directory
+ * for Ranger Admin instances running on one host. The node that first needs a version - from a given cached version
+ * to the version in the database - creates a lock file, loads from the database and writes the result; other nodes
+ * needing the same version wait for the result and read it instead of querying the database. If the result doesn't
+ * arrive within the wait time, a node loads from the database as without replication.
+ *
+ * Each node also writes the versions in its caches to the directory, so that convergence of caches across nodes can
+ * be seen in the metrics of any node.
+ */
+public class RangerAdminCacheReplicator {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerAdminCacheReplicator.class);
+
+	public static final String CACHE_TYPE_POLICIES  = "policies";
+	public static final String CACHE_TYPE_TAGS      = "tags";
+	public static final String CACHE_TYPE_ROLES     = "roles";
+	public static final String CACHE_TYPE_USERSTORE = "userstore";
+	public static final String ALL_SERVICES         = "_all_"; // for roles and user-store, which are not per service
+
+	private static final long   DEFAULT_WAIT_TIME_MS    = 10 * 1000;
+	private static final long   DEFAULT_RETENTION_MS    = 15 * 60 * 1000;
+	private static final long   POLL_INTERVAL_MS        = 50;
+	private static final String NODES_DIR               = "nodes";
+	private static final String DATA_FILE_SUFFIX        = ".json.gz";
+	private static final String LOCK_FILE_SUFFIX        = ".lock";
+
+	private static volatile RangerAdminCacheReplicator sInstance;
+
+	private final boolean           isEnabled;
+	private final File              dir;
+	private final String            nodeId;
+	private final long              waitTimeMs;
+	private final long              retentionMs;
+	private final Map<String, Long> cachedVersions  = new ConcurrentHashMap<>(); // cacheType/serviceName => version
+	private final LongAdder         loadedCount     = new LongAdder();
+	private final LongAdder         receivedCount   = new LongAdder();
+	private final LongAdder         fallbackCount   = new LongAdder();
+	private final LongAdder         errorCount      = new LongAdder();
+
+	public static RangerAdminCacheReplicator getInstance() {
+		RangerAdminCacheReplicator ret = sInstance;
+
+		if (ret == null) {
+			synchronized (RangerAdminCacheReplicator.class) {
+				ret = sInstance;
+
+				if (ret == null) {
+					sInstance = ret = new RangerAdminCacheReplicator();
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private RangerAdminCacheReplicator() {
+		RangerAdminConfig config  = RangerAdminConfig.getInstance();
+		boolean           enabled = config.getBoolean("ranger.admin.cache.replication.enabled", false);
+		String            dirName = config.get("ranger.admin.cache.replication.dir");
+
+		if (enabled && StringUtils.isBlank(dirName)) {
+			LOG.error("ranger.admin.cache.replication.dir is not set. Cache replication is disabled");
+
+			enabled = false;
+		}
+
+		this.isEnabled   = enabled;
+		this.dir         = enabled ? new File(dirName) : null;
+		this.nodeId      = config.get("ranger.admin.cache.replication.node.id", ManagementFactory.getRuntimeMXBean().getName());
+		this.waitTimeMs  = config.getLong("ranger.admin.cache.replication.wait.time.ms", DEFAULT_WAIT_TIME_MS);
+		this.retentionMs = config.getLong("ranger.admin.cache.replication.retention.ms", DEFAULT_RETENTION_MS);
+
+		if (isEnabled) {
+			LOG.info("RangerAdminCacheReplicator: replicating caches through directory " + dir + " as node " + nodeId);
+		}
+	}
+
+	RangerAdminCacheReplicator(File dir, String nodeId, long waitTimeMs, long retentionMs) {
+		this.isEnabled   = true;
+		this.dir         = dir;
+		this.nodeId      = nodeId;
+		this.waitTimeMs  = waitTimeMs;
+		this.retentionMs = retentionMs;
+	}
+
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * Returns the result of loader - which loads from the database the given cache of the service, from fromVersion to
+	 * toVersion - from another node when available; otherwise calls the loader and makes its result available to other
+	 * nodes.
+	 */
+	public <T> T load(String cacheType, String serviceName, Long fromVersion, Long toVersion, Class<T> cls, Callable<T> loader) throws Exception {
+		if (!isEnabled || toVersion == null) {
+			return loader.call();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerAdminCacheReplicator.load(" + cacheType + ", " + serviceName + ", " + fromVersion + ", " + toVersion + ")");
+		}
+
+		File   serviceDir = getServiceDir(cacheType, serviceName);
+		String name       = (fromVersion != null ? fromVersion : -1L) + "-" + toVersion;
+		File   dataFile   = new File(serviceDir, name + DATA_FILE_SUFFIX);
+		File   lockFile   = new File(serviceDir, name + LOCK_FILE_SUFFIX);
+		T      ret        = read(dataFile, cls);
+		String source     = "peer";
+
+		if (ret != null) {
+			receivedCount.increment();
+		} else if (tryLock(serviceDir, lockFile)) {
+			try {
+				ret    = loader.call();
+				source = "database";
+
+				loadedCount.increment();
+
+				if (ret != null) {
+					write(dataFile, ret);
+				}
+
+				purgeExpired(serviceDir);
+			} finally {
+				if (!lockFile.delete()) {
+					LOG.warn("RangerAdminCacheReplicator: failed to delete lock file " + lockFile);
+				}
+			}
+		} else { // another node is loading from the database
+			ret = waitForPeer(dataFile, lockFile, cls);
+
+			if (ret != null) {
+				receivedCount.increment();
+			} else {
+				ret    = loader.call();
+				source = "database (peer did not respond)";
+
+				fallbackCount.increment();
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerAdminCacheReplicator.load(" + cacheType + ", " + serviceName + ", " + fromVersion + ", " + toVersion + "): from " + source);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Records the version in the given cache of this node, to track convergence of caches across nodes.
+	 */
+	public void setCachedVersion(String cacheType, String serviceName, Long version) {
+		if (!isEnabled || version == null) {
+			return;
+		}
+
+		Long prevVersion = cachedVersions.put(cacheType + "/" + serviceName, version);
+
+		if (!version.equals(prevVersion)) {
+			writeNodeReport();
+		}
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("enabled", isEnabled);
+
+		if (isEnabled) {
+			writeNodeReport();
+
+			ret.put("nodeId", nodeId);
+			ret.put("loadedFromDatabaseCount", loadedCount.sum());
+			ret.put("receivedFromPeerCount", receivedCount.sum());
+			ret.put("peerTimeoutCount", fallbackCount.sum());
+			ret.put("errorCount", errorCount.sum());
+			ret.putAll(getConvergence());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Versions of each cache in all nodes that reported within the retention period; a cache has converged when all
+	 * nodes having it have the same version.
+	 */
+	@SuppressWarnings("unchecked")
+	Map<String, Object> getConvergence() {
+		Map<String, Map<String, Long>> versionsByCache = new TreeMap<>();
+		File[]                         nodeFiles       = new File(dir, NODES_DIR).listFiles((d, name) -> name.endsWith(".json"));
+		int                            nodeCount       = 0;
+
+		if (nodeFiles != null) {
+			long now = System.currentTimeMillis();
+
+			for (File nodeFile : nodeFiles) {
+				if (now - nodeFile.lastModified() > retentionMs) {
+					continue;
+				}
+
+				try (InputStream in = new BufferedInputStream(Files.newInputStream(nodeFile.toPath()))) {
+					Map<String, Object> report   = JsonUtilsV2.getMapper().readValue(in, Map.class);
+					String              node     = String.valueOf(report.get("nodeId"));
+					Map<String, Object> versions = (Map<String, Object>) report.get("versions");
+
+					if (versions != null) {
+						for (Map.Entry<String, Object> entry : versions.entrySet()) {
+							versionsByCache.computeIfAbsent(entry.getKey(), k -> new TreeMap<>()).put(node, ((Number) entry.getValue()).longValue());
+						}
+					}
+
+					nodeCount++;
+				} catch (Exception excp) {
+					LOG.warn("RangerAdminCacheReplicator: failed to read node report " + nodeFile, excp);
+				}
+			}
+		}
+
+		Map<String, Object> caches           = new TreeMap<>();
+		int                 unconvergedCount = 0;
+
+		for (Map.Entry<String, Map<String, Long>> entry : versionsByCache.entrySet()) {
+			boolean             isConverged = entry.getValue().values().stream().distinct().count() <= 1;
+			Map<String, Object> cache       = new LinkedHashMap<>();
+
+			cache.put("converged", isConverged);
+			cache.put("versions", entry.getValue());
+
+			caches.put(entry.getKey(), cache);
+
+			if (!isConverged) {
+				unconvergedCount++;
+			}
+		}
+
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("nodeCount", nodeCount);
+		ret.put("unconvergedCacheCount", unconvergedCount);
+		ret.put("caches", caches);
+
+		return ret;
+	}
+
+	private <T> T waitForPeer(File dataFile, File lockFile, Class<T> cls) {
+		long deadline = System.currentTimeMillis() + waitTimeMs;
+		T    ret      = null;
+
+		try {
+			while (ret == null && lockFile.exists() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(POLL_INTERVAL_MS);
+
+				ret = read(dataFile, cls);
+			}
+		} catch (InterruptedException excp) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (ret == null) { // the lock might have been removed after the data was written
+			ret = read(dataFile, cls);
+		}
+
+		return ret;
+	}
+
+	private boolean tryLock(File serviceDir, File lockFile) {
+		boolean ret = false;
+
+		try {
+			Files.createDirectories(serviceDir.toPath());
+
+			try {
+				Files.createFile(lockFile.toPath());
+
+				ret = true;
+			} catch (FileAlreadyExistsException excp) {
+				// lock left by a node that stopped while loading
+				if (System.currentTimeMillis() - lockFile.lastModified() > waitTimeMs * 2 && lockFile.delete()) {
+					Files.createFile(lockFile.toPath());
+
+					ret = true;
+				}
+			}
+		} catch (FileAlreadyExistsException excp) {
+			ret = false;
+		} catch (Exception excp) {
+			errorCount.increment();
+
+			LOG.warn("RangerAdminCacheReplicator: failed to create lock file " + lockFile, excp);
+		}
+
+		return ret;
+	}
+
+	private <T> T read(File file, Class<T> cls) {
+		T ret = null;
+
+		if (file.exists()) {
+			try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+				ret = JsonUtilsV2.getMapper().readValue(in, cls);
+			} catch (Exception excp) {
+				errorCount.increment();
+
+				LOG.warn("RangerAdminCacheReplicator: failed to read " + file, excp);
+			}
+		}
+
+		return ret;
+	}
+
+	private void write(File file, Object obj) {
+		File tmpFile = new File(file.getParentFile(), file.getName() + "." + encode(nodeId) + ".tmp");
+
+		try {
+			try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+				JsonUtilsV2.getMapper().writeValue(out, obj);
+			}
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (Exception excp) {
+			errorCount.increment();
+
+			LOG.warn("RangerAdminCacheReplicator: failed to write " + file, excp);
+
+			if (tmpFile.exists() && !tmpFile.delete()) {
+				LOG.warn("RangerAdminCacheReplicator: failed to delete " + tmpFile);
+			}
+		}
+	}
+
+	private void purgeExpired(File serviceDir) {
+		File[] files = serviceDir.listFiles((d, name) -> name.endsWith(DATA_FILE_SUFFIX));
+
+		if (files != null) {
+			long now = System.currentTimeMillis();
+
+			for (File file : files) {
+				if (now - file.lastModified() > retentionMs && !file.delete()) {
+					LOG.warn("RangerAdminCacheReplicator: failed to delete expired file " + file);
+				}
+			}
+		}
+	}
+
+	private synchronized void writeNodeReport() {
+		Map<String, Object> report = new HashMap<>();
+
+		report.put("nodeId", nodeId);
+		report.put("updateTime", System.currentTimeMillis());
+		report.put("versions", new TreeMap<>(cachedVersions));
+
+		File nodesDir = new File(dir, NODES_DIR);
+
+		try {
+			Files.createDirectories(nodesDir.toPath());
+		} catch (Exception excp) {
+			LOG.warn("RangerAdminCacheReplicator: failed to create directory " + nodesDir, excp);
+		}
+
+		File nodeFile = new File(nodesDir, encode(nodeId) + ".json");
+		File tmpFile  = new File(nodesDir, encode(nodeId) + ".json.tmp");
+
+		try {
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath()))) {
+				JsonUtilsV2.getMapper().writeValue(out, report);
+			}
+
+			Files.move(tmpFile.toPath(), nodeFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (Exception excp) {
+			errorCount.increment();
+
+			LOG.warn("RangerAdminCacheReplicator: failed to write node report " + nodeFile, excp);
+		}
+	}
+
+	private File getServiceDir(String cacheType, String serviceName) {
+		return new File(new File(dir, cacheType), encode(serviceName));
+	}
+
+	private static String encode(String name) {
+		try {
+			return URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+		} catch (Exception excp) {
+			return name;
+		}
+	}
+}
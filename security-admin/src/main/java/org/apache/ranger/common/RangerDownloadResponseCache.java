@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded cache of serialized download payloads - policies, roles, tags and userstore - keyed by the service, the
+ * version(s) of the payload and the capabilities of the requesting plugin. A payload is serialized once, when first
+ * requested, and kept gzip-compressed; plugins that refresh at the same time share the serialized bytes instead of
+ * each serializing the same cached object.
+ *
+ * The ETag of a payload is derived from the checksum and length of its serialized form, hence is the same across
+ * Ranger Admin instances for the same content.
+ */
+public class RangerDownloadResponseCache {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerDownloadResponseCache.class);
+
+	public static final String ENCODING_GZIP     = "gzip";
+	public static final String ENCODING_DEFLATE  = "deflate";
+	public static final String ENCODING_IDENTITY = "identity";
+
+	private static final boolean DEFAULT_CACHE_ENABLED     = true;
+	private static final int     DEFAULT_CACHE_MAX_SIZE_MB = 256;
+
+	public static volatile RangerDownloadResponseCache sInstance = null;
+
+	private final boolean                              isEnabled;
+	private final long                                 maxSizeInBytes;
+	private final LinkedHashMap<String, CachedPayload> payloads = new LinkedHashMap<>(16, 0.75f, true);
+	private       long                                 sizeInBytes;
+	private       long                                 hitCount;
+	private       long                                 missCount;
+	private       long                                 evictionCount;
+
+	public static RangerDownloadResponseCache getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerDownloadResponseCache.class) {
+				if (sInstance == null) {
+					sInstance = new RangerDownloadResponseCache();
+				}
+			}
+		}
+		return sInstance;
+	}
+
+	private RangerDownloadResponseCache() {
+		RangerAdminConfig config = RangerAdminConfig.getInstance();
+
+		isEnabled      = config.getBoolean("ranger.admin.download.response.cache.enabled", DEFAULT_CACHE_ENABLED);
+		maxSizeInBytes = config.getLong("ranger.admin.download.response.cache.max.size.mb", DEFAULT_CACHE_MAX_SIZE_MB) * 1024L * 1024L;
+	}
+
+	RangerDownloadResponseCache(boolean isEnabled, long maxSizeInBytes) {
+		this.isEnabled      = isEnabled;
+		this.maxSizeInBytes = maxSizeInBytes;
+	}
+
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * Returns the cached payload for the given key; when not cached, the payload is serialized with the given writer.
+	 * Concurrent requests for the same key wait for one of them to serialize the payload.
+	 */
+	public CachedPayload getPayload(String key, PayloadWriter writer) throws IOException {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerDownloadResponseCache.getPayload(" + key + ")");
+		}
+
+		final CachedPayload ret;
+
+		synchronized (this) {
+			CachedPayload payload = payloads.get(key);
+
+			if (payload == null) {
+				payload = new CachedPayload(key);
+
+				payloads.put(key, payload);
+			}
+
+			ret = payload;
+		}
+
+		final boolean isSerialized;
+
+		synchronized (ret) {
+			isSerialized = ret.gzipped != null;
+
+			if (!isSerialized) {
+				try {
+					ret.serialize(writer);
+				} catch (IOException | RuntimeException excp) {
+					synchronized (this) {
+						payloads.remove(key, ret);
+					}
+
+					throw excp;
+				}
+			}
+		}
+
+		synchronized (this) {
+			if (isSerialized) {
+				hitCount++;
+			} else {
+				missCount++;
+
+				if (payloads.get(key) == ret) { // not evicted while being serialized
+					sizeInBytes += ret.getSizeInBytes();
+
+					evictEldest(ret);
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerDownloadResponseCache.getPayload(" + key + "): isSerialized=" + isSerialized + ", ret=" + ret);
+		}
+
+		return ret;
+	}
+
+	public synchronized void clear() {
+		payloads.clear();
+
+		sizeInBytes = 0;
+	}
+
+	public synchronized Map<String, Object> getMetrics() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("enabled", isEnabled);
+		ret.put("maxSizeInBytes", maxSizeInBytes);
+		ret.put("sizeInBytes", sizeInBytes);
+		ret.put("payloadCount", payloads.size());
+		ret.put("hitCount", hitCount);
+		ret.put("missCount", missCount);
+		ret.put("hitRate", (hitCount + missCount) > 0 ? ((double) hitCount / (hitCount + missCount)) : 0d);
+		ret.put("evictionCount", evictionCount);
+
+		return ret;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RangerDownloadResponseCache={isEnabled=" + isEnabled + ", maxSizeInBytes=" + maxSizeInBytes + ", sizeInBytes=" + sizeInBytes + ", payloadCount=" + payloads.size() + ", hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + "}";
+	}
+
+	// caller must hold the lock on this; the latest payload is retained even when it alone exceeds the limit
+	private void evictEldest(CachedPayload latest) {
+		for (Iterator<CachedPayload> iter = payloads.values().iterator(); sizeInBytes > maxSizeInBytes && iter.hasNext(); ) {
+			CachedPayload payload = iter.next();
+
+			if (payload != latest && payload.gzipped != null) {
+				iter.remove();
+
+				sizeInBytes -= payload.getSizeInBytes();
+				evictionCount++;
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerDownloadResponseCache: evicted " + payload);
+				}
+			}
+		}
+	}
+
+	public interface PayloadWriter {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	public static class CachedPayload {
+		private final    String key;
+		private volatile byte[] gzipped;
+		private volatile byte[] deflated;
+		private          String eTag;
+		private          long   length;
+
+		CachedPayload(String key) {
+			this.key = key;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		// length of the uncompressed payload
+		public long getLength() {
+			return length;
+		}
+
+		public long getSizeInBytes() {
+			byte[] gzipped  = this.gzipped;
+			byte[] deflated = this.deflated;
+
+			return (gzipped != null ? gzipped.length : 0) + (deflated != null ? deflated.length : 0);
+		}
+
+		/**
+		 * @param encoding one of gzip, deflate or identity
+		 * @return the payload in the given encoding; for identity, the gzipped payload is decompressed on each call
+		 */
+		public byte[] getBytes(String encoding) throws IOException {
+			final byte[] ret;
+
+			if (ENCODING_GZIP.equals(encoding)) {
+				ret = gzipped;
+			} else if (ENCODING_DEFLATE.equals(encoding)) {
+				byte[] deflated = this.deflated;
+
+				if (deflated == null) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE, gzipped.length + 64L));
+
+					try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped)); OutputStream deflater = new DeflaterOutputStream(out)) {
+						IOUtils.copy(in, deflater);
+					}
+
+					deflated      = out.toByteArray();
+					this.deflated = deflated;
+				}
+
+				ret = deflated;
+			} else {
+				ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE, length));
+
+				try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+					IOUtils.copy(in, out);
+				}
+
+				ret = out.toByteArray();
+			}
+
+			return ret;
+		}
+
+		@Override
+		public String toString() {
+			return "CachedPayload={key=" + key + ", eTag=" + eTag + ", length=" + length + ", sizeInBytes=" + getSizeInBytes() + "}";
+		}
+
+		private void serialize(PayloadWriter writer) throws IOException {
+			ByteArrayOutputStream out      = new ByteArrayOutputStream();
+			CRC32                 checksum = new CRC32();
+			CountingOutputStream  counter;
+
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+				counter = new CountingOutputStream(new CheckedOutputStream(gzip, checksum));
+
+				writer.writeTo(counter);
+
+				counter.flush();
+			}
+
+			length  = counter.count;
+			eTag    = "W/\"" + Long.toHexString(checksum.getValue()) + "-" + Long.toHexString(length) + "\"";
+			gzipped = out.toByteArray();
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private final OutputStream out;
+		private       long         count;
+
+		CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() {
+			// closed by the owner of the underlying stream, after the writer is done
+		}
+	}
+}
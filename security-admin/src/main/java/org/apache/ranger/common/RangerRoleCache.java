@@ -109,7 +109,14 @@ public RangerRoles getLatestRangerRoles(String serviceName, RoleDBStore roleDBSt
 				if (lockResult) {
 					// We are getting all the Roles to be downloaded for now. Should do downloades for each service based on what roles are there in the policies.
 					SearchFilter          searchFilter = null;
-					final Set<RangerRole> rolesInDB    = new HashSet<>(roleDBStore.getRoles(searchFilter));
+					final RangerRoles     rolesFromDb  = RangerAdminCacheReplicator.getInstance().load(RangerAdminCacheReplicator.CACHE_TYPE_ROLES, RangerAdminCacheReplicator.ALL_SERVICES, -1L, rolesVersionInDB, RangerRoles.class, () -> {
+						RangerRoles roles = new RangerRoles();
+
+						roles.setRangerRoles(new HashSet<>(roleDBStore.getRoles(searchFilter)));
+
+						return roles;
+					});
+					final Set<RangerRole> rolesInDB    = rolesFromDb.getRangerRoles();
 
 					Date updateTime = new Date();
 
@@ -121,6 +128,8 @@ public RangerRoles getLatestRangerRoles(String serviceName, RoleDBStore roleDBSt
 						ret.setRoleVersion(rolesVersionInDB);
 
 						rolesVersion = rolesVersionInDB;
+
+						RangerAdminCacheReplicator.getInstance().setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_ROLES, RangerAdminCacheReplicator.ALL_SERVICES, rolesVersionInDB);
 					} else {
 						LOG.error("Could not get Ranger Roles from database ...");
 					}
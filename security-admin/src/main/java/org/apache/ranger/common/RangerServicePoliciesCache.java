@@ -23,16 +23,22 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.store.RangerPolicySearchIndex;
 import org.apache.ranger.plugin.store.ServiceStore;
 
+import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -43,10 +49,13 @@
 public class RangerServicePoliciesCache {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerServicePoliciesCache.class);
 
-	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int MAX_WAIT_TIME_FOR_UPDATE    = 10;
+	private static final int MAX_DELTA_VERSIONS_TO_CACHE = 32;
 
 	public static volatile RangerServicePoliciesCache sInstance = null;
-	private final int waitTimeInSeconds;
+	private final int     waitTimeInSeconds;
+	private final int     maxDeltaVersions;
+	private final boolean isPolicySearchIndexEnabled;
 
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<>();
 
@@ -65,6 +74,15 @@ private RangerServicePoliciesCache() {
 		RangerAdminConfig config = RangerAdminConfig.getInstance();
 
 		waitTimeInSeconds = config.getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		maxDeltaVersions  = config.getInt("ranger.admin.policy.download.cache.delta.max.versions", MAX_DELTA_VERSIONS_TO_CACHE);
+
+		isPolicySearchIndexEnabled = config.getBoolean("ranger.admin.policy.search.index.enabled", true);
+	}
+
+	RangerServicePoliciesCache(int waitTimeInSeconds, int maxDeltaVersions) {
+		this.waitTimeInSeconds          = waitTimeInSeconds;
+		this.maxDeltaVersions           = maxDeltaVersions;
+		this.isPolicySearchIndexEnabled = true;
 	}
 
 	public void dump() {
@@ -139,6 +157,73 @@ public ServicePolicies getServicePolicies(String serviceName, Long serviceId, Lo
 		return ret;
 	}
 
+	/**
+	 * Returns the search index for the given policies of the service - as returned by getServicePolicies(). The index
+	 * is built on the first call and then updated along with the cached policies, as policy-deltas are applied.
+	 *
+	 * @return null if the index is disabled, or the given policies are not the ones currently cached for the service
+	 */
+	public RangerPolicySearchIndex getPolicySearchIndex(String serviceName, List<RangerPolicy> policies) {
+		RangerPolicySearchIndex ret = null;
+
+		if (isPolicySearchIndexEnabled && policies != null) {
+			final ServicePoliciesWrapper servicePoliciesWrapper;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ret = servicePoliciesWrapper.getPolicySearchIndex(policies);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerServicePoliciesCache.getPolicySearchIndex(" + serviceName + "): ret=" + ret);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Metrics of policy-deltas cached for all services: number of versions and deltas retained, their estimated size,
+	 * and how many requests for deltas were served from the cache (hits) or from the database (misses).
+	 */
+	public Map<String, Object> getDeltaCacheMetrics() {
+		final List<ServicePoliciesWrapper> wrappers;
+
+		synchronized (this) {
+			wrappers = new ArrayList<>(servicePoliciesMap.values());
+		}
+
+		long versionCount = 0, deltaCount = 0, sizeInBytes = 0, hitCount = 0, missCount = 0, mergeCount = 0;
+
+		for (ServicePoliciesWrapper wrapper : wrappers) {
+			ServicePoliciesWrapper.ServicePolicyDeltasCache deltaCache = wrapper.deltaCache;
+
+			versionCount += deltaCache.versionCount;
+			deltaCount   += deltaCache.deltaCount;
+			sizeInBytes  += deltaCache.estimatedSizeInBytes;
+			hitCount     += deltaCache.hitCount;
+			missCount    += deltaCache.missCount;
+			mergeCount   += deltaCache.mergeCount;
+		}
+
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("maxVersionsPerService", maxDeltaVersions);
+		ret.put("serviceCount", wrappers.size());
+		ret.put("versionCount", versionCount);
+		ret.put("deltaCount", deltaCount);
+		ret.put("estimatedSizeInBytes", sizeInBytes);
+		ret.put("hitCount", hitCount);
+		ret.put("missCount", missCount);
+		ret.put("hitRate", (hitCount + missCount) > 0 ? ((double) hitCount / (hitCount + missCount)) : 0.0);
+		ret.put("mergeCount", mergeCount);
+
+		return ret;
+	}
+
     /**
      * Reset policy cache using serviceName if provided.
      * If serviceName is empty, reset everything.
@@ -190,18 +275,148 @@ private class ServicePoliciesWrapper {
 		long                longestDbLoadTimeInMs = -1;
 		final ReentrantLock lock = new ReentrantLock();
 
-		ServicePolicyDeltasCache deltaCache;
+		final ServicePolicyDeltasCache deltaCache = new ServicePolicyDeltasCache();
 
+		// built on first search; updated with the lock held, along with servicePolicies
+		volatile RangerPolicySearchIndex policySearchIndex;
+
+		/*
+		 * Policy-deltas of recent versions, to serve clients within maxDeltaVersions of the cached version without a
+		 * database query. versionDeltas has the deltas that updated the cache from one version to the next, in order;
+		 * the oldest is dropped once maxDeltaVersions are retained. Deltas from a version to the cached version are
+		 * merged on the first request and kept in mergedDeltas until the cache moves to a newer version - along with
+		 * deltas read from the database for versions outside the window.
+		 *
+		 * Updated only with the lock of the wrapper held; metrics are volatile, since these are read without the lock.
+		 */
 		class ServicePolicyDeltasCache {
-			final long            fromVersion;
-			final ServicePolicies servicePolicyDeltas;
+			final ArrayDeque<VersionDeltas>  versionDeltas = new ArrayDeque<>();
+			final Map<Long, ServicePolicies> mergedDeltas  = new LinkedHashMap<Long, ServicePolicies>() {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, ServicePolicies> eldest) {
+					return size() > Math.max(1, maxDeltaVersions);
+				}
+			};
+
+			volatile int  versionCount;
+			volatile long deltaCount;
+			volatile long estimatedSizeInBytes;
+			volatile long hitCount;
+			volatile long missCount;
+			volatile long mergeCount;
 
-			ServicePolicyDeltasCache(final long fromVersion, ServicePolicies servicePolicyDeltas) {
-				this.fromVersion         = fromVersion;
-				this.servicePolicyDeltas = servicePolicyDeltas;
-			}
 			ServicePolicies getServicePolicyDeltasFromVersion(long fromVersion) {
-				return this.fromVersion == fromVersion ? this.servicePolicyDeltas : null;
+				ServicePolicies ret = mergedDeltas.get(fromVersion);
+
+				if (ret == null) {
+					ret = mergeDeltasFromVersion(fromVersion);
+
+					if (ret != null) {
+						mergedDeltas.put(fromVersion, ret);
+					}
+				}
+
+				if (ret != null) {
+					hitCount++;
+				} else {
+					missCount++;
+				}
+
+				return ret;
+			}
+
+			// deltas read from the database, for a version outside the window
+			void putServicePolicyDeltas(long fromVersion, ServicePolicies servicePolicyDeltas) {
+				mergedDeltas.put(fromVersion, servicePolicyDeltas);
+			}
+
+			// deltas that updated the cache from fromVersion to servicePolicyDeltas.getPolicyVersion()
+			void addVersion(long fromVersion, ServicePolicies servicePolicyDeltas) {
+				VersionDeltas latest = versionDeltas.peekLast();
+
+				if (latest != null && latest.toVersion != fromVersion) {
+					versionDeltas.clear();
+				}
+
+				mergedDeltas.clear();
+
+				if (maxDeltaVersions > 0 && servicePolicyDeltas.getPolicyVersion() != null) {
+					versionDeltas.addLast(new VersionDeltas(fromVersion, servicePolicyDeltas));
+
+					while (versionDeltas.size() > maxDeltaVersions) {
+						versionDeltas.removeFirst();
+					}
+				}
+
+				updateMetrics();
+			}
+
+			void clear() {
+				versionDeltas.clear();
+				mergedDeltas.clear();
+
+				updateMetrics();
+			}
+
+			private ServicePolicies mergeDeltasFromVersion(long fromVersion) {
+				List<VersionDeltas> toMerge = null;
+
+				for (VersionDeltas entry : versionDeltas) {
+					if (toMerge == null && entry.fromVersion == fromVersion) {
+						toMerge = new ArrayList<>();
+					}
+
+					if (toMerge != null) {
+						toMerge.add(entry);
+					}
+				}
+
+				final ServicePolicies ret;
+
+				if (toMerge == null) {
+					ret = null;
+				} else if (toMerge.size() == 1) {
+					ret = toMerge.get(0).servicePolicyDeltas;
+				} else {
+					List<RangerPolicyDelta> deltas           = new ArrayList<>();
+					Long                    tagPolicyVersion = null;
+
+					for (VersionDeltas entry : toMerge) {
+						deltas.addAll(entry.servicePolicyDeltas.getPolicyDeltas());
+
+						if (entry.servicePolicyDeltas.getTagPolicies() != null && entry.servicePolicyDeltas.getTagPolicies().getPolicyVersion() != null) {
+							tagPolicyVersion = entry.servicePolicyDeltas.getTagPolicies().getPolicyVersion();
+						}
+					}
+
+					List<RangerPolicyDelta> mergedPolicyDeltas = mergeDeltas(deltas);
+
+					if (mergedPolicyDeltas != null) {
+						ret = copyHeader(toMerge.get(toMerge.size() - 1).servicePolicyDeltas, mergedPolicyDeltas, tagPolicyVersion);
+
+						mergeCount++;
+					} else {
+						LOG.warn("Policy-deltas from version:[" + fromVersion + "] could not be merged, will be read from database");
+
+						ret = null;
+					}
+				}
+
+				return ret;
+			}
+
+			private void updateMetrics() {
+				long deltaCount  = 0;
+				long sizeInBytes = 0;
+
+				for (VersionDeltas entry : versionDeltas) {
+					deltaCount  += entry.servicePolicyDeltas.getPolicyDeltas().size();
+					sizeInBytes += entry.estimatedSizeInBytes;
+				}
+
+				this.versionCount         = versionDeltas.size();
+				this.deltaCount           = deltaCount;
+				this.estimatedSizeInBytes = sizeInBytes;
 			}
 		}
 
@@ -220,6 +435,36 @@ Date getUpdateTime() {
 			return updateTime;
 		}
 
+		RangerPolicySearchIndex getPolicySearchIndex(List<RangerPolicy> policies) {
+			RangerPolicySearchIndex ret = policySearchIndex;
+
+			if (ret == null || !ret.isFor(policies)) {
+				boolean lockResult = false;
+
+				try {
+					lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
+
+					if (lockResult) {
+						if (servicePolicies != null && servicePolicies.getPolicies() == policies && (policySearchIndex == null || !policySearchIndex.isFor(policies))) {
+							policySearchIndex = new RangerPolicySearchIndex(policies);
+						}
+
+						ret = policySearchIndex;
+					} else {
+						LOG.warn("Could not get lock in [" + waitTimeInSeconds + "] seconds to build policy search index. Policies will be searched without the index");
+					}
+				} catch (InterruptedException exception) {
+					LOG.error("getPolicySearchIndex:lock got interrupted..", exception);
+				} finally {
+					if (lockResult) {
+						lock.unlock();
+					}
+				}
+			}
+
+			return ret != null && ret.isFor(policies) ? ret : null;
+		}
+
 		ServicePolicies getLatestOrCached(String serviceName, ServiceStore serviceStore, Long lastKnownVersion, boolean needsBackwardCompatibility) throws Exception {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> RangerServicePoliciesCache.getLatestOrCached(lastKnownVersion=" + lastKnownVersion + ", " + needsBackwardCompatibility + ")");
@@ -249,25 +494,24 @@ ServicePolicies getLatestOrCached(String serviceName, ServiceStore serviceStore,
 						}
 						ret = this.servicePolicies;
 					} else {
-						boolean         isDeltaCacheReinitialized = false;
-						ServicePolicies servicePoliciesForDeltas  = this.deltaCache != null ? this.deltaCache.getServicePolicyDeltasFromVersion(lastKnownVersion) : null;
+						boolean         isDeltaCacheMissed       = false;
+						ServicePolicies servicePoliciesForDeltas = this.deltaCache.getServicePolicyDeltasFromVersion(lastKnownVersion);
 
 						if (servicePoliciesForDeltas == null) {
-							servicePoliciesForDeltas  = serviceStore.getServicePolicyDeltas(serviceName, lastKnownVersion);
-							isDeltaCacheReinitialized = true;
+							servicePoliciesForDeltas = serviceStore.getServicePolicyDeltas(serviceName, lastKnownVersion);
+							isDeltaCacheMissed       = true;
 						}
 						if (servicePoliciesForDeltas != null && servicePoliciesForDeltas.getPolicyDeltas() != null) {
 							if (LOG.isDebugEnabled()) {
 								LOG.debug("Deltas were requested. Returning deltas from lastKnownVersion:[" + lastKnownVersion + "]");
 							}
-							if (isDeltaCacheReinitialized) {
-								this.deltaCache = new ServicePolicyDeltasCache(lastKnownVersion, servicePoliciesForDeltas);
+							if (isDeltaCacheMissed) {
+								this.deltaCache.putServicePolicyDeltas(lastKnownVersion, servicePoliciesForDeltas);
 							}
 							ret = servicePoliciesForDeltas;
 						} else {
 							LOG.warn("Deltas were requested for service:[" + serviceName + "], but could not get them!! lastKnownVersion:[" + lastKnownVersion + "]; Returning cached ServicePolicies:[" + (servicePolicies != null ? servicePolicies.getPolicyVersion() : -1L) + "]");
 
-							this.deltaCache = null;
 							ret = this.servicePolicies;
 						}
 					}
@@ -315,7 +559,8 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 				final long            startTimeMs           = System.currentTimeMillis();
 				final long            dbLoadTime            = System.currentTimeMillis() - startTimeMs;
 
-				ServicePolicies       servicePoliciesFromDb = serviceStore.getServicePolicyDeltasOrPolicies(serviceName, cachedServicePoliciesVersion);
+				ServicePolicies       servicePoliciesFromDb = RangerAdminCacheReplicator.getInstance().load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, serviceName, cachedServicePoliciesVersion, servicePolicyVersionInDb, ServicePolicies.class,
+				                                                                                           () -> serviceStore.getServicePolicyDeltasOrPolicies(serviceName, cachedServicePoliciesVersion));
 
 				if (dbLoadTime > longestDbLoadTimeInMs) {
 					longestDbLoadTimeInMs = dbLoadTime;
@@ -332,6 +577,8 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 						}
 						servicePolicies = servicePoliciesFromDb;
 						pruneUnusedAttributes();
+						deltaCache.clear();
+						policySearchIndex = null;
 					} else if (servicePoliciesFromDb.getPolicyDeltas() == null) {
 						// service-policies are loaded because service/service-def changed
 						if (LOG.isDebugEnabled()) {
@@ -339,6 +586,8 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 						}
 						servicePolicies = servicePoliciesFromDb;
 						pruneUnusedAttributes();
+						deltaCache.clear();
+						policySearchIndex = null;
 						isCacheReloadedByDQEvent = true;
 					} else { // Previously cached service policies are still valid - no service/service-def change
 						// Rebuild policies cache from original policies and deltas
@@ -352,6 +601,10 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 
 						servicePolicies.setPolicies(newPolicies);
 
+						if (policySearchIndex != null) {
+							policySearchIndex.update(newPolicies, servicePoliciesFromDb.getPolicyDeltas(), servicePolicies.getServiceDef().getName());
+						}
+
 						checkCacheSanity(serviceName, serviceStore, false);
 
 						// Rebuild tag-policies from original tag-policies and deltas
@@ -374,8 +627,11 @@ boolean getLatest(String serviceName, ServiceStore serviceStore, Long lastKnownV
 								LOG.debug("This service has no associated tag service");
 							}
 						}
+
+						deltaCache.addVersion(cachedServicePoliciesVersion, servicePoliciesFromDb);
 					}
-					this.deltaCache = null;
+
+					RangerAdminCacheReplicator.getInstance().setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, serviceName, servicePolicies.getPolicyVersion());
 				} else {
 					LOG.error("Could not get policies from database, from-version:[" + cachedServicePoliciesVersion + ")");
 				}
@@ -444,7 +700,10 @@ StringBuilder toString(StringBuilder sb) {
 					.append(", longestDbLoadTimeInMs=").append(longestDbLoadTimeInMs)
 					.append(", Service-Version:").append(servicePolicies != null ? servicePolicies.getPolicyVersion() : "null")
 					.append(", Number-Of-Policies:").append(servicePolicies != null && servicePolicies.getPolicies() != null ? servicePolicies.getPolicies().size() : 0)
-					.append(", Number-Of-Policy-Deltas:").append(servicePolicies != null && servicePolicies.getPolicyDeltas() != null ? servicePolicies.getPolicyDeltas().size() : 0);
+					.append(", Number-Of-Policy-Deltas:").append(servicePolicies != null && servicePolicies.getPolicyDeltas() != null ? servicePolicies.getPolicyDeltas().size() : 0)
+					.append(", Delta-Cache-Versions:").append(deltaCache.versionCount)
+					.append(", Delta-Cache-Hits:").append(deltaCache.hitCount)
+					.append(", Delta-Cache-Misses:").append(deltaCache.missCount);
 
 			sb.append("} ");
 
@@ -460,5 +719,102 @@ public String toString() {
 			return sb.toString();
 		}
 	}
-}
+	/*
+	 * Merges deltas of consecutive versions, in order, to one delta per policy - like ServiceDBStore does for deltas
+	 * read from the database. Unlike deltas read from the database, which have the current policy, each delta here has
+	 * the policy as of its version: hence a policy created and then updated is sent as a create with the last update.
+	 * Returns null if deltas of a policy are not in a valid sequence.
+	 */
+	static List<RangerPolicyDelta> mergeDeltas(List<RangerPolicyDelta> deltas) {
+		Map<Long, RangerPolicyDelta> firstDeltas = new HashMap<>();
+		Map<Long, RangerPolicyDelta> lastDeltas  = new LinkedHashMap<>();
+
+		for (RangerPolicyDelta delta : deltas) {
+			Long              policyId  = delta.getPolicyId();
+			RangerPolicyDelta lastDelta = lastDeltas.get(policyId);
+
+			if (lastDelta == null) {
+				firstDeltas.put(policyId, delta);
+			} else if (delta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE || lastDelta.getChangeType() == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+				LOG.warn("mergeDeltas(): invalid sequence of policy-deltas:[" + lastDelta + "], [" + delta + "]");
+
+				return null;
+			}
+
+			lastDeltas.put(policyId, delta);
+		}
+
+		List<RangerPolicyDelta> ret = new ArrayList<>(lastDeltas.size());
+
+		for (RangerPolicyDelta lastDelta : lastDeltas.values()) {
+			RangerPolicyDelta firstDelta = firstDeltas.get(lastDelta.getPolicyId());
+
+			if (firstDelta == lastDelta || firstDelta.getChangeType() != RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE) {
+				ret.add(lastDelta);
+			} else if (lastDelta.getChangeType() != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) { // created and updated
+				ret.add(new RangerPolicyDelta(lastDelta.getId(), RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, lastDelta.getPoliciesVersion(), lastDelta.getPolicy()));
+			} // else: created and deleted
+		}
+
+		ret.sort(Comparator.comparing(RangerPolicyDelta::getId));
+
+		return ret;
+	}
+
+	// header of merged deltas is from deltas of the latest version, as in ServiceDBStore.getServicePoliciesWithDeltas()
+	private static ServicePolicies copyHeader(ServicePolicies latest, List<RangerPolicyDelta> policyDeltas, Long tagPolicyVersion) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceId(latest.getServiceId());
+		ret.setServiceName(latest.getServiceName());
+		ret.setServiceDef(latest.getServiceDef());
+		ret.setPolicies(null);
+		ret.setPolicyDeltas(policyDeltas);
+		ret.setPolicyVersion(latest.getPolicyVersion());
+		ret.setPolicyUpdateTime(latest.getPolicyUpdateTime());
+		ret.setAuditMode(latest.getAuditMode());
+
+		if (latest.getTagPolicies() != null) {
+			ServicePolicies.TagPolicies tagPolicies = new ServicePolicies.TagPolicies();
+
+			tagPolicies.setServiceDef(latest.getTagPolicies().getServiceDef());
+			tagPolicies.setServiceId(latest.getTagPolicies().getServiceId());
+			tagPolicies.setServiceName(latest.getTagPolicies().getServiceName());
+			tagPolicies.setPolicies(null);
+			tagPolicies.setPolicyVersion(tagPolicyVersion);
+			tagPolicies.setPolicyUpdateTime(latest.getTagPolicies().getPolicyUpdateTime());
+			tagPolicies.setAuditMode(latest.getTagPolicies().getAuditMode());
+
+			ret.setTagPolicies(tagPolicies);
+		}
+
+		return ret;
+	}
+
+	private static class VersionDeltas {
+		final long            fromVersion;
+		final long            toVersion;
+		final ServicePolicies servicePolicyDeltas;
+		final long            estimatedSizeInBytes;
+
+		VersionDeltas(long fromVersion, ServicePolicies servicePolicyDeltas) {
+			this.fromVersion          = fromVersion;
+			this.toVersion            = servicePolicyDeltas.getPolicyVersion();
+			this.servicePolicyDeltas  = servicePolicyDeltas;
+			this.estimatedSizeInBytes = getEstimatedSize(servicePolicyDeltas.getPolicyDeltas());
+		}
 
+		// size of deltas in JSON, as sent to plugins
+		private static long getEstimatedSize(List<RangerPolicyDelta> policyDeltas) {
+			long ret = 0;
+
+			try {
+				ret = JsonUtilsV2.listToJson(policyDeltas).length();
+			} catch (Exception excp) {
+				LOG.warn("failed to estimate size of policy-deltas", excp);
+			}
+
+			return ret;
+		}
+	}
+}
@@ -22,6 +22,9 @@
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
 import org.apache.ranger.plugin.store.TagStore;
 
 import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
@@ -29,8 +32,14 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -39,11 +48,20 @@
 public class RangerServiceTagsCache {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerServiceTagsCache.class);
 
-	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int MAX_WAIT_TIME_FOR_UPDATE    = 10;
+	private static final int MAX_DELTA_VERSIONS_TO_CACHE = 32;
+
+	// approximate size, in JSON, of each entry of ServiceTags; see getEstimatedSize()
+	private static final int ESTIMATED_BYTES_PER_SERVICE_TAGS     = 256;
+	private static final int ESTIMATED_BYTES_PER_TAG_DEF          = 256;
+	private static final int ESTIMATED_BYTES_PER_TAG              = 192;
+	private static final int ESTIMATED_BYTES_PER_SERVICE_RESOURCE = 320;
+	private static final int ESTIMATED_BYTES_PER_RESOURCE_TAG_IDS = 24;
 
 	private static volatile RangerServiceTagsCache sInstance = null;
 	private final boolean useServiceTagsCache;
 	private final int waitTimeInSeconds;
+	private final int maxDeltaVersions;
 
 	private final Map<String, ServiceTagsWrapper> serviceTagsMap = new HashMap<>();
 
@@ -63,6 +81,13 @@ private RangerServiceTagsCache() {
 
 		useServiceTagsCache = config.getBoolean("ranger.admin.tag.download.usecache", true);
 		waitTimeInSeconds   = config.getInt("ranger.admin.tag.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		maxDeltaVersions    = config.getInt("ranger.admin.tag.download.cache.delta.max.versions", MAX_DELTA_VERSIONS_TO_CACHE);
+	}
+
+	RangerServiceTagsCache(int waitTimeInSeconds, int maxDeltaVersions) {
+		this.useServiceTagsCache = true;
+		this.waitTimeInSeconds   = waitTimeInSeconds;
+		this.maxDeltaVersions    = maxDeltaVersions;
 	}
 
 	public void dump() {
@@ -153,6 +178,56 @@ public ServiceTags getServiceTags(String serviceName, Long serviceId, Long lastK
 		return ret;
 	}
 
+	/**
+	 * Metrics of tag-deltas cached for all services: number of versions retained and their estimated size, how many
+	 * requests for deltas were served from the cache (hits) or from the database (misses), and how many downloads were
+	 * served full tags or deltas - along with the estimated size of the payloads served.
+	 */
+	public Map<String, Object> getDeltaCacheMetrics() {
+		final List<ServiceTagsWrapper> wrappers;
+
+		synchronized (this) {
+			wrappers = new ArrayList<>(serviceTagsMap.values());
+		}
+
+		long versionCount = 0, sizeInBytes = 0, hitCount = 0, missCount = 0, mergeCount = 0, compactedCount = 0;
+		long fullServedCount = 0, deltaServedCount = 0, fullServedBytes = 0, deltaServedBytes = 0;
+
+		for (ServiceTagsWrapper wrapper : wrappers) {
+			ServiceTagsWrapper.ServiceTagsDeltasCache deltaCache = wrapper.deltaCache;
+
+			versionCount     += deltaCache.versionCount;
+			sizeInBytes      += deltaCache.estimatedSizeInBytes;
+			hitCount         += deltaCache.hitCount;
+			missCount        += deltaCache.missCount;
+			mergeCount       += deltaCache.mergeCount;
+			compactedCount   += deltaCache.compactedCount;
+			fullServedCount  += wrapper.fullServedCount;
+			deltaServedCount += wrapper.deltaServedCount;
+			fullServedBytes  += wrapper.fullServedBytes;
+			deltaServedBytes += wrapper.deltaServedBytes;
+		}
+
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("maxVersionsPerService", maxDeltaVersions);
+		ret.put("serviceCount", wrappers.size());
+		ret.put("versionCount", versionCount);
+		ret.put("estimatedSizeInBytes", sizeInBytes);
+		ret.put("hitCount", hitCount);
+		ret.put("missCount", missCount);
+		ret.put("hitRate", (hitCount + missCount) > 0 ? ((double) hitCount / (hitCount + missCount)) : 0.0);
+		ret.put("mergeCount", mergeCount);
+		ret.put("compactedCount", compactedCount);
+		ret.put("fullServedCount", fullServedCount);
+		ret.put("deltaServedCount", deltaServedCount);
+		ret.put("deltaServedRatio", (fullServedCount + deltaServedCount) > 0 ? ((double) deltaServedCount / (fullServedCount + deltaServedCount)) : 0.0);
+		ret.put("fullServedBytes", fullServedBytes);
+		ret.put("deltaServedBytes", deltaServedBytes);
+
+		return ret;
+	}
+
     /**
      * Reset service tag cache using serviceName if provided.
      * If serviceName is empty, reset everything.
@@ -203,18 +278,133 @@ private class ServiceTagsWrapper {
 		Date updateTime = null;
 		long longestDbLoadTimeInMs = -1;
 
-		ServiceTagsDeltasCache deltaCache;
-
+		final ServiceTagsDeltasCache deltaCache = new ServiceTagsDeltasCache();
+
+		volatile long fullServedCount;
+		volatile long deltaServedCount;
+		volatile long fullServedBytes;
+		volatile long deltaServedBytes;
+
+		/*
+		 * Tag-deltas of recent versions, to serve clients within maxDeltaVersions of the cached version without a
+		 * database query - like policy-deltas in RangerServicePoliciesCache. Deltas from a version to the cached version
+		 * are compacted on the first request and kept in mergedDeltas until the cache moves to a newer version - along
+		 * with deltas read from the database for versions outside the window.
+		 *
+		 * Updated only with the lock of the wrapper held; metrics are volatile, since these are read without the lock.
+		 */
 		class ServiceTagsDeltasCache {
-			final long        		fromVersion;
-			final ServiceTags 		serviceTagsDelta;
+			final ArrayDeque<VersionTagDeltas> versionDeltas = new ArrayDeque<>();
+			final Map<Long, ServiceTags>       mergedDeltas  = new LinkedHashMap<Long, ServiceTags>() {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, ServiceTags> eldest) {
+					return size() > Math.max(1, maxDeltaVersions);
+				}
+			};
+
+			volatile int  versionCount;
+			volatile long estimatedSizeInBytes;
+			volatile long hitCount;
+			volatile long missCount;
+			volatile long mergeCount;
+			volatile long compactedCount;
 
-			ServiceTagsDeltasCache(final long fromVersion, ServiceTags serviceTagsDelta) {
-				this.fromVersion         = fromVersion;
-				this.serviceTagsDelta    = serviceTagsDelta;
-			}
 			ServiceTags getServiceTagsDeltaFromVersion(long fromVersion) {
-				return this.fromVersion == fromVersion ? this.serviceTagsDelta : null;
+				ServiceTags ret = mergedDeltas.get(fromVersion);
+
+				if (ret == null) {
+					ret = mergeDeltasFromVersion(fromVersion);
+
+					if (ret != null) {
+						mergedDeltas.put(fromVersion, ret);
+					}
+				}
+
+				if (ret != null) {
+					hitCount++;
+				} else {
+					missCount++;
+				}
+
+				return ret;
+			}
+
+			// deltas read from the database, for a version outside the window
+			void putServiceTagsDelta(long fromVersion, ServiceTags serviceTagsDelta) {
+				mergedDeltas.put(fromVersion, serviceTagsDelta);
+			}
+
+			// deltas that updated the cache from fromVersion to serviceTagsDelta.getTagVersion()
+			void addVersion(long fromVersion, ServiceTags serviceTagsDelta, Set<Long> newTagIds, Set<Long> newResourceIds) {
+				VersionTagDeltas latest = versionDeltas.peekLast();
+
+				if (latest != null && latest.toVersion != fromVersion) {
+					versionDeltas.clear();
+				}
+
+				mergedDeltas.clear();
+
+				if (maxDeltaVersions > 0 && serviceTagsDelta.getTagVersion() != null) {
+					versionDeltas.addLast(new VersionTagDeltas(fromVersion, serviceTagsDelta, newTagIds, newResourceIds));
+
+					while (versionDeltas.size() > maxDeltaVersions) {
+						versionDeltas.removeFirst();
+					}
+				}
+
+				updateMetrics();
+			}
+
+			void clear() {
+				versionDeltas.clear();
+				mergedDeltas.clear();
+
+				updateMetrics();
+			}
+
+			private ServiceTags mergeDeltasFromVersion(long fromVersion) {
+				List<VersionTagDeltas> toMerge = null;
+
+				for (VersionTagDeltas entry : versionDeltas) {
+					if (toMerge == null && entry.fromVersion == fromVersion) {
+						toMerge = new ArrayList<>();
+					}
+
+					if (toMerge != null) {
+						toMerge.add(entry);
+					}
+				}
+
+				final ServiceTags ret;
+
+				if (toMerge == null) {
+					ret = null;
+				} else if (toMerge.size() == 1) {
+					ret = toMerge.get(0).serviceTagsDelta;
+				} else {
+					ret = compactDeltas(toMerge);
+
+					mergeCount++;
+
+					for (VersionTagDeltas entry : toMerge) {
+						compactedCount += getChangeCount(entry.serviceTagsDelta);
+					}
+
+					compactedCount -= getChangeCount(ret);
+				}
+
+				return ret;
+			}
+
+			private void updateMetrics() {
+				long sizeInBytes = 0;
+
+				for (VersionTagDeltas entry : versionDeltas) {
+					sizeInBytes += entry.estimatedSizeInBytes;
+				}
+
+				this.versionCount         = versionDeltas.size();
+				this.estimatedSizeInBytes = sizeInBytes;
 			}
 		}
 		ReentrantLock lock = new ReentrantLock();
@@ -262,28 +452,31 @@ ServiceTags getLatestOrCached(String serviceName, TagStore tagStore, Long lastKn
 						}
 						ret = this.serviceTags;
 					} else {
-						boolean isDeltaCacheReinitialized = false;
-						ServiceTags serviceTagsDelta = this.deltaCache != null ? this.deltaCache.getServiceTagsDeltaFromVersion(lastKnownVersion) : null;
+						boolean     isDeltaCacheMissed = false;
+						ServiceTags serviceTagsDelta   = this.deltaCache.getServiceTagsDeltaFromVersion(lastKnownVersion);
 
 						if (serviceTagsDelta == null) {
-							serviceTagsDelta = tagStore.getServiceTagsDelta(serviceName, lastKnownVersion);
-							isDeltaCacheReinitialized = true;
+							serviceTagsDelta   = tagStore.getServiceTagsDelta(serviceName, lastKnownVersion);
+							isDeltaCacheMissed = true;
 						}
 						if (serviceTagsDelta != null) {
 							if (LOG.isDebugEnabled()) {
 								LOG.debug("Deltas were requested. Returning deltas from lastKnownVersion:[" + lastKnownVersion + "]");
 							}
-							if (isDeltaCacheReinitialized) {
-								this.deltaCache = new ServiceTagsDeltasCache(lastKnownVersion, serviceTagsDelta);
+							if (isDeltaCacheMissed) {
+								this.deltaCache.putServiceTagsDelta(lastKnownVersion, serviceTagsDelta);
 							}
 							ret = serviceTagsDelta;
 						} else {
 							LOG.warn("Deltas were requested, but could not get them!! lastKnownVersion:[" + lastKnownVersion + "]; Returning cached ServiceTags:[" + (serviceTags != null ? serviceTags.getTagVersion() : -1L) + "]");
 
-							this.deltaCache = null;
 							ret = this.serviceTags;
 						}
 					}
+
+					if (ret != null && !lastKnownVersion.equals(ret.getTagVersion())) {
+						updateServedMetrics(ret);
+					}
 				} else {
 					if (LOG.isDebugEnabled()) {
 						LOG.debug("Could not get lock in [" + waitTimeInSeconds + "] seconds, returning cached ServiceTags");
@@ -326,7 +519,8 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 
 				long startTimeMs = System.currentTimeMillis();
 
-				ServiceTags serviceTagsFromDb = tagStore.getServiceTags(serviceName, cachedServiceTagsVersion);
+				ServiceTags serviceTagsFromDb = RangerAdminCacheReplicator.getInstance().load(RangerAdminCacheReplicator.CACHE_TYPE_TAGS, serviceName, cachedServiceTagsVersion, tagVersionInDb, ServiceTags.class,
+				                                                                              () -> tagStore.getServiceTags(serviceName, cachedServiceTagsVersion));
 
 				long dbLoadTime = System.currentTimeMillis() - startTimeMs;
 
@@ -341,7 +535,7 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 							LOG.debug("Initializing ServiceTags cache for the first time");
 						}
 						serviceTags = serviceTagsFromDb;
-						this.deltaCache = null;
+						this.deltaCache.clear();
 						pruneUnusedAttributes();
 						isCacheCompletelyLoaded = true;
 					} else if (!serviceTagsFromDb.getIsDelta()) {
@@ -350,7 +544,7 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 							LOG.debug("Complete set of tag are loaded from database, because of some disqualifying event or because tag-delta is not supported");
 						}
 						serviceTags = serviceTagsFromDb;
-						this.deltaCache = null;
+						this.deltaCache.clear();
 						pruneUnusedAttributes();
 						isCacheCompletelyLoaded = true;
 					} else { // Previously cached service tags are still valid - no disqualifying change
@@ -358,9 +552,15 @@ boolean getLatest(String serviceName, TagStore tagStore) throws Exception {
 						if (LOG.isDebugEnabled()) {
 							LOG.debug("Retrieved tag-deltas from database. These will be applied on top of ServiceTags version:[" + cachedServiceTagsVersion + "], tag-deltas:[" + serviceTagsFromDb.getTagVersion() + "]");
 						}
+						// tags and service-resources added by this version; these are dropped when merging deltas, if removed by a later version
+						Set<Long> newTagIds      = maxDeltaVersions > 1 ? getNewIds(serviceTagsFromDb.getTags().keySet(), serviceTags.getTags().keySet()) : null;
+						Set<Long> newResourceIds = maxDeltaVersions > 1 ? getNewResourceIds(serviceTagsFromDb.getServiceResources(), serviceTags.getServiceResources()) : null;
+
 						RangerServiceTagsDeltaUtil.applyDelta(serviceTags, serviceTagsFromDb);
-						this.deltaCache = new ServiceTagsDeltasCache(cachedServiceTagsVersion, serviceTagsFromDb);
+						this.deltaCache.addVersion(cachedServiceTagsVersion, serviceTagsFromDb, newTagIds, newResourceIds);
 					}
+
+					RangerAdminCacheReplicator.getInstance().setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_TAGS, serviceName, serviceTags.getTagVersion());
 				} else {
 					LOG.error("Could not get tags from database, from-version:[" + cachedServiceTagsVersion + ")");
 				}
@@ -384,6 +584,17 @@ private void pruneUnusedAttributes() {
 			RangerServiceTagsDeltaUtil.pruneUnusedAttributes(this.serviceTags);
 		}
 
+		// called with the lock held: getEstimatedSize() only reads the number of entries, without serializing
+		private void updateServedMetrics(ServiceTags served) {
+			if (served == this.serviceTags) {
+				fullServedCount++;
+				fullServedBytes += getEstimatedSize(served);
+			} else {
+				deltaServedCount++;
+				deltaServedBytes += getEstimatedSize(served);
+			}
+		}
+
 		StringBuilder toString(StringBuilder sb) {
 			sb.append("RangerServiceTagsWrapper={");
 
@@ -406,5 +617,152 @@ public String toString() {
 			return sb.toString();
 		}
 	}
-}
 
+	/*
+	 * Merges tag-deltas of consecutive versions, in order, to one delta: only the latest change to a tag, a tag-def, a
+	 * service-resource and its tag-ids is kept, and tags and service-resources added and then removed within these
+	 * versions are dropped. A service-resource that existed before these versions and was then changed or removed is
+	 * sent with its earlier resource and an empty signature - as applyDelta() leaves it in deltas of a version - ahead
+	 * of added and changed service-resources, so that plugins remove old resource-matchers before adding new ones.
+	 */
+	static ServiceTags compactDeltas(List<VersionTagDeltas> toMerge) {
+		Map<Long, RangerTagDef>          tagDefinitions   = new HashMap<>();
+		Map<Long, RangerTag>             tags             = new HashMap<>();
+		Map<Long, List<Long>>            resourceToTagIds = new HashMap<>();
+		Map<Long, RangerServiceResource> firstRemoved     = new HashMap<>();
+		Map<Long, RangerServiceResource> lastResources    = new LinkedHashMap<>();
+		Set<Long>                        newTagIds        = new HashSet<>();
+		Set<Long>                        newResourceIds   = new HashSet<>();
+		ServiceTags.TagsChangeExtent     tagsChangeExtent = ServiceTags.TagsChangeExtent.NONE;
+
+		for (VersionTagDeltas entry : toMerge) {
+			ServiceTags delta = entry.serviceTagsDelta;
+
+			tagDefinitions.putAll(delta.getTagDefinitions());
+			tags.putAll(delta.getTags());
+			resourceToTagIds.putAll(delta.getResourceToTagIds());
+
+			for (RangerServiceResource serviceResource : delta.getServiceResources()) {
+				if (StringUtils.isEmpty(serviceResource.getResourceSignature())) {
+					firstRemoved.putIfAbsent(serviceResource.getId(), serviceResource);
+				}
+
+				lastResources.remove(serviceResource.getId()); // to order by the latest change
+				lastResources.put(serviceResource.getId(), serviceResource);
+			}
+
+			addAll(newTagIds, entry.newTagIds);
+			addAll(newResourceIds, entry.newResourceIds);
+
+			if (delta.getTagsChangeExtent() != null && delta.getTagsChangeExtent().compareTo(tagsChangeExtent) > 0) {
+				tagsChangeExtent = delta.getTagsChangeExtent();
+			}
+		}
+
+		tags.entrySet().removeIf(e -> newTagIds.contains(e.getKey()) && StringUtils.isEmpty(e.getValue().getType()));
+
+		List<RangerServiceResource> serviceResources = new ArrayList<>();
+		List<RangerServiceResource> addedResources   = new ArrayList<>();
+
+		for (RangerServiceResource serviceResource : lastResources.values()) {
+			Long    resourceId = serviceResource.getId();
+			boolean isRemoved  = StringUtils.isEmpty(serviceResource.getResourceSignature());
+
+			if (!newResourceIds.contains(resourceId) && firstRemoved.containsKey(resourceId)) {
+				serviceResources.add(firstRemoved.get(resourceId));
+			}
+
+			if (isRemoved) {
+				resourceToTagIds.remove(resourceId);
+			} else {
+				addedResources.add(serviceResource);
+			}
+		}
+
+		serviceResources.addAll(addedResources);
+
+		ServiceTags latest = toMerge.get(toMerge.size() - 1).serviceTagsDelta;
+
+		return new ServiceTags(latest.getOp(), latest.getServiceName(), latest.getTagVersion(), latest.getTagUpdateTime(), tagDefinitions, tags, serviceResources, resourceToTagIds, true, tagsChangeExtent);
+	}
+
+	// ids in deltaIds that are not in cachedIds
+	private static Set<Long> getNewIds(Collection<Long> deltaIds, Collection<Long> cachedIds) {
+		Set<Long> ret = new HashSet<>(deltaIds);
+
+		ret.removeAll(cachedIds);
+
+		return ret;
+	}
+
+	// ids of service-resources in deltas that are not in cachedResources
+	private static Set<Long> getNewResourceIds(List<RangerServiceResource> deltaResources, List<RangerServiceResource> cachedResources) {
+		Set<Long> ret = new HashSet<>();
+
+		for (RangerServiceResource serviceResource : deltaResources) {
+			if (StringUtils.isNotEmpty(serviceResource.getResourceSignature())) {
+				ret.add(serviceResource.getId());
+			}
+		}
+
+		if (!ret.isEmpty()) {
+			for (RangerServiceResource serviceResource : cachedResources) {
+				ret.remove(serviceResource.getId());
+			}
+		}
+
+		return ret;
+	}
+
+	private static void addAll(Set<Long> to, Set<Long> from) {
+		if (from != null) {
+			to.addAll(from);
+		}
+	}
+
+	private static long getChangeCount(ServiceTags serviceTagsDelta) {
+		return serviceTagsDelta.getTags().size() + serviceTagsDelta.getServiceResources().size();
+	}
+
+	/*
+	 * Approximate size of tags in JSON, as sent to plugins, from the number of tag-defs, tags, service-resources and
+	 * resource-to-tag mappings. Serializing the tags would give the exact size, but is too costly to do while the lock
+	 * of the wrapper is held, for each download.
+	 */
+	static long getEstimatedSize(ServiceTags serviceTags) {
+		long ret = ESTIMATED_BYTES_PER_SERVICE_TAGS;
+
+		ret += (long) size(serviceTags.getTagDefinitions()) * ESTIMATED_BYTES_PER_TAG_DEF;
+		ret += (long) size(serviceTags.getTags()) * ESTIMATED_BYTES_PER_TAG;
+		ret += (long) size(serviceTags.getServiceResources()) * ESTIMATED_BYTES_PER_SERVICE_RESOURCE;
+		ret += (long) size(serviceTags.getResourceToTagIds()) * ESTIMATED_BYTES_PER_RESOURCE_TAG_IDS;
+
+		return ret;
+	}
+
+	private static int size(Map<?, ?> map) {
+		return map == null ? 0 : map.size();
+	}
+
+	private static int size(Collection<?> collection) {
+		return collection == null ? 0 : collection.size();
+	}
+
+	static class VersionTagDeltas {
+		final long        fromVersion;
+		final long        toVersion;
+		final ServiceTags serviceTagsDelta;
+		final Set<Long>   newTagIds;
+		final Set<Long>   newResourceIds;
+		final long        estimatedSizeInBytes;
+
+		VersionTagDeltas(long fromVersion, ServiceTags serviceTagsDelta, Set<Long> newTagIds, Set<Long> newResourceIds) {
+			this.fromVersion          = fromVersion;
+			this.toVersion            = serviceTagsDelta.getTagVersion();
+			this.serviceTagsDelta     = serviceTagsDelta;
+			this.newTagIds            = newTagIds;
+			this.newResourceIds       = newResourceIds;
+			this.estimatedSizeInBytes = getEstimatedSize(serviceTagsDelta);
+		}
+	}
+}
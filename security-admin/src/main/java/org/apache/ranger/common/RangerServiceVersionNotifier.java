@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.plugin.util.RangerServiceVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lets plugins wait for the policy, tag or role version of a service to change, instead of polling for downloads.
+ *
+ * Versions are read from the database by a single background thread, every few hundred milliseconds, only for
+ * services that have plugins waiting; hence changes made through any Ranger Admin instance are noticed, and the cost
+ * of waiting plugins is a few queries per interval regardless of the number of plugins. As REST calls are served
+ * synchronously, each waiting plugin holds a request thread; the number of waiters is therefore limited.
+ */
+public class RangerServiceVersionNotifier {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerServiceVersionNotifier.class);
+
+	private static final boolean DEFAULT_ENABLED           = true;
+	private static final long    DEFAULT_CHECK_INTERVAL_MS = 500;
+	private static final int     DEFAULT_MAX_WAITERS       = 100;
+	private static final long    DEFAULT_MAX_WAIT_TIME_MS  = 60 * 1000;
+
+	public interface ServiceVersionsLoader {
+		Map<String, RangerServiceVersions> loadServiceVersions(List<String> serviceNames) throws Exception;
+	}
+
+	private final    ServiceVersionsLoader     loader;
+	private final    boolean                   isEnabled;
+	private final    long                      checkIntervalMs;
+	private final    int                       maxWaiters;
+	private final    long                      maxWaitTimeMs;
+	private final    Map<String, ServiceState> services       = new ConcurrentHashMap<>();
+	private final    AtomicInteger             waiterCount    = new AtomicInteger();
+	private final    LongAdder                 notifiedCount  = new LongAdder();
+	private final    LongAdder                 timedOutCount  = new LongAdder();
+	private final    LongAdder                 rejectedCount  = new LongAdder();
+	private final    LongAdder                 checkCount     = new LongAdder();
+	private final    LongAdder                 checkFailCount = new LongAdder();
+	private volatile Thread                    checker;
+
+	public RangerServiceVersionNotifier(ServiceVersionsLoader loader) {
+		RangerAdminConfig config = RangerAdminConfig.getInstance();
+
+		this.loader          = loader;
+		this.isEnabled       = config.getBoolean("ranger.admin.service.version.notifier.enabled", DEFAULT_ENABLED);
+		this.checkIntervalMs = config.getLong("ranger.admin.service.version.notifier.check.interval.ms", DEFAULT_CHECK_INTERVAL_MS);
+		this.maxWaiters      = config.getInt("ranger.admin.service.version.notifier.max.waiters", DEFAULT_MAX_WAITERS);
+		this.maxWaitTimeMs   = config.getLong("ranger.admin.service.version.notifier.max.wait.time.ms", DEFAULT_MAX_WAIT_TIME_MS);
+	}
+
+	RangerServiceVersionNotifier(ServiceVersionsLoader loader, long checkIntervalMs, int maxWaiters, long maxWaitTimeMs) {
+		this.loader          = loader;
+		this.isEnabled       = true;
+		this.checkIntervalMs = checkIntervalMs;
+		this.maxWaiters      = maxWaiters;
+		this.maxWaitTimeMs   = maxWaitTimeMs;
+	}
+
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * Waits up to waitTimeMs for any of the given versions of the service to change; negative versions are not waited on.
+	 *
+	 * @return the latest versions of the service when one of them changed or when the wait timed out; null if the wait
+	 * was rejected because too many plugins are waiting
+	 */
+	public RangerServiceVersions waitForChange(String serviceName, long lastKnownPolicyVersion, long lastKnownTagVersion, long lastKnownRoleVersion, long waitTimeMs) throws InterruptedException {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServiceVersionNotifier.waitForChange(" + serviceName + ", " + lastKnownPolicyVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ")");
+		}
+
+		RangerServiceVersions ret = null;
+
+		if (waiterCount.incrementAndGet() > maxWaiters) {
+			waiterCount.decrementAndGet();
+			rejectedCount.increment();
+		} else {
+			ServiceState state = services.compute(serviceName, (name, value) -> {
+				ServiceState s = value != null ? value : new ServiceState();
+
+				s.waiterCount++;
+
+				return s;
+			});
+
+			try {
+				ensureCheckerStarted();
+
+				long deadline = System.currentTimeMillis() + Math.min(waitTimeMs, maxWaitTimeMs);
+
+				synchronized (state) {
+					while (true) {
+						RangerServiceVersions versions = state.versions;
+
+						if (versions != null && versions.isChangedFrom(lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion)) {
+							notifiedCount.increment();
+
+							ret = versions;
+
+							break;
+						}
+
+						long remainingMs = deadline - System.currentTimeMillis();
+
+						if (remainingMs <= 0) {
+							timedOutCount.increment();
+
+							ret = versions != null ? versions : new RangerServiceVersions(serviceName, toVersion(lastKnownPolicyVersion), toVersion(lastKnownTagVersion), toVersion(lastKnownRoleVersion));
+
+							break;
+						}
+
+						state.wait(remainingMs);
+					}
+				}
+			} finally {
+				services.computeIfPresent(serviceName, (name, value) -> {
+					value.waiterCount--;
+
+					return value;
+				});
+
+				waiterCount.decrementAndGet();
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServiceVersionNotifier.waitForChange(" + serviceName + ", " + lastKnownPolicyVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> ret = new LinkedHashMap<>();
+
+		ret.put("enabled", isEnabled);
+		ret.put("waiterCount", waiterCount.get());
+		ret.put("maxWaiters", maxWaiters);
+		ret.put("watchedServiceCount", services.size());
+		ret.put("notifiedCount", notifiedCount.sum());
+		ret.put("timedOutCount", timedOutCount.sum());
+		ret.put("rejectedCount", rejectedCount.sum());
+		ret.put("checkCount", checkCount.sum());
+		ret.put("checkFailCount", checkFailCount.sum());
+
+		return ret;
+	}
+
+	/**
+	 * Reads the versions of services having waiters and wakes up the waiters of services whose versions changed.
+	 * Services without waiters are dropped.
+	 */
+	void checkVersions() {
+		List<String> serviceNames = new ArrayList<>();
+
+		for (String serviceName : services.keySet()) {
+			ServiceState state = services.computeIfPresent(serviceName, (name, value) -> value.waiterCount > 0 ? value : null);
+
+			if (state != null) {
+				serviceNames.add(serviceName);
+			}
+		}
+
+		if (serviceNames.isEmpty()) {
+			return;
+		}
+
+		checkCount.increment();
+
+		final Map<String, RangerServiceVersions> versions;
+
+		try {
+			versions = loader.loadServiceVersions(serviceNames);
+		} catch (Exception excp) {
+			checkFailCount.increment();
+
+			LOG.warn("RangerServiceVersionNotifier.checkVersions(): failed to load versions of services " + serviceNames, excp);
+
+			return;
+		}
+
+		for (String serviceName : serviceNames) {
+			RangerServiceVersions serviceVersions = versions != null ? versions.get(serviceName) : null;
+			ServiceState          state           = services.get(serviceName);
+
+			if (serviceVersions != null && state != null) {
+				synchronized (state) {
+					if (!Objects.equals(state.versions, serviceVersions)) {
+						state.versions = serviceVersions;
+
+						state.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	private void ensureCheckerStarted() {
+		if (checker == null) {
+			synchronized (this) {
+				if (checker == null) {
+					Thread thread = new Thread(this::runChecker, "RangerServiceVersionNotifier");
+
+					thread.setDaemon(true);
+					thread.start();
+
+					checker = thread;
+				}
+			}
+		}
+	}
+
+	private void runChecker() {
+		LOG.info("RangerServiceVersionNotifier: started checking for service version changes every " + checkIntervalMs + "ms");
+
+		while (true) {
+			try {
+				checkVersions();
+
+				Thread.sleep(checkIntervalMs);
+			} catch (InterruptedException excp) {
+				LOG.info("RangerServiceVersionNotifier: interrupted! Exiting thread");
+
+				break;
+			} catch (Throwable excp) {
+				LOG.error("RangerServiceVersionNotifier: failed to check for service version changes", excp);
+			}
+		}
+	}
+
+	private static Long toVersion(long version) {
+		return version >= 0 ? version : null;
+	}
+
+	private static class ServiceState {
+		int                   waiterCount; // updated only within compute() on the map
+		RangerServiceVersions versions;    // guarded by this
+	}
+}
@@ -87,16 +87,20 @@ public RangerUserStore getLatestRangerUserStore(XUserMgr xUserMgr, Long lastKnow
 			lockResult = lock.tryLock(waitTimeInSeconds, TimeUnit.SECONDS);
 
 			if (lockResult) {
-				final Set<UserInfo> rangerUsersInDB = xUserMgr.getUsers();
-				final Set<GroupInfo> rangerGroupsInDB = xUserMgr.getGroups();
-				final Map<String, Set<String>> userGroups = xUserMgr.getUserGroups();
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("No. of users from DB = " + rangerUsersInDB.size() + " and no. of groups from DB = " + rangerGroupsInDB.size());
-					LOG.debug("No. of userGroupMappings = " + userGroups.size());
-				}
-
-				ret = new RangerUserStore(rangerUserStoreVersionInDB, rangerUsersInDB, rangerGroupsInDB, userGroups);
+				ret = RangerAdminCacheReplicator.getInstance().load(RangerAdminCacheReplicator.CACHE_TYPE_USERSTORE, RangerAdminCacheReplicator.ALL_SERVICES, -1L, rangerUserStoreVersionInDB, RangerUserStore.class, () -> {
+					final Set<UserInfo> rangerUsersInDB = xUserMgr.getUsers();
+					final Set<GroupInfo> rangerGroupsInDB = xUserMgr.getGroups();
+					final Map<String, Set<String>> userGroups = xUserMgr.getUserGroups();
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("No. of users from DB = " + rangerUsersInDB.size() + " and no. of groups from DB = " + rangerGroupsInDB.size());
+						LOG.debug("No. of userGroupMappings = " + userGroups.size());
+					}
+
+					return new RangerUserStore(rangerUserStoreVersionInDB, rangerUsersInDB, rangerGroupsInDB, userGroups);
+				});
 				rangerUserStore = ret;
+
+				RangerAdminCacheReplicator.getInstance().setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_USERSTORE, RangerAdminCacheReplicator.ALL_SERVICES, rangerUserStoreVersionInDB);
 			} else {
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("Could not get lock in [" + waitTimeInSeconds + "] seconds, returning cached RangerUserStore");
@@ -99,6 +99,29 @@ public List<XXPolicy> findByServiceId(Long serviceId) {
 		}
 	}
 
+	/**
+	 * Keyset pagination over policies of a service: returns up to maxResults policies, in the order of id, with id
+	 * greater than afterPolicyId.
+	 */
+	public List<XXPolicy> findByServiceIdAfterPolicyId(Long serviceId, Long afterPolicyId, int maxResults) {
+		if (serviceId == null || afterPolicyId == null) {
+			return new ArrayList<XXPolicy>();
+		}
+		try {
+			return getEntityManager()
+					.createNamedQuery("XXPolicy.findByServiceIdAfterPolicyId", tClass)
+					.setParameter("serviceId", serviceId)
+					.setParameter("afterPolicyId", afterPolicyId)
+					.setMaxResults(maxResults).getResultList();
+		} catch (NoResultException e) {
+			return new ArrayList<XXPolicy>();
+		}
+	}
+
+	public void detach(XXPolicy xPolicy) {
+		getEntityManager().detach(xPolicy);
+	}
+
 	public List<Long> findPolicyIdsByServiceId(Long serviceId) {
 		List<Long> ret = new ArrayList<Long>();
 		try {
@@ -28,6 +28,13 @@
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 
+import org.apache.ranger.biz.RangerPolicyAdminCacheForEngineOptions;
+import org.apache.ranger.biz.RangerPolicyRetriever;
+import org.apache.ranger.biz.ServiceDBStore;
+import org.apache.ranger.common.RangerAdminCacheReplicator;
+import org.apache.ranger.common.RangerDownloadResponseCache;
+import org.apache.ranger.common.RangerServicePoliciesCache;
+import org.apache.ranger.common.RangerServiceTagsCache;
 import org.apache.ranger.plugin.model.RangerMetrics;
 import org.apache.ranger.util.RangerMetricsUtil;
 import org.slf4j.Logger;
@@ -53,6 +60,9 @@ public class MetricsREST {
     @Autowired
     RangerMetricsUtil jvmMetricUtil;
 
+    @Autowired
+    ServiceDBStore svcStore;
+
     @GET
     @Path("/status")
     @Produces({ "application/json", "application/xml" })
@@ -70,6 +80,16 @@ public RangerMetrics getStatus() {
         vmDetails.put("JVM Vendor Name", JVM_VENDOR_NAME);
         vmDetails.putAll(jvmMetricUtil.getValues());
         jvm.put("jvm",vmDetails);
+        jvm.put("policyDeltaCache", RangerServicePoliciesCache.getInstance().getDeltaCacheMetrics());
+        jvm.put("tagDeltaCache", RangerServiceTagsCache.getInstance().getDeltaCacheMetrics());
+        jvm.put("downloadResponseCache", RangerDownloadResponseCache.getInstance().getMetrics());
+        jvm.put("policyLoader", RangerPolicyRetriever.getLoadMetrics());
+        jvm.put("policyEngineCache", RangerPolicyAdminCacheForEngineOptions.getInstance().getMetrics());
+        jvm.put("cacheReplication", RangerAdminCacheReplicator.getInstance().getMetrics());
+
+        if (svcStore.getServiceVersionNotifier() != null) {
+            jvm.put("serviceVersionNotifier", svcStore.getServiceVersionNotifier().getMetrics());
+        }
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("<== MetricsREST.getStatus() " + jvm);
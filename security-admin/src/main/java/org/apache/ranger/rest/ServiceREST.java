@@ -81,6 +81,7 @@
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
 import org.apache.ranger.common.RangerSearchUtil;
+import org.apache.ranger.common.RangerServiceVersionNotifier;
 import org.apache.ranger.common.RangerValidatorFactory;
 import org.apache.ranger.common.ServiceUtil;
 import org.apache.ranger.common.SortField.SORT_ORDER;
@@ -121,9 +122,16 @@
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest.ServiceRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse.ServiceResponse;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerServiceVersions;
 import org.apache.ranger.plugin.util.SearchFilter;
 import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
 import org.apache.ranger.security.context.RangerAPIList;
 import org.apache.ranger.security.context.RangerAdminOpContext;
 import org.apache.ranger.security.context.RangerContextHolder;
@@ -3245,6 +3253,106 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(
 		return ret;
 	}
 
+	@GET
+	@Path("/versions/wait/{serviceName}")
+	@Produces({ "application/json", "application/xml" })
+	@Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED) // don't hold a transaction while waiting
+	public RangerServiceVersions waitForServiceVersionChange(
+			@PathParam("serviceName") String serviceName,
+			@DefaultValue("-1") @QueryParam("lastKnownVersion") Long lastKnownVersion,
+			@DefaultValue("-1") @QueryParam("lastKnownTagVersion") Long lastKnownTagVersion,
+			@DefaultValue("-1") @QueryParam("lastKnownRoleVersion") Long lastKnownRoleVersion,
+			@DefaultValue("15000") @QueryParam("waitTimeMs") Long waitTimeMs,
+			@QueryParam("pluginId") String pluginId,
+			@Context HttpServletRequest request) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.waitForServiceVersionChange(" + serviceName + ", " + lastKnownVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ", " + pluginId + ")");
+		}
+
+		bizUtil.failUnauthenticatedDownloadIfNotAllowed();
+
+		serviceUtil.isValidateHttpsAuthentication(serviceName, request); // throws if not valid
+
+		RangerServiceVersions ret = waitForServiceVersionChange(serviceName, lastKnownVersion, lastKnownTagVersion, lastKnownRoleVersion, waitTimeMs);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceREST.waitForServiceVersionChange(" + serviceName + ", " + lastKnownVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ", " + pluginId + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	@GET
+	@Path("/secure/versions/wait/{serviceName}")
+	@Produces({ "application/json", "application/xml" })
+	@Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED) // don't hold a transaction while waiting
+	public RangerServiceVersions waitForSecureServiceVersionChange(
+			@PathParam("serviceName") String serviceName,
+			@DefaultValue("-1") @QueryParam("lastKnownVersion") Long lastKnownVersion,
+			@DefaultValue("-1") @QueryParam("lastKnownTagVersion") Long lastKnownTagVersion,
+			@DefaultValue("-1") @QueryParam("lastKnownRoleVersion") Long lastKnownRoleVersion,
+			@DefaultValue("15000") @QueryParam("waitTimeMs") Long waitTimeMs,
+			@QueryParam("pluginId") String pluginId,
+			@Context HttpServletRequest request) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.waitForSecureServiceVersionChange(" + serviceName + ", " + lastKnownVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ", " + pluginId + ")");
+		}
+
+		serviceUtil.isValidService(serviceName, request); // throws if not valid
+
+		if (!isAllowedToDownload(serviceName)) {
+			LOG.error("waitForSecureServiceVersionChange(" + serviceName + ") failed as User doesn't have permission to download Policy");
+
+			throw restErrorUtil.createRESTException(HttpServletResponse.SC_FORBIDDEN, "User doesn't have permission to download policy", true);
+		}
+
+		RangerServiceVersions ret = waitForServiceVersionChange(serviceName, lastKnownVersion, lastKnownTagVersion, lastKnownRoleVersion, waitTimeMs);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceREST.waitForSecureServiceVersionChange(" + serviceName + ", " + lastKnownVersion + ", " + lastKnownTagVersion + ", " + lastKnownRoleVersion + ", " + waitTimeMs + ", " + pluginId + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	@POST
+	@Path("/bulk/download")
+	@Produces({ "application/json", "application/xml" })
+	public RangerBulkDownloadResponse bulkDownload(RangerBulkDownloadRequest bulkRequest, @Context HttpServletRequest request) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.bulkDownload(" + bulkRequest + ")");
+		}
+
+		bizUtil.failUnauthenticatedDownloadIfNotAllowed();
+
+		RangerBulkDownloadResponse ret = bulkDownload(bulkRequest, false, request);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceREST.bulkDownload(" + bulkRequest + "): " + ret);
+		}
+
+		return ret;
+	}
+
+	@POST
+	@Path("/secure/bulk/download")
+	@Produces({ "application/json", "application/xml" })
+	public RangerBulkDownloadResponse secureBulkDownload(RangerBulkDownloadRequest bulkRequest, @Context HttpServletRequest request) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.secureBulkDownload(" + bulkRequest + ")");
+		}
+
+		request.setAttribute("downloadPolicy", "secure");
+
+		RangerBulkDownloadResponse ret = bulkDownload(bulkRequest, true, request);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceREST.secureBulkDownload(" + bulkRequest + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@DELETE
 	@Path("/server/policydeltas")
 	@PreAuthorize("hasRole('ROLE_SYS_ADMIN')")
@@ -3674,6 +3782,242 @@ private RangerPolicyEngineOptions getDefaultRangerAdminPolicyEngineOptions() {
 		return opts;
 	}
 
+	private RangerServiceVersions waitForServiceVersionChange(String serviceName, long lastKnownVersion, long lastKnownTagVersion, long lastKnownRoleVersion, long waitTimeMs) throws InterruptedException {
+		RangerServiceVersionNotifier notifier = svcStore.getServiceVersionNotifier();
+
+		if (notifier == null || !notifier.isEnabled()) {
+			throw restErrorUtil.createRESTException(HttpServletResponse.SC_NOT_FOUND, "waiting for service version change is not enabled", false);
+		}
+
+		RangerServiceVersions ret = notifier.waitForChange(serviceName, lastKnownVersion, lastKnownTagVersion, lastKnownRoleVersion, waitTimeMs);
+
+		if (ret == null) {
+			throw restErrorUtil.createRESTException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "too many plugins waiting for service version change", false);
+		}
+
+		return ret;
+	}
+
+	private boolean isAllowedToDownload(String serviceName) throws Exception {
+		return new DownloadPermissions(serviceName).isPoliciesAllowed;
+	}
+
+	/**
+	 * Entities of a service the current user is allowed to download, as checked by the secure download calls: policies
+	 * in ServiceREST, tags in TagREST and roles in RoleREST.
+	 */
+	private class DownloadPermissions {
+		final boolean isPoliciesAllowed;
+		final boolean isTagsAllowed;
+		final boolean isRolesAllowed;
+
+		DownloadPermissions(String serviceName) throws Exception {
+			XXService xService = daoManager.getXXService().findByName(serviceName);
+
+			if (xService == null) {
+				LOG.error("Requested Service not found. serviceName=" + serviceName);
+
+				throw restErrorUtil.createRESTException(HttpServletResponse.SC_NOT_FOUND, "Service:" + serviceName + " not found", false);
+			}
+
+			XXServiceDef  xServiceDef    = daoManager.getXXServiceDef().getById(xService.getType());
+			boolean       isKmsService   = StringUtils.equals(xServiceDef.getImplclassname(), EmbeddedServiceDefsUtil.KMS_IMPL_CLASS_NAME);
+			boolean       isServiceAdmin = isKmsService ? bizUtil.isKeyAdmin() : bizUtil.isAdmin();
+			RangerService rangerService  = isKmsService ? svcStore.getServiceByNameForDP(serviceName) : svcStore.getServiceByName(serviceName);
+
+			if (isServiceAdmin) {
+				isPoliciesAllowed = isTagsAllowed = isRolesAllowed = true;
+			} else if (rangerService == null) {
+				isPoliciesAllowed = isTagsAllowed = isRolesAllowed = false;
+			} else {
+				isPoliciesAllowed = bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download) || bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke);
+				isTagsAllowed     = bizUtil.isUserAllowed(rangerService, TagREST.Allowed_User_List_For_Tag_Download);
+				isRolesAllowed    = bizUtil.isUserAllowed(rangerService, RoleREST.POLICY_DOWNLOAD_USERS);
+			}
+		}
+	}
+
+	/**
+	 * Downloads policies, tags and roles of each service in the request, as the individual download calls would. Failure
+	 * to download for a service is returned in its status, without failing the downloads for other services.
+	 */
+	private RangerBulkDownloadResponse bulkDownload(RangerBulkDownloadRequest bulkRequest, boolean isSecure, HttpServletRequest request) {
+		if (bulkRequest == null || CollectionUtils.isEmpty(bulkRequest.getServices())) {
+			throw restErrorUtil.createRESTException(HttpServletResponse.SC_BAD_REQUEST, "no service in bulk download request", true);
+		}
+
+		RangerBulkDownloadResponse ret  = new RangerBulkDownloadResponse();
+		RangerPerfTracer           perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.bulkDownload(serviceCount=" + bulkRequest.getServices().size() + ")");
+		}
+
+		try {
+			for (ServiceRequest serviceRequest : bulkRequest.getServices()) {
+				String          serviceName        = serviceRequest.getServiceName();
+				String          pluginId           = serviceRequest.getPluginId();
+				String          clusterName        = StringUtils.defaultString(serviceRequest.getClusterName());
+				String          pluginCapabilities = StringUtils.defaultString(serviceRequest.getPluginCapabilities());
+				long            lastActivationTime = serviceRequest.getLastActivationTime() != null ? serviceRequest.getLastActivationTime() : 0;
+				ServiceResponse serviceResponse    = new ServiceResponse(serviceName);
+				int             httpCode           = HttpServletResponse.SC_OK;
+				int             policyHttpCode     = HttpServletResponse.SC_OK;
+				int             tagHttpCode        = HttpServletResponse.SC_OK;
+				int             roleHttpCode       = HttpServletResponse.SC_OK;
+
+				try {
+					boolean isValid = isSecure ? serviceUtil.isValidService(serviceName, request) : serviceUtil.isValidateHttpsAuthentication(serviceName, request);
+
+					if (!isValid) {
+						httpCode = HttpServletResponse.SC_BAD_REQUEST;
+					} else if (isSecure) { // each entity is authorized as by its secure download call
+						DownloadPermissions permissions = new DownloadPermissions(serviceName);
+
+						if (serviceRequest.getLastKnownPolicyVersion() != null && !permissions.isPoliciesAllowed) {
+							LOG.error("bulkDownload(" + serviceName + ") failed as User doesn't have permission to download Policy");
+
+							policyHttpCode = HttpServletResponse.SC_FORBIDDEN;
+
+							serviceResponse.setErrorMessage("User doesn't have permission to download policy");
+						}
+
+						if (serviceRequest.getLastKnownTagVersion() != null && !permissions.isTagsAllowed) {
+							LOG.error("bulkDownload(" + serviceName + ") failed as User doesn't have permission to download tags");
+
+							tagHttpCode = HttpServletResponse.SC_FORBIDDEN;
+
+							serviceResponse.setErrorMessage("User doesn't have permission to download tags");
+						}
+
+						if (serviceRequest.getLastKnownRoleVersion() != null && !permissions.isRolesAllowed) {
+							LOG.error("bulkDownload(" + serviceName + ") failed as User doesn't have permission to download UserGroupRoles");
+
+							roleHttpCode = HttpServletResponse.SC_FORBIDDEN;
+
+							serviceResponse.setErrorMessage("User doesn't have permission to download UserGroupRoles");
+						}
+					}
+				} catch (WebApplicationException webException) {
+					httpCode = webException.getResponse().getStatus();
+
+					serviceResponse.setErrorMessage(String.valueOf(webException.getResponse().getEntity()));
+				} catch (Exception excp) {
+					httpCode = HttpServletResponse.SC_BAD_REQUEST;
+
+					serviceResponse.setErrorMessage(excp.getMessage());
+				}
+
+				if (httpCode != HttpServletResponse.SC_OK) {
+					policyHttpCode = tagHttpCode = roleHttpCode = httpCode;
+				}
+
+				if (serviceRequest.getLastKnownPolicyVersion() != null) {
+					Long lastKnownVersion  = serviceRequest.getLastKnownPolicyVersion();
+					Long downloadedVersion = null;
+					int  policyStatus      = policyHttpCode;
+
+					if (policyStatus == HttpServletResponse.SC_OK) {
+						try {
+							ServicePolicies policies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, !serviceRequest.getSupportsPolicyDeltas());
+
+							if (policies == null) {
+								downloadedVersion = lastKnownVersion;
+								policyStatus      = HttpServletResponse.SC_NOT_MODIFIED;
+							} else {
+								downloadedVersion = policies.getPolicyVersion();
+
+								serviceResponse.setPolicies(policies);
+							}
+						} catch (Throwable excp) {
+							LOG.error("bulkDownload(): getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ") failed", excp);
+
+							policyStatus = HttpServletResponse.SC_BAD_REQUEST;
+
+							serviceResponse.setErrorMessage(excp.getMessage());
+						} finally {
+							createPolicyDownloadAudit(serviceName, lastKnownVersion, pluginId, policyStatus, clusterName, null, request);
+						}
+					}
+
+					serviceResponse.setPolicyStatus(policyStatus);
+
+					assetMgr.createPluginInfo(serviceName, pluginId, request, RangerPluginInfo.ENTITY_TYPE_POLICIES, downloadedVersion, lastKnownVersion, lastActivationTime, policyStatus, clusterName, pluginCapabilities);
+				}
+
+				if (serviceRequest.getLastKnownTagVersion() != null) {
+					Long lastKnownVersion  = serviceRequest.getLastKnownTagVersion();
+					Long downloadedVersion = null;
+					int  tagStatus         = tagHttpCode;
+
+					if (tagStatus == HttpServletResponse.SC_OK) {
+						try {
+							ServiceTags tags = tagStore.getServiceTagsIfUpdated(serviceName, lastKnownVersion, !serviceRequest.getSupportsTagDeltas());
+
+							if (tags == null) {
+								downloadedVersion = lastKnownVersion;
+								tagStatus         = HttpServletResponse.SC_NOT_MODIFIED;
+							} else {
+								downloadedVersion = tags.getTagVersion();
+
+								serviceResponse.setTags(tags);
+							}
+						} catch (Exception excp) {
+							LOG.error("bulkDownload(): getServiceTagsIfUpdated(" + serviceName + ", " + lastKnownVersion + ") failed", excp);
+
+							tagStatus = HttpServletResponse.SC_BAD_REQUEST;
+
+							serviceResponse.setErrorMessage(excp.getMessage());
+						}
+					}
+
+					serviceResponse.setTagStatus(tagStatus);
+
+					assetMgr.createPluginInfo(serviceName, pluginId, request, RangerPluginInfo.ENTITY_TYPE_TAGS, downloadedVersion, lastKnownVersion, lastActivationTime, tagStatus, clusterName, pluginCapabilities);
+				}
+
+				if (serviceRequest.getLastKnownRoleVersion() != null) {
+					Long lastKnownVersion  = serviceRequest.getLastKnownRoleVersion();
+					Long downloadedVersion = null;
+					int  roleStatus        = roleHttpCode;
+
+					if (roleStatus == HttpServletResponse.SC_OK) {
+						try {
+							RangerRoles roles = roleDBStore.getRoles(serviceName, lastKnownVersion);
+
+							if (roles == null) {
+								downloadedVersion = lastKnownVersion;
+								roleStatus        = HttpServletResponse.SC_NOT_MODIFIED;
+							} else {
+								downloadedVersion = roles.getRoleVersion();
+
+								roles.setServiceName(serviceName);
+
+								serviceResponse.setRoles(roles);
+							}
+						} catch (Throwable excp) {
+							LOG.error("bulkDownload(): getRoles(" + serviceName + ", " + lastKnownVersion + ") failed", excp);
+
+							roleStatus = HttpServletResponse.SC_BAD_REQUEST;
+
+							serviceResponse.setErrorMessage(excp.getMessage());
+						}
+					}
+
+					serviceResponse.setRoleStatus(roleStatus);
+
+					assetMgr.createPluginInfo(serviceName, pluginId, request, RangerPluginInfo.ENTITY_TYPE_ROLES, downloadedVersion, lastKnownVersion, lastActivationTime, roleStatus, clusterName, pluginCapabilities);
+				}
+
+				ret.getServices().add(serviceResponse);
+			}
+		} finally {
+			RangerPerfTracer.log(perf);
+		}
+
+		return ret;
+	}
+
 	private boolean hasAdminAccess(RangerPolicy policy, String userName, Set<String> userGroups) {
 		boolean           isAllowed   = false;
 		RangerPolicyAdmin policyAdmin = getPolicyAdminForDelegatedAdmin(policy.getService());
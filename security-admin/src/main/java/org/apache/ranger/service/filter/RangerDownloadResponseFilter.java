@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.common.RangerDownloadResponseCache;
+import org.apache.ranger.common.RangerDownloadResponseCache.CachedPayload;
+import org.apache.ranger.plugin.util.RangerRESTUtils;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.RangerUserStore;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.rest.TagRESTConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * Serves policy, role, tag and userstore downloads from RangerDownloadResponseCache: the JSON payload returned by a
+ * download API is serialized once per (service, version, capabilities) and the compressed bytes are sent as is to
+ * clients that accept gzip or deflate encoding. Responses carry an ETag; a request with a matching If-None-Match
+ * header gets 304 (Not Modified) without a body.
+ */
+public class RangerDownloadResponseFilter implements ContainerResponseFilter {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerDownloadResponseFilter.class);
+
+	private static final String HEADER_ETAG          = "ETag";
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+	private static final String HEADER_VARY          = "Vary";
+
+	@Override
+	public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+		RangerDownloadResponseCache cache = RangerDownloadResponseCache.getInstance();
+
+		if (cache.isEnabled() && response.getStatus() == HttpServletResponse.SC_OK && response.getEntity() != null) {
+			String key = getCacheKey(request, response.getEntity());
+
+			if (key != null && isJson(response.getMediaType())) {
+				try {
+					setCachedPayload(request, response, cache, key);
+				} catch (Exception excp) {
+					LOG.warn("RangerDownloadResponseFilter: failed to serve cached payload for key=" + key + ". Response will be serialized", excp);
+				}
+			}
+		}
+
+		return response;
+	}
+
+	static String getCacheKey(ContainerRequest request, Object entity) {
+		final String ret;
+
+		if (entity instanceof ServicePolicies) {
+			ServicePolicies policies    = (ServicePolicies) entity;
+			boolean         isDelta     = policies.getPolicyDeltas() != null;
+			int             policyCount = isDelta ? policies.getPolicyDeltas().size() : (policies.getPolicies() != null ? policies.getPolicies().size() : 0);
+			Long            tagVersion  = policies.getTagPolicies() != null ? policies.getTagPolicies().getPolicyVersion() : null;
+
+			ret = "policies:" + getServiceName(request) + ":" + policies.getPolicyVersion() + ":" + tagVersion + ":" + (isDelta ? "delta:" + getQueryParam(request, RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION) : "full") + ":" + policyCount
+			    + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_SUPPORTS_POLICY_DELTAS) + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_CAPABILITIES);
+		} else if (entity instanceof ServiceTags) {
+			ServiceTags tags    = (ServiceTags) entity;
+			boolean     isDelta = Boolean.TRUE.equals(tags.getIsDelta());
+
+			ret = "tags:" + getServiceName(request) + ":" + tags.getTagVersion() + ":" + (isDelta ? "delta:" + getQueryParam(request, TagRESTConstants.LAST_KNOWN_TAG_VERSION_PARAM) : "full")
+			    + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_SUPPORTS_TAG_DELTAS) + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_CAPABILITIES);
+		} else if (entity instanceof RangerRoles) {
+			ret = "roles:" + getServiceName(request) + ":" + ((RangerRoles) entity).getRoleVersion() + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_CAPABILITIES);
+		} else if (entity instanceof RangerUserStore) {
+			ret = "userstore:" + getServiceName(request) + ":" + ((RangerUserStore) entity).getUserStoreVersion() + ":" + getQueryParam(request, RangerRESTUtils.REST_PARAM_CAPABILITIES);
+		} else {
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	// returns gzip, deflate or identity - in that order of preference
+	static String getAcceptedEncoding(List<String> acceptEncodingHeaders) {
+		boolean acceptsGzip    = false;
+		boolean acceptsDeflate = false;
+
+		if (acceptEncodingHeaders != null) {
+			for (String header : acceptEncodingHeaders) {
+				for (String value : StringUtils.split(header, ',')) {
+					String[] parts    = StringUtils.split(value, ';');
+					String   encoding = parts.length > 0 ? StringUtils.trim(parts[0]) : null;
+					boolean  accepted = true;
+
+					for (int i = 1; i < parts.length; i++) {
+						String param = StringUtils.deleteWhitespace(parts[i]);
+
+						if (StringUtils.startsWithIgnoreCase(param, "q=")) {
+							try {
+								accepted = Float.parseFloat(param.substring(2)) > 0;
+							} catch (NumberFormatException excp) {
+								accepted = false;
+							}
+						}
+					}
+
+					if (accepted) {
+						if (RangerDownloadResponseCache.ENCODING_GZIP.equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+							acceptsGzip = true;
+						} else if (RangerDownloadResponseCache.ENCODING_DEFLATE.equalsIgnoreCase(encoding)) {
+							acceptsDeflate = true;
+						}
+					}
+				}
+			}
+		}
+
+		return acceptsGzip ? RangerDownloadResponseCache.ENCODING_GZIP : (acceptsDeflate ? RangerDownloadResponseCache.ENCODING_DEFLATE : RangerDownloadResponseCache.ENCODING_IDENTITY);
+	}
+
+	static boolean isETagMatched(List<String> ifNoneMatchHeaders, String eTag) {
+		if (ifNoneMatchHeaders != null && eTag != null) {
+			String opaqueTag = StringUtils.removeStart(eTag, "W/");
+
+			for (String header : ifNoneMatchHeaders) {
+				for (String value : StringUtils.split(header, ',')) {
+					value = StringUtils.trim(value);
+
+					if ("*".equals(value) || opaqueTag.equals(StringUtils.removeStart(value, "W/"))) { // weak comparison
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void setCachedPayload(ContainerRequest request, ContainerResponse response, RangerDownloadResponseCache cache, String key) throws Exception {
+		final Object                         entity      = response.getEntity();
+		final Type                           entityType  = response.getEntityType();
+		final Annotation[]                   annotations = response.getAnnotations();
+		final MediaType                      mediaType   = response.getMediaType();
+		final MultivaluedMap<String, Object> headers     = response.getHttpHeaders();
+		final MessageBodyWriter              writer      = request.getMessageBodyWorkers().getMessageBodyWriter(entity.getClass(), entityType, annotations, mediaType);
+
+		if (writer == null) {
+			return;
+		}
+
+		CachedPayload payload = cache.getPayload(key, out -> writer.writeTo(entity, entity.getClass(), entityType, annotations, mediaType, headers, out));
+
+		headers.putSingle(HEADER_ETAG, payload.getETag());
+		headers.add(HEADER_VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		if (isETagMatched(request.getRequestHeader(HEADER_IF_NONE_MATCH), payload.getETag())) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			response.setEntity(null);
+		} else {
+			String encoding = getAcceptedEncoding(request.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+
+			if (!RangerDownloadResponseCache.ENCODING_IDENTITY.equals(encoding)) {
+				headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+			}
+
+			response.setEntity(payload.getBytes(encoding));
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerDownloadResponseFilter: status=" + response.getStatus() + ", payload=" + payload);
+		}
+	}
+
+	private static boolean isJson(MediaType mediaType) {
+		return mediaType != null && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+	}
+
+	private static String getServiceName(ContainerRequest request) {
+		List<PathSegment> segments = request.getPathSegments();
+
+		return CollectionUtils.isNotEmpty(segments) ? segments.get(segments.size() - 1).getPath() : null;
+	}
+
+	private static String getQueryParam(ContainerRequest request, String name) {
+		return request.getQueryParameters().getFirst(name);
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ranger.audit.codec.AuditEncodeBuffer;
+import org.apache.ranger.audit.codec.AuditEventCodec;
+import org.apache.ranger.audit.codec.AuditEventCodecFactory;
+import org.apache.ranger.audit.codec.BinaryAuditEventCodec;
+import org.apache.ranger.audit.codec.GsonAuditEventCodec;
+import org.apache.ranger.audit.codec.JsonAuditEventCodec;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.queue.AuditSpoolSegment;
+import org.junit.Test;
+
+public class TestAuditEventCodec {
+	private static final String SPECIAL_CHARS = "quote\" backslash\\ tab\t nl\n cr\r ctl\u0001\u001f html<>&=' unicode\u00e9\u4e2d emoji\ud83d\ude00 lone\ud800 ls\u2028 ps\u2029 del\u007f";
+
+	@Test
+	public void testJsonSameAsGson() {
+		AuditEventCodec codec = AuditEventCodecFactory.getCodec(JsonAuditEventCodec.NAME);
+
+		for (AuthzAuditEvent event : createEvents()) {
+			// unpaired surrogates are encoded in UTF-8 as '?'
+			assertEquals(MiscUtil.stringify(event).replace('\ud800', '?'), codec.encodeToString(event));
+		}
+
+		// subclasses are encoded by Gson
+		AuthzAuditEvent subclassEvent = new AuthzAuditEvent() {
+			@SuppressWarnings("unused")
+			private final String extra = "extra";
+		};
+
+		assertEquals(MiscUtil.stringify(subclassEvent), codec.encodeToString(subclassEvent));
+	}
+
+	@Test
+	public void testBinaryRoundTrip() {
+		AuditEventCodec   codec  = AuditEventCodecFactory.getCodec(BinaryAuditEventCodec.NAME);
+		AuditEncodeBuffer buffer = new AuditEncodeBuffer(16); // buffer grows as needed
+
+		for (AuthzAuditEvent event : createEvents()) {
+			buffer.reset();
+			codec.encode(event, buffer);
+
+			AuditEventBase decoded = codec.decode(buffer.toByteBuffer());
+
+			assertEquals(MiscUtil.stringify(event).replace('\ud800', '?'), MiscUtil.stringify(decoded));
+			assertTrue(buffer.size() < MiscUtil.stringify(event).length());
+		}
+	}
+
+	@Test
+	public void testSpoolSegmentWithJsonAndBinaryRecords() throws Exception {
+		File dir = Files.createTempDirectory("ranger-audit-codec").toFile();
+
+		try {
+			File                     file   = new File(dir, "spool.seg");
+			AuditSpoolSegment.Writer writer = AuditSpoolSegment.Writer.open(file, 64 * 1024, 0);
+			AuthzAuditEvent[]        events = createEvents();
+			AuditEncodeBuffer        buffer = new AuditEncodeBuffer();
+
+			for (int i = 0; i < events.length; i++) {
+				AuditEventCodec codec = AuditEventCodecFactory.getCodec(i % 2 == 0 ? BinaryAuditEventCodec.NAME : JsonAuditEventCodec.NAME);
+
+				buffer.reset();
+				codec.encode(events[i], buffer);
+
+				assertTrue(writer.append(buffer.array(), 0, buffer.size()));
+			}
+
+			writer.close();
+
+			try (AuditSpoolSegment.Reader reader = new AuditSpoolSegment.Reader(file, 0)) {
+				for (AuthzAuditEvent event : events) {
+					ByteBuffer record = reader.nextRecord();
+
+					assertEquals(MiscUtil.stringify(event).replace('\ud800', '?'), MiscUtil.stringify(AuditEventCodecFactory.decode(record)));
+				}
+
+				assertNull(reader.nextRecord());
+			}
+		} finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	@Test
+	public void testCodecSelection() {
+		Properties props = new Properties();
+
+		assertSame(AuditEventCodecFactory.getDefaultCodec(), AuditEventCodecFactory.getCodec(props, "test.codec"));
+
+		props.setProperty(AuditEventCodecFactory.PROP_DEFAULT_CODEC, GsonAuditEventCodec.NAME);
+
+		assertEquals(GsonAuditEventCodec.NAME, AuditEventCodecFactory.getCodec(props, "test.codec").getName());
+
+		props.setProperty("test.codec", BinaryAuditEventCodec.NAME);
+
+		assertEquals(BinaryAuditEventCodec.NAME, AuditEventCodecFactory.getCodec(props, "test.codec").getName());
+		assertSame(AuditEventCodecFactory.getDefaultCodec(), AuditEventCodecFactory.getTextCodec(props, "test.codec"));
+
+		props.setProperty("test.codec", GsonAuditEventCodec.class.getName());
+
+		assertTrue(AuditEventCodecFactory.getCodec(props, "test.codec") instanceof GsonAuditEventCodec);
+
+		props.setProperty("test.codec", "org.example.NoSuchCodec");
+
+		assertSame(AuditEventCodecFactory.getDefaultCodec(), AuditEventCodecFactory.getCodec(props, "test.codec"));
+	}
+
+	private AuthzAuditEvent[] createEvents() {
+		AuthzAuditEvent empty = new AuthzAuditEvent();
+
+		empty.setEventTime(null);
+		empty.setTags(null);
+
+		AuthzAuditEvent full = new AuthzAuditEvent(3, "cl1_hive", "user1", new Date(-1234L), "select", "db1/tbl1/" + SPECIAL_CHARS, "@column",
+		                                           "select", (short) 1, "hiveServer2", 42L, "reason", "ranger-acl", "session-1", "HIVESERVER2", "10.0.0.1",
+		                                           "select * from tbl1 where name = '" + SPECIAL_CHARS + "'", "cl1");
+
+		full.setAgentHostname("host1.example.com");
+		full.setLogType("RangerAudit");
+		full.setEventId(MiscUtil.generateUniqueId());
+		full.setSeqNum(Long.MAX_VALUE);
+		full.setEventCount(-1);
+		full.setEventDurationMS(Long.MIN_VALUE);
+		full.setTags(new LinkedHashSet<>(Arrays.asList("PII", SPECIAL_CHARS, null)));
+		full.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0.1\"}");
+		full.setZoneName("zone1");
+		full.setPolicyVersion(7L);
+
+		AuthzAuditEvent common = new AuthzAuditEvent();
+
+		common.setUser("user2");
+		common.setAccessType("read");
+		common.setResourcePath("/data/file1");
+		common.setAccessResult((short) 0);
+		common.setEventTime(new Date(1700000000123L));
+		common.setClusterName("");
+
+		return new AuthzAuditEvent[] { empty, full, common };
+	}
+}
@@ -25,6 +25,7 @@
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Properties;
 
@@ -103,6 +104,65 @@ public void testAuditSummaryQueue() {
 		commonTestSummary(testConsumer, queue);
 	}
 
+	@Test
+	public void testAuditSummaryQueueConcurrentProducers() throws Exception {
+		logger.debug("testAuditSummaryQueueConcurrentProducers()...");
+
+		testSummaryConcurrentProducers("16");
+		testSummaryConcurrentProducers("0"); // without thread-local pre-aggregation
+	}
+
+	private void testSummaryConcurrentProducers(String localMaxEntries) throws Exception {
+		TestConsumer testConsumer = new TestConsumer();
+		AuditSummaryQueue queue = new AuditSummaryQueue(testConsumer);
+
+		Properties props = new Properties();
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_INTERVAL, "" + 100);
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_SHARDS, "4");
+		props.put(BaseAuditHandler.PROP_DEFAULT_PREFIX + "."
+				+ AuditSummaryQueue.PROP_SUMMARY_LOCAL_MAX_ENTRIES, localMaxEntries);
+		queue.init(props, BaseAuditHandler.PROP_DEFAULT_PREFIX);
+
+		queue.start();
+
+		int threadCount = 4;
+		int eventsPerThread = 10000;
+		int userCount = 10;
+		Thread[] producers = new Thread[threadCount];
+
+		for (int i = 0; i < threadCount; i++) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < eventsPerThread; j++) {
+					AuthzAuditEvent event = new AuthzAuditEvent();
+					event.setUser("user" + (j % userCount));
+					event.setAccessType("select");
+					event.setResourcePath("xademo/customer_details/imei");
+					event.setAccessResult((short) 1);
+					event.setEventTime(new Date());
+
+					assertTrue(queue.log(event));
+				}
+			});
+			producers[i].start();
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		queue.stop();
+		queue.waitToComplete();
+		// Let's wait for second
+		Thread.sleep(1000);
+
+		assertEquals(threadCount * eventsPerThread, testConsumer.getSumTotal());
+		assertTrue("summaries=" + testConsumer.getCountTotal(),
+				testConsumer.getCountTotal() >= userCount
+						&& testConsumer.getCountTotal() < threadCount * eventsPerThread);
+	}
+
 	private void commonTestSummary(TestConsumer testConsumer,
 			BaseAuditHandler queue) {
 		int messageToSend = 0;
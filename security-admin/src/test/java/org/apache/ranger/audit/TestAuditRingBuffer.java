@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.audit.queue.AuditRingBuffer;
+import org.apache.ranger.audit.queue.AuditRingBuffer.FullPolicy;
+import org.apache.ranger.audit.queue.AuditRingBuffer.WaitStrategy;
+import org.junit.Test;
+
+public class TestAuditRingBuffer {
+	@Test
+	public void testMultipleProducers() throws Exception {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			final int               producerCount     = 4;
+			final int               eventsPerProducer = 5000;
+			AuditRingBuffer<long[]> ringBuffer        = new AuditRingBuffer<>(null, 100, waitStrategy, FullPolicy.BACKPRESSURE, 60 * 1000);
+			ExecutorService         executor          = Executors.newFixedThreadPool(producerCount);
+			List<Future<?>>         producers         = new ArrayList<>();
+
+			try {
+				for (int i = 0; i < producerCount; i++) {
+					final long producerId = i;
+
+					producers.add(executor.submit(() -> {
+						for (long seq = 0; seq < eventsPerProducer; seq += 2) {
+							assertTrue(ringBuffer.enqueue(new long[] { producerId, seq }));
+							assertEquals(1, ringBuffer.enqueueAll(Arrays.asList(new long[] { producerId, seq + 1 })));
+						}
+					}));
+				}
+
+				// events of each producer are received in the order they were added
+				long[]       nextSeq = new long[producerCount];
+				List<long[]> batch   = new ArrayList<>();
+
+				for (int received = 0; received < producerCount * eventsPerProducer; ) {
+					long[] event = ringBuffer.poll(10, TimeUnit.SECONDS);
+
+					assertTrue("timed out: waitStrategy=" + waitStrategy, event != null);
+
+					batch.add(event);
+					ringBuffer.drainTo(batch, 50);
+
+					for (long[] e : batch) {
+						assertEquals(nextSeq[(int) e[0]]++, e[1]);
+					}
+
+					received += batch.size();
+
+					batch.clear();
+				}
+
+				for (Future<?> producer : producers) {
+					producer.get();
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			assertTrue(ringBuffer.isEmpty());
+			assertEquals((long) producerCount * eventsPerProducer, ringBuffer.getMetrics().get("enqueuedCount"));
+			assertEquals(0L, ringBuffer.getMetrics().get("droppedCount"));
+		}
+	}
+
+	@Test
+	public void testDropWhenFull() {
+		AuditRingBuffer<String> ringBuffer = new AuditRingBuffer<>("testDropWhenFull", 3, WaitStrategy.PARK, FullPolicy.DROP, 0);
+
+		try {
+			assertTrue(ringBuffer.enqueue("e1"));
+			assertEquals(2, ringBuffer.enqueueAll(Arrays.asList("e2", "e3", "e4")));
+			assertFalse(ringBuffer.enqueue("e5"));
+			assertEquals(0, ringBuffer.remainingCapacity());
+
+			assertEquals("e1", ringBuffer.poll());
+			assertTrue(ringBuffer.enqueue("e6"));
+
+			List<String> events = new ArrayList<>();
+
+			assertEquals(3, ringBuffer.drainTo(events));
+			assertEquals(Arrays.asList("e2", "e3", "e6"), events);
+			assertNull(ringBuffer.poll());
+
+			Map<String, Object> metrics = (Map<String, Object>) AuditRingBuffer.getAllMetrics().get("testDropWhenFull");
+
+			assertEquals(4L, metrics.get("enqueuedCount"));
+			assertEquals(2L, metrics.get("droppedCount"));
+			assertTrue(((Map<String, Long>) metrics.get("enqueueLatencyNanos")).get("p99") > 0);
+		} finally {
+			ringBuffer.close();
+		}
+
+		assertFalse(AuditRingBuffer.getAllMetrics().containsKey("testDropWhenFull"));
+	}
+
+	@Test
+	public void testBackPressureTimeout() {
+		AuditRingBuffer<String> ringBuffer = new AuditRingBuffer<>(null, 1, WaitStrategy.PARK, FullPolicy.BACKPRESSURE, 50);
+
+		assertTrue(ringBuffer.enqueue("e1"));
+
+		long startTime = System.currentTimeMillis();
+
+		assertFalse(ringBuffer.enqueue("e2"));
+		assertTrue(System.currentTimeMillis() - startTime >= 50);
+		assertEquals(1L, ringBuffer.getMetrics().get("droppedCount"));
+	}
+
+	@Test
+	public void testCreateQueue() {
+		Properties props = new Properties();
+
+		assertTrue(AuditRingBuffer.createQueue(props, "xasecure.audit.batch", "batch", 10) instanceof ArrayBlockingQueue);
+
+		props.setProperty("xasecure.audit.batch.queue.type", "ring");
+		props.setProperty("xasecure.audit.batch.queue.ring.wait.strategy", "yield");
+		props.setProperty("xasecure.audit.batch.queue.ring.full.policy", "backpressure");
+
+		AuditRingBuffer<String> ringBuffer = (AuditRingBuffer<String>) AuditRingBuffer.<String>createQueue(props, "xasecure.audit.batch", "batch", 10);
+
+		ringBuffer.close();
+
+		assertEquals(WaitStrategy.YIELD, ringBuffer.getWaitStrategy());
+		assertEquals(FullPolicy.BACKPRESSURE, ringBuffer.getFullPolicy());
+		assertEquals(10, ringBuffer.remainingCapacity());
+	}
+}
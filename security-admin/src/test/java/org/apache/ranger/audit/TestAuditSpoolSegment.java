@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditSpoolSegment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAuditSpoolSegment {
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory("ranger-audit-spool").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testWriteAndReplay() throws Exception {
+		File                     file   = new File(dir, "spool.seg");
+		AuditSpoolSegment.Writer writer = AuditSpoolSegment.Writer.open(file, 1024 * 1024, 0);
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(writer.append("event-" + i));
+		}
+
+		writer.commit();
+
+		// preallocated segment is read while being written
+		assertEquals(1024 * 1024, file.length());
+		assertEquals(1000, readAll(file, 0).size());
+
+		long position;
+
+		try (AuditSpoolSegment.Reader reader = new AuditSpoolSegment.Reader(file, 0)) {
+			for (int i = 0; i < 600; i++) {
+				assertEquals("event-" + i, reader.next());
+			}
+
+			position = reader.getPosition();
+		}
+
+		writer.close();
+
+		assertEquals(writer.getPosition(), file.length());
+
+		// reopened segment: records are appended after the existing ones
+		writer = AuditSpoolSegment.Writer.open(file, 1024 * 1024, 0);
+
+		assertTrue(writer.append("event-1000"));
+
+		writer.close();
+
+		// replay resumes from the persisted position
+		List<String> records = readAll(file, position);
+
+		assertEquals(401, records.size());
+		assertEquals("event-600", records.get(0));
+		assertEquals("event-1000", records.get(400));
+	}
+
+	@Test
+	public void testRecordsLargerThanReadBuffer() throws Exception {
+		File                     file     = new File(dir, "spool.seg");
+		AuditSpoolSegment.Writer writer   = AuditSpoolSegment.Writer.open(file, 4 * 1024 * 1024, 0);
+		List<String>             expected = new ArrayList<>();
+
+		// records crossing the boundaries of the read buffer, and one larger than the read buffer
+		for (int i = 0; i < 2000; i++) {
+			expected.add(StringUtils.repeat("x", 300) + "-" + i);
+		}
+
+		expected.add(1000, StringUtils.repeat("y", 400 * 1024));
+
+		for (String record : expected) {
+			assertTrue(writer.append(record));
+		}
+
+		writer.close();
+
+		assertEquals(expected, readAll(file, 0));
+	}
+
+	@Test
+	public void testPartiallyWrittenRecord() throws Exception {
+		File                     file   = new File(dir, "spool.seg");
+		AuditSpoolSegment.Writer writer = AuditSpoolSegment.Writer.open(file, 64 * 1024, 0);
+
+		writer.append("event-0");
+		writer.append("event-1");
+		writer.commit();
+
+		long lastRecordPosition = writer.getPosition() - 8 - "event-1".length();
+
+		writer.close();
+
+		// corrupt payload of the last record, as if the process crashed while writing it
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(lastRecordPosition + 8);
+			raf.write('X');
+		}
+
+		List<String> records = readAll(file, 0);
+
+		assertEquals(1, records.size());
+		assertEquals("event-0", records.get(0));
+
+		// the corrupted record is overwritten by the next record
+		writer = AuditSpoolSegment.Writer.open(file, 64 * 1024, 0);
+
+		writer.append("event-2");
+		writer.close();
+
+		records = readAll(file, 0);
+
+		assertEquals(2, records.size());
+		assertEquals("event-2", records.get(1));
+	}
+
+	@Test
+	public void testSegmentFull() throws Exception {
+		File                     file   = new File(dir, "spool.seg");
+		AuditSpoolSegment.Writer writer = AuditSpoolSegment.Writer.open(file, 64, 0);
+		String                   large  = new String(new char[100]).replace('\0', 'a');
+
+		// the first record is accepted even if larger than the segment
+		assertTrue(writer.append(large));
+		assertFalse(writer.isFull());
+		assertFalse(writer.append("event-1"));
+		assertTrue(writer.isFull());
+
+		writer.close();
+
+		assertEquals(1, readAll(file, 0).size());
+	}
+
+	@Test
+	public void testAuditBatchQueueBinarySpool() throws Exception {
+		String     basePropName = "testAuditBatchQueueBinarySpool_" + MiscUtil.generateUniqueId();
+		Properties props        = new Properties();
+
+		props.put(basePropName + "." + BaseAuditHandler.PROP_NAME, basePropName);
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_SIZE, "3");
+		props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, "20");
+		props.put(basePropName + "." + AuditQueue.PROP_BATCH_INTERVAL, "100");
+		props.put(basePropName + "." + AuditQueue.PROP_FILE_SPOOL_ENABLE, "true");
+		props.put(basePropName + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, dir.getPath());
+		props.put(basePropName + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "10");
+		props.put(basePropName + "." + AuditSpoolSegment.PROP_FILE_SPOOL_FORMAT, AuditSpoolSegment.FORMAT_BINARY);
+
+		TestConsumer    testConsumer = new TestConsumer();
+		AuditBatchQueue queue        = new AuditBatchQueue(testConsumer);
+
+		testConsumer.isDown = true;
+
+		queue.init(props, basePropName);
+		queue.start();
+
+		for (int i = 1; i <= 10; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setSeqNum(i);
+
+			queue.log(event);
+		}
+
+		Thread.sleep(1000);
+
+		File[] segments = dir.listFiles((d, name) -> name.endsWith(".seg"));
+
+		assertTrue(segments != null && segments.length > 0);
+		assertEquals(0, testConsumer.getCountTotal());
+
+		testConsumer.isDown = false;
+
+		Thread.sleep(2000);
+
+		queue.waitToComplete(5000);
+		queue.stop();
+		queue.waitToComplete();
+
+		assertEquals("Total count", 10, testConsumer.getCountTotal());
+		assertNull("Event not in sequnce", testConsumer.isInSequence());
+	}
+
+	private List<String> readAll(File file, long position) throws Exception {
+		List<String> ret = new ArrayList<>();
+
+		try (AuditSpoolSegment.Reader reader = new AuditSpoolSegment.Reader(file, position)) {
+			for (String record = reader.next(); record != null; record = reader.next()) {
+				ret.add(record);
+			}
+		}
+
+		return ret;
+	}
+}
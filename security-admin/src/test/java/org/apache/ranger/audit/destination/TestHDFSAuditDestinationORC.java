@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.annotations.SerializedName;
+
+public class TestHDFSAuditDestinationORC {
+	private static final String PROP_PREFIX     = "xasecure.audit.destination.hdfs";
+	private static final int    ORC_BUFFER_SIZE = 10;
+
+	private File baseDir;
+
+	@Before
+	public void setUp() throws Exception {
+		baseDir = Files.createTempDirectory("ranger-audit-orc").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteQuietly(baseDir);
+	}
+
+	@Test
+	public void testTypedEventsWrittenSameAsJSON() throws Exception {
+		List<AuditEventBase> events = new ArrayList<>();
+
+		// more events than orc.buffersize, so that the row batch is written more than once
+		for (int i = 0; i < ORC_BUFFER_SIZE * 2 + 5; i++) {
+			events.add(createEvent(i));
+		}
+
+		events.add(new OtherAuditEvent("other-user", "/other/path", new Date(1600000000000L)));
+
+		HDFSAuditDestination jsonDestination  = createDestination("json");
+		HDFSAuditDestination typedDestination = createDestination("typed");
+
+		// the path taken before the typed path was added: events to JSON, and back to AuthzAuditEvent in the writer
+		List<String> jsonEvents = new ArrayList<>();
+
+		for (AuditEventBase event : events) {
+			jsonEvents.add(jsonDestination.toJson(event));
+		}
+
+		assertTrue(jsonDestination.logJSON(jsonEvents));
+		assertTrue(typedDestination.log(events));
+
+		jsonDestination.stop();
+		typedDestination.stop();
+
+		List<List<String>> jsonRows  = readRows(new File(baseDir, "json"));
+		List<List<String>> typedRows = readRows(new File(baseDir, "typed"));
+
+		assertEquals(events.size(), jsonRows.size());
+		assertEquals(jsonRows, typedRows);
+	}
+
+	private HDFSAuditDestination createDestination(String subDir) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + ".dir", new File(baseDir, subDir).toURI().toString());
+		props.setProperty(PROP_PREFIX + ".subdir", "audit");
+		props.setProperty(PROP_PREFIX + ".filename.format", "ranger_audit.orc");
+		props.setProperty(PROP_PREFIX + ".filetype", "orc");
+		props.setProperty(PROP_PREFIX + ".orc.buffersize", String.valueOf(ORC_BUFFER_SIZE));
+		props.setProperty(PROP_PREFIX + ".orc.compression", "none");
+
+		HDFSAuditDestination ret = new HDFSAuditDestination();
+
+		ret.init(props, PROP_PREFIX);
+		ret.start();
+
+		return ret;
+	}
+
+	private List<List<String>> readRows(File dir) throws Exception {
+		Collection<File> files = FileUtils.listFiles(dir, new String[] { "orc" }, true);
+
+		assertEquals(1, files.size());
+
+		List<List<String>> ret    = new ArrayList<>();
+		Reader             reader = OrcFile.createReader(new Path(files.iterator().next().toURI()), OrcFile.readerOptions(new Configuration()));
+		RecordReader       rows   = reader.rows();
+		VectorizedRowBatch batch  = reader.getSchema().createRowBatch();
+
+		try {
+			while (rows.nextBatch(batch)) {
+				for (int r = 0; r < batch.size; r++) {
+					List<String> row = new ArrayList<>(batch.numCols);
+
+					for (int c = 0; c < batch.numCols; c++) {
+						StringBuilder sb = new StringBuilder();
+
+						batch.cols[c].stringifyValue(sb, r);
+
+						row.add(sb.toString());
+					}
+
+					ret.add(row);
+				}
+			}
+		} finally {
+			rows.close();
+		}
+
+		return ret;
+	}
+
+	private static AuthzAuditEvent createEvent(int i) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setEventId("event-" + i);
+		ret.setSeqNum(i);
+		ret.setRepositoryType(1);
+		ret.setRepositoryName("dev_hdfs");
+		ret.setUser("user" + (i % 3));
+		ret.setEventTime(new Date(1600000000000L + i));
+		ret.setAccessType(i % 2 == 0 ? "read" : "write");
+		ret.setResourcePath("/data/file-" + i);
+		ret.setResourceType("path");
+		ret.setAction(i % 2 == 0 ? "read" : "write");
+		ret.setAccessResult((short) (i % 2));
+		ret.setAgentId("hdfs");
+		ret.setPolicyId(i);
+		ret.setResultReason("reason \"" + i + "\"\n");
+		ret.setAclEnforcer("ranger-acl");
+		ret.setClientIP("10.0.0." + i);
+		ret.setClientType("hdfs");
+		ret.setRequestData(i % 4 == 0 ? null : "request data " + i);
+		ret.setAgentHostname("host1");
+		ret.setLogType("RangerAudit");
+		ret.setEventCount(1);
+		ret.setEventDurationMS(i);
+		ret.setTags(new LinkedHashSet<>(Arrays.asList("PII", "tag" + i)));
+		ret.setAdditionalInfo("{\"i\":" + i + "}");
+		ret.setClusterName("cl1");
+		ret.setZoneName(i % 2 == 0 ? null : "zone1");
+		ret.setPolicyVersion((long) i);
+
+		return ret;
+	}
+
+	// an event of a type other than AuthzAuditEvent; the ORC writer takes the fields that AuthzAuditEvent has
+	static class OtherAuditEvent extends AuditEventBase {
+		@SerializedName("id")
+		private String eventId;
+
+		@SerializedName("reqUser")
+		private String user;
+
+		@SerializedName("resource")
+		private String resourcePath;
+
+		@SerializedName("evtTime")
+		private Date eventTime;
+
+		@SerializedName("extra")
+		private Map<String, String> extra = new HashMap<>();
+
+		OtherAuditEvent(String user, String resourcePath, Date eventTime) {
+			this.eventId      = "other-event";
+			this.user         = user;
+			this.resourcePath = resourcePath;
+			this.eventTime    = eventTime;
+
+			extra.put("key", "value");
+		}
+
+		@Override
+		public String getEventKey() {
+			return user + "^" + resourcePath;
+		}
+
+		@Override
+		public Date getEventTime() {
+			return eventTime;
+		}
+
+		@Override
+		public void setEventCount(long eventCount) {
+		}
+
+		@Override
+		public void setEventDurationMS(long eventDurationMS) {
+		}
+	}
+}
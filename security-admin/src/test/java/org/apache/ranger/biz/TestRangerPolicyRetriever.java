@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXPolicyDao;
+import org.apache.ranger.db.XXPolicyLabelDao;
+import org.apache.ranger.db.XXPolicyLabelMapDao;
+import org.apache.ranger.db.XXPolicyRefAccessTypeDao;
+import org.apache.ranger.db.XXPolicyRefConditionDao;
+import org.apache.ranger.db.XXPolicyRefDataMaskTypeDao;
+import org.apache.ranger.db.XXPolicyRefGroupDao;
+import org.apache.ranger.db.XXPolicyRefResourceDao;
+import org.apache.ranger.db.XXPolicyRefRoleDao;
+import org.apache.ranger.db.XXPolicyRefUserDao;
+import org.apache.ranger.db.XXPortalUserDao;
+import org.apache.ranger.db.XXServiceDefDao;
+import org.apache.ranger.entity.XXPolicy;
+import org.apache.ranger.entity.XXPolicyLabel;
+import org.apache.ranger.entity.XXPolicyLabelMap;
+import org.apache.ranger.entity.XXPortalUser;
+import org.apache.ranger.entity.XXService;
+import org.apache.ranger.entity.XXServiceDef;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestRangerPolicyRetriever {
+	private static final Long   SERVICE_ID     = 1L;
+	private static final Long   SERVICE_DEF_ID = 10L;
+	private static final Long   USER_ID        = 100L;
+	private static final String SERVICE_NAME   = "dev_hive";
+
+	@Mock
+	RangerDaoManager daoManager;
+
+	@Mock
+	XXPolicyDao xPolicyDao;
+
+	@Mock
+	XXServiceDefDao xServiceDefDao;
+
+	@Mock
+	XXPolicyLabelMapDao xPolicyLabelMapDao;
+
+	@Mock
+	XXPolicyLabelDao xPolicyLabelDao;
+
+	@Mock
+	XXPortalUserDao xPortalUserDao;
+
+	@Mock
+	XXPolicyRefRoleDao xPolicyRefRoleDao;
+
+	@Mock
+	XXPolicyRefGroupDao xPolicyRefGroupDao;
+
+	@Mock
+	XXPolicyRefUserDao xPolicyRefUserDao;
+
+	@Mock
+	XXPolicyRefAccessTypeDao xPolicyRefAccessTypeDao;
+
+	@Mock
+	XXPolicyRefResourceDao xPolicyRefResourceDao;
+
+	@Mock
+	XXPolicyRefDataMaskTypeDao xPolicyRefDataMaskTypeDao;
+
+	@Mock
+	XXPolicyRefConditionDao xPolicyRefConditionDao;
+
+	@Test
+	public void test01PartialLastPage() {
+		// pages of 5, 5 and 2 policies
+		verifyPagedLoad(12, 5, 3);
+	}
+
+	@Test
+	public void test02ExactPageSizeBoundary() {
+		// pages of 5 and 5 policies, followed by an empty page
+		verifyPagedLoad(10, 5, 3);
+	}
+
+	@Test
+	public void test03SinglePolicyPerPage() {
+		verifyPagedLoad(3, 1, 4);
+	}
+
+	@Test
+	public void test04NoPolicies() {
+		verifyPagedLoad(0, 5, 1);
+	}
+
+	@Test
+	public void test05SinglePage() {
+		verifyPagedLoad(7, 1000, 1);
+	}
+
+	private void verifyPagedLoad(int policyCount, int pageSize, int expectedQueryCount) {
+		XXService              xService  = createXXService();
+		List<XXPolicy>         xPolicies = createXXPolicies(policyCount);
+		List<XXPolicyLabelMap> labelMaps = createPolicyLabelMaps(xPolicies);
+
+		setupDaoManager(xPolicies, labelMaps);
+
+		List<RangerPolicy> expected = getPoliciesAsSingleQuery(xService, xPolicyDao.findByServiceId(SERVICE_ID), labelMaps);
+		List<RangerPolicy> policies = new RangerPolicyRetriever(daoManager, null, pageSize).getServicePolicies(xService);
+
+		Assert.assertNotNull(policies);
+		Assert.assertEquals(policyCount, policies.size());
+
+		for (int i = 0; i < policies.size(); i++) {
+			Assert.assertEquals("policy #" + i, JsonUtils.objectToJson(expected.get(i)), JsonUtils.objectToJson(policies.get(i)));
+		}
+
+		Mockito.verify(xPolicyDao, Mockito.times(expectedQueryCount)).findByServiceIdAfterPolicyId(ArgumentMatchers.eq(SERVICE_ID), ArgumentMatchers.anyLong(), ArgumentMatchers.eq(pageSize));
+		Mockito.verify(xPolicyDao, Mockito.never()).detach(ArgumentMatchers.any());
+
+		Map<String, Object> loadMetrics = RangerPolicyRetriever.getLoadMetrics();
+
+		Assert.assertEquals(policyCount, loadMetrics.get("lastPolicyCount"));
+		Assert.assertTrue("allocation of the load not measured", (Long) loadMetrics.get("lastAllocatedBytes") > 0);
+	}
+
+	private void setupDaoManager(final List<XXPolicy> xPolicies, List<XXPolicyLabelMap> labelMaps) {
+		Mockito.when(daoManager.getXXPolicy()).thenReturn(xPolicyDao);
+		Mockito.when(daoManager.getXXServiceDef()).thenReturn(xServiceDefDao);
+		Mockito.when(daoManager.getXXPolicyLabelMap()).thenReturn(xPolicyLabelMapDao);
+		Mockito.when(daoManager.getXXPolicyRefRole()).thenReturn(xPolicyRefRoleDao);
+		Mockito.when(daoManager.getXXPolicyRefGroup()).thenReturn(xPolicyRefGroupDao);
+		Mockito.when(daoManager.getXXPolicyRefUser()).thenReturn(xPolicyRefUserDao);
+		Mockito.when(daoManager.getXXPolicyRefAccessType()).thenReturn(xPolicyRefAccessTypeDao);
+		Mockito.when(daoManager.getXXPolicyRefResource()).thenReturn(xPolicyRefResourceDao);
+		Mockito.when(daoManager.getXXPolicyRefDataMaskType()).thenReturn(xPolicyRefDataMaskTypeDao);
+		Mockito.when(daoManager.getXXPolicyRefCondition()).thenReturn(xPolicyRefConditionDao);
+
+		XXServiceDef xServiceDef = new XXServiceDef();
+
+		xServiceDef.setId(SERVICE_DEF_ID);
+		xServiceDef.setName("hive");
+
+		Mockito.when(xServiceDefDao.getById(SERVICE_DEF_ID)).thenReturn(xServiceDef);
+		Mockito.when(xPolicyLabelMapDao.findByServiceId(SERVICE_ID)).thenReturn(labelMaps);
+		Mockito.when(xPolicyDao.findByServiceId(SERVICE_ID)).thenReturn(new ArrayList<>(xPolicies));
+
+		// keyset pagination over xPolicies, which are in the order of id
+		Mockito.when(xPolicyDao.findByServiceIdAfterPolicyId(ArgumentMatchers.eq(SERVICE_ID), ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt())).thenAnswer(invocation -> {
+			Long           afterPolicyId = invocation.getArgument(1);
+			int            maxResults    = invocation.getArgument(2);
+			List<XXPolicy> ret           = new ArrayList<>();
+
+			for (XXPolicy xPolicy : xPolicies) {
+				if (ret.size() == maxResults) {
+					break;
+				}
+
+				if (xPolicy.getId() > afterPolicyId) {
+					ret.add(xPolicy);
+				}
+			}
+
+			return ret;
+		});
+
+		if (!xPolicies.isEmpty()) {
+			XXPortalUser  xPortalUser  = new XXPortalUser();
+			XXPolicyLabel xPolicyLabel = new XXPolicyLabel();
+
+			xPortalUser.setId(USER_ID);
+			xPortalUser.setLoginId("admin");
+			xPortalUser.setPublicScreenName("Admin");
+
+			xPolicyLabel.setId(1L);
+			xPolicyLabel.setPolicyLabel("label-1");
+
+			Mockito.when(daoManager.getXXPortalUser()).thenReturn(xPortalUserDao);
+			Mockito.when(xPortalUserDao.findById(USER_ID)).thenReturn(xPortalUser);
+			Mockito.when(daoManager.getXXPolicyLabels()).thenReturn(xPolicyLabelDao);
+			Mockito.when(xPolicyLabelDao.getById(1L)).thenReturn(xPolicyLabel);
+		}
+	}
+
+	// builds policies the way they were built when all policies of the service were read with a single query
+	private List<RangerPolicy> getPoliciesAsSingleQuery(XXService xService, List<XXPolicy> xPolicies, List<XXPolicyLabelMap> labelMaps) {
+		List<RangerPolicy> ret = new ArrayList<>();
+
+		for (XXPolicy xPolicy : xPolicies) {
+			RangerPolicy policy = JsonUtils.jsonToObject(xPolicy.getPolicyText(), RangerPolicy.class);
+
+			policy.setId(xPolicy.getId());
+			policy.setGuid(xPolicy.getGuid());
+			policy.setCreatedBy("Admin");
+			policy.setUpdatedBy("Admin");
+			policy.setCreateTime(xPolicy.getCreateTime());
+			policy.setUpdateTime(xPolicy.getUpdateTime());
+			policy.setVersion(xPolicy.getVersion());
+			policy.setPolicyType(xPolicy.getPolicyType() == null ? RangerPolicy.POLICY_TYPE_ACCESS : xPolicy.getPolicyType());
+			policy.setService(xService.getName());
+			policy.setServiceType("hive");
+			policy.setZoneName(null);
+
+			for (XXPolicyLabelMap labelMap : labelMaps) {
+				if (labelMap.getPolicyId().equals(xPolicy.getId())) {
+					policy.setPolicyLabels(Collections.singletonList("label-1"));
+				}
+			}
+
+			ret.add(policy);
+		}
+
+		return ret;
+	}
+
+	private XXService createXXService() {
+		XXService ret = new XXService();
+
+		ret.setId(SERVICE_ID);
+		ret.setName(SERVICE_NAME);
+		ret.setType(SERVICE_DEF_ID);
+
+		return ret;
+	}
+
+	private List<XXPolicy> createXXPolicies(int count) {
+		List<XXPolicy> ret = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			// ids are increasing, but not contiguous
+			long         id     = 100L + (i * 3L);
+			RangerPolicy policy = new RangerPolicy();
+
+			policy.setName("policy-" + id);
+			policy.setService(SERVICE_NAME);
+			policy.setDescription("policy " + i + " of " + count);
+			policy.setResources(Collections.singletonMap("database", new RangerPolicyResource("db" + i)));
+			policy.setPolicyItems(Collections.singletonList(new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user" + i), null, null, null, Boolean.FALSE)));
+
+			XXPolicy xPolicy = new XXPolicy();
+
+			xPolicy.setId(id);
+			xPolicy.setGuid("guid-" + id);
+			xPolicy.setName(policy.getName());
+			xPolicy.setService(SERVICE_ID);
+			xPolicy.setVersion((long) (i + 1));
+			xPolicy.setPolicyType(i % 3 == 0 ? null : RangerPolicy.POLICY_TYPE_ACCESS);
+			xPolicy.setCreateTime(new Date(1000000L + i));
+			xPolicy.setUpdateTime(new Date(2000000L + i));
+			xPolicy.setAddedByUserId(USER_ID);
+			xPolicy.setUpdatedByUserId(USER_ID);
+			xPolicy.setPolicyText(JsonUtils.objectToJson(policy));
+
+			ret.add(xPolicy);
+		}
+
+		return ret;
+	}
+
+	// labels every other policy, so that policies with and without labels fall on either side of page boundaries
+	private List<XXPolicyLabelMap> createPolicyLabelMaps(List<XXPolicy> xPolicies) {
+		List<XXPolicyLabelMap> ret = new ArrayList<>();
+
+		for (int i = 0; i < xPolicies.size(); i += 2) {
+			XXPolicyLabelMap labelMap = new XXPolicyLabelMap();
+
+			labelMap.setId((long) i);
+			labelMap.setPolicyId(xPolicies.get(i).getId());
+			labelMap.setPolicyLabelId(1L);
+
+			ret.add(labelMap);
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerAdminCacheReplicator {
+	private final AtomicInteger loadCount = new AtomicInteger();
+	private File                dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory("ranger-cache-replication").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Test
+	public void testLoadedByOneNode() throws Exception {
+		RangerAdminCacheReplicator node1    = new RangerAdminCacheReplicator(dir, "node1", 10000, 60 * 1000);
+		RangerAdminCacheReplicator node2    = new RangerAdminCacheReplicator(dir, "node2", 10000, 60 * 1000);
+		ExecutorService            executor = Executors.newFixedThreadPool(2);
+		CountDownLatch             loading  = new CountDownLatch(1);
+
+		try {
+			Future<ServicePolicies> policies1 = executor.submit(() -> node1.load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", -1L, 5L, ServicePolicies.class, () -> {
+				loading.countDown();
+
+				Thread.sleep(300);
+
+				return createPolicies(5L);
+			}));
+
+			loading.await();
+
+			Future<ServicePolicies> policies2 = executor.submit(() -> node2.load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", -1L, 5L, ServicePolicies.class, () -> createPolicies(5L)));
+
+			assertEquals(Long.valueOf(5L), policies1.get(5, TimeUnit.SECONDS).getPolicyVersion());
+			assertEquals(Long.valueOf(5L), policies2.get(5, TimeUnit.SECONDS).getPolicyVersion());
+			assertEquals("cl1_hive", policies2.get().getServiceName());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// node that needs the same version later receives it from the directory
+		RangerAdminCacheReplicator node3 = new RangerAdminCacheReplicator(dir, "node3", 10000, 60 * 1000);
+
+		assertEquals(Long.valueOf(5L), node3.load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", -1L, 5L, ServicePolicies.class, () -> createPolicies(5L)).getPolicyVersion());
+
+		assertEquals(1, loadCount.get());
+		assertEquals(1L, node1.getMetrics().get("loadedFromDatabaseCount"));
+		assertEquals(1L, node2.getMetrics().get("receivedFromPeerCount"));
+		assertEquals(1L, node3.getMetrics().get("receivedFromPeerCount"));
+	}
+
+	@Test
+	public void testPeerTimeout() throws Exception {
+		RangerAdminCacheReplicator node1 = new RangerAdminCacheReplicator(dir, "node1", 200, 60 * 1000);
+		File                       lock  = new File(dir, RangerAdminCacheReplicator.CACHE_TYPE_POLICIES + "/cl1_hive/4-5.lock");
+
+		// lock of a node that stopped while loading
+		assertTrue(lock.getParentFile().mkdirs());
+		assertTrue(lock.createNewFile());
+
+		ServicePolicies policies = node1.load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", 4L, 5L, ServicePolicies.class, () -> createPolicies(5L));
+
+		assertEquals(Long.valueOf(5L), policies.getPolicyVersion());
+		assertEquals(1L, node1.getMetrics().get("peerTimeoutCount"));
+
+		// stale lock is removed and the next load writes the version for others
+		assertTrue(lock.setLastModified(System.currentTimeMillis() - 60 * 1000));
+
+		node1.load(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", 4L, 5L, ServicePolicies.class, () -> createPolicies(5L));
+
+		assertEquals(1L, node1.getMetrics().get("loadedFromDatabaseCount"));
+		assertFalse(lock.exists());
+		assertTrue(new File(lock.getParentFile(), "4-5.json.gz").exists());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConvergence() throws Exception {
+		RangerAdminCacheReplicator node1 = new RangerAdminCacheReplicator(dir, "node1", 10000, 60 * 1000);
+		RangerAdminCacheReplicator node2 = new RangerAdminCacheReplicator(dir, "node2", 10000, 60 * 1000);
+
+		node1.setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", 5L);
+		node1.setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_ROLES, RangerAdminCacheReplicator.ALL_SERVICES, 2L);
+		node2.setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", 4L);
+		node2.setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_ROLES, RangerAdminCacheReplicator.ALL_SERVICES, 2L);
+
+		Map<String, Object> metrics = node2.getMetrics();
+		Map<String, Object> caches  = (Map<String, Object>) metrics.get("caches");
+
+		assertEquals(2, metrics.get("nodeCount"));
+		assertEquals(1, metrics.get("unconvergedCacheCount"));
+		assertEquals(false, ((Map<String, Object>) caches.get("policies/cl1_hive")).get("converged"));
+		assertEquals(true, ((Map<String, Object>) caches.get("roles/_all_")).get("converged"));
+
+		node2.setCachedVersion(RangerAdminCacheReplicator.CACHE_TYPE_POLICIES, "cl1_hive", 5L);
+
+		assertEquals(0, node1.getMetrics().get("unconvergedCacheCount"));
+	}
+
+	private ServicePolicies createPolicies(Long version) {
+		ServicePolicies ret = new ServicePolicies();
+
+		loadCount.incrementAndGet();
+
+		ret.setServiceName("cl1_hive");
+		ret.setPolicyVersion(version);
+
+		return ret;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.ranger.common.RangerDownloadResponseCache.CachedPayload;
+import org.junit.Test;
+
+public class TestRangerDownloadResponseCache {
+	private static final String PAYLOAD = "{\"serviceName\":\"cl1_hive\",\"policyVersion\":10,\"policies\":[]}";
+
+	@Test
+	public void testSerializeOnce() throws Exception {
+		RangerDownloadResponseCache cache          = new RangerDownloadResponseCache(true, 1024 * 1024);
+		AtomicInteger               serializeCount = new AtomicInteger();
+		ExecutorService             executor       = Executors.newFixedThreadPool(8);
+
+		try {
+			Callable<CachedPayload> task = () -> cache.getPayload("policies:cl1_hive:10", out -> {
+				serializeCount.incrementAndGet();
+
+				out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+			});
+
+			Future<?>[] results = new Future<?>[32];
+
+			for (int i = 0; i < results.length; i++) {
+				results[i] = executor.submit(task);
+			}
+
+			for (Future<?> result : results) {
+				assertSame(results[0].get(), result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, serializeCount.get());
+
+		Map<String, Object> metrics = cache.getMetrics();
+
+		assertEquals(1, metrics.get("payloadCount"));
+		assertEquals(31L, metrics.get("hitCount"));
+		assertEquals(1L, metrics.get("missCount"));
+	}
+
+	@Test
+	public void testEncodings() throws Exception {
+		RangerDownloadResponseCache cache   = new RangerDownloadResponseCache(true, 1024 * 1024);
+		CachedPayload               payload = cache.getPayload("roles:cl1_hive:5", out -> out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+		byte[]                      json    = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(json.length, payload.getLength());
+		assertArrayEquals(json, payload.getBytes(RangerDownloadResponseCache.ENCODING_IDENTITY));
+		assertArrayEquals(json, decode(new GZIPInputStream(new ByteArrayInputStream(payload.getBytes(RangerDownloadResponseCache.ENCODING_GZIP)))));
+		assertArrayEquals(json, decode(new InflaterInputStream(new ByteArrayInputStream(payload.getBytes(RangerDownloadResponseCache.ENCODING_DEFLATE)))));
+
+		// same content gives the same ETag; different content a different one
+		CachedPayload same  = cache.getPayload("roles:cl1_hive:5:other-capabilities", out -> out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+		CachedPayload other = cache.getPayload("roles:cl1_hive:6", out -> out.write(PAYLOAD.replace("10", "11").getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(payload.getETag(), same.getETag());
+		assertNotEquals(payload.getETag(), other.getETag());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		RangerDownloadResponseCache cache = new RangerDownloadResponseCache(true, 1);
+
+		cache.getPayload("tags:cl1_hive:1", out -> out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+		cache.getPayload("tags:cl1_hive:2", out -> out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+
+		Map<String, Object> metrics = cache.getMetrics();
+
+		// the latest payload is retained even when larger than the limit
+		assertEquals(1, metrics.get("payloadCount"));
+		assertEquals(1L, metrics.get("evictionCount"));
+	}
+
+	@Test
+	public void testFailedSerialization() throws Exception {
+		RangerDownloadResponseCache cache = new RangerDownloadResponseCache(true, 1024 * 1024);
+
+		try {
+			cache.getPayload("userstore:cl1_hive:1", out -> {
+				throw new IOException("serialization failed");
+			});
+
+			fail("expected IOException");
+		} catch (IOException excp) {
+			// expected
+		}
+
+		assertEquals(0, cache.getMetrics().get("payloadCount"));
+
+		CachedPayload payload = cache.getPayload("userstore:cl1_hive:1", out -> out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(PAYLOAD.length(), payload.getLength());
+	}
+
+	private static byte[] decode(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try (InputStream is = in) {
+			IOUtils.copy(is, out);
+		}
+
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.store.RangerPolicySearchIndex;
+import org.apache.ranger.plugin.store.ServiceStore;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerServicePoliciesCache {
+	private static final String SERVICE_NAME = "cl1_hive";
+	private static final Long   SERVICE_ID   = 1L;
+
+	private ServiceStore               serviceStore;
+	private RangerServicePoliciesCache cache;
+	private long                       nextDeltaId = 1;
+
+	@Before
+	public void setup() throws Exception {
+		serviceStore = mock(ServiceStore.class);
+		cache        = new RangerServicePoliciesCache(10, 2);
+
+		when(serviceStore.getServicePolicyVersion(SERVICE_NAME)).thenReturn(1L);
+		when(serviceStore.getServicePolicyDeltasOrPolicies(SERVICE_NAME, -1L)).thenReturn(createServicePolicies(1L, Arrays.asList(createPolicy(1L, "v1"), createPolicy(2L, "v1")), null));
+
+		assertEquals(Long.valueOf(1L), getServicePolicies(-1L).getPolicyVersion());
+
+		// version 2: policy 3 created, policy 1 updated
+		updateVersion(1L, 2L, createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 2L, createPolicy(3L, "v2")), createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, createPolicy(1L, "v2")));
+		// version 3: policy 3 updated, policy 2 deleted
+		updateVersion(2L, 3L, createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 3L, createPolicy(3L, "v3")), createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 3L, createPolicy(2L, "v3")));
+	}
+
+	@Test
+	public void testDeltasFromCachedVersions() throws Exception {
+		ServicePolicies fromVersion2 = getServicePolicies(2L);
+
+		assertEquals(Long.valueOf(3L), fromVersion2.getPolicyVersion());
+		assertEquals(2, fromVersion2.getPolicyDeltas().size());
+
+		ServicePolicies fromVersion1 = getServicePolicies(1L);
+
+		assertEquals(Long.valueOf(3L), fromVersion1.getPolicyVersion());
+		assertNull(fromVersion1.getPolicies());
+
+		List<RangerPolicyDelta> deltas = fromVersion1.getPolicyDeltas();
+
+		// policy 3 is sent as created, with its content of version 3
+		assertEquals(3, deltas.size());
+		assertDelta(deltas.get(0), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 1L, "v2");
+		assertDelta(deltas.get(1), RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 3L, "v3");
+		assertDelta(deltas.get(2), RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 2L, "v3");
+
+		// merged once per version
+		assertSame(fromVersion1, getServicePolicies(1L));
+
+		verify(serviceStore, never()).getServicePolicyDeltas(anyString(), anyLong());
+
+		Map<String, Object> metrics = cache.getDeltaCacheMetrics();
+
+		assertEquals(2L, metrics.get("versionCount"));
+		assertEquals(4L, metrics.get("deltaCount"));
+		assertEquals(3L, metrics.get("hitCount"));
+		assertEquals(0L, metrics.get("missCount"));
+		assertEquals(1L, metrics.get("mergeCount"));
+	}
+
+	@Test
+	public void testVersionOutsideWindow() throws Exception {
+		// version 4 pushes deltas of version 1 out of the window of 2 versions
+		updateVersion(3L, 4L, createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 4L, createPolicy(1L, "v4")));
+
+		ServicePolicies deltasFromDb = createServicePolicies(4L, null, Collections.singletonList(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, createPolicy(3L, "v4"))));
+
+		when(serviceStore.getServicePolicyDeltas(SERVICE_NAME, 1L)).thenReturn(deltasFromDb);
+
+		assertSame(deltasFromDb, getServicePolicies(1L));
+		assertSame(deltasFromDb, getServicePolicies(1L));
+		assertNotNull(getServicePolicies(2L));
+
+		verify(serviceStore, times(1)).getServicePolicyDeltas(SERVICE_NAME, 1L);
+
+		Map<String, Object> metrics = cache.getDeltaCacheMetrics();
+
+		assertEquals(2L, metrics.get("versionCount"));
+		assertEquals(2L, metrics.get("hitCount"));
+		assertEquals(1L, metrics.get("missCount"));
+	}
+
+	@Test
+	public void testFullReloadClearsDeltas() throws Exception {
+		when(serviceStore.getServicePolicyVersion(SERVICE_NAME)).thenReturn(4L);
+		when(serviceStore.getServicePolicyDeltasOrPolicies(SERVICE_NAME, 3L)).thenReturn(createServicePolicies(4L, Collections.singletonList(createPolicy(1L, "v4")), null));
+
+		getServicePolicies(-1L);
+
+		assertEquals(0L, cache.getDeltaCacheMetrics().get("versionCount"));
+
+		getServicePolicies(2L);
+
+		verify(serviceStore, times(1)).getServicePolicyDeltas(SERVICE_NAME, 2L);
+	}
+
+	@Test
+	public void testPolicySearchIndex() throws Exception {
+		List<RangerPolicy>      policies = getServicePolicies(-1L).getPolicies();
+		RangerPolicySearchIndex index    = cache.getPolicySearchIndex(SERVICE_NAME, policies);
+
+		assertNotNull(index);
+		assertSame(index, cache.getPolicySearchIndex(SERVICE_NAME, policies));
+		assertEquals(2, index.getPolicyCount());
+
+		// version 4: policy 4 created; the index is updated, not rebuilt
+		updateVersion(3L, 4L, createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 4L, createPolicy(4L, "v4")));
+
+		List<RangerPolicy> newPolicies = getServicePolicies(-1L).getPolicies();
+
+		assertSame(index, cache.getPolicySearchIndex(SERVICE_NAME, newPolicies));
+		assertNull(cache.getPolicySearchIndex(SERVICE_NAME, policies));
+		assertEquals(3, index.getPolicyCount());
+
+		List<RangerPolicy> found = index.search(newPolicies, new SearchFilter(SearchFilter.POLICY_NAME, "policy-4"));
+
+		assertEquals(1, found.size());
+		assertEquals(Long.valueOf(4L), found.get(0).getId());
+	}
+
+	@Test
+	public void testMergeDeltas() {
+		List<RangerPolicyDelta> deltas = new ArrayList<>();
+
+		deltas.add(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 2L, createPolicy(5L, "v2")));
+		deltas.add(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 2L, createPolicy(6L, "v2")));
+		deltas.add(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, 3L, createPolicy(5L, "v3")));
+		deltas.add(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 3L, createPolicy(6L, "v3")));
+
+		List<RangerPolicyDelta> merged = RangerServicePoliciesCache.mergeDeltas(deltas);
+
+		assertEquals(1, merged.size());
+		assertDelta(merged.get(0), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 6L, "v3");
+
+		// no change after delete
+		deltas.add(createDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, 4L, createPolicy(5L, "v4")));
+
+		assertNull(RangerServicePoliciesCache.mergeDeltas(deltas));
+	}
+
+	private ServicePolicies getServicePolicies(long lastKnownVersion) throws Exception {
+		return cache.getServicePolicies(SERVICE_NAME, SERVICE_ID, lastKnownVersion, false, serviceStore);
+	}
+
+	private void updateVersion(long fromVersion, long toVersion, RangerPolicyDelta... deltas) throws Exception {
+		when(serviceStore.getServicePolicyVersion(SERVICE_NAME)).thenReturn(toVersion);
+		when(serviceStore.getServicePolicyDeltasOrPolicies(SERVICE_NAME, fromVersion)).thenReturn(createServicePolicies(toVersion, null, Arrays.asList(deltas)));
+
+		assertEquals(Long.valueOf(toVersion), getServicePolicies(-1L).getPolicyVersion());
+	}
+
+	private void assertDelta(RangerPolicyDelta delta, int changeType, Long policyId, String description) {
+		assertEquals(Integer.valueOf(changeType), delta.getChangeType());
+		assertEquals(policyId, delta.getPolicyId());
+		assertEquals(description, delta.getPolicy().getDescription());
+	}
+
+	private ServicePolicies createServicePolicies(Long version, List<RangerPolicy> policies, List<RangerPolicyDelta> deltas) {
+		ServicePolicies  ret        = new ServicePolicies();
+		RangerServiceDef serviceDef = new RangerServiceDef();
+
+		serviceDef.setName("hive");
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setServiceId(SERVICE_ID);
+		ret.setServiceDef(serviceDef);
+		ret.setPolicyVersion(version);
+		ret.setPolicies(policies);
+		ret.setPolicyDeltas(deltas);
+
+		return ret;
+	}
+
+	private RangerPolicyDelta createDelta(int changeType, Long version, RangerPolicy policy) {
+		return new RangerPolicyDelta(nextDeltaId++, changeType, version, policy);
+	}
+
+	private RangerPolicy createPolicy(Long id, String description) {
+		RangerPolicy ret = new RangerPolicy();
+
+		ret.setId(id);
+		ret.setService(SERVICE_NAME);
+		ret.setServiceType("hive");
+		ret.setName("policy-" + id);
+		ret.setDescription(description);
+
+		return ret;
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.store.TagStore;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRangerServiceTagsCache {
+	private static final String SERVICE_NAME = "cl1_hive";
+	private static final Long   SERVICE_ID   = 1L;
+
+	private TagStore               tagStore;
+	private RangerServiceTagsCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		tagStore = mock(TagStore.class);
+		cache    = new RangerServiceTagsCache(10, 2);
+
+		ServiceTags serviceTags = createServiceTags(1L, false);
+
+		serviceTags.getTags().put(1L, new RangerTag("PII", null));
+		serviceTags.getServiceResources().add(createResource(1L, "db1", "sig-1"));
+		serviceTags.getResourceToTagIds().put(1L, Collections.singletonList(1L));
+
+		when(tagStore.getTagVersion(SERVICE_NAME)).thenReturn(1L);
+		when(tagStore.getServiceTags(SERVICE_NAME, -1L)).thenReturn(serviceTags);
+
+		assertEquals(Long.valueOf(1L), getServiceTags(-1L).getTagVersion());
+
+		// version 2: tag 2 and resource 2 added, resource 1 changed
+		ServiceTags v2 = createServiceTags(2L, true);
+
+		v2.getTags().put(2L, new RangerTag("EXPIRED", null));
+		v2.getServiceResources().add(createResource(2L, "db2", "sig-2"));
+		v2.getServiceResources().add(createResource(1L, "db1a", "sig-1a"));
+		v2.getResourceToTagIds().put(2L, Collections.singletonList(2L));
+		v2.getResourceToTagIds().put(1L, Collections.singletonList(1L));
+
+		updateVersion(1L, v2);
+
+		// version 3: tag 2 and resource 2 removed, tag 3 added to resource 1
+		ServiceTags v3 = createServiceTags(3L, true);
+
+		v3.getTags().put(2L, new RangerTag());
+		v3.getTags().put(3L, new RangerTag("FINANCE", null));
+		v3.getServiceResources().add(createResource(2L, "db2", null));
+		v3.getResourceToTagIds().put(1L, Arrays.asList(1L, 3L));
+
+		updateVersion(2L, v3);
+	}
+
+	@Test
+	public void testCompactedDeltas() throws Exception {
+		ServiceTags fromVersion2 = getServiceTags(2L);
+
+		assertEquals(Long.valueOf(3L), fromVersion2.getTagVersion());
+		assertEquals(2, fromVersion2.getTags().size());
+
+		ServiceTags fromVersion1 = getServiceTags(1L);
+
+		assertEquals(Long.valueOf(3L), fromVersion1.getTagVersion());
+		assertTrue(fromVersion1.getIsDelta());
+
+		// tag 2 and resource 2, added and removed after version 1, are dropped
+		assertEquals(Collections.singleton(3L), fromVersion1.getTags().keySet());
+		assertEquals(Collections.singletonMap(1L, Arrays.asList(1L, 3L)), fromVersion1.getResourceToTagIds());
+
+		// resource 1 is removed with its resource of version 1, then added with its latest resource
+		List<RangerServiceResource> serviceResources = fromVersion1.getServiceResources();
+
+		assertEquals(2, serviceResources.size());
+		assertResource(serviceResources.get(0), 1L, "db1", null);
+		assertResource(serviceResources.get(1), 1L, "db1a", "sig-1a");
+
+		// merged once per version
+		assertSame(fromVersion1, getServiceTags(1L));
+
+		verify(tagStore, never()).getServiceTagsDelta(anyString(), anyLong());
+
+		Map<String, Object> metrics = cache.getDeltaCacheMetrics();
+
+		assertEquals(2L, metrics.get("versionCount"));
+		assertEquals(3L, metrics.get("hitCount"));
+		assertEquals(0L, metrics.get("missCount"));
+		assertEquals(1L, metrics.get("mergeCount"));
+		assertEquals(3L, metrics.get("deltaServedCount"));
+		assertEquals(3L, metrics.get("fullServedCount")); // downloads of versions 1, 2 and 3 in setup
+		assertTrue((Long) metrics.get("deltaServedBytes") > 0);
+	}
+
+	@Test
+	public void testVersionOutsideWindow() throws Exception {
+		// version 4 pushes deltas of version 1 out of the window of 2 versions
+		ServiceTags v4 = createServiceTags(4L, true);
+
+		v4.getTags().put(4L, new RangerTag("SENSITIVE", null));
+
+		updateVersion(3L, v4);
+
+		ServiceTags deltasFromDb = createServiceTags(4L, true);
+
+		when(tagStore.getServiceTagsDelta(SERVICE_NAME, 1L)).thenReturn(deltasFromDb);
+
+		assertSame(deltasFromDb, getServiceTags(1L));
+		assertSame(deltasFromDb, getServiceTags(1L));
+
+		verify(tagStore, times(1)).getServiceTagsDelta(SERVICE_NAME, 1L);
+
+		// no deltas in the database: full tags are returned
+		assertEquals(Boolean.FALSE, cache.getServiceTags(SERVICE_NAME, SERVICE_ID, 0L, false, tagStore).getIsDelta());
+
+		Map<String, Object> metrics = cache.getDeltaCacheMetrics();
+
+		assertEquals(2L, metrics.get("versionCount"));
+		assertEquals(1L, metrics.get("hitCount"));
+		assertEquals(2L, metrics.get("missCount"));
+		assertEquals(5L, metrics.get("fullServedCount"));
+		assertEquals(2L, metrics.get("deltaServedCount"));
+		assertTrue((Long) metrics.get("fullServedBytes") > 0);
+	}
+
+	@Test
+	public void testFullReloadClearsDeltas() throws Exception {
+		when(tagStore.getTagVersion(SERVICE_NAME)).thenReturn(4L);
+		when(tagStore.getServiceTags(SERVICE_NAME, 3L)).thenReturn(createServiceTags(4L, false));
+
+		getServiceTags(-1L);
+
+		assertEquals(0L, cache.getDeltaCacheMetrics().get("versionCount"));
+
+		getServiceTags(2L);
+
+		verify(tagStore, times(1)).getServiceTagsDelta(SERVICE_NAME, 2L);
+	}
+
+	private ServiceTags getServiceTags(long lastKnownVersion) throws Exception {
+		return cache.getServiceTags(SERVICE_NAME, SERVICE_ID, lastKnownVersion, false, tagStore);
+	}
+
+	private void updateVersion(long fromVersion, ServiceTags deltas) throws Exception {
+		when(tagStore.getTagVersion(SERVICE_NAME)).thenReturn(deltas.getTagVersion());
+		when(tagStore.getServiceTags(SERVICE_NAME, fromVersion)).thenReturn(deltas);
+
+		assertEquals(deltas.getTagVersion(), getServiceTags(-1L).getTagVersion());
+	}
+
+	private void assertResource(RangerServiceResource serviceResource, Long id, String database, String signature) {
+		assertEquals(id, serviceResource.getId());
+		assertEquals(Collections.singletonList(database), serviceResource.getResourceElements().get("database").getValues());
+		assertEquals(signature, serviceResource.getResourceSignature());
+	}
+
+	private ServiceTags createServiceTags(Long version, boolean isDelta) {
+		return new ServiceTags(ServiceTags.OP_ADD_OR_UPDATE, SERVICE_NAME, version, null, new HashMap<>(), new HashMap<>(), new ArrayList<>(), new HashMap<>(), isDelta, ServiceTags.TagsChangeExtent.ALL);
+	}
+
+	private RangerServiceResource createResource(Long id, String database, String signature) {
+		Map<String, RangerPolicy.RangerPolicyResource> resourceElements = new HashMap<>();
+
+		resourceElements.put("database", new RangerPolicy.RangerPolicyResource(database));
+
+		RangerServiceResource ret = new RangerServiceResource(null, SERVICE_NAME, resourceElements, signature);
+
+		ret.setId(id);
+
+		return ret;
+	}
+}
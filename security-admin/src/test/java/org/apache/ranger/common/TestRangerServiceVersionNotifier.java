@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.plugin.util.RangerServiceVersions;
+import org.junit.Test;
+
+public class TestRangerServiceVersionNotifier {
+	private final Map<String, RangerServiceVersions> dbVersions = new ConcurrentHashMap<>();
+	private final AtomicInteger                      loadCount  = new AtomicInteger();
+
+	@Test
+	public void testNotifyOnChange() throws Exception {
+		RangerServiceVersionNotifier notifier = createNotifier(10);
+		ExecutorService              executor = Executors.newFixedThreadPool(4);
+
+		dbVersions.put("cl1_hive", new RangerServiceVersions("cl1_hive", 5L, 3L, 1L));
+
+		try {
+			Future<RangerServiceVersions> policyWaiter = executor.submit(() -> notifier.waitForChange("cl1_hive", 5, 3, 1, 10000));
+			Future<RangerServiceVersions> tagWaiter    = executor.submit(() -> notifier.waitForChange("cl1_hive", -1, 3, -1, 10000));
+
+			Thread.sleep(200);
+
+			dbVersions.put("cl1_hive", new RangerServiceVersions("cl1_hive", 6L, 3L, 1L));
+
+			assertEquals(Long.valueOf(6L), policyWaiter.get(5, TimeUnit.SECONDS).getPolicyVersion());
+
+			// change in policy version must not wake up a plugin waiting only on tags
+			Thread.sleep(200);
+
+			assertFalse(tagWaiter.isDone());
+
+			dbVersions.put("cl1_hive", new RangerServiceVersions("cl1_hive", 6L, 4L, 1L));
+
+			assertEquals(Long.valueOf(4L), tagWaiter.get(5, TimeUnit.SECONDS).getTagVersion());
+
+			// a plugin that is already behind returns without waiting
+			assertEquals(Long.valueOf(6L), notifier.waitForChange("cl1_hive", 5, 4, 1, 10000).getPolicyVersion());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(3L, notifier.getMetrics().get("notifiedCount"));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		RangerServiceVersionNotifier notifier = createNotifier(10);
+
+		dbVersions.put("cl1_hive", new RangerServiceVersions("cl1_hive", 5L, 3L, 1L));
+
+		RangerServiceVersions versions = notifier.waitForChange("cl1_hive", 5, 3, 1, 300);
+
+		assertEquals(new RangerServiceVersions("cl1_hive", 5L, 3L, 1L), versions);
+		assertEquals(1L, notifier.getMetrics().get("timedOutCount"));
+
+		// unknown service: the versions known to the plugin are returned
+		versions = notifier.waitForChange("unknown", 5, -1, 1, 100);
+
+		assertEquals(new RangerServiceVersions("unknown", 5L, null, 1L), versions);
+
+		// versions are not loaded once no plugin is waiting
+		Thread.sleep(100);
+
+		int count = loadCount.get();
+
+		Thread.sleep(200);
+
+		assertEquals(count, loadCount.get());
+		assertEquals(0, notifier.getMetrics().get("watchedServiceCount"));
+	}
+
+	@Test
+	public void testMaxWaiters() throws Exception {
+		RangerServiceVersionNotifier notifier = createNotifier(2);
+		ExecutorService              executor = Executors.newFixedThreadPool(2);
+		CountDownLatch               started  = new CountDownLatch(2);
+
+		dbVersions.put("cl1_hive", new RangerServiceVersions("cl1_hive", 5L, 3L, 1L));
+
+		try {
+			for (int i = 0; i < 2; i++) {
+				executor.submit(() -> {
+					started.countDown();
+
+					return notifier.waitForChange("cl1_hive", 5, 3, 1, 10000);
+				});
+			}
+
+			started.await();
+
+			Thread.sleep(100);
+
+			assertNull(notifier.waitForChange("cl1_hive", 5, 3, 1, 10000));
+			assertEquals(1L, notifier.getMetrics().get("rejectedCount"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private RangerServiceVersionNotifier createNotifier(int maxWaiters) {
+		return new RangerServiceVersionNotifier(serviceNames -> {
+			Map<String, RangerServiceVersions> ret = new HashMap<>();
+
+			loadCount.incrementAndGet();
+
+			for (String serviceName : serviceNames) {
+				RangerServiceVersions versions = dbVersions.get(serviceName);
+
+				if (versions != null) {
+					ret.put(serviceName, versions);
+				}
+			}
+
+			return ret;
+		}, 20, maxWaiters, 60 * 1000);
+	}
+}
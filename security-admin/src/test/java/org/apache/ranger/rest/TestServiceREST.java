@@ -39,6 +39,7 @@
 import org.apache.ranger.biz.AssetMgr;
 import org.apache.ranger.biz.RangerPolicyAdmin;
 import org.apache.ranger.biz.RangerBizUtil;
+import org.apache.ranger.biz.RoleDBStore;
 import org.apache.ranger.biz.SecurityZoneDBStore;
 import org.apache.ranger.biz.ServiceDBStore;
 import org.apache.ranger.biz.ServiceMgr;
@@ -88,6 +89,9 @@
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
 import org.apache.ranger.plugin.store.PList;
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadRequest.ServiceRequest;
+import org.apache.ranger.plugin.util.RangerBulkDownloadResponse.ServiceResponse;
 import org.apache.ranger.plugin.util.RangerPluginCapability;
 import org.apache.ranger.plugin.util.SearchFilter;
 import org.apache.ranger.plugin.util.ServicePolicies;
@@ -150,6 +154,9 @@ public class TestServiceREST {
 	@Mock
 	TagDBStore tagStore;
 
+	@Mock
+	RoleDBStore roleDBStore;
+
 	@Mock
 	RangerServiceService svcService;
 
@@ -2153,6 +2160,77 @@ public void test63getServices() throws Exception{
 		
 	}
 
+	@Test
+	public void test64secureBulkDownloadTagsNotAllowedForPolicyDownloadUser() throws Exception {
+		HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+		XXService xService = xService();
+		XXServiceDef xServiceDef = serviceDef();
+		String serviceName = xService.getName();
+		RangerService rs = rangerService();
+		ServicePolicies sp = servicePolicies();
+		XXServiceDefDao xServiceDefDao = Mockito.mock(XXServiceDefDao.class);
+		Mockito.when(serviceUtil.isValidService(serviceName, request)).thenReturn(true);
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+		Mockito.when(xServiceDao.findByName(serviceName)).thenReturn(xService);
+		Mockito.when(daoManager.getXXServiceDef()).thenReturn(xServiceDefDao);
+		Mockito.when(xServiceDefDao.getById(xService.getType())).thenReturn(xServiceDef);
+		Mockito.when(svcStore.getServiceByName(serviceName)).thenReturn(rs);
+		Mockito.when(bizUtil.isUserAllowed(rs, ServiceREST.Allowed_User_List_For_Download)).thenReturn(true);
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, 1L, true)).thenReturn(sp);
+
+		RangerBulkDownloadRequest bulkRequest = bulkDownloadRequest(serviceName, 1L, 1L, null);
+		ServiceResponse serviceResponse = serviceREST.secureBulkDownload(bulkRequest, request).getServices().get(0);
+
+		Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_OK), serviceResponse.getPolicyStatus());
+		Assert.assertEquals(sp, serviceResponse.getPolicies());
+		Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_FORBIDDEN), serviceResponse.getTagStatus());
+		Assert.assertNull(serviceResponse.getTags());
+		Mockito.verify(bizUtil).isUserAllowed(rs, TagREST.Allowed_User_List_For_Tag_Download);
+		Mockito.verify(tagStore, Mockito.never()).getServiceTagsIfUpdated(Mockito.anyString(), Mockito.anyLong(), Mockito.anyBoolean());
+	}
+
+	@Test
+	public void test65secureBulkDownloadRolesNotAllowedForGrantRevokeUser() throws Exception {
+		HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+		XXService xService = xService();
+		XXServiceDef xServiceDef = serviceDef();
+		String serviceName = xService.getName();
+		RangerService rs = rangerService();
+		ServicePolicies sp = servicePolicies();
+		XXServiceDefDao xServiceDefDao = Mockito.mock(XXServiceDefDao.class);
+		Mockito.when(serviceUtil.isValidService(serviceName, request)).thenReturn(true);
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+		Mockito.when(xServiceDao.findByName(serviceName)).thenReturn(xService);
+		Mockito.when(daoManager.getXXServiceDef()).thenReturn(xServiceDefDao);
+		Mockito.when(xServiceDefDao.getById(xService.getType())).thenReturn(xServiceDef);
+		Mockito.when(svcStore.getServiceByName(serviceName)).thenReturn(rs);
+		Mockito.when(bizUtil.isUserAllowed(rs, ServiceREST.Allowed_User_List_For_Grant_Revoke)).thenReturn(true);
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, 1L, true)).thenReturn(sp);
+
+		RangerBulkDownloadRequest bulkRequest = bulkDownloadRequest(serviceName, 1L, null, 1L);
+		ServiceResponse serviceResponse = serviceREST.secureBulkDownload(bulkRequest, request).getServices().get(0);
+
+		Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_OK), serviceResponse.getPolicyStatus());
+		Assert.assertEquals(sp, serviceResponse.getPolicies());
+		Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_FORBIDDEN), serviceResponse.getRoleStatus());
+		Assert.assertNull(serviceResponse.getRoles());
+		Mockito.verify(bizUtil).isUserAllowed(rs, RoleREST.POLICY_DOWNLOAD_USERS);
+		Mockito.verify(roleDBStore, Mockito.never()).getRoles(Mockito.anyString(), Mockito.anyLong());
+	}
+
+	private RangerBulkDownloadRequest bulkDownloadRequest(String serviceName, Long lastKnownPolicyVersion, Long lastKnownTagVersion, Long lastKnownRoleVersion) {
+		ServiceRequest serviceRequest = new ServiceRequest();
+
+		serviceRequest.setServiceName(serviceName);
+		serviceRequest.setPluginId("1");
+		serviceRequest.setLastKnownPolicyVersion(lastKnownPolicyVersion);
+		serviceRequest.setLastKnownTagVersion(lastKnownTagVersion);
+		serviceRequest.setLastKnownRoleVersion(lastKnownRoleVersion);
 
+		RangerBulkDownloadRequest ret = new RangerBulkDownloadRequest();
 
+		ret.getServices().add(serviceRequest);
+
+		return ret;
+	}
 }
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.spi.MessageBodyWorkers;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+
+public class TestRangerDownloadResponseFilter {
+	@Test
+	public void testCacheKey() {
+		ServicePolicies policies = new ServicePolicies();
+
+		policies.setPolicyVersion(10L);
+		policies.setPolicies(Collections.singletonList(new RangerPolicy()));
+
+		String fullFromVersion8 = RangerDownloadResponseFilter.getCacheKey(createRequest("cl1_hive", "8", null), policies);
+		String fullFromVersion9 = RangerDownloadResponseFilter.getCacheKey(createRequest("cl1_hive", "9", null), policies);
+
+		// full policies don't depend on the version known to the plugin
+		assertEquals(fullFromVersion8, fullFromVersion9);
+		assertNotEquals(fullFromVersion8, RangerDownloadResponseFilter.getCacheKey(createRequest("cl2_hive", "8", null), policies));
+
+		policies.setPolicies(null);
+		policies.setPolicyDeltas(Collections.emptyList());
+
+		assertNotEquals(RangerDownloadResponseFilter.getCacheKey(createRequest("cl1_hive", "8", null), policies), RangerDownloadResponseFilter.getCacheKey(createRequest("cl1_hive", "9", null), policies));
+		assertNull(RangerDownloadResponseFilter.getCacheKey(createRequest("cl1_hive", "8", null), "not a download"));
+	}
+
+	@Test
+	public void testAcceptedEncoding() {
+		assertEquals("gzip", RangerDownloadResponseFilter.getAcceptedEncoding(Collections.singletonList("deflate, gzip;q=0.8")));
+		assertEquals("deflate", RangerDownloadResponseFilter.getAcceptedEncoding(Collections.singletonList("gzip;q=0, deflate")));
+		assertEquals("deflate", RangerDownloadResponseFilter.getAcceptedEncoding(Arrays.asList("br", "deflate")));
+		assertEquals("identity", RangerDownloadResponseFilter.getAcceptedEncoding(null));
+	}
+
+	@Test
+	public void testETagMatch() {
+		String eTag = "W/\"1a2b-40\"";
+
+		assertTrue(RangerDownloadResponseFilter.isETagMatched(Collections.singletonList("\"ffff-10\", W/\"1a2b-40\""), eTag));
+		assertTrue(RangerDownloadResponseFilter.isETagMatched(Collections.singletonList("\"1a2b-40\""), eTag));
+		assertTrue(RangerDownloadResponseFilter.isETagMatched(Collections.singletonList("*"), eTag));
+		assertFalse(RangerDownloadResponseFilter.isETagMatched(Collections.singletonList("W/\"1a2b-41\""), eTag));
+		assertFalse(RangerDownloadResponseFilter.isETagMatched(null, eTag));
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		RangerDownloadResponseFilter filter = new RangerDownloadResponseFilter();
+		RangerRoles                  roles  = new RangerRoles();
+
+		roles.setServiceName("cl1_hive");
+		roles.setRoleVersion(System.nanoTime());
+
+		ContainerRequest  request  = createRequest("cl1_hive", null, "gzip");
+		ContainerResponse response = createResponse(request, roles);
+
+		filter.filter(request, response);
+
+		byte[] gzipped = (byte[]) response.getEntity();
+		String eTag    = (String) response.getHttpHeaders().getFirst("ETag");
+
+		assertEquals("gzip", response.getHttpHeaders().getFirst("Content-Encoding"));
+		assertEquals(0x1f, gzipped[0] & 0xff);
+		assertEquals(0x8b, gzipped[1] & 0xff);
+
+		request  = createRequest("cl1_hive", null, null);
+		response = createResponse(request, roles);
+
+		filter.filter(request, response);
+
+		assertEquals("{\"roleVersion\":" + roles.getRoleVersion() + "}", new String((byte[]) response.getEntity(), StandardCharsets.UTF_8));
+		assertNull(response.getHttpHeaders().getFirst("Content-Encoding"));
+		assertEquals(eTag, response.getHttpHeaders().getFirst("ETag"));
+
+		when(request.getRequestHeader("If-None-Match")).thenReturn(Collections.singletonList(eTag));
+
+		response = createResponse(request, roles);
+
+		filter.filter(request, response);
+
+		assertEquals(304, response.getStatus());
+		assertNull(response.getEntity());
+	}
+
+	private static ContainerRequest createRequest(String serviceName, String lastKnownVersion, String acceptEncoding) {
+		ContainerRequest               request     = mock(ContainerRequest.class);
+		PathSegment                    segment     = mock(PathSegment.class);
+		MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+
+		if (lastKnownVersion != null) {
+			queryParams.putSingle("lastKnownVersion", lastKnownVersion);
+		}
+
+		when(segment.getPath()).thenReturn(serviceName);
+		when(request.getPathSegments()).thenReturn(Collections.singletonList(segment));
+		when(request.getQueryParameters()).thenReturn(queryParams);
+		when(request.getRequestHeader("Accept-Encoding")).thenReturn(acceptEncoding != null ? Collections.singletonList(acceptEncoding) : null);
+
+		return request;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ContainerResponse createResponse(ContainerRequest request, RangerRoles roles) throws Exception {
+		ContainerResponse  response = mock(ContainerResponse.class);
+		MessageBodyWorkers workers  = mock(MessageBodyWorkers.class);
+		MessageBodyWriter  writer   = mock(MessageBodyWriter.class);
+		Object[]           entity   = { roles };
+		int[]              status   = { 200 };
+		OutBoundHeaders    headers  = new OutBoundHeaders();
+
+		when(request.getMessageBodyWorkers()).thenReturn(workers);
+		when(workers.getMessageBodyWriter(any(), any(), any(), any())).thenReturn(writer);
+
+		doAnswer(invocation -> {
+			invocation.getArgument(6, OutputStream.class).write(("{\"roleVersion\":" + roles.getRoleVersion() + "}").getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).when(writer).writeTo(any(), any(), any(), any(), any(), any(), any());
+
+		doAnswer(invocation -> status[0] = invocation.getArgument(0)).when(response).setStatus(anyInt());
+		doAnswer(invocation -> entity[0] = invocation.getArgument(0)).when(response).setEntity(any());
+
+		when(response.getStatus()).thenAnswer(invocation -> status[0]);
+		when(response.getEntity()).thenAnswer(invocation -> entity[0]);
+		when(response.getEntityType()).thenReturn(RangerRoles.class);
+		when(response.getAnnotations()).thenReturn(new Annotation[0]);
+		when(response.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+		when(response.getHttpHeaders()).thenReturn(headers);
+
+		return response;
+	}
+}